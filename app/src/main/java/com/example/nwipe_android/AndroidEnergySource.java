@@ -0,0 +1,72 @@
+package com.example.nwipe_android;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.util.Log;
+
+/**
+ * EnergyMeter readings from the platform: the fuel gauge's BatteryManager properties for charge
+ * counter and current, and the sticky ACTION_BATTERY_CHANGED broadcast for voltage and whether
+ * the device is plugged in.
+ */
+public class AndroidEnergySource implements EnergyMeter.Source {
+    private static final String TAG = "AndroidEnergySource";
+
+    private final Context appContext;
+    private final BatteryManager batteryManager;
+
+    public AndroidEnergySource(Context context) {
+        this.appContext = context.getApplicationContext();
+        this.batteryManager = (BatteryManager) appContext.getSystemService(Context.BATTERY_SERVICE);
+    }
+
+    @Override
+    public long chargeCounterMicroAh() {
+        return property(BatteryManager.BATTERY_PROPERTY_CHARGE_COUNTER);
+    }
+
+    @Override
+    public long currentNowMicroA() {
+        return property(BatteryManager.BATTERY_PROPERTY_CURRENT_NOW);
+    }
+
+    @Override
+    public long voltageMillivolts() {
+        Intent battery = batteryState();
+        int millivolts = battery != null ? battery.getIntExtra(BatteryManager.EXTRA_VOLTAGE, -1) : -1;
+        return millivolts > 0 ? millivolts : EnergyMeter.UNSUPPORTED;
+    }
+
+    @Override
+    public boolean isCharging() {
+        // Plugged in counts even when full: the wipe then runs on external power
+        Intent battery = batteryState();
+        return battery != null && battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+    }
+
+    /**
+     * A BatteryManager property; older devices report 0 and newer ones Long.MIN_VALUE when the
+     * fuel gauge does not provide it.
+     */
+    private long property(int id) {
+        if (batteryManager == null) return EnergyMeter.UNSUPPORTED;
+        try {
+            long value = batteryManager.getLongProperty(id);
+            return value == 0 || value == Long.MIN_VALUE ? EnergyMeter.UNSUPPORTED : value;
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Battery property " + id + " unavailable: " + e.getMessage());
+            return EnergyMeter.UNSUPPORTED;
+        }
+    }
+
+    private Intent batteryState() {
+        try {
+            return appContext.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        } catch (Exception e) {
+            Log.w(TAG, "Battery state unavailable: " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.nwipe_android;
+
+import android.util.Log;
+
+/**
+ * EngineLog to logcat.
+ */
+public class AndroidEngineLog implements EngineLog {
+    public static final AndroidEngineLog INSTANCE = new AndroidEngineLog();
+
+    @Override
+    public void d(String tag, String message) {
+        Log.d(tag, message);
+    }
+
+    @Override
+    public void i(String tag, String message) {
+        Log.i(tag, message);
+    }
+
+    @Override
+    public void w(String tag, String message) {
+        Log.w(tag, message);
+    }
+
+    @Override
+    public void e(String tag, String message) {
+        Log.e(tag, message);
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.nwipe_android;
+
+import android.system.ErrnoException;
+import android.system.Os;
+
+import java.io.File;
+
+/**
+ * IoAccounting counters from the platform: the proc and sysfs files, plus st_blocks from
+ * Os.stat for the allocated size of the wipe files.
+ */
+public class AndroidIoSource extends IoAccounting.FileSource {
+    // st_blocks is in 512-byte units regardless of the filesystem block size
+    private static final long BLOCK_BYTES = 512;
+
+    @Override
+    public long allocatedBytes(File file) {
+        try {
+            return Os.stat(file.getAbsolutePath()).st_blocks * BLOCK_BYTES;
+        } catch (ErrnoException | SecurityException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.nwipe_android;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.PowerManager;
+import android.util.Log;
+
+/**
+ * ThrottleGovernor signals from the platform: PowerManager thermal status (API 29+) and
+ * headroom (API 30+), and the sticky ACTION_BATTERY_CHANGED broadcast for level and charging.
+ */
+public class AndroidSignalSource implements ThrottleGovernor.SignalSource {
+    private static final String TAG = "AndroidSignalSource";
+    // Forecast window for getThermalHeadroom; roughly one governor sample interval ahead
+    private static final int HEADROOM_FORECAST_SECONDS = 10;
+
+    private final Context appContext;
+    private final PowerManager powerManager;
+
+    public AndroidSignalSource(Context context) {
+        this.appContext = context.getApplicationContext();
+        this.powerManager = (PowerManager) appContext.getSystemService(Context.POWER_SERVICE);
+    }
+
+    @Override
+    public ThrottleGovernor.Signals read() {
+        int thermalStatus = ThrottleGovernor.THERMAL_STATUS_UNKNOWN;
+        float headroom = Float.NaN;
+        if (powerManager != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            thermalStatus = powerManager.getCurrentThermalStatus();
+        }
+        if (powerManager != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            // NaN when unsupported or when called more often than the platform allows
+            headroom = powerManager.getThermalHeadroom(HEADROOM_FORECAST_SECONDS);
+        }
+
+        int batteryPercent = -1;
+        boolean charging = false;
+        try {
+            Intent battery = appContext.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+            if (battery != null) {
+                int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+                int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+                if (level >= 0 && scale > 0) batteryPercent = level * 100 / scale;
+                int status = battery.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+                charging = status == BatteryManager.BATTERY_STATUS_CHARGING || status == BatteryManager.BATTERY_STATUS_FULL;
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Battery state unavailable: " + e.getMessage());
+        }
+        return new ThrottleGovernor.Signals(thermalStatus, headroom, batteryPercent, charging);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.nwipe_android;
+
+import android.content.Context;
+
+import java.io.File;
+
+/**
+ * StorageProvider from the platform: StorageManager and the cached StorageTopology for the
+ * wipeable locations and their capacity, the app's filesDir for the engine state.
+ */
+public class AndroidStorageProvider implements StorageProvider {
+    private final Context appContext;
+
+    public AndroidStorageProvider(Context context) {
+        this.appContext = context.getApplicationContext();
+    }
+
+    @Override
+    public StorageInfo getStorageInfo(boolean refreshCapacity) {
+        return StorageManager.getStorageInfo(appContext, refreshCapacity);
+    }
+
+    @Override
+    public File getFilesDir() {
+        return appContext.getFilesDir();
+    }
+
+    @Override
+    public MountPointTrie.Match<StorageLocation> resolveLocation(File target) {
+        String canonical = StorageTopology.canonicalPath(target);
+        return StorageTopology.get(appContext).getSnapshot().resolveLocation(canonical);
+    }
+
+    @Override
+    public long getFreeSpace(File directory) {
+        return directory.getFreeSpace();
+    }
+}
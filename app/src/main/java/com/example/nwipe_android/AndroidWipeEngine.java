@@ -0,0 +1,19 @@
+package com.example.nwipe_android;
+
+import android.content.Context;
+
+/**
+ * Builds a WipeEngine bound to the platform: storage from StorageManager, logcat, and the
+ * battery and block I/O counters of the device.
+ */
+public final class AndroidWipeEngine {
+    private AndroidWipeEngine() {}
+
+    public static WipeEngine create(Context context, ProgressBus bus, WipeEngine.CancelToken cancelToken) {
+        Context appContext = context.getApplicationContext();
+        return new WipeEngine(new AndroidStorageProvider(appContext), bus, cancelToken)
+            .setLog(AndroidEngineLog.INSTANCE)
+            .setIoSource(new AndroidIoSource())
+            .setEnergySource(new AndroidEnergySource(appContext));
+    }
+}
@@ -7,6 +7,7 @@ import android.util.Log;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 
 import java.io.File;
@@ -49,6 +50,16 @@ public class JSONCertificateGenerator {
                 gson.toJson(certificateJson, writer);
             }
             
+            // The full timeline goes next to the certificate; the JSON names it and summarizes it
+            if (certificate.getTimeline() != null) {
+                File timelineFile = timelineFileFor(jsonFile);
+                try {
+                    certificate.getTimeline().save(timelineFile);
+                } catch (IOException e) {
+                    Log.w(TAG, "Failed to save throughput timeline: " + e.getMessage());
+                }
+            }
+            
             Log.i(TAG, "JSON certificate generated: " + jsonFile.getAbsolutePath());
             return jsonFile;
             
@@ -90,12 +101,96 @@ public class JSONCertificateGenerator {
         operation.addProperty("verification_enabled", certificate.isVerificationEnabled());
         root.add("operation", operation);
         
+        // The data each completed pass wrote: "random" or the fixed pattern in hex
+        WipeReport report = certificate.getReport();
+        if (report != null && report.passPatterns != null) {
+            JsonArray patterns = new JsonArray();
+            for (String pattern : report.passPatterns) patterns.add(pattern);
+            operation.add("pass_patterns", patterns);
+        }
+        
+        // What a time-boxed job achieved against its deadline, pass by pass
+        if (report != null && report.deadline != null) {
+            JsonObject deadline = new Gson().toJsonTree(report.deadline).getAsJsonObject();
+            deadline.addProperty("summary", report.deadline.summary());
+            root.add("deadline", deadline);
+        }
+        
         // Performance metrics
         JsonObject performance = new JsonObject();
         performance.addProperty("duration_milliseconds", certificate.getDurationMillis());
         performance.addProperty("duration_formatted", certificate.getFormattedDuration());
         performance.addProperty("average_speed_mbps", certificate.getAverageSpeedMBps());
         performance.addProperty("throughput_gbps", certificate.getAverageSpeedMBps() / 1024.0);
+        if (report != null && report.latency != null && !report.latency.isEmpty()) {
+            // Percentiles only; the full histograms stay in the job's report file
+            JsonObject latency = new JsonObject();
+            for (java.util.Map.Entry<String, LatencyHistogram.Summary> entry : report.latency.entrySet()) {
+                LatencyHistogram.Summary summary = entry.getValue();
+                JsonObject phase = new JsonObject();
+                phase.addProperty("count", summary.count);
+                phase.addProperty("mean_us", summary.meanMicros);
+                phase.addProperty("p50_us", summary.p50Micros);
+                phase.addProperty("p99_us", summary.p99Micros);
+                phase.addProperty("p999_us", summary.p999Micros);
+                phase.addProperty("max_us", summary.maxMicros);
+                latency.add(entry.getKey(), phase);
+            }
+            performance.add("latency", latency);
+        }
+        if (report != null && report.io != null) {
+            // How much of what was written reached storage; below 1 part of the wipe was absorbed
+            JsonObject io = new Gson().toJsonTree(report.io).getAsJsonObject();
+            io.addProperty("summary", report.io.describe());
+            performance.add("io_accounting", io);
+            if (report.io.basis != null) performance.addProperty("write_amplification", report.io.writeAmplification);
+        }
+        if (report != null && report.energy != null) {
+            // Battery cost per gigabyte written and verified, for planning unplugged batches
+            JsonObject energy = new JsonObject();
+            energy.addProperty("configuration", report.energy.configuration);
+            energy.addProperty("basis", report.energy.basis);
+            energy.addProperty("measured", report.energy.isKnown());
+            energy.addProperty("samples", report.energy.samples);
+            energy.addProperty("charging_samples", report.energy.chargingSamples);
+            if (report.energy.isKnown()) {
+                energy.add("total", energyJson(report.energy.total));
+                JsonArray phases = new JsonArray();
+                for (EnergyMeter.PhaseEnergy phase : report.energy.phases) phases.add(energyJson(phase));
+                energy.add("phases", phases);
+            }
+            energy.addProperty("summary", report.energy.describe());
+            performance.add("energy", energy);
+        }
+        ThroughputTimeline timeline = certificate.getTimeline();
+        if (timeline != null && !timeline.isEmpty()) {
+            JsonObject timelineJson = new JsonObject();
+            timelineJson.addProperty("file", String.format("SecureWipe_Certificate_%s%s",
+                certificate.getCertificateId().substring(0, 8), ThroughputTimeline.FILE_SUFFIX));
+            JsonArray passes = new JsonArray();
+            for (ThroughputTimeline.Series series : timeline.getSeries()) {
+                if (series.points.isEmpty()) continue;
+                JsonObject pass = new JsonObject();
+                pass.addProperty("pass", series.pass + 1);
+                pass.addProperty("blanking", series.zeros);
+                pass.addProperty("points", series.points.size());
+                pass.addProperty("span_bytes", series.spanBytes);
+                pass.addProperty("median_mbps", series.getMedianBytesPerSec() / (1024 * 1024));
+                JsonArray cliffs = new JsonArray();
+                for (ThroughputTimeline.Cliff cliff : series.findCliffs()) {
+                    JsonObject cliffJson = new JsonObject();
+                    cliffJson.addProperty("offset_bytes", cliff.offset);
+                    cliffJson.addProperty("before_mbps", cliff.beforeBytesPerSec / (1024 * 1024));
+                    cliffJson.addProperty("after_mbps", cliff.afterBytesPerSec / (1024 * 1024));
+                    cliffJson.addProperty("degraded", cliff.isDegraded());
+                    cliffs.add(cliffJson);
+                }
+                pass.add("cliffs", cliffs);
+                passes.add(pass);
+            }
+            timelineJson.add("passes", passes);
+            performance.add("throughput_timeline", timelineJson);
+        }
         root.add("performance", performance);
         
         // Security verification
@@ -133,7 +228,9 @@ public class JSONCertificateGenerator {
         // Compliance information
         JsonObject compliance = new JsonObject();
         compliance.addProperty("nist_sp_800_88", true); // NIST Special Publication 800-88 compliance
-        compliance.addProperty("dod_5220_22_m", certificate.getPassesCompleted() >= 3); // DoD 5220.22-M compliance
+        // DoD 5220.22-M only when one of its schedules ran in full (see WipeScheme.complianceStandards)
+        compliance.addProperty("dod_5220_22_m", certificate.getComplianceStandards() != null
+            && certificate.getComplianceStandards().contains(WipeScheme.STANDARD_DOD));
         compliance.addProperty("hipaa_compliant", certificate.isSecurityCompliant());
         compliance.addProperty("gdpr_right_to_erasure", true);
         root.add("compliance", compliance);
@@ -154,6 +251,14 @@ public class JSONCertificateGenerator {
         return sdf.format(new Date(timestamp));
     }
     
+    /**
+     * The timeline file saved next to a JSON certificate.
+     */
+    static File timelineFileFor(File jsonFile) {
+        String name = jsonFile.getName();
+        return new File(jsonFile.getParentFile(), name.substring(0, name.length() - ".json".length()) + ThroughputTimeline.FILE_SUFFIX);
+    }
+    
     /**
      * Validates a JSON certificate structure
      */
@@ -176,4 +281,17 @@ public class JSONCertificateGenerator {
             return false;
         }
     }
+
+    private static JsonObject energyJson(EnergyMeter.PhaseEnergy energy) {
+        JsonObject json = new JsonObject();
+        json.addProperty("phase", energy.phase);
+        json.addProperty("bytes", energy.bytes);
+        json.addProperty("seconds", energy.seconds);
+        json.addProperty("mah", energy.milliAmpHours);
+        json.addProperty("joules", energy.joules);
+        json.addProperty("mah_per_gb", energy.getMilliAmpHoursPerGB());
+        json.addProperty("joules_per_gb", energy.getJoulesPerGB());
+        if (energy.counterMilliAmpHours >= 0) json.addProperty("charge_counter_mah", energy.counterMilliAmpHours);
+        return json;
+    }
 }
\ No newline at end of file
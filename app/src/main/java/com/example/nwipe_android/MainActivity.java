@@ -1,12 +1,21 @@
 package com.example.nwipe_android;
 
 import android.content.BroadcastReceiver;
+import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.content.ServiceConnection;
 import android.content.pm.PackageManager;
 import android.os.BatteryManager;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.RemoteException;
+import android.view.Choreographer;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
@@ -17,12 +26,17 @@ import android.util.Log;
 import android.view.View;
 import android.view.Menu;
 import android.view.MenuItem;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
+import android.widget.EditText;
 import android.widget.ImageView;
 import android.widget.ProgressBar;
 import android.widget.SeekBar;
+import android.widget.Spinner;
 import android.widget.Switch;
 import android.widget.TextView;
+import android.widget.Toast;
 import androidx.cardview.widget.CardView;
 import com.google.android.material.progressindicator.CircularProgressIndicator;
 import com.google.android.material.progressindicator.LinearProgressIndicator;
@@ -34,6 +48,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 
 public class MainActivity extends AppCompatActivity {
@@ -43,20 +58,25 @@ public class MainActivity extends AppCompatActivity {
     private BroadcastReceiver wipeProgressReceiver = null;
 
     private boolean isWiping = false;
-    // Remember last job params so we can reconstruct WipeJob from service progress
-    private int lastNumberPasses = WipeJob.DEFAULT_NUMBER_PASSES;
-    private boolean lastVerify = WipeJob.DEFAULT_VERIFY;
-    private boolean lastBlank = WipeJob.DEFAULT_BLANK;
+    // Bound WipeService control channel and the shared-memory progress snapshot it writes
+    private Messenger wipeServiceMessenger = null;
+    private final Messenger wipeClientMessenger = new Messenger(new Handler(Looper.getMainLooper(), this::handleServiceMessage));
+    private ProgressChannel progressChannel = null;
+    private long lastRenderedSequence = -1;
+    // Channel slot of the job being shown; -1 until an active slot is found
+    private int progressSlot = -1;
+    private boolean progressPolling = false;
+    private long wipeRequestedAtMs = 0;
     private String selectedTargetPath = null;
     private String selectedTargetName = null;
+    // WipeScheme id or custom spec chosen in the configuration card; null for random passes
+    private String selectedScheme = null;
     
-    // Enhanced progress tracking for time estimation
+    // Elapsed time display; speed and remaining time come from the engine's estimate
     private long wipeStartTime = 0;
-    private long lastProgressUpdateTime = 0;
-    private long lastWipedBytes = 0;
-    private int lastCompletedPasses = -1;
-    private double currentMBPerSecond = 0.0;
-    private java.util.LinkedList<Double> speedHistory = new java.util.LinkedList<>();
+
+    private boolean storageToastShown = false;
+    private final StorageSnapshotProvider.Observer storageObserver = this::onStorageSnapshot;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -71,25 +91,17 @@ public class MainActivity extends AppCompatActivity {
         // Check and request permissions
         checkPermissions();
         
-        // Test storage functionality (for debugging)
-        StorageTest.testAccurateStorageInfo(this);
-        StorageTest.compareStorageManagers(this);
+        // Test storage functionality (for debugging) off the UI thread
+        final Context appContext = getApplicationContext();
+        new Thread(() -> {
+            StorageTest.testAccurateStorageInfo(appContext);
+            StorageTest.compareStorageManagers(appContext);
+        }, "StorageTest").start();
         
-        // Update storage information
+        // Update storage information; snapshots arrive asynchronously from the provider
+        StorageSnapshotProvider.get(this).addObserver(this.storageObserver);
         updateStorageInfo();
         
-        // Show a toast to confirm storage fix is working
-        AccurateStorageManager.AccurateStorageInfo info = AccurateStorageManager.getAccurateStorageInfo(this);
-        if (info.isValid()) {
-            String toastMessage = String.format("Enhanced Storage: %s used of %s formatted", 
-                info.usedFormatted, info.totalFormatted);
-            if (info.rawCapacityFormattedDecimal != null && 
-                !info.rawCapacityFormattedDecimal.equals(info.totalFormatted)) {
-                toastMessage += String.format(" (from %s device)", info.rawCapacityFormattedDecimal);
-            }
-            android.widget.Toast.makeText(this, toastMessage, android.widget.Toast.LENGTH_LONG).show();
-        }
-        
         // Initialize power monitoring
         initializePowerMonitoring();
         
@@ -118,6 +130,83 @@ public class MainActivity extends AppCompatActivity {
         // The progress must be set after registering the listener to make sure the initial value of
         // the label is updated.
         numberPassesSeekBar.setValue(WipeJob.DEFAULT_NUMBER_PASSES - 1);
+        initializeSchemeSpinner();
+    }
+
+    /**
+     * The scheme menu: the built-in schemes, then "Custom…" which asks for the pass patterns.
+     */
+    private void initializeSchemeSpinner() {
+        Spinner schemeSpinner = findViewById(R.id.wipe_scheme_spinner);
+        final List<String> names = new ArrayList<>();
+        for (String id : WipeScheme.BUILT_IN) names.add(WipeScheme.forId(id).name);
+        final int customPosition = names.size();
+        names.add(getString(R.string.wipe_scheme_custom_label));
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, names);
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        schemeSpinner.setAdapter(adapter);
+        schemeSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                if (position == customPosition) {
+                    askCustomScheme();
+                    return;
+                }
+                selectedScheme = position == 0 ? null : WipeScheme.BUILT_IN[position];
+                updateSchemeControls();
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+    }
+
+    private void askCustomScheme() {
+        final EditText input = new EditText(this);
+        input.setHint(R.string.wipe_scheme_custom_hint);
+        if (selectedScheme != null && selectedScheme.startsWith(WipeScheme.CUSTOM_PREFIX)) {
+            input.setText(selectedScheme.substring(WipeScheme.CUSTOM_PREFIX.length()));
+        }
+        new AlertDialog.Builder(this)
+            .setTitle(R.string.wipe_scheme_custom_label)
+            .setView(input)
+            .setPositiveButton(android.R.string.ok, (dialog, which) -> {
+                String spec = WipeScheme.CUSTOM_PREFIX + input.getText().toString().replace(" ", "");
+                try {
+                    WipeScheme.forId(spec);
+                    selectedScheme = spec;
+                } catch (IllegalArgumentException e) {
+                    Toast.makeText(this, e.getMessage(), Toast.LENGTH_LONG).show();
+                    resetSchemeSpinner();
+                }
+                updateSchemeControls();
+            })
+            .setNegativeButton(android.R.string.cancel, (dialog, which) -> resetSchemeSpinner())
+            .setOnCancelListener(dialog -> resetSchemeSpinner())
+            .show();
+    }
+
+    private void resetSchemeSpinner() {
+        if (selectedScheme != null && selectedScheme.startsWith(WipeScheme.CUSTOM_PREFIX)) return;
+        Spinner schemeSpinner = findViewById(R.id.wipe_scheme_spinner);
+        schemeSpinner.setSelection(selectedScheme == null ? 0 : Arrays.asList(WipeScheme.BUILT_IN).indexOf(selectedScheme));
+    }
+
+    /**
+     * A scheme fixes its own passes, so the pass count and blanking pass only apply to random
+     * passes; the label shows the scheme's pass count instead.
+     */
+    private void updateSchemeControls() {
+        WipeScheme scheme = WipeScheme.forId(selectedScheme);
+        Slider numberPassesSeekBar = findViewById(R.id.number_passes_seek_bar);
+        SwitchMaterial blankingSwitch = findViewById(R.id.blanking_switch);
+        TextView numberPassesTextView = findViewById(R.id.number_passes_text_view);
+        boolean random = scheme.isRandomSchedule();
+        numberPassesSeekBar.setEnabled(random && !isWiping);
+        blankingSwitch.setEnabled(random && !isWiping);
+        int passes = random ? (int) numberPassesSeekBar.getValue() + 1 : scheme.passes.size();
+        numberPassesTextView.setText(getString(R.string.number_passes_label) + " " + passes);
     }
 
     private void checkPermissions() {
@@ -131,7 +220,37 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Renders the cached storage snapshot immediately (if any) and schedules a background refresh;
+     * fresh values are rendered by {@link #onStorageSnapshot} when they arrive.
+     */
     private void updateStorageInfo() {
+        StorageSnapshotProvider provider = StorageSnapshotProvider.get(this);
+        StorageSnapshotProvider.Snapshot cached = provider.getCached();
+        if (cached != null) {
+            renderStorageSnapshot(cached);
+        }
+        provider.requestRefresh();
+    }
+
+    private void onStorageSnapshot(StorageSnapshotProvider.Snapshot snapshot) {
+        if (isFinishing()) return;
+        renderStorageSnapshot(snapshot);
+
+        // Show a toast to confirm storage fix is working
+        if (!storageToastShown && snapshot.valid) {
+            storageToastShown = true;
+            String toastMessage = String.format("Enhanced Storage: %s used of %s formatted", 
+                snapshot.usedFormatted, snapshot.totalFormatted);
+            if (snapshot.rawCapacityFormattedDecimal != null && 
+                !snapshot.rawCapacityFormattedDecimal.equals(snapshot.totalFormatted)) {
+                toastMessage += String.format(" (from %s device)", snapshot.rawCapacityFormattedDecimal);
+            }
+            android.widget.Toast.makeText(this, toastMessage, android.widget.Toast.LENGTH_LONG).show();
+        }
+    }
+
+    private void renderStorageSnapshot(StorageSnapshotProvider.Snapshot storageInfo) {
         TextView sizeTextView = findViewById(R.id.available_size_text_view);
         TextView availableSizeValue = findViewById(R.id.available_size_value);
         TextView totalSizeValue = findViewById(R.id.total_size_value);
@@ -147,9 +266,7 @@ public class MainActivity extends AppCompatActivity {
         }
         
     try {
-            AccurateStorageManager.AccurateStorageInfo storageInfo = AccurateStorageManager.getAccurateStorageInfo(this);
-            
-            if (storageInfo.isValid()) {
+            if (storageInfo.valid) {
                 // Update metric values with enhanced typography
                 availableSizeValue.setText(storageInfo.availableFormatted);
                 totalSizeValue.setText(storageInfo.totalFormatted);
@@ -213,8 +330,8 @@ public class MainActivity extends AppCompatActivity {
 
         // Update selected folders card visibility and content
         try {
-            java.util.ArrayList<String> folders = TargetPrefs.getFolders(this);
-            if (folders != null && !folders.isEmpty()) {
+            java.util.List<String> folders = storageInfo.selectedFolders;
+            if (!folders.isEmpty()) {
                 if (selectedFoldersCard != null) selectedFoldersCard.setVisibility(View.VISIBLE);
                 if (selectedFoldersSummary != null) {
                     selectedFoldersSummary.setText(folders.size() + (folders.size() == 1 ? " folder selected for wipe" : " folders selected for wipe"));
@@ -322,8 +439,8 @@ public class MainActivity extends AppCompatActivity {
                 return;
             }
             
-            Log.i("MainActivity", "Starting wipe process.");
-            this.startWipe();
+            Log.i("MainActivity", "Planning wipe process.");
+            this.planWipe();
         }
     }
 
@@ -334,6 +451,7 @@ public class MainActivity extends AppCompatActivity {
         if (PermissionHandler.handlePermissionResult(requestCode, permissions, grantResults)) {
             // Permissions granted
             Log.i("MainActivity", "Storage permissions granted");
+            StorageSnapshotProvider.get(this).invalidate();
             updateStorageInfo();
             clearPermissionError();
         } else {
@@ -379,6 +497,7 @@ public class MainActivity extends AppCompatActivity {
             .setMessage("Remove all selected folders for wipe?")
             .setPositiveButton("Clear", (d, w) -> {
                 TargetPrefs.saveFolders(this, new java.util.ArrayList<>());
+                StorageSnapshotProvider.get(this).invalidate();
                 updateStorageInfo(); // This will call updateStartButtonState()
                 showTemporaryStatusMessage("Cleared selected folders", StatusType.INFO, 2000);
             })
@@ -393,6 +512,7 @@ public class MainActivity extends AppCompatActivity {
         if (requestCode == PermissionHandler.MANAGE_EXTERNAL_STORAGE_REQUEST) {
             // Check if permissions were granted and update storage info
             if (AccurateStorageManager.hasStoragePermissions(this)) {
+                StorageSnapshotProvider.get(this).invalidate();
                 updateStorageInfo();
                 clearPermissionError();
                 showTemporaryStatusMessage("Storage permissions granted - accurate storage info now available", StatusType.SUCCESS, 3000);
@@ -404,6 +524,7 @@ public class MainActivity extends AppCompatActivity {
             selectedTargetName = data.getStringExtra(StorageSelectionActivity.EXTRA_SELECTED_NAME);
             if (selectedTargetPath != null) {
                 TargetPrefs.save(this, selectedTargetPath, selectedTargetName);
+                StorageSnapshotProvider.get(this).invalidate();
                 showTemporaryStatusMessage("Target selected: " + (selectedTargetName != null ? selectedTargetName : selectedTargetPath), StatusType.INFO, 2500);
                 // Refresh the storage info panel to reflect the selected target
                 updateStorageInfo();
@@ -412,6 +533,7 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void teardown() {
+        StorageSnapshotProvider.get(this).removeObserver(this.storageObserver);
         if (this.wipeAsyncTask != null) {
             this.wipeAsyncTask.cancel(true);
             this.wipeAsyncTask = null;
@@ -476,6 +598,7 @@ public class MainActivity extends AppCompatActivity {
         CardView progressCard = findViewById(R.id.progress_card);
 
         this.isWiping = false;
+        stopProgressPolling();
         
         // Stop animations
         AnimationHelper.stopIndeterminateProgress(circularProgress);
@@ -508,6 +631,8 @@ public class MainActivity extends AppCompatActivity {
         numberPassesSeekBar.setEnabled(true);
         verifySwitch.setEnabled(true);
         blankingSwitch.setEnabled(true);
+        findViewById(R.id.wipe_scheme_spinner).setEnabled(true);
+        updateSchemeControls();
     }
 
     /*
@@ -523,7 +648,11 @@ public class MainActivity extends AppCompatActivity {
         return status == BatteryManager.BATTERY_STATUS_CHARGING || status == BatteryManager.BATTERY_STATUS_FULL;
     }
 
-    private void startWipe() {
+    /**
+     * Switches the UI into the running-wipe state, for a new wipe or when reattaching to one
+     * that the wipe process kept running while this activity was gone.
+     */
+    private void enterWipingState() {
         Button startWipeButton = findViewById(R.id.start_wipe_button);
         LinearProgressIndicator wipeProgressBar = findViewById(R.id.wipe_progress_bar);
         CircularProgressIndicator circularProgress = findViewById(R.id.circular_progress);
@@ -532,13 +661,8 @@ public class MainActivity extends AppCompatActivity {
         startWipeButton.setText(R.string.cancel_wipe_button_label);
         this.isWiping = true;
 
-        // Reset timing variables for new wipe operation
+        // Reset timing for new wipe operation
         wipeStartTime = 0;
-        lastProgressUpdateTime = 0;
-        lastWipedBytes = 0;
-        lastCompletedPasses = -1;
-        currentMBPerSecond = 0.0;
-        speedHistory.clear();
 
         // Show progress card with animation
         AnimationHelper.slideInCard(progressCard);
@@ -549,14 +673,106 @@ public class MainActivity extends AppCompatActivity {
         // Start wave animation on progress bar
         AnimationHelper.startWaveAnimation(wipeProgressBar);
 
+        Slider numberPassesSeekBar = findViewById(R.id.number_passes_seek_bar);
+        SwitchMaterial verifySwitch = findViewById(R.id.verify_switch);
+        SwitchMaterial blankingSwitch = findViewById(R.id.blanking_switch);
+        numberPassesSeekBar.setEnabled(false);
+        verifySwitch.setEnabled(false);
+        blankingSwitch.setEnabled(false);
+        findViewById(R.id.wipe_scheme_spinner).setEnabled(false);
+    }
+
+    /**
+     * Prices the job as configured with a dry run of the engine (off the UI thread: it walks the
+     * folders or the files the deletion phase would remove) and starts it once the user accepts
+     * the plan. Without a plan, e.g. when the walk fails, the wipe starts as before.
+     */
+    private void planWipe() {
+        Slider numberPassesSeekBar = findViewById(R.id.number_passes_seek_bar);
+        SwitchMaterial verifySwitch = findViewById(R.id.verify_switch);
+        SwitchMaterial blankingSwitch = findViewById(R.id.blanking_switch);
+        final WipeJob job = new WipeJob();
+        job.number_passes = (int)numberPassesSeekBar.getValue() + 1;
+        job.verify = verifySwitch.isChecked();
+        job.blank = blankingSwitch.isChecked();
+        WipeScheme.forId(selectedScheme).applyTo(job);
+        java.util.ArrayList<String> selectedFolders = TargetPrefs.getFolders(this);
+        if (selectedFolders != null && !selectedFolders.isEmpty()) {
+            job.targetFolders = selectedFolders;
+        } else {
+            job.targetPath = selectedTargetPath;
+        }
+        planWipe(job);
+    }
+
+    private void planWipe(final WipeJob job) {
+        Button startWipeButton = findViewById(R.id.start_wipe_button);
+        startWipeButton.setEnabled(false);
+        final Context appContext = getApplicationContext();
+        new Thread(() -> {
+            WipePlan plan = null;
+            try {
+                VolumeProfileStore profiles = new VolumeProfileStore(VolumeProfileStore.defaultFile(appContext.getFilesDir()));
+                String profileKey = WipeService.profileKeyFor(WipeService.volumeKeyFor(appContext, job), job);
+                plan = AndroidWipeEngine.create(appContext, new ProgressBus(), new WipeEngine.CancelToken())
+                    .setProfile(profiles.get(profileKey))
+                    .plan(job);
+            } catch (Exception e) {
+                Log.w("MainActivity", "Could not plan wipe: " + e.getMessage());
+            }
+            final WipePlan result = plan;
+            runOnUiThread(() -> {
+                updateStartButtonState();
+                if (isFinishing() || this.isWiping) return;
+                if (result == null) {
+                    startWipe(null, job.deadlineAtMs);
+                    return;
+                }
+                new AlertDialog.Builder(this)
+                    .setTitle(job.deadlineAtMs > 0 ? "Time-boxed Wipe Plan" : "Wipe Plan")
+                    .setMessage(result.describe())
+                    .setPositiveButton("Start", (d, w) -> startWipe(result, job.deadlineAtMs))
+                    .setNeutralButton(job.deadlineAtMs > 0 ? "Change deadline" : "Set deadline", (d, w) -> chooseDeadline(job))
+                    .setNegativeButton("Cancel", null)
+                    .show();
+            });
+        }, "WipePlanner").start();
+    }
+
+    /**
+     * Time-boxes the job: the engine then picks the strongest policy that fits before the
+     * deadline. Re-plans with the choice so the dialog shows what will be given up.
+     */
+    private void chooseDeadline(final WipeJob job) {
+        final long[] minutes = {0, 15, 30, 45, 60, 90, 120, 240};
+        String[] labels = new String[minutes.length];
+        labels[0] = "No deadline";
+        for (int i = 1; i < minutes.length; i++) {
+            labels[i] = "Finish within " + ThroughputEstimator.formatDuration(minutes[i] * 60_000L);
+        }
+        new AlertDialog.Builder(this)
+            .setTitle("Deadline")
+            .setItems(labels, (d, which) -> {
+                job.deadlineAtMs = minutes[which] > 0 ? System.currentTimeMillis() + minutes[which] * 60_000L : 0;
+                planWipe(job);
+            })
+            .setNegativeButton("Cancel", null)
+            .show();
+    }
+
+    private void startWipe(WipePlan plan, long deadlineAtMs) {
+        enterWipingState();
+        wipeRequestedAtMs = System.currentTimeMillis();
+
         Slider numberPassesSeekBar = findViewById(R.id.number_passes_seek_bar);
         SwitchMaterial verifySwitch = findViewById(R.id.verify_switch);
         SwitchMaterial blankingSwitch = findViewById(R.id.blanking_switch);
         
         // Show initial operation summary
         TextView wipeTextView = findViewById(R.id.wipe_text_view);
-        int totalPasses = (int)numberPassesSeekBar.getValue() + 1;
-        if (blankingSwitch.isChecked()) totalPasses++; // Add blanking pass
+        WipeScheme scheme = WipeScheme.forId(selectedScheme);
+        int totalPasses = scheme.isRandomSchedule() ? (int)numberPassesSeekBar.getValue() + 1 : scheme.passes.size();
+        if (scheme.isRandomSchedule() && blankingSwitch.isChecked()) totalPasses++; // Add blanking pass
         if (verifySwitch.isChecked()) totalPasses *= 2; // Verification doubles work
         
         java.util.ArrayList<String> folders = TargetPrefs.getFolders(this);
@@ -568,16 +784,14 @@ public class MainActivity extends AppCompatActivity {
             initialText = String.format("Initializing secure wipe operation...\n🔒 %d total passes • Full storage mode\n⚡ Calculating estimated time...", 
                 totalPasses);
         }
+        if (plan != null) initialText = initialText.replace("⚡ Calculating estimated time...", "⏱ " + plan.summary());
         wipeTextView.setText(initialText);
 
     WipeJob wipeJob = new WipeJob();
     wipeJob.number_passes = (int)numberPassesSeekBar.getValue() + 1;
     wipeJob.verify = verifySwitch.isChecked();
     wipeJob.blank = blankingSwitch.isChecked();
-    // Persist params for service progress reconstruction
-    lastNumberPasses = wipeJob.number_passes;
-    lastVerify = wipeJob.verify;
-    lastBlank = wipeJob.blank;
+    scheme.applyTo(wipeJob);
 
         // Start foreground service backend to perform wiping reliably
         try {
@@ -591,11 +805,14 @@ public class MainActivity extends AppCompatActivity {
             } else {
                 service = WipeService.createStartIntent(this, wipeJob.number_passes, wipeJob.verify, wipeJob.blank);
             }
+            if (deadlineAtMs > 0) service.putExtra(WipeService.EXTRA_DEADLINE_AT_MS, deadlineAtMs);
+            if (wipeJob.scheme != null) service.putExtra(WipeService.EXTRA_SCHEME, wipeJob.scheme);
             if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O) {
                 startForegroundService(service);
             } else {
                 startService(service);
             }
+            startProgressPolling();
         } catch (Exception e) {
             // Fallback to legacy AsyncTask if service start fails
             this.wipeAsyncTask = new WipeAsyncTask(this);
@@ -607,12 +824,9 @@ public class MainActivity extends AppCompatActivity {
                 wipeJob.targetPath = selectedTargetPath;
                 wipeJob.targetName = selectedTargetName;
             }
+            wipeJob.deadlineAtMs = deadlineAtMs;
             this.wipeAsyncTask.execute(wipeJob);
         }
-
-        numberPassesSeekBar.setEnabled(false);
-        verifySwitch.setEnabled(false);
-        blankingSwitch.setEnabled(false);
     }
 
     private void stopWipe() {
@@ -620,11 +834,14 @@ public class MainActivity extends AppCompatActivity {
             this.wipeAsyncTask.cancel(true);
             this.wipeAsyncTask = null;
         }
-        // Signal the service to cancel if running
-        try {
-            Intent cancel = WipeService.createCancelIntent(this);
-            startService(cancel);
-        } catch (Exception ignored) {}
+        // Signal the service to cancel if running; fall back to an intent when not bound
+        if (!sendServiceMessage(WipeService.MSG_CANCEL)) {
+            try {
+                Intent cancel = WipeService.createCancelIntent(this);
+                startService(cancel);
+            } catch (Exception ignored) {}
+        }
+        stopProgressPolling();
         this.isWiping = false;
 
         Button startWipeButton = findViewById(R.id.start_wipe_button);
@@ -652,6 +869,8 @@ public class MainActivity extends AppCompatActivity {
         numberPassesSeekBar.setEnabled(true);
         verifySwitch.setEnabled(true);
         blankingSwitch.setEnabled(true);
+        findViewById(R.id.wipe_scheme_spinner).setEnabled(true);
+        updateSchemeControls();
     }
 
     public void setWipeProgress(WipeJob wipeJob) {
@@ -661,6 +880,7 @@ public class MainActivity extends AppCompatActivity {
         TextView currentPassValue = findViewById(R.id.current_pass_value);
         TextView progressPercentageValue = findViewById(R.id.progress_percentage_value);
         TextView wipeSpeedValue = findViewById(R.id.wipe_speed_value);
+        TextView wipeEnergyValue = findViewById(R.id.wipe_energy_value);
         TextView elapsedTimeValue = findViewById(R.id.elapsed_time_value);
         TextView remainingTimeValue = findViewById(R.id.remaining_time_value);
 
@@ -675,8 +895,6 @@ public class MainActivity extends AppCompatActivity {
         long currentTime = System.currentTimeMillis();
         if (wipeStartTime == 0) {
             wipeStartTime = currentTime;
-            lastProgressUpdateTime = currentTime;
-            lastWipedBytes = 0;
         }
 
         if (wipeJob.wipedBytes == 0) {
@@ -701,10 +919,8 @@ public class MainActivity extends AppCompatActivity {
         
         Log.d("MainActivity", "Overall Progress - CompletedPasses: " + wipeJob.passes_completed + "/" + totalPasses + 
               ", CurrentPassProgress: " + currentPassPercentage + "%, OverallProgress: " + overallPercentage + "%" +
-              ", IsCompleted: " + wipeJob.isCompleted() + ", IsBlankingPass: " + wipeJob.isBlankingPass());        // Calculate current speed and update history (this will update lastCompletedPasses)
-        updateSpeedCalculation(wipeJob, currentTime);
-        
-        // Calculate time estimates
+              ", IsCompleted: " + wipeJob.isCompleted() + ", IsBlankingPass: " + wipeJob.isBlankingPass());
+        // Time estimates from the engine's per-phase throughput
         TimeEstimate timeEst = calculateTimeEstimate(wipeJob);
         
         // Update enhanced typography elements
@@ -712,11 +928,22 @@ public class MainActivity extends AppCompatActivity {
         progressPercentageValue.setText(overallPercentage + "%");
         
         // Update speed display
-        if (currentMBPerSecond > 0.1) {
-            wipeSpeedValue.setText(String.format("%.1f MB/s", currentMBPerSecond));
+        double mbPerSecond = wipeJob.estimate.bytesPerSecond / (1024.0 * 1024.0);
+        if (mbPerSecond > 0.1) {
+            wipeSpeedValue.setText(String.format("%.1f MB/s", mbPerSecond));
         } else {
             wipeSpeedValue.setText("--");
         }
+        // Battery cost so far; absent while plugged in or on devices without a fuel gauge
+        if (wipeEnergyValue != null) {
+            if (wipeJob.energy.isKnown()) {
+                wipeEnergyValue.setText(String.format("%.0f mAh/GB · %.0f J/GB",
+                    wipeJob.energy.getMilliAmpHoursPerGB(), wipeJob.energy.getJoulesPerGB()));
+                wipeEnergyValue.setVisibility(View.VISIBLE);
+            } else {
+                wipeEnergyValue.setVisibility(View.GONE);
+            }
+        }
         
         // Update time displays
         if (elapsedTimeValue != null) {
@@ -731,7 +958,9 @@ public class MainActivity extends AppCompatActivity {
         }
         
         // Update descriptive text based on wipe state
-        if (wipeJob.verifying) {
+        if (wipeJob.stalled) {
+            wipeTextView.setText("Storage is not responding - waiting for I/O");
+        } else if (wipeJob.verifying) {
             wipeTextView.setText("Verifying data integrity and security");
         } else if (wipeJob.isBlankingPass()) {
             wipeTextView.setText("Final blanking pass - zeroing all data");
@@ -773,51 +1002,6 @@ public class MainActivity extends AppCompatActivity {
         String elapsedTimeFormatted = "";
     }
     
-    private void updateSpeedCalculation(WipeJob wipeJob, long currentTime) {
-        // Detect if we started a new pass (wipedBytes reset or passes_completed changed)
-        boolean newPassDetected = false;
-        if (lastCompletedPasses != wipeJob.passes_completed) {
-            newPassDetected = true;
-            lastCompletedPasses = wipeJob.passes_completed;
-            Log.i("MainActivity", "New pass detected: " + (wipeJob.passes_completed + 1));
-        }
-        
-        // Reset speed tracking on new pass or if wipedBytes went backwards
-        if (newPassDetected || (lastWipedBytes > 0 && wipeJob.wipedBytes < lastWipedBytes)) {
-            Log.i("MainActivity", "Resetting speed tracking for new pass");
-            lastProgressUpdateTime = currentTime;
-            lastWipedBytes = 0;
-            // Don't clear speed history immediately - let it decay naturally for smoother transitions
-        }
-        
-        // Calculate speed only if we have previous data points
-        if (lastProgressUpdateTime > 0 && currentTime > lastProgressUpdateTime && !newPassDetected) {
-            long timeDiff = currentTime - lastProgressUpdateTime;
-            long bytesDiff = wipeJob.wipedBytes - lastWipedBytes;
-            
-            if (timeDiff >= 1000 && bytesDiff > 0) { // Update every second minimum
-                double mbDiff = bytesDiff / (1024.0 * 1024.0);
-                double secondsDiff = timeDiff / 1000.0;
-                double speedMBPerSec = mbDiff / secondsDiff;
-                
-                // Add to speed history (keep last 10 measurements for smoothing)
-                speedHistory.offer(speedMBPerSec);
-                if (speedHistory.size() > 10) {
-                    speedHistory.poll();
-                }
-                
-                // Calculate smoothed average speed
-                currentMBPerSecond = speedHistory.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
-                
-                lastProgressUpdateTime = currentTime;
-                lastWipedBytes = wipeJob.wipedBytes;
-            }
-        } else {
-            lastProgressUpdateTime = currentTime;
-            lastWipedBytes = wipeJob.wipedBytes;
-        }
-    }
-    
     private TimeEstimate calculateTimeEstimate(WipeJob wipeJob) {
         TimeEstimate estimate = new TimeEstimate();
         long currentTime = System.currentTimeMillis();
@@ -826,20 +1010,15 @@ public class MainActivity extends AppCompatActivity {
         estimate.elapsedTimeMs = currentTime - wipeStartTime;
         estimate.elapsedTimeFormatted = formatTime(estimate.elapsedTimeMs);
         
-        if (currentMBPerSecond > 0.1 && wipeJob.totalBytes > 0) { // Need reasonable speed
-            // Calculate total operation size
-            int totalPasses = wipeJob.number_passes + (wipeJob.blank ? 1 : 0);
-            if (wipeJob.verify) totalPasses *= 2; // Verification doubles the work
-            
-            // Calculate completed and remaining bytes for entire operation
-            long completedBytes = (wipeJob.passes_completed * wipeJob.totalBytes) + wipeJob.wipedBytes;
-            long totalOperationBytes = totalPasses * wipeJob.totalBytes;
-            long totalRemainingBytes = totalOperationBytes - completedBytes;
-            
-            // Convert to MB and calculate time
-            double remainingMB = totalRemainingBytes / (1024.0 * 1024.0);
-            estimate.remainingTimeMs = (long) ((remainingMB / currentMBPerSecond) * 1000);
-            estimate.remainingTimeFormatted = formatTime(estimate.remainingTimeMs);
+        // Covers every remaining phase at its own rate (random, zero, verify), so no guessing here
+        ThroughputEstimator.Estimate eta = wipeJob.estimate;
+        if (eta.isKnown()) {
+            estimate.remainingTimeMs = eta.remainingMs;
+            estimate.remainingTimeFormatted = formatTime(eta.remainingMs);
+            // Show the slow bound when the rate is still unsettled
+            if (eta.highMs > eta.remainingMs * 5 / 4 && eta.highMs - eta.remainingMs > 60_000) {
+                estimate.remainingTimeFormatted += " (up to " + formatTime(eta.highMs) + ")";
+            }
             estimate.isValid = true;
         }
         
@@ -1059,25 +1238,28 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onStart() {
         super.onStart();
-        // Register to receive progress from WipeService
+        // Register to receive state transitions from WipeService; live progress is polled
         if (this.wipeProgressReceiver == null) {
             this.wipeProgressReceiver = new BroadcastReceiver() {
                 @Override
                 public void onReceive(Context context, Intent intent) {
-                    if (!WipeService.ACTION_PROGRESS.equals(intent.getAction())) return;
-                    WipeJob job = new WipeJob();
-                    job.number_passes = lastNumberPasses;
-                    job.verify = lastVerify;
-                    job.blank = lastBlank;
-                    job.passes_completed = intent.getIntExtra("passes_completed", 0);
-                    job.totalBytes = intent.getLongExtra("total_bytes", 0);
-                    job.wipedBytes = intent.getLongExtra("wiped_bytes", 0);
-                    job.verifying = intent.getBooleanExtra("verifying", false);
-                    job.errorMessage = intent.getStringExtra("error");
-                    if (job.errorMessage == null) job.errorMessage = "";
-
-                    if (job.isCompleted() || job.failed()) {
-                        onWipeFinished(job);
+                    if (!WipeService.ACTION_PROGRESS.equals(intent.getAction()) || intent.getExtras() == null) return;
+                    WipeJob job = WipeService.fromBundle(intent.getExtras()).toWipeJob();
+                    job.id = intent.getStringExtra(WipeService.EXTRA_JOB_ID);
+                    int state = intent.getIntExtra(WipeService.EXTRA_STATE, WipeService.STATE_PASS_CHANGED);
+
+                    if (state == WipeService.STATE_FINISHED || state == WipeService.STATE_FAILED) {
+                        // A cancelled wipe has already been torn down by stopWipe()
+                        if (!isWiping) return;
+                        int remaining = intent.getIntExtra(WipeService.EXTRA_QUEUE_REMAINING, 0);
+                        if (remaining > 0) {
+                            onQueuedJobFinished(job, remaining);
+                        } else {
+                            onWipeFinished(job);
+                        }
+                    } else if (state == WipeService.STATE_PAUSED || state == WipeService.STATE_RESUMED) {
+                        // Paused from the notification; the writer is parked, progress simply stops moving
+                        showStatusMessage(state == WipeService.STATE_PAUSED ? "Wipe paused" : "Wipe resumed", StatusType.INFO);
                     } else {
                         setWipeProgress(job);
                     }
@@ -1090,16 +1272,165 @@ public class MainActivity extends AppCompatActivity {
         } else {
             registerReceiver(this.wipeProgressReceiver, filter);
         }
+        // Bind without auto-create: connects once the service is running, never starts it
+        bindService(new Intent(this, WipeService.class), this.wipeServiceConnection, 0);
+        if (this.isWiping) startProgressPolling();
     }
 
     @Override
     protected void onStop() {
         super.onStop();
+        stopProgressPolling();
         try {
             if (this.wipeProgressReceiver != null) unregisterReceiver(this.wipeProgressReceiver);
         } catch (IllegalArgumentException e) {
             Log.e("MainActivity", "Could not unregister wipe progress receiver onStop " + e.toString());
         }
+        try {
+            unbindService(this.wipeServiceConnection);
+        } catch (IllegalArgumentException e) {
+            Log.e("MainActivity", "Could not unbind wipe service onStop " + e.toString());
+        }
+        this.wipeServiceMessenger = null;
+        closeProgressChannel();
+    }
+
+    private final ServiceConnection wipeServiceConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            wipeServiceMessenger = new Messenger(binder);
+            sendServiceMessage(WipeService.MSG_REGISTER);
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            wipeServiceMessenger = null;
+        }
+    };
+
+    private boolean sendServiceMessage(int what) {
+        if (this.wipeServiceMessenger == null) return false;
+        Message msg = Message.obtain(null, what);
+        msg.replyTo = this.wipeClientMessenger;
+        try {
+            this.wipeServiceMessenger.send(msg);
+            return true;
+        } catch (RemoteException e) {
+            Log.w("MainActivity", "Wipe service unreachable: " + e.getMessage());
+            this.wipeServiceMessenger = null;
+            return false;
+        }
+    }
+
+    private boolean handleServiceMessage(Message msg) {
+        if (msg.what == WipeService.MSG_CHANNEL_INFO) {
+            String path = msg.getData().getString(WipeService.EXTRA_CHANNEL_PATH);
+            if (path != null && this.progressChannel == null) {
+                this.progressChannel = ProgressChannel.openReader(new File(path));
+            }
+            // The wipe runs in its own process and survives this activity; pick it back up
+            boolean running = msg.getData().getBoolean(WipeService.EXTRA_RUNNING);
+            int slot = msg.getData().getInt(WipeService.EXTRA_SLOT, -1);
+            if (slot >= 0) this.progressSlot = slot;
+            if (running && !this.isWiping) {
+                Log.i("MainActivity", "Reattaching to running wipe");
+                enterWipingState();
+                startProgressPolling();
+            } else if (!running && this.isWiping && this.wipeAsyncTask == null && this.progressChannel != null) {
+                // The finish broadcast may have arrived while we were stopped; the channel keeps the final state
+                ProgressChannel.Frame frame = this.progressChannel.read(Math.max(this.progressSlot, 0));
+                if (frame != null && !frame.active && frame.startedAtMs >= this.wipeRequestedAtMs) {
+                    WipeJob job = frame.snapshot.toWipeJob();
+                    job.targetPath = selectedTargetPath;
+                    job.targetName = selectedTargetName;
+                    onWipeFinished(job);
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private final Choreographer.FrameCallback progressFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!progressPolling) return;
+            pollProgressChannel();
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    };
+
+    private void startProgressPolling() {
+        if (this.progressPolling) return;
+        this.progressPolling = true;
+        this.lastRenderedSequence = -1;
+        this.progressSlot = -1;
+        Choreographer.getInstance().postFrameCallback(this.progressFrameCallback);
+    }
+
+    private void stopProgressPolling() {
+        this.progressPolling = false;
+        Choreographer.getInstance().removeFrameCallback(this.progressFrameCallback);
+    }
+
+    /**
+     * Renders the latest shared-memory snapshot, at most once per frame and only when it changed.
+     */
+    private void pollProgressChannel() {
+        if (this.progressChannel == null) {
+            // The service creates the channel when a job starts; it may not exist yet
+            this.progressChannel = ProgressChannel.openReader(ProgressChannel.defaultFile(getFilesDir()));
+            if (this.progressChannel == null) return;
+        }
+        if (this.progressSlot < 0 && (this.progressSlot = findActiveSlot()) < 0) return;
+        long sequence = this.progressChannel.sequence(this.progressSlot);
+        if (sequence == this.lastRenderedSequence) return;
+        ProgressChannel.Frame frame = this.progressChannel.read(this.progressSlot);
+        if (frame == null) return;
+        this.lastRenderedSequence = frame.sequence;
+        // Inactive frames belong to a finished job; completion arrives as a broadcast, and the
+        // next frame follows whichever queued job is running then
+        if (!frame.active) {
+            this.progressSlot = -1;
+            return;
+        }
+        if (this.isWiping) setWipeProgress(frame.snapshot.toWipeJob());
+    }
+
+    /**
+     * Several queued jobs may run at once, one per channel slot; the UI follows the first one.
+     */
+    private int findActiveSlot() {
+        for (int slot = 0; slot < ProgressChannel.SLOT_COUNT; slot++) {
+            ProgressChannel.Frame frame = this.progressChannel.read(slot);
+            if (frame != null && frame.active) return slot;
+        }
+        return -1;
+    }
+
+    /**
+     * One job of a queue ended while others are still queued or running: certify it and keep
+     * showing progress for the rest.
+     */
+    private void onQueuedJobFinished(WipeJob wipeJob, int remaining) {
+        if (wipeJob.isCompleted()) {
+            generateWipeCertificates(wipeJob);
+            showStatusMessage("Wipe of " + (wipeJob.targetName != null ? wipeJob.targetName : "storage")
+                + " finished; " + remaining + " more in queue", StatusType.SUCCESS);
+        } else if (!wipeJob.errorMessage.isEmpty()) {
+            showStatusMessage(wipeJob.errorMessage, StatusType.ERROR);
+        }
+        this.progressSlot = -1;
+        this.lastRenderedSequence = -1;
+    }
+
+    private void closeProgressChannel() {
+        try {
+            if (this.progressChannel != null) this.progressChannel.close();
+        } catch (IOException e) {
+            Log.w("MainActivity", "Could not close progress channel " + e.toString());
+        }
+        this.progressChannel = null;
     }
     
     /**
@@ -1107,6 +1438,10 @@ public class MainActivity extends AppCompatActivity {
      */
     private void generateWipeCertificates(WipeJob wipeJob) {
         try {
+            // Stall warnings, metrics and the deadline outcome recorded by the service for this job
+            WipeReport report = WipeReport.load(getFilesDir(), wipeJob.id);
+            ThroughputTimeline timeline = ThroughputTimeline.load(ThroughputTimeline.fileFor(getFilesDir(), wipeJob.id));
+            showTimeline(timeline);
             // Build comprehensive certificate data
             WipeCertificate certificate = new WipeCertificate.Builder()
                 .setDeviceInfo(android.os.Build.MANUFACTURER + " " + android.os.Build.MODEL + 
@@ -1118,11 +1453,14 @@ public class MainActivity extends AppCompatActivity {
                 .setPassesCompleted(wipeJob.passes_completed)
                 .setBlankingEnabled(wipeJob.blank)
                 .setVerificationEnabled(wipeJob.verify)
-                .setWipeMethod("DoD 5220.22-M")
+                .setWipeMethod(report != null && report.wipeMethod != null ? report.wipeMethod : WipeScheme.describe(wipeJob))
                 .setDurationMillis(0) // Will be calculated after we add timing to WipeJob
                 .setAverageSpeedMBps(calculateAverageSpeed(wipeJob))
-                .setSecurityWarnings(gatherSecurityWarnings(wipeJob))
-                .setComplianceStandards(Arrays.asList("NIST SP 800-88", "DoD 5220.22-M", "HIPAA", "GDPR"))
+                .setSecurityWarnings(gatherSecurityWarnings(wipeJob, report))
+                .setComplianceStandards(report != null && report.complianceStandards != null
+                    ? report.complianceStandards : WipeScheme.complianceStandards(wipeJob))
+                .setReport(report)
+                .setTimeline(timeline)
                 .build();
             
             // Add public key fingerprint for verification
@@ -1175,6 +1513,22 @@ public class MainActivity extends AppCompatActivity {
         }
     }
     
+    /**
+     * Shows the finished job's throughput by offset, or hides the card when there is none.
+     */
+    private void showTimeline(ThroughputTimeline timeline) {
+        CardView timelineCard = findViewById(R.id.timeline_card);
+        if (timeline == null || timeline.isEmpty()) {
+            timelineCard.setVisibility(View.GONE);
+            return;
+        }
+        TimelineChartView chart = findViewById(R.id.timeline_chart);
+        TextView summary = findViewById(R.id.timeline_summary_text);
+        chart.setTimeline(timeline);
+        summary.setText(timeline.describe());
+        timelineCard.setVisibility(View.VISIBLE);
+    }
+    
     /**
      * Calculates average speed in MB/s from wipe job data
      */
@@ -1192,7 +1546,7 @@ public class MainActivity extends AppCompatActivity {
     /**
      * Gathers security warnings based on wipe job performance and settings
      */
-    private ArrayList<String> gatherSecurityWarnings(WipeJob wipeJob) {
+    private ArrayList<String> gatherSecurityWarnings(WipeJob wipeJob, WipeReport report) {
         ArrayList<String> warnings = new ArrayList<>();
         
         // Configuration warnings
@@ -1217,6 +1571,11 @@ public class MainActivity extends AppCompatActivity {
                         "%) - operation may have been interrupted");
         }
         
+        // I/O stalls and a shortened time-boxed policy, recorded by the service for this job
+        if (report != null && report.warnings != null) {
+            warnings.addAll(report.warnings);
+        }
+        
         // Battery and thermal warnings
         BatteryManager batteryManager = (BatteryManager) getSystemService(Context.BATTERY_SERVICE);
         if (batteryManager != null) {
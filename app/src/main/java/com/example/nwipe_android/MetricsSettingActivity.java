@@ -0,0 +1,31 @@
+package com.example.nwipe_android;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.util.Log;
+
+/**
+ * Switches the loopback metrics endpoint on or off for bench runs, from a host:
+ * adb shell am start -n com.example.nwipe_android/.MetricsSettingActivity --ei metrics_port 9464
+ * (0 switches it off), then adb forward tcp:9464 tcp:9464.
+ *
+ * The manifest guards it with the DUMP permission, which the adb shell holds and installed
+ * apps cannot get, so no other app can turn the endpoint on. It shows nothing and finishes at
+ * once; being in the foreground for that moment is what lets it start the service.
+ */
+public class MetricsSettingActivity extends Activity {
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        if (getIntent() != null && getIntent().hasExtra(WipeService.EXTRA_METRICS_PORT)) {
+            int port = getIntent().getIntExtra(WipeService.EXTRA_METRICS_PORT, 0);
+            try {
+                startService(WipeService.createMetricsIntent(this, port));
+            } catch (IllegalStateException e) {
+                Log.w("MetricsSettingActivity", "Could not configure metrics endpoint: " + e.getMessage());
+            }
+        }
+        finish();
+    }
+}
@@ -115,8 +115,22 @@ public class PDFCertificateGenerator {
         addTableRow(table, "Files Processed:", String.valueOf(certificate.getTotalFiles()));
         addTableRow(table, "Wipe Method:", certificate.getWipeMethod());
         addTableRow(table, "Passes Completed:", String.valueOf(certificate.getPassesCompleted()));
+        if (certificate.getReport() != null && certificate.getReport().deadline != null) {
+            addTableRow(table, "Deadline:", certificate.getReport().deadline.summary());
+        }
         addTableRow(table, "Duration:", certificate.getFormattedDuration());
         addTableRow(table, "Average Speed:", String.format("%.1f MB/s", certificate.getAverageSpeedMBps()));
+        if (certificate.getReport() != null && certificate.getReport().latency != null) {
+            for (java.util.Map.Entry<String, LatencyHistogram.Summary> entry : certificate.getReport().latency.entrySet()) {
+                LatencyHistogram.Summary summary = entry.getValue();
+                addTableRow(table, "Latency (" + entry.getKey().replace('_', ' ') + "):",
+                    String.format("p50 %.1f ms, p99 %.1f ms, p99.9 %.1f ms (%d ops)", summary.p50Micros / 1000.0,
+                        summary.p99Micros / 1000.0, summary.p999Micros / 1000.0, summary.count));
+            }
+        }
+        if (certificate.getReport() != null && certificate.getReport().io != null) {
+            addTableRow(table, "Write Amplification:", certificate.getReport().io.describe());
+        }
         addTableRow(table, "Completed:", certificate.getFormattedTimestamp());
         
         document.add(table);
@@ -18,6 +18,15 @@ import java.util.List;
 public class StorageManager {
 
     public static StorageInfo getStorageInfo(Context context) {
+        return getStorageInfo(context, false);
+    }
+
+    /**
+     * Builds a StorageInfo from the cached {@link StorageTopology}. When refreshCapacity is set,
+     * only the primary storage statistics are re-read, which is what a wipe pass needs to size
+     * its fill file; volume enumeration is served from the cache either way.
+     */
+    public static StorageInfo getStorageInfo(Context context, boolean refreshCapacity) {
         StorageInfo info = new StorageInfo();
         
         try {
@@ -29,53 +38,16 @@ public class StorageManager {
                 return info;
             }
 
-            // Get wipeable directories
-            List<StorageLocation> locations = getWipeableDirectories(context);
-            info.locations = locations;
+            StorageTopology topology = StorageTopology.get(context);
+            StorageTopology.Snapshot snapshot = refreshCapacity ? topology.refreshCapacity() : topology.getSnapshot();
+            info.locations = new ArrayList<>(snapshot.wipeableLocations);
 
-            // Use primary external storage for main calculation to avoid duplication
-            long totalBytes = 0;
-            long availableBytes = 0;
-            boolean foundPrimaryStorage = false;
-
-            // First try to get external storage stats (most accurate)
-            if (Environment.getExternalStorageState().equals(Environment.MEDIA_MOUNTED)) {
-                try {
-                    File externalStorage = Environment.getExternalStorageDirectory();
-                    StatFs stat = new StatFs(externalStorage.getPath());
-                    long blockSize = stat.getBlockSizeLong();
-                    long totalBlocks = stat.getBlockCountLong();
-                    long availableBlocks = stat.getAvailableBlocksLong();
-                    
-                    totalBytes = totalBlocks * blockSize;
-                    availableBytes = availableBlocks * blockSize;
-                    foundPrimaryStorage = true;
-                } catch (Exception e) {
-                    Log.w("StorageManager", "Failed to get external storage stats: " + e.getMessage());
-                }
-            }
+            // Primary external storage (or internal storage when not mounted) avoids duplication
+            info.totalBytes = snapshot.primaryTotalBytes;
+            info.availableBytes = snapshot.primaryAvailableBytes;
+            info.usedBytes = snapshot.primaryTotalBytes - snapshot.primaryAvailableBytes;
 
-            // Fallback to internal storage if external not available
-            if (!foundPrimaryStorage) {
-                try {
-                    File dataDir = Environment.getDataDirectory();
-                    StatFs stat = new StatFs(dataDir.getPath());
-                    long blockSize = stat.getBlockSizeLong();
-                    long totalBlocks = stat.getBlockCountLong();
-                    long availableBlocks = stat.getAvailableBlocksLong();
-                    
-                    totalBytes = totalBlocks * blockSize;
-                    availableBytes = availableBlocks * blockSize;
-                } catch (Exception e) {
-                    Log.e("StorageManager", "Failed to get internal storage stats: " + e.getMessage());
-                }
-            }
-
-            info.totalBytes = totalBytes;
-            info.availableBytes = availableBytes;
-            info.usedBytes = totalBytes - availableBytes;
-
-            if (totalBytes == 0) {
+            if (info.totalBytes == 0) {
                 info.errorMessage = "No accessible storage locations found. Check permissions and storage availability.";
             }
 
@@ -87,6 +59,10 @@ public class StorageManager {
     }
 
     public static List<StorageLocation> getWipeableDirectories(Context context) {
+        return new ArrayList<>(StorageTopology.get(context).getSnapshot().wipeableLocations);
+    }
+
+    static List<StorageLocation> buildWipeableDirectories(Context context, List<SystemStorageManager.StorageLocation> roots) {
         List<StorageLocation> locations = new ArrayList<>();
 
         try {
@@ -108,7 +84,6 @@ public class StorageManager {
 
             // Add removable/secondary roots discovered via SystemStorageManager (e.g., SD card, USB OTG)
             try {
-                java.util.List<SystemStorageManager.StorageLocation> roots = SystemStorageManager.getSystemStorageRoots(context);
                 for (SystemStorageManager.StorageLocation root : roots) {
                     if (root == null || root.path == null) continue;
                     File dir = new File(root.path);
@@ -0,0 +1,165 @@
+package com.example.nwipe_android;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Computes storage snapshots off the UI thread and publishes them to observers on the main
+ * thread. The last snapshot is cached so an activity can render immediately on resume while a
+ * background refresh is in flight; concurrent refresh requests are coalesced into one.
+ */
+public class StorageSnapshotProvider {
+    private static final String TAG = "StorageSnapshotProvider";
+
+    public interface Observer {
+        void onStorageSnapshot(Snapshot snapshot);
+    }
+
+    /**
+     * Immutable storage and selection state as shown by MainActivity.
+     */
+    public static class Snapshot {
+        public final long createdAtMs;
+        public final boolean valid;
+        public final boolean hasPermissions;
+        public final String errorMessage;
+        public final long totalBytes;
+        public final long availableBytes;
+        public final int usedPercentage;
+        public final String totalFormatted;
+        public final String usedFormatted;
+        public final String availableFormatted;
+        public final String rawCapacityFormattedDecimal;
+        public final double efficiencyPercentage;
+        public final String targetPath;
+        public final String targetName;
+        public final List<String> selectedFolders;
+
+        Snapshot(AccurateStorageManager.AccurateStorageInfo info, String targetPath, String targetName,
+                 List<String> selectedFolders) {
+            this.createdAtMs = SystemClock.elapsedRealtime();
+            this.valid = info.isValid();
+            this.hasPermissions = info.hasPermissions;
+            this.errorMessage = info.errorMessage != null ? info.errorMessage : "";
+            this.totalBytes = info.totalBytes;
+            this.availableBytes = info.availableBytes;
+            this.usedPercentage = info.usedPercentage;
+            this.totalFormatted = info.totalFormatted;
+            this.usedFormatted = info.usedFormatted;
+            this.availableFormatted = info.availableFormatted;
+            this.rawCapacityFormattedDecimal = info.rawCapacityFormattedDecimal;
+            this.efficiencyPercentage = info.efficiencyPercentage;
+            this.targetPath = targetPath;
+            this.targetName = targetName;
+            this.selectedFolders = Collections.unmodifiableList(
+                selectedFolders != null ? new ArrayList<>(selectedFolders) : new ArrayList<String>());
+        }
+    }
+
+    private static volatile StorageSnapshotProvider instance;
+
+    private final Context appContext;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "StorageSnapshot"));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Observer> observers = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean refreshInFlight = new AtomicBoolean(false);
+    private final AtomicBoolean refreshPending = new AtomicBoolean(false);
+    private volatile Snapshot latest;
+
+    public static StorageSnapshotProvider get(Context context) {
+        StorageSnapshotProvider local = instance;
+        if (local == null) {
+            synchronized (StorageSnapshotProvider.class) {
+                local = instance;
+                if (local == null) {
+                    local = new StorageSnapshotProvider(context.getApplicationContext());
+                    instance = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    private StorageSnapshotProvider(Context appContext) {
+        this.appContext = appContext;
+    }
+
+    /**
+     * Last published snapshot, or null if none has been computed yet (or it was invalidated).
+     */
+    public Snapshot getCached() {
+        return latest;
+    }
+
+    public void addObserver(Observer observer) {
+        if (observer != null && !observers.contains(observer)) observers.add(observer);
+    }
+
+    public void removeObserver(Observer observer) {
+        observers.remove(observer);
+    }
+
+    /**
+     * Drops the cached snapshot, e.g. after the wipe target or folder selection changed.
+     */
+    public void invalidate() {
+        latest = null;
+    }
+
+    /**
+     * Schedules a background refresh. If one is already running, a single follow-up refresh is
+     * queued so the result reflects changes made while it was in flight.
+     */
+    public void requestRefresh() {
+        if (!refreshInFlight.compareAndSet(false, true)) {
+            refreshPending.set(true);
+            return;
+        }
+        executor.execute(this::refreshLoop);
+    }
+
+    private void refreshLoop() {
+        try {
+            do {
+                refreshPending.set(false);
+                Snapshot snapshot = compute();
+                latest = snapshot;
+                mainHandler.post(() -> {
+                    for (Observer observer : observers) {
+                        observer.onStorageSnapshot(snapshot);
+                    }
+                });
+            } while (refreshPending.get());
+        } finally {
+            refreshInFlight.set(false);
+        }
+        // A request that raced with the reset above would otherwise be lost
+        if (refreshPending.get()) requestRefresh();
+    }
+
+    private Snapshot compute() {
+        long start = SystemClock.elapsedRealtime();
+        AccurateStorageManager.AccurateStorageInfo info;
+        try {
+            info = AccurateStorageManager.getAccurateStorageInfo(appContext);
+        } catch (Exception e) {
+            info = new AccurateStorageManager.AccurateStorageInfo();
+            info.errorMessage = "Error accessing storage: " + e.getMessage();
+        }
+        Snapshot snapshot = new Snapshot(info, TargetPrefs.getPath(appContext), TargetPrefs.getName(appContext),
+            TargetPrefs.getFolders(appContext));
+        Log.d(TAG, "Storage snapshot computed in " + (SystemClock.elapsedRealtime() - start) + " ms");
+        return snapshot;
+    }
+}
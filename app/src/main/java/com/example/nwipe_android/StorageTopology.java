@@ -0,0 +1,230 @@
+package com.example.nwipe_android;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.Environment;
+import android.os.StatFs;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Process-wide cache of the storage topology: mounted volumes (paths, UUIDs, capacity
+ * snapshots), the wipeable directories derived from them and the primary storage statistics.
+ *
+ * The snapshot is rebuilt when a media mount/unmount/eject broadcast arrives or once it is
+ * older than the TTL, so a wipe job no longer re-enumerates volumes on every pass.
+ */
+public class StorageTopology {
+    private static final String TAG = "StorageTopology";
+    public static final long DEFAULT_TTL_MS = 30_000L;
+
+    /**
+     * Immutable view of the topology at a point in time.
+     */
+    public static class Snapshot {
+        public final long createdAtMs;
+        public final List<SystemStorageManager.StorageLocation> volumes;
+        public final List<StorageLocation> wipeableLocations;
+        public final String primaryStatPath;
+        public final long primaryTotalBytes;
+        public final long primaryAvailableBytes;
+        // Volumes keyed by mount path, wipeable locations keyed by canonical path
+        private final MountPointTrie<SystemStorageManager.StorageLocation> volumeTrie;
+        private final MountPointTrie<StorageLocation> locationTrie;
+
+        Snapshot(long createdAtMs, List<SystemStorageManager.StorageLocation> volumes,
+                 List<StorageLocation> wipeableLocations, String primaryStatPath,
+                 long primaryTotalBytes, long primaryAvailableBytes) {
+            this.createdAtMs = createdAtMs;
+            this.volumes = Collections.unmodifiableList(volumes);
+            this.wipeableLocations = Collections.unmodifiableList(wipeableLocations);
+            this.primaryStatPath = primaryStatPath;
+            this.primaryTotalBytes = primaryTotalBytes;
+            this.primaryAvailableBytes = primaryAvailableBytes;
+            this.volumeTrie = new MountPointTrie<>();
+            for (SystemStorageManager.StorageLocation volume : volumes) {
+                if (volume != null && volume.path != null) volumeTrie.put(volume.path, volume);
+            }
+            this.locationTrie = new MountPointTrie<>();
+            for (StorageLocation location : wipeableLocations) {
+                if (location.canonicalPath != null) locationTrie.put(location.canonicalPath, location);
+            }
+        }
+
+        private Snapshot(Snapshot base, long primaryTotalBytes, long primaryAvailableBytes) {
+            this.createdAtMs = base.createdAtMs;
+            this.volumes = base.volumes;
+            this.wipeableLocations = base.wipeableLocations;
+            this.primaryStatPath = base.primaryStatPath;
+            this.primaryTotalBytes = primaryTotalBytes;
+            this.primaryAvailableBytes = primaryAvailableBytes;
+            this.volumeTrie = base.volumeTrie;
+            this.locationTrie = base.locationTrie;
+        }
+
+        Snapshot withPrimaryCapacity(long totalBytes, long availableBytes) {
+            return new Snapshot(this, totalBytes, availableBytes);
+        }
+
+        /**
+         * Resolves a path to the volume that owns it and the path relative to its mount root.
+         */
+        public MountPointTrie.Match<SystemStorageManager.StorageLocation> resolveVolume(String path) {
+            return volumeTrie.resolve(path);
+        }
+
+        /**
+         * Resolves a canonical path to the wipeable location whose directory contains it.
+         */
+        public MountPointTrie.Match<StorageLocation> resolveLocation(String canonicalPath) {
+            return locationTrie.resolve(canonicalPath);
+        }
+    }
+
+    private static volatile StorageTopology instance;
+
+    private final Context appContext;
+    private final long ttlMs;
+    private volatile Snapshot snapshot;
+    private StatFs primaryStat;
+
+    public static StorageTopology get(Context context) {
+        StorageTopology local = instance;
+        if (local == null) {
+            synchronized (StorageTopology.class) {
+                local = instance;
+                if (local == null) {
+                    local = new StorageTopology(context.getApplicationContext(), DEFAULT_TTL_MS);
+                    local.registerMountReceiver();
+                    instance = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    private StorageTopology(Context appContext, long ttlMs) {
+        this.appContext = appContext;
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Returns the cached snapshot, rebuilding it when invalidated or older than the TTL.
+     */
+    public Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current != null && SystemClock.elapsedRealtime() - current.createdAtMs < ttlMs) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (current == null || SystemClock.elapsedRealtime() - current.createdAtMs >= ttlMs) {
+                current = rebuild();
+                snapshot = current;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Re-reads only the primary storage capacity (no volume enumeration). Used by the engine at
+     * the start of each pass because the free space changes as wipe files are written and removed.
+     */
+    public Snapshot refreshCapacity() {
+        Snapshot current = getSnapshot();
+        synchronized (this) {
+            if (primaryStat == null || current.primaryStatPath == null) return current;
+            try {
+                primaryStat.restat(current.primaryStatPath);
+                long blockSize = primaryStat.getBlockSizeLong();
+                current = current.withPrimaryCapacity(primaryStat.getBlockCountLong() * blockSize,
+                        primaryStat.getAvailableBlocksLong() * blockSize);
+                snapshot = current;
+            } catch (Exception e) {
+                Log.w(TAG, "Failed to refresh primary capacity: " + e.getMessage());
+            }
+            return current;
+        }
+    }
+
+    public void invalidate() {
+        snapshot = null;
+    }
+
+    private Snapshot rebuild() {
+        long start = SystemClock.elapsedRealtime();
+        List<SystemStorageManager.StorageLocation> volumes = SystemStorageManager.enumerateStorageRoots(appContext);
+        List<StorageLocation> locations = StorageManager.buildWipeableDirectories(appContext, volumes);
+        for (StorageLocation location : locations) {
+            location.canonicalPath = canonicalPath(location.directory);
+        }
+
+        String statPath = null;
+        long totalBytes = 0;
+        long availableBytes = 0;
+        File primary = Environment.MEDIA_MOUNTED.equals(Environment.getExternalStorageState())
+                ? Environment.getExternalStorageDirectory() : null;
+        for (File candidate : new File[] { primary, Environment.getDataDirectory() }) {
+            if (candidate == null) continue;
+            try {
+                StatFs stat = new StatFs(candidate.getPath());
+                long blockSize = stat.getBlockSizeLong();
+                totalBytes = stat.getBlockCountLong() * blockSize;
+                availableBytes = stat.getAvailableBlocksLong() * blockSize;
+                statPath = candidate.getPath();
+                primaryStat = stat;
+                break;
+            } catch (Exception e) {
+                Log.w(TAG, "Failed to get storage stats for " + candidate.getPath() + ": " + e.getMessage());
+            }
+        }
+
+        Log.d(TAG, "Topology rebuilt: " + volumes.size() + " volumes, " + locations.size()
+                + " wipeable locations in " + (SystemClock.elapsedRealtime() - start) + " ms");
+        return new Snapshot(SystemClock.elapsedRealtime(), volumes, locations, statPath, totalBytes, availableBytes);
+    }
+
+    /**
+     * Canonical form of a path, falling back to the absolute path when it cannot be resolved.
+     */
+    public static String canonicalPath(File file) {
+        if (file == null) return null;
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException e) {
+            return file.getAbsolutePath();
+        }
+    }
+
+    private void registerMountReceiver() {
+        try {
+            IntentFilter filter = new IntentFilter();
+            filter.addAction(Intent.ACTION_MEDIA_MOUNTED);
+            filter.addAction(Intent.ACTION_MEDIA_UNMOUNTED);
+            filter.addAction(Intent.ACTION_MEDIA_EJECT);
+            filter.addDataScheme("file");
+            BroadcastReceiver receiver = new BroadcastReceiver() {
+                @Override
+                public void onReceive(Context context, Intent intent) {
+                    Log.i(TAG, "Media event " + intent.getAction() + "; invalidating storage topology");
+                    invalidate();
+                }
+            };
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+                appContext.registerReceiver(receiver, filter, Context.RECEIVER_NOT_EXPORTED);
+            } else {
+                appContext.registerReceiver(receiver, filter);
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to register media mount receiver: " + e.getMessage());
+        }
+    }
+}
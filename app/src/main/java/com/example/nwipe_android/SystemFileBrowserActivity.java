@@ -360,9 +360,10 @@ public class SystemFileBrowserActivity extends AppCompatActivity implements Syst
         String rootPath = getIntent().getStringExtra(EXTRA_ROOT_PATH);
         if (restrict && rootPath != null) {
             try {
-                String target = new File(rootPath).getCanonicalPath();
-                String dest = directory.getCanonicalPath();
-                if (!dest.startsWith(target)) {
+                // Component-wise containment so /storage/emulated/01 is not inside /storage/emulated/0
+                MountPointTrie<String> rootTrie = new MountPointTrie<>();
+                rootTrie.put(new File(rootPath).getCanonicalPath(), rootPath);
+                if (rootTrie.resolve(directory.getCanonicalPath()) == null) {
                     // Block navigation outside root
                     showErrorDialog("Restricted", "Cannot leave selected storage root");
                     return;
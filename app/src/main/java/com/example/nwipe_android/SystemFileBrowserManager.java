@@ -254,27 +254,14 @@ public class SystemFileBrowserManager {
             return "Storage";
         }
         
-        // Check if path is a storage root
-        List<SystemStorageManager.StorageLocation> storageLocations = 
-            SystemStorageManager.getSystemStorageRoots(context);
-        
-        for (SystemStorageManager.StorageLocation location : storageLocations) {
-            if (fullPath.equals(location.path)) {
-                return location.displayName;
-            }
-            
-            if (fullPath.startsWith(location.path)) {
-                String relativePath = fullPath.substring(location.path.length());
-                if (relativePath.startsWith("/")) {
-                    relativePath = relativePath.substring(1);
-                }
-                
-                if (relativePath.isEmpty()) {
-                    return location.displayName;
-                } else {
-                    return location.displayName + "/" + relativePath;
-                }
+        // Resolve the owning storage root by whole path components
+        MountPointTrie.Match<SystemStorageManager.StorageLocation> match =
+            StorageTopology.get(context).getSnapshot().resolveVolume(fullPath);
+        if (match != null) {
+            if (match.isRoot()) {
+                return match.value.displayName;
             }
+            return match.value.displayName + "/" + match.relativePath;
         }
         
         // Fallback to showing last few path components
@@ -287,16 +274,9 @@ public class SystemFileBrowserManager {
     }
 
     private static SystemStorageManager.StorageLocation findStorageLocationForPath(String path, Context context) {
-        List<SystemStorageManager.StorageLocation> storageLocations = 
-            SystemStorageManager.getSystemStorageRoots(context);
-        
-        for (SystemStorageManager.StorageLocation location : storageLocations) {
-            if (path.startsWith(location.path)) {
-                return location;
-            }
-        }
-        
-        return null;
+        MountPointTrie.Match<SystemStorageManager.StorageLocation> match =
+            StorageTopology.get(context).getSnapshot().resolveVolume(path);
+        return match != null ? match.value : null;
     }
 
     public static boolean isSystemDirectoryAccessible(File directory, Context context) {
@@ -14,6 +14,8 @@ import java.util.List;
 
 public class SystemStorageManager {
     private static final String TAG = "SystemStorageManager";
+    /** Key used for the primary shared volume, which reports no filesystem UUID. */
+    public static final String PRIMARY_UUID = "primary";
 
     public static class StorageLocation {
         public String displayName;
@@ -23,9 +25,15 @@ public class SystemStorageManager {
         public boolean isRemovable;
         public boolean isAccessible;
         public boolean isPrimary;
+        public String uuid;
 
         public StorageLocation(String displayName, String path, boolean isRemovable, boolean isPrimary) {
+            this(displayName, path, isRemovable, isPrimary, null);
+        }
+
+        public StorageLocation(String displayName, String path, boolean isRemovable, boolean isPrimary, String uuid) {
             this.displayName = displayName;
+            this.uuid = uuid;
             this.path = path;
             this.isRemovable = isRemovable;
             this.isPrimary = isPrimary;
@@ -75,7 +83,15 @@ public class SystemStorageManager {
         }
     }
 
+    /**
+     * Returns the storage roots from the cached {@link StorageTopology}; volumes are only
+     * re-enumerated after a media event or once the cached snapshot expires.
+     */
     public static List<StorageLocation> getSystemStorageRoots(Context context) {
+        return new ArrayList<>(StorageTopology.get(context).getSnapshot().volumes);
+    }
+
+    static List<StorageLocation> enumerateStorageRoots(Context context) {
         List<StorageLocation> storageLocations = new ArrayList<>();
 
         try {
@@ -86,7 +102,8 @@ public class SystemStorageManager {
                     "Internal Storage",
                     primaryExternal.getAbsolutePath(),
                     false,
-                    true
+                    true,
+                    PRIMARY_UUID
                 ));
             }
 
@@ -108,7 +125,8 @@ public class SystemStorageManager {
                                 displayName,
                                 path,
                                 volume.isRemovable(),
-                                volume.isPrimary()
+                                volume.isPrimary(),
+                                volume.isPrimary() ? PRIMARY_UUID : volume.getUuid()
                             ));
                         }
                     } catch (Exception e) {
@@ -138,6 +156,20 @@ public class SystemStorageManager {
         return storageLocations;
     }
 
+    // Resolved once per process instead of on every volume enumeration
+    private static class LegacyPathMethod {
+        static final Method GET_PATH = resolve();
+
+        private static Method resolve() {
+            try {
+                return StorageVolume.class.getMethod("getPath");
+            } catch (Exception e) {
+                Log.w(TAG, "StorageVolume.getPath not available: " + e.getMessage());
+                return null;
+            }
+        }
+    }
+
     private static String getStorageVolumePath(StorageVolume volume) {
         try {
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
@@ -145,8 +177,8 @@ public class SystemStorageManager {
                 return directory != null ? directory.getAbsolutePath() : null;
             } else {
                 // Use reflection for older versions
-                Method getPathMethod = StorageVolume.class.getMethod("getPath");
-                return (String) getPathMethod.invoke(volume);
+                Method getPathMethod = LegacyPathMethod.GET_PATH;
+                return getPathMethod != null ? (String) getPathMethod.invoke(volume) : null;
             }
         } catch (Exception e) {
             Log.w(TAG, "Could not get storage volume path: " + e.getMessage());
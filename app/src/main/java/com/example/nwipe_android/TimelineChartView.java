@@ -0,0 +1,106 @@
+package com.example.nwipe_android;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Draws a ThroughputTimeline: MB/s against the offset in the pass, one line per pass, with the
+ * detected cliffs marked by vertical lines (red for a collapse).
+ */
+public class TimelineChartView extends View {
+    // Line colours of successive passes; the blanking pass is drawn in grey
+    private static final int[] PASS_COLORS = {0xFF6750A4, 0xFF00897B, 0xFFF57C00, 0xFF1E88E5, 0xFF8E24AA};
+    private static final int BLANKING_COLOR = 0xFF9E9E9E;
+
+    private final Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint axisPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint cliffPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Path path = new Path();
+    private List<ThroughputTimeline.Series> series = new ArrayList<>();
+    private long maxOffset;
+    private double maxBytesPerSec;
+
+    public TimelineChartView(Context context) {
+        this(context, null);
+    }
+
+    public TimelineChartView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        float density = getResources().getDisplayMetrics().density;
+        linePaint.setStyle(Paint.Style.STROKE);
+        linePaint.setStrokeWidth(1.5f * density);
+        axisPaint.setColor(Color.GRAY);
+        axisPaint.setStrokeWidth(density);
+        cliffPaint.setStrokeWidth(density);
+        cliffPaint.setPathEffect(new android.graphics.DashPathEffect(new float[]{4 * density, 4 * density}, 0));
+        textPaint.setColor(Color.GRAY);
+        textPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 11, getResources().getDisplayMetrics()));
+    }
+
+    public void setTimeline(ThroughputTimeline timeline) {
+        series = timeline != null ? timeline.getSeries() : new ArrayList<>();
+        maxOffset = 0;
+        maxBytesPerSec = 0;
+        for (ThroughputTimeline.Series s : series) {
+            maxOffset = Math.max(maxOffset, s.getEndOffset());
+            for (ThroughputTimeline.Point point : s.points) maxBytesPerSec = Math.max(maxBytesPerSec, point.getBytesPerSec());
+        }
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        float textHeight = textPaint.getTextSize();
+        float left = getPaddingLeft();
+        float top = getPaddingTop() + textHeight * 1.5f;
+        float right = getWidth() - getPaddingRight();
+        float bottom = getHeight() - getPaddingBottom() - textHeight * 1.5f;
+        if (right <= left || bottom <= top) return;
+
+        canvas.drawLine(left, bottom, right, bottom, axisPaint);
+        canvas.drawLine(left, top, left, bottom, axisPaint);
+        if (maxOffset <= 0 || maxBytesPerSec <= 0) {
+            canvas.drawText("No throughput recorded", left + textHeight, (top + bottom) / 2, textPaint);
+            return;
+        }
+        canvas.drawText(String.format(Locale.ROOT, "%.0f MB/s", maxBytesPerSec / (1024 * 1024)), left, top - textHeight * 0.5f, textPaint);
+        String end = String.format(Locale.ROOT, "%.1f GB", maxOffset / (1024.0 * 1024 * 1024));
+        canvas.drawText(end, right - textPaint.measureText(end), bottom + textHeight * 1.2f, textPaint);
+
+        float width = right - left;
+        float height = bottom - top;
+        int colorIndex = 0;
+        for (ThroughputTimeline.Series s : series) {
+            if (s.points.isEmpty()) continue;
+            int color = s.zeros ? BLANKING_COLOR : PASS_COLORS[colorIndex++ % PASS_COLORS.length];
+            linePaint.setColor(color);
+            path.reset();
+            boolean first = true;
+            for (ThroughputTimeline.Point point : s.points) {
+                float x = left + width * (point.offset + point.bytes / 2f) / maxOffset;
+                float y = bottom - height * (float) (point.getBytesPerSec() / maxBytesPerSec);
+                if (first) path.moveTo(x, y);
+                else path.lineTo(x, y);
+                first = false;
+            }
+            canvas.drawPath(path, linePaint);
+            for (ThroughputTimeline.Cliff cliff : s.findCliffs()) {
+                cliffPaint.setColor(cliff.isDegraded() ? Color.RED : color);
+                float x = left + width * cliff.offset / maxOffset;
+                canvas.drawLine(x, top, x, bottom, cliffPaint);
+            }
+        }
+    }
+}
@@ -12,8 +12,9 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.security.SecureRandom;
-import java.util.Arrays;
 import java.util.Random;
 
 public class WipeAsyncTask extends AsyncTask <WipeJob, WipeJob, WipeJob> {
@@ -192,10 +193,14 @@ public class WipeAsyncTask extends AsyncTask <WipeJob, WipeJob, WipeJob> {
         // Create wipe file in the specific location
         File wipeFile = new File(location.directory, wipeFileName);
         
-        try (OutputStream fos = new java.io.FileOutputStream(wipeFile)) {
+        try (BufferPool.Lease lease = BufferPool.shared().acquire(WIPE_BUFFER_SIZE);
+             FileChannel channel = new java.io.FileOutputStream(wipeFile).getChannel()) {
             Random rnd = new Random();
             rnd.setSeed(randomSeed);
-            byte[] bytesBuffer = new byte[WIPE_BUFFER_SIZE];
+            ByteBuffer bytesBuffer = lease.buffer();
+            if (wipeJob.isBlankingPass()) {
+                BufferPool.zero(bytesBuffer, WIPE_BUFFER_SIZE);
+            }
 
             while (this.wipeJob.wipedBytes < this.wipeJob.totalBytes) {
 
@@ -207,10 +212,14 @@ public class WipeAsyncTask extends AsyncTask <WipeJob, WipeJob, WipeJob> {
                 }
 
                 if (!wipeJob.isBlankingPass()) {
-                    rnd.nextBytes(bytesBuffer);
+                    ChunkPattern.nextBytes(rnd, bytesBuffer, WIPE_BUFFER_SIZE);
                 }
 
-                fos.write(bytesBuffer, 0, bytesToWriteCount);
+                bytesBuffer.clear();
+                bytesBuffer.limit(bytesToWriteCount);
+                while (bytesBuffer.hasRemaining()) {
+                    channel.write(bytesBuffer);
+                }
 
                 this.wipeJob.wipedBytes += bytesToWriteCount;
                 this.updateJobStatus();
@@ -249,11 +258,16 @@ public class WipeAsyncTask extends AsyncTask <WipeJob, WipeJob, WipeJob> {
         this.wipeJob.verifying = true;
 
         // Log.i("WipeAsyncTask", "Starting verifying operation.");
-        try (InputStream fis = new java.io.FileInputStream(wipeFile)) {
+        try (BufferPool.Lease expectedLease = BufferPool.shared().acquire(WIPE_BUFFER_SIZE);
+             BufferPool.Lease actualLease = BufferPool.shared().acquire(WIPE_BUFFER_SIZE);
+             FileChannel channel = new java.io.FileInputStream(wipeFile).getChannel()) {
             Random rnd = new Random();
             rnd.setSeed(randomSeed);
-            byte[] bytesBuffer = new byte[WIPE_BUFFER_SIZE];
-            byte[] bytesInputBuffer = new byte[WIPE_BUFFER_SIZE];
+            ByteBuffer bytesBuffer = expectedLease.buffer();
+            ByteBuffer bytesInputBuffer = actualLease.buffer();
+            if (wipeJob.isBlankingPass()) {
+                BufferPool.zero(bytesBuffer, WIPE_BUFFER_SIZE);
+            }
 
             while (this.wipeJob.wipedBytes < this.wipeJob.totalBytes) {
 
@@ -264,13 +278,18 @@ public class WipeAsyncTask extends AsyncTask <WipeJob, WipeJob, WipeJob> {
                 }
 
                 if (!wipeJob.isBlankingPass()) {
-                    rnd.nextBytes(bytesBuffer);
+                    ChunkPattern.nextBytes(rnd, bytesBuffer, WIPE_BUFFER_SIZE);
                 }
 
-                fis.read(bytesInputBuffer, 0, bytesToReadCount);
-
+                bytesInputBuffer.clear();
+                bytesInputBuffer.limit(bytesToReadCount);
+                while (bytesInputBuffer.hasRemaining()) {
+                    if (channel.read(bytesInputBuffer) < 0) {
+                        throw new IOException("Unexpected end of wipe file");
+                    }
+                }
 
-                if (!Arrays.equals(Arrays.copyOfRange(bytesBuffer, 0, bytesToReadCount), Arrays.copyOfRange(bytesInputBuffer, 0, bytesToReadCount))) {
+                if (!BufferPool.sameBytes(bytesBuffer, bytesInputBuffer, bytesToReadCount)) {
                     wipeJob.errorMessage = "Error while verifying wipe file: streams are not the same!";
                     // Log.e("WipeAsyncTask", wipeJob.errorMessage);
                     return;
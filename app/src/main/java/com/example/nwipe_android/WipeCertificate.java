@@ -34,6 +34,10 @@ public class WipeCertificate {
     private final String checksumAfter;
     private final List<String> securityWarnings;
     private final List<String> complianceStandards;
+    // Engine report of the job (metrics, deadline outcome); may be null
+    private final WipeReport report;
+    // Throughput by offset of the job's passes; may be null
+    private final ThroughputTimeline timeline;
     
     // Digital signature data
     private String digitalSignature;
@@ -62,6 +66,8 @@ public class WipeCertificate {
         this.checksumAfter = builder.checksumAfter;
         this.securityWarnings = builder.securityWarnings;
         this.complianceStandards = builder.complianceStandards;
+        this.report = builder.report;
+        this.timeline = builder.timeline;
     }
     
     // Getters
@@ -85,6 +91,8 @@ public class WipeCertificate {
     public String getChecksumAfter() { return checksumAfter; }
     public List<String> getSecurityWarnings() { return securityWarnings; }
     public List<String> getComplianceStandards() { return complianceStandards; }
+    public WipeReport getReport() { return report; }
+    public ThroughputTimeline getTimeline() { return timeline; }
     
     public String getDigitalSignature() { return digitalSignature; }
     public String getSigningAlgorithm() { return signingAlgorithm; }
@@ -143,6 +151,8 @@ public class WipeCertificate {
         private String checksumAfter;
         private List<String> securityWarnings;
         private List<String> complianceStandards;
+        private WipeReport report;
+        private ThroughputTimeline timeline;
         
         public Builder setDeviceInfo(String deviceInfo) { this.deviceInfo = deviceInfo; return this; }
         public Builder setAppVersion(String appVersion) { this.appVersion = appVersion; return this; }
@@ -159,6 +169,8 @@ public class WipeCertificate {
         public Builder setChecksumAfter(String checksumAfter) { this.checksumAfter = checksumAfter; return this; }
         public Builder setSecurityWarnings(List<String> securityWarnings) { this.securityWarnings = securityWarnings; return this; }
         public Builder setComplianceStandards(List<String> complianceStandards) { this.complianceStandards = complianceStandards; return this; }
+        public Builder setReport(WipeReport report) { this.report = report; return this; }
+        public Builder setTimeline(ThroughputTimeline timeline) { this.timeline = timeline; return this; }
         
         public WipeCertificate build() {
             return new WipeCertificate(this);
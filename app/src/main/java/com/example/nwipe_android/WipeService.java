@@ -1,5 +1,6 @@
 package com.example.nwipe_android;
 
+import android.app.ActivityManager;
 import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
@@ -8,33 +9,133 @@ import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.RemoteException;
 import android.util.Log;
 import androidx.annotation.Nullable;
 import androidx.core.app.NotificationCompat;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
- * Foreground service that runs secure wiping using WipeEngine and emits progress broadcasts.
+ * Foreground service that runs secure wiping using WipeEngine.
+ *
+ * Start requests are appended to a persistent WipeQueue and dispatched by an IoScheduler: jobs
+ * on different volumes run concurrently, jobs on the same volume one after another. Each running
+ * job owns one ProgressChannel slot that clients poll at their own rate; broadcasts are only
+ * sent on state transitions (started, pass changed, finished, failed) and carry the job id and
+ * slot. Clients bind (without auto-create) to get a Messenger for registration and control.
  */
-public class WipeService extends Service implements WipeEngine.Callback {
+public class WipeService extends Service {
 
     public static final String ACTION_START = "com.example.nwipe_android.action.START_WIPE";
     public static final String ACTION_CANCEL = "com.example.nwipe_android.action.CANCEL_WIPE";
+    public static final String ACTION_PAUSE = "com.example.nwipe_android.action.PAUSE_WIPE";
+    public static final String ACTION_RESUME = "com.example.nwipe_android.action.RESUME_WIPE";
     public static final String ACTION_PROGRESS = "com.example.nwipe_android.action.WIPE_PROGRESS";
+    // Writes the flight recorder of running jobs (or of EXTRA_JOB_ID) to filesDir/flight_recorder
+    public static final String ACTION_DUMP_FLIGHT_RECORDER = "com.example.nwipe_android.action.DUMP_FLIGHT_RECORDER";
+    // Enables (port > 0) or disables (0) the loopback metrics endpoint; the setting persists.
+    // Sent only by MetricsSettingActivity, which the adb shell alone may start
+    public static final String ACTION_METRICS = "com.example.nwipe_android.action.METRICS";
+    public static final String EXTRA_METRICS_PORT = "metrics_port";
     public static final String EXTRA_PASSES = "passes";
     public static final String EXTRA_VERIFY = "verify";
     public static final String EXTRA_BLANK = "blank";
     public static final String EXTRA_TARGET_PATH = "target_path";
     public static final String EXTRA_TARGET_NAME = "target_name";
     public static final String EXTRA_TARGET_FOLDERS = "target_folders"; // ArrayList<String>
+    public static final String EXTRA_STATE = "state";
+    public static final String EXTRA_RUNNING = "running";
+    public static final String EXTRA_CHANNEL_PATH = "channel_path";
+    public static final String EXTRA_PRIORITY = "priority";
+    // Wall-clock time (ms) a time-boxed job must finish by
+    public static final String EXTRA_DEADLINE_AT_MS = "deadline_at_ms";
+    // WipeScheme id or "custom:" spec; absent for random passes
+    public static final String EXTRA_SCHEME = "scheme";
+    public static final String EXTRA_JOB_ID = "job_id";
+    public static final String EXTRA_SLOT = "slot";
+    // Jobs still queued or running after the one a terminal broadcast is about
+    public static final String EXTRA_QUEUE_REMAINING = "queue_remaining";
+    public static final String EXTRA_PAUSED = "paused";
+    // Time from the cancel request until the engine stopped; only on cancelled jobs
+    public static final String EXTRA_CANCEL_LATENCY_MS = "cancel_latency_ms";
+
+    // Transition states carried by ACTION_PROGRESS broadcasts
+    public static final int STATE_STARTED = 1;
+    public static final int STATE_PASS_CHANGED = 2;
+    public static final int STATE_FINISHED = 3;
+    public static final int STATE_FAILED = 4;
+    public static final int STATE_PAUSED = 5;
+    public static final int STATE_RESUMED = 6;
+
+    // Messenger protocol; replies are sent to Message.replyTo
+    public static final int MSG_REGISTER = 1;
+    public static final int MSG_GET_SNAPSHOT = 2;
+    public static final int MSG_CANCEL = 3;
+    public static final int MSG_PAUSE = 4;
+    public static final int MSG_RESUME = 5;
+    public static final int MSG_CHANNEL_INFO = 101;
+    public static final int MSG_SNAPSHOT = 102;
 
     private static final String CHANNEL_ID = "wipe_channel";
     private static final int NOTIFICATION_ID = 42;
     private static final String TAG = "SecureWipe";
 
-    private Thread worker;
-    private WipeEngine.CancelToken cancelToken;
-    private int lastLoggedPercent = -1;
+    /**
+     * State of one job while the scheduler runs it.
+     */
+    private static class RunningJob {
+        final WipeQueue.Entry entry;
+        final int slot;
+        final WipeEngine.CancelToken cancelToken = new WipeEngine.CancelToken();
+        final long startedAtMs = System.currentTimeMillis();
+        volatile ProgressBus progressBus;
+        volatile WipeEngine engine;
+        // Last progress written to the channel, for the metrics endpoint
+        volatile ProgressSnapshot lastSnapshot;
+        int lastBroadcastPass = -1;
+        boolean lastBroadcastVerifying = false;
+        int lastLoggedPercent = -1;
+        int lastLoggedPass = -1;
+
+        RunningJob(WipeQueue.Entry entry, int slot) {
+            this.entry = entry;
+            this.slot = slot;
+        }
+    }
+
+    private WipeQueue queue;
+    private IoScheduler scheduler;
+    // Thermal and battery state are device-wide, so all jobs share one governor
+    private ThrottleGovernor governor;
+    // Measured performance per volume and filesystem, carried over to the next job there
+    private VolumeProfileStore profiles;
+    private final Map<String, RunningJob> runningJobs = new ConcurrentHashMap<>();
+    private volatile int lastStartId;
+    // Applies to running jobs and to queued jobs when they start
+    private volatile boolean paused = false;
+    private int lastNotifiedPercent = -1;
+    private boolean lastNotifiedStalled = false;
+    private NotificationCompat.Builder notificationBuilder;
+    private final Messenger messenger = new Messenger(new Handler(Looper.getMainLooper(), this::handleClientMessage));
+    private ProgressChannel progressChannel;
+    // Opt-in Prometheus-style endpoint on 127.0.0.1, null when disabled
+    private MetricsHttpServer metricsServer;
+    // Per volume, of the jobs that ended in this process: bytes written, bytes verified, soft
+    // and hard stalls; the running jobs' live counts are added at scrape time
+    private final Map<String, long[]> finishedTotals = new ConcurrentHashMap<>();
+    private final Map<String, Long> finishedJobs = new ConcurrentHashMap<>();
 
     public static Intent createStartIntent(Context context, int passes, boolean verify, boolean blank) {
         Intent i = new Intent(context, WipeService.class);
@@ -65,80 +166,381 @@ public class WipeService extends Service implements WipeEngine.Callback {
         return i;
     }
 
+    public static Intent createPauseIntent(Context context) {
+        Intent i = new Intent(context, WipeService.class);
+        i.setAction(ACTION_PAUSE);
+        return i;
+    }
+
+    public static Intent createResumeIntent(Context context) {
+        Intent i = new Intent(context, WipeService.class);
+        i.setAction(ACTION_RESUME);
+        return i;
+    }
+
+    public static Intent createDumpFlightRecorderIntent(Context context, String jobId) {
+        Intent i = new Intent(context, WipeService.class);
+        i.setAction(ACTION_DUMP_FLIGHT_RECORDER);
+        if (jobId != null) i.putExtra(EXTRA_JOB_ID, jobId);
+        return i;
+    }
+
+    public static Intent createMetricsIntent(Context context, int port) {
+        Intent i = new Intent(context, WipeService.class);
+        i.setAction(ACTION_METRICS);
+        i.putExtra(EXTRA_METRICS_PORT, port);
+        return i;
+    }
+
+    public static Intent createCancelIntent(Context context, String jobId) {
+        Intent i = createCancelIntent(context);
+        i.putExtra(EXTRA_JOB_ID, jobId);
+        return i;
+    }
+
     @Override
     public void onCreate() {
         super.onCreate();
         createNotificationChannel();
+        queue = new WipeQueue(WipeQueue.defaultFile(getFilesDir()));
+        scheduler = new IoScheduler(queue, this::runQueuedJob, this::onQueueIdle);
+        governor = new ThrottleGovernor(new AndroidSignalSource(this));
+        profiles = new VolumeProfileStore(VolumeProfileStore.defaultFile(getFilesDir()));
+        startMetricsServer(readMetricsPort());
+        configureBufferPool();
     Log.i(TAG, "WipeService created");
     }
 
+    /**
+     * Caps the engine's buffer pool by this process's heap: direct buffers count against it.
+     */
+    private void configureBufferPool() {
+        ActivityManager am = (ActivityManager) getSystemService(Context.ACTIVITY_SERVICE);
+        if (am == null) return;
+        BufferPool.shared().setCapBytes(BufferPool.capFor(am.getMemoryClass(), am.isLowRamDevice()));
+        Log.i(TAG, BufferPool.shared().describe());
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        BufferPool.shared().trim(level);
+        Log.i(TAG, "Memory trim level " + level + "; " + BufferPool.shared().describe());
+    }
+
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
-        if (intent == null) return START_NOT_STICKY;
+        lastStartId = startId;
+        if (intent == null) {
+            // Restarted after the process died (START_STICKY): resume queued and interrupted jobs
+            adoptOrphanJournals();
+            if (queue.size() == 0) {
+                stopSelf(startId);
+                return START_NOT_STICKY;
+            }
+            try {
+                startInForeground();
+            } catch (Exception e) {
+                Log.w(TAG, "Could not return to the foreground after restart: " + e.getMessage());
+            }
+            scheduler.pump();
+            return START_STICKY;
+        }
         String action = intent.getAction();
         if (ACTION_CANCEL.equals(action)) {
             Log.i(TAG, "Cancel intent received");
-            if (cancelToken != null) cancelToken.cancel();
-            stopForeground(true);
-            stopSelf();
+            cancelWipe(intent.getStringExtra(EXTRA_JOB_ID));
             return START_NOT_STICKY;
         }
-        if (ACTION_START.equals(action)) {
-            if (worker != null && worker.isAlive()) {
-                Log.i(TAG, "Wipe already in progress; ignoring duplicate start");
-                return START_STICKY;
+        if (ACTION_PAUSE.equals(action) || ACTION_RESUME.equals(action)) {
+            setPaused(ACTION_PAUSE.equals(action));
+            return START_STICKY;
+        }
+        if (ACTION_DUMP_FLIGHT_RECORDER.equals(action)) {
+            String jobId = intent.getStringExtra(EXTRA_JOB_ID);
+            for (RunningJob running : runningJobs.values()) {
+                if (jobId != null && !jobId.equals(running.entry.id)) continue;
+                WipeEngine engine = running.engine;
+                if (engine == null) continue;
+                engine.getRecorder().record(FlightRecorder.DUMP_REQUESTED, 0, 0);
+                dumpFlightRecorder(running.entry.id, engine);
             }
+            if (queue.size() == 0) stopSelf(startId);
+            return START_NOT_STICKY;
+        }
+        if (ACTION_METRICS.equals(action)) {
+            int port = intent.getIntExtra(EXTRA_METRICS_PORT, 0);
+            writeMetricsPort(port);
+            startMetricsServer(port);
+            if (queue.size() == 0) stopSelf(startId);
+            return START_NOT_STICKY;
+        }
+        if (ACTION_START.equals(action)) {
             int passes = intent.getIntExtra(EXTRA_PASSES, WipeJob.DEFAULT_NUMBER_PASSES);
             boolean verify = intent.getBooleanExtra(EXTRA_VERIFY, WipeJob.DEFAULT_VERIFY);
             boolean blank = intent.getBooleanExtra(EXTRA_BLANK, WipeJob.DEFAULT_BLANK);
             String targetPath = intent.getStringExtra(EXTRA_TARGET_PATH);
             String targetName = intent.getStringExtra(EXTRA_TARGET_NAME);
-            java.util.ArrayList<String> targetFolders = intent.getStringArrayListExtra(EXTRA_TARGET_FOLDERS);
+            ArrayList<String> targetFolders = intent.getStringArrayListExtra(EXTRA_TARGET_FOLDERS);
+            int priority = intent.getIntExtra(EXTRA_PRIORITY, 0);
+
+            WipeJob job = new WipeJob();
+            job.number_passes = passes;
+            job.verify = verify;
+            job.blank = blank;
+            job.targetPath = targetPath;
+            job.targetName = targetName;
+            if (targetFolders != null) job.targetFolders = targetFolders;
+            job.deadlineAtMs = intent.getLongExtra(EXTRA_DEADLINE_AT_MS, 0);
+            String scheme = intent.getStringExtra(EXTRA_SCHEME);
+            try {
+                WipeScheme.forId(scheme).applyTo(job);
+            } catch (IllegalArgumentException e) {
+                Log.e(TAG, "Rejected wipe job: " + e.getMessage());
+                if (queue.size() == 0) stopSelf(startId);
+                return START_NOT_STICKY;
+            }
 
-            Log.i(TAG, "Starting wipe job: passes=" + passes + ", verify=" + verify + ", blank=" + blank
-                + (targetFolders != null && !targetFolders.isEmpty() ? (", folders=" + targetFolders.size())
-                : (targetPath != null ? (", target='" + (targetName != null ? targetName : targetPath) + "'") : "")));
             startInForeground();
-            cancelToken = new WipeEngine.CancelToken();
-
-            worker = new Thread(() -> {
-                WipeJob job = new WipeJob();
-                job.number_passes = passes;
-                job.verify = verify;
-                job.blank = blank;
-                job.targetPath = targetPath;
-                job.targetName = targetName;
-                if (targetFolders != null) job.targetFolders = targetFolders;
-                new WipeEngine(getApplicationContext(), this, cancelToken).execute(job);
-                // final broadcast to notify completion or failure
-                sendProgressBroadcast(job);
-                Log.i(TAG, "Wipe finished: status=" + (job.failed() ? ("FAILED: " + job.errorMessage) : "SUCCESS"));
-                stopForeground(true);
-                stopSelf();
-            }, "WipeWorker");
-            worker.start();
+            adoptOrphanJournals();
+            try {
+                WipeQueue.Entry entry = queue.enqueue(job, priority, volumeKeyFor(this, job));
+                Log.i(TAG, "Queued wipe job " + entry.id + ": " + WipeScheme.describe(job)
+                    + (targetFolders != null && !targetFolders.isEmpty() ? (", folders=" + targetFolders.size())
+                    : (targetPath != null ? (", target='" + (targetName != null ? targetName : targetPath) + "'") : ""))
+                    + ", volume=" + entry.volumeKey + ", priority=" + priority
+                    + (job.deadlineAtMs > 0 ? ", deadline in " + ThroughputEstimator.formatDuration(job.deadlineAtMs - System.currentTimeMillis()) : ""));
+            } catch (Exception e) {
+                Log.e(TAG, "Could not queue wipe job: " + e.getMessage());
+            }
+            scheduler.pump();
             return START_STICKY;
         }
         return START_NOT_STICKY;
     }
 
+    /**
+     * Puts journals of interrupted jobs that are missing from the queue (e.g. written before the
+     * queue existed, or the queue file was lost) back into it so they resume.
+     */
+    private void adoptOrphanJournals() {
+        for (File file : WipeJournal.findUnfinished(WipeJournal.directory(getFilesDir()))) {
+            String id = WipeJournal.jobIdOf(file);
+            if (queue.get(id) != null || runningJobs.containsKey(id)) continue;
+            try {
+                WipeJournal.Recovery recovery = WipeJournal.replay(file);
+                if (recovery == null) {
+                    //noinspection ResultOfMethodCallIgnored
+                    file.delete();
+                    continue;
+                }
+                queue.adopt(id, recovery.job, 0, volumeKeyFor(this, recovery.job));
+                Log.i(TAG, "Re-queued interrupted wipe job from " + file.getName());
+            } catch (Exception e) {
+                Log.w(TAG, "Unreadable wipe journal " + file.getName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Jobs on the same volume share its I/O queue and are serialized. The key is the volume UUID
+     * (or mount root) of the job's first target; untargeted jobs may touch every volume and get
+     * WipeQueue.ALL_VOLUMES.
+     */
+    static String volumeKeyFor(Context context, WipeJob job) {
+        String path = targetPathOf(job);
+        if (path == null) return WipeQueue.ALL_VOLUMES;
+        String canonical = StorageTopology.canonicalPath(new File(path));
+        try {
+            MountPointTrie.Match<SystemStorageManager.StorageLocation> match =
+                StorageTopology.get(context).getSnapshot().resolveVolume(canonical);
+            if (match != null) {
+                return match.value != null && match.value.uuid != null ? match.value.uuid : match.root;
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Could not resolve volume of " + path + ": " + e.getMessage());
+        }
+        return canonical;
+    }
+
+    private static String targetPathOf(WipeJob job) {
+        return job.hasSelectedFolders() ? job.targetFolders.get(0) : job.targetPath;
+    }
+
+    /**
+     * Profile key of a job: its volume key plus the filesystem type mounted there, so a card
+     * reformatted with another filesystem starts a fresh history.
+     */
+    static String profileKeyFor(String volumeKey, WipeJob job) {
+        String path = targetPathOf(job);
+        String filesystem = path != null
+            ? VolumeProfileStore.filesystemOf(StorageTopology.canonicalPath(new File(path)))
+            : VolumeProfileStore.UNKNOWN_FILESYSTEM;
+        return VolumeProfileStore.keyFor(volumeKey, filesystem);
+    }
+
+    /**
+     * Runs on a scheduler thread; resumes the job from its journal when one exists.
+     */
+    private void runQueuedJob(WipeQueue.Entry entry, int slot) {
+        File journalDir = WipeJournal.directory(getFilesDir());
+        WipeJob job = entry.spec.toJob();
+        WipeJournal journal = null;
+        try {
+            File existing = WipeJournal.fileFor(journalDir, entry.id);
+            if (existing.isFile()) journal = WipeJournal.open(existing);
+            if (journal != null) {
+                job = journal.getRecovery().job;
+                Log.i(TAG, "Resuming interrupted wipe job " + entry.id);
+            } else {
+                journal = WipeJournal.create(journalDir, entry.id, job);
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Wipe journal unavailable; job " + entry.id + " cannot be resumed: " + e.getMessage());
+        }
+
+        RunningJob running = new RunningJob(entry, slot);
+        if (paused) running.cancelToken.pause();
+        runningJobs.put(entry.id, running);
+        openProgressChannel();
+        ProgressBus bus = new ProgressBus()
+            .addSink(snapshot -> writeProgressChannel(running, snapshot, true))
+            .addSink(snapshot -> broadcastTransitions(running, snapshot))
+            .addSink(snapshot -> updateNotification(running, snapshot))
+            .addSink(snapshot -> logProgress(running, snapshot));
+        running.progressBus = bus;
+        Log.i(TAG, "Starting wipe job " + entry.id + " in slot " + slot + " (volume " + entry.volumeKey + ")");
+        String profileKey = profileKeyFor(entry.volumeKey, job);
+        VolumeProfileStore.Profile profile = profiles.get(profileKey);
+        ThroughputEstimator estimator = ThroughputEstimator.forVolume(entry.volumeKey);
+        if (profile != null) {
+            for (int phase = 0; phase < profile.rateBytesPerSec.length; phase++) {
+                estimator.seed(phase, profile.rateBytesPerSec[phase]);
+            }
+            Log.i(TAG, "Volume profile " + profileKey + ": " + profile.jobs + " earlier job(s), "
+                + (long) (profile.rateBytesPerSec[ThroughputEstimator.RANDOM_WRITE] / (1024 * 1024)) + " MB/s random write");
+        }
+        WipeEngine engine = AndroidWipeEngine.create(this, bus, running.cancelToken)
+            .setJournal(journal)
+            .setGovernor(governor)
+            .setEstimator(estimator)
+            .setProfile(profile);
+        running.engine = engine;
+        try {
+            engine.execute(job);
+        } catch (RuntimeException e) {
+            job.errorMessage = "Wipe failed: " + e;
+            Log.e(TAG, job.errorMessage);
+        }
+        running.progressBus = null;
+        running.engine = null;
+        // The events leading up to a failure, for diagnosis; logcat only has the summaries
+        if (job.failed() && !running.cancelToken.isCancelled()) dumpFlightRecorder(entry.id, engine);
+        VolumeProfileStore.Observation observation = engine.getObservation();
+        if (observation != null) {
+            try {
+                profiles.record(profileKey, observation);
+            } catch (IOException e) {
+                Log.w(TAG, "Could not save volume profile " + profileKey + ": " + e.getMessage());
+            }
+        }
+        // Stall warnings and metrics for the certificate; written before the terminal broadcast
+        WipeReport report = engine.getReport();
+        report.jobId = entry.id;
+        try {
+            report.save(getFilesDir());
+        } catch (IOException e) {
+            Log.w(TAG, "Could not save wipe report for job " + entry.id + ": " + e.getMessage());
+        }
+        ThroughputTimeline timeline = engine.getTimeline();
+        if (!timeline.isEmpty()) {
+            try {
+                timeline.save(ThroughputTimeline.fileFor(getFilesDir(), entry.id));
+            } catch (IOException e) {
+                Log.w(TAG, "Could not save throughput timeline for job " + entry.id + ": " + e.getMessage());
+            }
+        }
+        // The job ran to an end (success, failure or cancel); nothing left to resume
+        if (journal != null) journal.finish();
+        try {
+            queue.remove(entry.id);
+        } catch (Exception e) {
+            Log.w(TAG, "Could not update wipe queue: " + e.getMessage());
+        }
+        addFinishedTotals(entry.volumeKey, engine, job);
+        runningJobs.remove(entry.id);
+        // final state to the channel and a broadcast to notify completion or failure
+        ProgressSnapshot last = ProgressSnapshot.of(job);
+        writeProgressChannel(running, last, false);
+        Intent terminal = stateIntent(running, job.failed() && !job.isCompleted() ? STATE_FAILED : STATE_FINISHED, last);
+        long cancelLatencyMs = running.cancelToken.getCancelLatencyMs();
+        if (cancelLatencyMs >= 0) {
+            terminal.putExtra(EXTRA_CANCEL_LATENCY_MS, cancelLatencyMs);
+            Log.i(TAG, "Wipe job " + entry.id + " cancelled; stopped " + cancelLatencyMs + " ms after the request");
+        }
+        sendBroadcast(terminal);
+        Log.i(TAG, "Wipe job " + entry.id + " finished: status=" + (job.failed() ? ("FAILED: " + job.errorMessage) : "SUCCESS")
+            + ", " + queue.size() + " job(s) left");
+        Log.i(TAG, BufferPool.shared().describe());
+    }
+
+    /**
+     * Called by the scheduler (under its lock) once nothing is running or queued.
+     */
+    private void onQueueIdle() {
+        stopForeground(true);
+        // Keeps the service alive if a start request arrived after the last pump
+        stopSelf(lastStartId);
+    }
+
     private void startInForeground() {
         Intent tapIntent = new Intent(this, MainActivity.class);
         int flags = PendingIntent.FLAG_UPDATE_CURRENT | (Build.VERSION.SDK_INT >= 23 ? PendingIntent.FLAG_IMMUTABLE : 0);
         PendingIntent pi = PendingIntent.getActivity(this, 0, tapIntent, flags);
 
-    Notification notification = new NotificationCompat.Builder(this, CHANNEL_ID)
+    notificationBuilder = new NotificationCompat.Builder(this, CHANNEL_ID)
                 .setContentTitle("Secure wipe in progress")
                 .setContentText("Overwriting storage for secure deletion")
         .setSmallIcon(R.drawable.ic_info_24)
                 .setContentIntent(pi)
                 .setOngoing(true)
-                .setOnlyAlertOnce(true)
-                .build();
-        startForeground(NOTIFICATION_ID, notification);
+                .setOnlyAlertOnce(true);
+        setNotificationActions();
+        lastNotifiedPercent = -1;
+        startForeground(NOTIFICATION_ID, notificationBuilder.build());
     Log.i(TAG, "Foreground notification started (dataSync)");
     }
 
+    private void setNotificationActions() {
+        int flags = PendingIntent.FLAG_UPDATE_CURRENT | (Build.VERSION.SDK_INT >= 23 ? PendingIntent.FLAG_IMMUTABLE : 0);
+        PendingIntent toggle = PendingIntent.getService(this, 1,
+            paused ? createResumeIntent(this) : createPauseIntent(this), flags);
+        PendingIntent cancel = PendingIntent.getService(this, 2, createCancelIntent(this), flags);
+        notificationBuilder.clearActions()
+            .addAction(paused ? R.drawable.ic_play_arrow_24 : R.drawable.ic_pause_24, paused ? "Resume" : "Pause", toggle)
+            .addAction(R.drawable.ic_delete_24, "Cancel", cancel);
+    }
+
+    /**
+     * Parks (or releases) every running job at its next chunk boundary; files stay open.
+     */
+    private synchronized void setPaused(boolean pause) {
+        if (paused == pause) return;
+        paused = pause;
+        Log.i(TAG, pause ? "Pausing wipe jobs" : "Resuming wipe jobs");
+        for (RunningJob running : runningJobs.values()) {
+            if (pause) running.cancelToken.pause(); else running.cancelToken.resume();
+            ProgressBus bus = running.progressBus;
+            ProgressSnapshot snapshot = bus != null ? bus.getLastSnapshot() : null;
+            if (snapshot != null) sendStateBroadcast(running, pause ? STATE_PAUSED : STATE_RESUMED, snapshot);
+        }
+        if (notificationBuilder == null) return;
+        setNotificationActions();
+        if (pause) notificationBuilder.setContentText("Paused");
+        lastNotifiedPercent = -1;
+        postNotification();
+    }
+
     private void createNotificationChannel() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             NotificationChannel channel = new NotificationChannel(CHANNEL_ID, "Secure Wipe", NotificationManager.IMPORTANCE_LOW);
@@ -149,33 +551,419 @@ public class WipeService extends Service implements WipeEngine.Callback {
 
     @Nullable
     @Override
-    public IBinder onBind(Intent intent) { return null; }
+    public IBinder onBind(Intent intent) { return messenger.getBinder(); }
 
     @Override
-    public void onProgress(WipeJob job) {
-    sendProgressBroadcast(job);
-    // Throttle logs to every 10%
-    int pct = job.getCurrentPassPercentageCompletion();
-    if (pct >= 0 && (lastLoggedPercent == -1 || pct - lastLoggedPercent >= 10)) {
-        Log.d(TAG, "Progress: pass " + (job.passes_completed + 1) + "/" + (job.blank ? job.number_passes + 1 : job.number_passes)
-            + (job.verifying ? " (verifying)" : "") + ", " + pct + "%");
-        lastLoggedPercent = pct;
+    public void onDestroy() {
+        super.onDestroy();
+        scheduler.shutdown();
+        try {
+            if (progressChannel != null) progressChannel.close();
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to close progress channel: " + e.getMessage());
+        }
+        progressChannel = null;
+        stopMetricsServer();
     }
+
+    private boolean isRunning() {
+        return !runningJobs.isEmpty();
     }
 
-    @Override
-    public void onMessage(String message) { /* reserved for future */ }
+    /**
+     * The running job that owns the notification and is reported to clients: the lowest slot.
+     */
+    private RunningJob primaryJob() {
+        RunningJob primary = null;
+        for (RunningJob running : runningJobs.values()) {
+            if (primary == null || running.slot < primary.slot) primary = running;
+        }
+        return primary;
+    }
+
+    private void dumpFlightRecorder(String jobId, WipeEngine engine) {
+        File file = FlightRecorder.fileFor(getFilesDir(), jobId);
+        try {
+            engine.getRecorder().dump(file);
+            Log.i(TAG, "Flight recorder of job " + jobId + " written to " + file.getAbsolutePath());
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write flight recorder of job " + jobId + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Cancels one job (queued or running), or every job when {@code jobId} is null.
+     */
+    private void cancelWipe(String jobId) {
+        // Cancelling everything also ends a pause, so the next job does not start parked
+        if (jobId == null) paused = false;
+        List<WipeQueue.Entry> entries = queue.list();
+        for (WipeQueue.Entry entry : entries) {
+            if (jobId != null && !jobId.equals(entry.id)) continue;
+            RunningJob running = runningJobs.get(entry.id);
+            if (running != null) {
+                running.cancelToken.cancel();
+                continue;
+            }
+            try {
+                queue.remove(entry.id);
+            } catch (Exception e) {
+                Log.w(TAG, "Could not update wipe queue: " + e.getMessage());
+            }
+            //noinspection ResultOfMethodCallIgnored
+            WipeJournal.fileFor(WipeJournal.directory(getFilesDir()), entry.id).delete();
+        }
+        // Stops the service right away if nothing is running; otherwise once the workers exit
+        scheduler.pump();
+    }
+
+    private boolean handleClientMessage(Message msg) {
+        switch (msg.what) {
+            case MSG_REGISTER: {
+                Bundle info = new Bundle();
+                RunningJob primary = primaryJob();
+                info.putBoolean(EXTRA_RUNNING, isRunning() || queue.size() > 0);
+                info.putString(EXTRA_CHANNEL_PATH, ProgressChannel.defaultFile(getFilesDir()).getAbsolutePath());
+                info.putInt(EXTRA_SLOT, primary != null ? primary.slot : -1);
+                info.putInt(EXTRA_QUEUE_REMAINING, queue.size());
+                info.putBoolean(EXTRA_PAUSED, paused);
+                reply(msg, MSG_CHANNEL_INFO, info);
+                return true;
+            }
+            case MSG_GET_SNAPSHOT: {
+                String jobId = msg.peekData() != null ? msg.peekData().getString(EXTRA_JOB_ID) : null;
+                RunningJob running = jobId != null ? runningJobs.get(jobId) : primaryJob();
+                ProgressBus bus = running != null ? running.progressBus : null;
+                ProgressSnapshot snapshot = bus != null ? bus.getLastSnapshot() : null;
+                Bundle data = snapshot != null ? toBundle(snapshot) : new Bundle();
+                data.putBoolean(EXTRA_RUNNING, isRunning());
+                if (running != null) {
+                    data.putString(EXTRA_JOB_ID, running.entry.id);
+                    data.putInt(EXTRA_SLOT, running.slot);
+                }
+                reply(msg, MSG_SNAPSHOT, data);
+                return true;
+            }
+            case MSG_CANCEL:
+                Log.i(TAG, "Cancel message received");
+                cancelWipe(msg.peekData() != null ? msg.peekData().getString(EXTRA_JOB_ID) : null);
+                return true;
+            case MSG_PAUSE:
+            case MSG_RESUME:
+                setPaused(msg.what == MSG_PAUSE);
+                return true;
+            default:
+                return false;
+        }
+    }
 
-    private void sendProgressBroadcast(WipeJob job) {
+    private void reply(Message request, int what, Bundle data) {
+        if (request.replyTo == null) return;
+        Message response = Message.obtain(null, what);
+        response.setData(data);
+        try {
+            request.replyTo.send(response);
+        } catch (RemoteException e) {
+            Log.w(TAG, "Client went away before reply: " + e.getMessage());
+        }
+    }
+
+    private synchronized void openProgressChannel() {
+        if (progressChannel != null) return;
+        try {
+            progressChannel = ProgressChannel.openWriter(ProgressChannel.defaultFile(getFilesDir()));
+        } catch (Exception e) {
+            Log.w(TAG, "Progress channel unavailable; clients will only see transitions: " + e.getMessage());
+        }
+    }
+
+    private void writeProgressChannel(RunningJob running, ProgressSnapshot snapshot, boolean active) {
+        running.lastSnapshot = snapshot;
+        ProgressChannel channel = progressChannel;
+        if (channel != null) channel.write(running.slot, snapshot, active, running.startedAtMs);
+    }
+
+    private int readMetricsPort() {
+        File file = new File(getFilesDir(), MetricsHttpServer.PORT_FILE_NAME);
+        if (!file.isFile()) return 0;
+        try (java.io.BufferedReader reader = new java.io.BufferedReader(new java.io.FileReader(file))) {
+            String line = reader.readLine();
+            return line != null ? Integer.parseInt(line.trim()) : 0;
+        } catch (IOException | NumberFormatException e) {
+            Log.w(TAG, "Ignoring unreadable metrics setting: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private void writeMetricsPort(int port) {
+        File file = new File(getFilesDir(), MetricsHttpServer.PORT_FILE_NAME);
+        if (port <= 0) {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            return;
+        }
+        try (java.io.FileWriter writer = new java.io.FileWriter(file)) {
+            writer.write(Integer.toString(port));
+        } catch (IOException e) {
+            Log.w(TAG, "Could not save metrics setting: " + e.getMessage());
+        }
+    }
+
+    /**
+     * (Re)binds the metrics endpoint to {@code port} on the loopback address, or only stops it
+     * when the port is 0. Reachable from a host with "adb forward tcp:PORT tcp:PORT".
+     */
+    private synchronized void startMetricsServer(int port) {
+        if (metricsServer != null && metricsServer.getPort() == port) return;
+        stopMetricsServer();
+        if (port <= 0) return;
+        try {
+            metricsServer = new MetricsHttpServer(port, this::collectMetrics);
+            Log.i(TAG, "Metrics served at http://127.0.0.1:" + port + MetricsHttpServer.PATH);
+        } catch (IOException | SecurityException e) {
+            Log.w(TAG, "Could not start metrics endpoint on port " + port + ": " + e.getMessage());
+        }
+    }
+
+    private synchronized void stopMetricsServer() {
+        if (metricsServer == null) return;
+        try {
+            metricsServer.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to close metrics endpoint: " + e.getMessage());
+        }
+        metricsServer = null;
+    }
+
+    private void addFinishedTotals(String volume, WipeEngine engine, WipeJob job) {
+        int[] stalls = engine.getStallCounts();
+        synchronized (finishedTotals) {
+            long[] totals = finishedTotals.get(volume);
+            if (totals == null) {
+                totals = new long[4];
+                finishedTotals.put(volume, totals);
+            }
+            totals[0] += engine.getWrittenBytes();
+            totals[1] += engine.getVerifiedBytes();
+            totals[2] += stalls[0];
+            totals[3] += stalls[1];
+            String status = job.failed() ? "failed" : "succeeded";
+            Long count = finishedJobs.get(status);
+            finishedJobs.put(status, count != null ? count + 1 : 1);
+        }
+    }
+
+    /**
+     * Metrics for the endpoint, on its thread: volume counters including the running jobs,
+     * per-job phase, progress and latency quantiles, and the device's throttling signals.
+     */
+    private void collectMetrics(MetricsHttpServer.Writer out) {
+        Map<String, long[]> totals = new java.util.TreeMap<>();
+        Map<String, Long> jobs;
+        synchronized (finishedTotals) {
+            for (Map.Entry<String, long[]> entry : finishedTotals.entrySet()) totals.put(entry.getKey(), entry.getValue().clone());
+            jobs = new java.util.TreeMap<>(finishedJobs);
+        }
+        List<RunningJob> running = new ArrayList<>(runningJobs.values());
+        for (RunningJob job : running) {
+            WipeEngine engine = job.engine;
+            if (engine == null) continue;
+            long[] volume = totals.get(job.entry.volumeKey);
+            if (volume == null) {
+                volume = new long[4];
+                totals.put(job.entry.volumeKey, volume);
+            }
+            int[] stalls = engine.getStallCounts();
+            volume[0] += engine.getWrittenBytes();
+            volume[1] += engine.getVerifiedBytes();
+            volume[2] += stalls[0];
+            volume[3] += stalls[1];
+        }
+
+        out.family("nwipe_written_bytes_total", MetricsHttpServer.Writer.COUNTER, "Bytes written by wipe jobs since the service started.");
+        for (Map.Entry<String, long[]> entry : totals.entrySet()) out.sample("nwipe_written_bytes_total", entry.getValue()[0], "volume", entry.getKey());
+        out.family("nwipe_verified_bytes_total", MetricsHttpServer.Writer.COUNTER, "Bytes read back and verified since the service started.");
+        for (Map.Entry<String, long[]> entry : totals.entrySet()) out.sample("nwipe_verified_bytes_total", entry.getValue()[1], "volume", entry.getKey());
+        out.family("nwipe_stalls_total", MetricsHttpServer.Writer.COUNTER, "I/O operations past their stall deadline.");
+        for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+            out.sample("nwipe_stalls_total", entry.getValue()[2], "volume", entry.getKey(), "kind", "soft");
+            out.sample("nwipe_stalls_total", entry.getValue()[3], "volume", entry.getKey(), "kind", "hard");
+        }
+        out.family("nwipe_jobs_finished_total", MetricsHttpServer.Writer.COUNTER, "Wipe jobs that ended since the service started.");
+        for (Map.Entry<String, Long> entry : jobs.entrySet()) out.sample("nwipe_jobs_finished_total", entry.getValue(), "status", entry.getKey());
+
+        out.family("nwipe_queue_depth", MetricsHttpServer.Writer.GAUGE, "Wipe jobs queued or running.");
+        out.sample("nwipe_queue_depth", queue.size());
+        out.family("nwipe_jobs_running", MetricsHttpServer.Writer.GAUGE, "Wipe jobs running.");
+        out.sample("nwipe_jobs_running", running.size());
+        out.family("nwipe_paused", MetricsHttpServer.Writer.GAUGE, "1 while the jobs are paused by the user.");
+        out.sample("nwipe_paused", paused ? 1 : 0);
+
+        out.family("nwipe_job_phase", MetricsHttpServer.Writer.GAUGE, "1 for the phase each running job is in.");
+        out.family("nwipe_job_pass", MetricsHttpServer.Writer.GAUGE, "Passes each running job has completed.");
+        out.family("nwipe_job_progress_ratio", MetricsHttpServer.Writer.GAUGE, "Completed fraction of the current pass or verify phase.");
+        out.family("nwipe_job_rate_bytes_per_second", MetricsHttpServer.Writer.GAUGE, "Smoothed throughput of the running phase.");
+        out.family("nwipe_job_stalled", MetricsHttpServer.Writer.GAUGE, "1 while a job's I/O is past its stall deadline.");
+        out.family("nwipe_latency_seconds", MetricsHttpServer.Writer.SUMMARY, "Latency of each I/O operation, by operation.");
+        for (RunningJob job : running) {
+            ProgressSnapshot snapshot = job.lastSnapshot;
+            String id = job.entry.id;
+            String volume = job.entry.volumeKey;
+            if (snapshot != null) {
+                WipeEngine engine = job.engine;
+                int phase = engine != null ? engine.getCurrentPhase() : -1;
+                if (phase < 0) {
+                    phase = snapshot.verifying ? ThroughputEstimator.VERIFY_READ
+                        : snapshot.blank && snapshot.passesCompleted == snapshot.numberPasses ? ThroughputEstimator.ZERO_WRITE
+                        : ThroughputEstimator.RANDOM_WRITE;
+                }
+                for (int p = 0; p < ThroughputEstimator.PHASE_NAMES.length; p++) {
+                    out.sample("nwipe_job_phase", p == phase ? 1 : 0, "job", id, "volume", volume, "phase", ThroughputEstimator.PHASE_NAMES[p]);
+                }
+                out.sample("nwipe_job_pass", snapshot.passesCompleted, "job", id, "volume", volume);
+                out.sample("nwipe_job_progress_ratio", snapshot.totalBytes > 0 ? (double) snapshot.wipedBytes / snapshot.totalBytes : 0,
+                    "job", id, "volume", volume);
+                out.sample("nwipe_job_rate_bytes_per_second", snapshot.estimate.bytesPerSecond, "job", id, "volume", volume);
+                out.sample("nwipe_job_stalled", snapshot.stalled ? 1 : 0, "job", id, "volume", volume);
+            }
+            WipeEngine engine = job.engine;
+            if (engine == null) continue;
+            for (Map.Entry<String, LatencyHistogram.Summary> entry : engine.getTimings().summarize().entrySet()) {
+                LatencyHistogram.Summary summary = entry.getValue();
+                String operation = entry.getKey();
+                out.sample("nwipe_latency_seconds", summary.p50Micros / 1e6, "job", id, "operation", operation, "quantile", "0.5");
+                out.sample("nwipe_latency_seconds", summary.p99Micros / 1e6, "job", id, "operation", operation, "quantile", "0.99");
+                out.sample("nwipe_latency_seconds", summary.p999Micros / 1e6, "job", id, "operation", operation, "quantile", "0.999");
+                out.sample("nwipe_latency_seconds_sum", summary.meanMicros * summary.count / 1e6, "job", id, "operation", operation);
+                out.sample("nwipe_latency_seconds_count", summary.count, "job", id, "operation", operation);
+            }
+        }
+
+        ThrottleGovernor.Signals signals = governor.getLastSignals();
+        ThrottleGovernor.Decision decision = governor.getLastDecision();
+        out.family("nwipe_thermal_status", MetricsHttpServer.Writer.GAUGE, "PowerManager thermal status (-1 unknown, 0 none to 6 shutdown).");
+        out.sample("nwipe_thermal_status", signals != null ? signals.thermalStatus : ThrottleGovernor.THERMAL_STATUS_UNKNOWN);
+        if (signals != null) {
+            out.family("nwipe_thermal_headroom", MetricsHttpServer.Writer.GAUGE, "Forecast thermal headroom; 1.0 is the throttling point.");
+            out.sample("nwipe_thermal_headroom", signals.thermalHeadroom);
+            out.family("nwipe_battery_percent", MetricsHttpServer.Writer.GAUGE, "Battery level.");
+            out.sample("nwipe_battery_percent", signals.batteryPercent);
+            out.family("nwipe_charging", MetricsHttpServer.Writer.GAUGE, "1 while the device is charging.");
+            out.sample("nwipe_charging", signals.charging ? 1 : 0);
+        }
+        if (decision != null) {
+            out.family("nwipe_throttle_duty_cycle", MetricsHttpServer.Writer.GAUGE, "Fraction of time the governor lets the writers run.");
+            out.sample("nwipe_throttle_duty_cycle", decision.paused ? 0 : decision.dutyCycle);
+            out.family("nwipe_throttle_lanes", MetricsHttpServer.Writer.GAUGE, "Writer lanes the governor allows.");
+            out.sample("nwipe_throttle_lanes", decision.lanes);
+        }
+        BufferPool buffers = BufferPool.shared();
+        out.family("nwipe_buffer_pool_bytes", MetricsHttpServer.Writer.GAUGE, "I/O buffer memory held by the pool, by state.");
+        out.sample("nwipe_buffer_pool_bytes", buffers.getLeasedBytes(), "state", "leased");
+        out.sample("nwipe_buffer_pool_bytes", buffers.getAllocatedBytes(), "state", "allocated");
+        out.sample("nwipe_buffer_pool_bytes", buffers.getCapBytes(), "state", "cap");
+    }
+
+    private void broadcastTransitions(RunningJob running, ProgressSnapshot snapshot) {
+        if (running.lastBroadcastPass == -1) {
+            sendStateBroadcast(running, STATE_STARTED, snapshot);
+        } else if (snapshot.passesCompleted != running.lastBroadcastPass || snapshot.verifying != running.lastBroadcastVerifying) {
+            sendStateBroadcast(running, STATE_PASS_CHANGED, snapshot);
+        } else {
+            return;
+        }
+        running.lastBroadcastPass = snapshot.passesCompleted;
+        running.lastBroadcastVerifying = snapshot.verifying;
+    }
+
+    private void logProgress(RunningJob running, ProgressSnapshot snapshot) {
+    // Throttle logs to every 10% within a pass
+    int pct = snapshot.getCurrentPassPercentageCompletion();
+    if (snapshot.passesCompleted != running.lastLoggedPass || pct < running.lastLoggedPercent) running.lastLoggedPercent = -1;
+    if (pct >= 0 && (running.lastLoggedPercent == -1 || pct - running.lastLoggedPercent >= 10)) {
+        Log.d(TAG, "Progress [" + running.entry.id + "]: pass " + (snapshot.passesCompleted + 1) + "/" + snapshot.getTotalPasses()
+            + (snapshot.verifying ? " (verifying)" : "") + ", " + pct + "%");
+        running.lastLoggedPercent = pct;
+        running.lastLoggedPass = snapshot.passesCompleted;
+    }
+    }
+
+    private synchronized void updateNotification(RunningJob running, ProgressSnapshot snapshot) {
+        // One notification for the service: it follows the job in the lowest slot
+        if (paused || running != primaryJob()) return;
+        // The system rate-limits notification updates, so only post when the percentage moves
+        int pct = snapshot.getCurrentPassPercentageCompletion();
+        if (notificationBuilder == null || (pct == lastNotifiedPercent && snapshot.stalled == lastNotifiedStalled)) return;
+        lastNotifiedPercent = pct;
+        lastNotifiedStalled = snapshot.stalled;
+        String pass = snapshot.isCompleted() ? "Finishing"
+            : "Pass " + Math.min(snapshot.passesCompleted + 1, snapshot.getTotalPasses()) + "/" + snapshot.getTotalPasses()
+            + (snapshot.verifying ? " (verifying)" : "");
+        int others = queue.size() - 1;
+        // Same engine-side estimate the UI shows for this slot
+        String eta = snapshot.stalled ? " - storage not responding"
+            : snapshot.estimate.isKnown() ? " - about " + ThroughputEstimator.formatDuration(snapshot.estimate.remainingMs) + " left" : "";
+        notificationBuilder.setContentText(pass + " - " + pct + "%" + eta + (others > 0 ? " (+" + others + " more)" : ""))
+            .setProgress(100, pct, false);
+        postNotification();
+    }
+
+    private void postNotification() {
+        try {
+            NotificationManager nm = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+            nm.notify(NOTIFICATION_ID, notificationBuilder.build());
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to update notification: " + e.getMessage());
+        }
+    }
+
+    private void sendStateBroadcast(RunningJob running, int state, ProgressSnapshot snapshot) {
+        sendBroadcast(stateIntent(running, state, snapshot));
+    }
+
+    private Intent stateIntent(RunningJob running, int state, ProgressSnapshot snapshot) {
     Intent i = new Intent(ACTION_PROGRESS);
     i.setPackage(getPackageName());
-        i.putExtra("passes_completed", job.passes_completed);
-        i.putExtra("total_bytes", job.totalBytes);
-        i.putExtra("wiped_bytes", job.wipedBytes);
-        i.putExtra("verifying", job.verifying);
-    i.putExtra("error", job.errorMessage);
-    i.putExtra("target_path", job.targetPath);
-    i.putExtra("target_name", job.targetName);
-        sendBroadcast(i);
+        i.putExtras(toBundle(snapshot));
+        i.putExtra(EXTRA_STATE, state);
+        i.putExtra(EXTRA_JOB_ID, running.entry.id);
+        i.putExtra(EXTRA_SLOT, running.slot);
+        i.putExtra(EXTRA_QUEUE_REMAINING, queue.size());
+        i.putExtra(EXTRA_PAUSED, running.cancelToken.isPaused());
+        return i;
+    }
+
+    public static Bundle toBundle(ProgressSnapshot snapshot) {
+        Bundle b = new Bundle();
+        b.putInt(EXTRA_PASSES, snapshot.numberPasses);
+        b.putBoolean(EXTRA_VERIFY, snapshot.verify);
+        b.putBoolean(EXTRA_BLANK, snapshot.blank);
+        b.putInt("passes_completed", snapshot.passesCompleted);
+        b.putLong("total_bytes", snapshot.totalBytes);
+        b.putLong("wiped_bytes", snapshot.wipedBytes);
+        b.putBoolean("verifying", snapshot.verifying);
+        b.putString("error", snapshot.errorMessage);
+        b.putString(EXTRA_TARGET_PATH, snapshot.targetPath);
+        b.putString(EXTRA_TARGET_NAME, snapshot.targetName);
+        b.putBoolean("stalled", snapshot.stalled);
+        b.putDouble("rate_bps", snapshot.estimate.bytesPerSecond);
+        b.putLong("eta_ms", snapshot.estimate.remainingMs);
+        b.putLong("eta_low_ms", snapshot.estimate.lowMs);
+        b.putLong("eta_high_ms", snapshot.estimate.highMs);
+        b.putDouble("energy_mah", snapshot.energy.milliAmpHours);
+        b.putDouble("energy_j", snapshot.energy.joules);
+        b.putLong("energy_bytes", snapshot.energy.bytes);
+        return b;
+    }
+
+    public static ProgressSnapshot fromBundle(Bundle b) {
+        return new ProgressSnapshot(System.currentTimeMillis(), b.getInt(EXTRA_PASSES, WipeJob.DEFAULT_NUMBER_PASSES),
+            b.getBoolean(EXTRA_VERIFY, WipeJob.DEFAULT_VERIFY), b.getBoolean(EXTRA_BLANK, WipeJob.DEFAULT_BLANK),
+            b.getInt("passes_completed", 0), b.getLong("total_bytes", 0), b.getLong("wiped_bytes", 0),
+            b.getBoolean("verifying", false), b.getString("error"),
+            b.getString(EXTRA_TARGET_PATH), b.getString(EXTRA_TARGET_NAME), b.getBoolean("stalled", false),
+            new ThroughputEstimator.Estimate(b.getDouble("rate_bps", 0), b.getLong("eta_ms", -1),
+                b.getLong("eta_low_ms", -1), b.getLong("eta_high_ms", -1)),
+            new EnergyMeter.Reading(b.getDouble("energy_mah", 0), b.getDouble("energy_j", 0), b.getLong("energy_bytes", 0)));
     }
 }
@@ -0,0 +1,342 @@
+package com.example.nwipe_android;
+
+import java.io.Closeable;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Locale;
+
+/**
+ * Process-wide pool of I/O buffers, so the engine does not allocate a fresh 1 MB array for every
+ * file it overwrites or verifies and every writer lane it starts.
+ *
+ * Buffers are direct (no copy through a temporary native buffer on FileChannel I/O), aligned to
+ * the page size where the platform supports alignedSlice, and come in power-of-two size classes
+ * from 4 KB to 1 MB. A thread holds a Lease for as long as it runs a file or a lane and closes it
+ * afterwards; the buffer goes back to its class's free list for the next lease, so a running job
+ * allocates nothing after warm-up.
+ *
+ * Everything the pool allocated, leased or free, counts against a hard cap. On Android a direct
+ * buffer lives in the Java heap, so the cap is derived from the memory class (capFor). A lease
+ * that would exceed it first evicts free buffers of other classes, then waits for a release
+ * (acquire) or is refused (tryAcquire, for optional extra lanes). Memory pressure (trim) drops
+ * free buffers and, when critical, lowers the cap.
+ */
+public class BufferPool {
+    public static final int MIN_CLASS_BYTES = 4 * 1024;
+    public static final int MAX_CLASS_BYTES = 1024 * 1024;
+    public static final int ALIGNMENT = 4096;
+    // Every buffer runs this far past its class size, so a chunk plus the overhang of a
+    // fixed pass pattern (PatternBuffer) fits the chunk's class; not counted against the cap
+    public static final int SLACK_BYTES = 64;
+    // Enough for the most one job holds at once, two of the largest buffers, so a job never waits
+    // on itself at this cap. What a job leases: the verify's expected and actual buffers (taken
+    // together, acquireAll); one per writer stream, beyond the first only while the cap allows
+    // (tryAcquire); one per file overwrite or junk fill; and the fixed pattern (PatternBuffer),
+    // held across passes but handed back before the job leases anything else it would wait for.
+    // A new long-lived lease must fit this budget; BufferPoolTest and WipeEngineTest check it.
+    public static final long MIN_CAP_BYTES = 2L * MAX_CLASS_BYTES;
+    public static final long MAX_CAP_BYTES = 64L * 1024 * 1024;
+    // Cap until the service configures one from the memory class
+    public static final long DEFAULT_CAP_BYTES = 16L * 1024 * 1024;
+
+    // Levels of ComponentCallbacks2.onTrimMemory, so the pool needs no Android classes
+    public static final int TRIM_MEMORY_RUNNING_MODERATE = 5;
+    public static final int TRIM_MEMORY_RUNNING_LOW = 10;
+    public static final int TRIM_MEMORY_RUNNING_CRITICAL = 15;
+    public static final int TRIM_MEMORY_COMPLETE = 80;
+
+    private static final int CLASS_COUNT = Integer.numberOfTrailingZeros(MAX_CLASS_BYTES)
+            - Integer.numberOfTrailingZeros(MIN_CLASS_BYTES) + 1;
+    private static final BufferPool SHARED = new BufferPool(DEFAULT_CAP_BYTES);
+
+    /**
+     * A buffer on loan to one thread; close it (try-with-resources) to hand it back.
+     */
+    public final class Lease implements Closeable {
+        private final int sizeClass;
+        private final ByteBuffer buffer;
+        private boolean leased;
+
+        private Lease(int sizeClass, ByteBuffer buffer) {
+            this.sizeClass = sizeClass;
+            this.buffer = buffer;
+        }
+
+        /**
+         * The buffer, cleared, with its limit at capacity(); the SLACK_BYTES past it can be
+         * reached by raising the limit. Its content is whatever the previous lease left in it.
+         */
+        public ByteBuffer buffer() {
+            buffer.clear();
+            buffer.limit(capacity());
+            return buffer;
+        }
+
+        public int capacity() {
+            return (int) classBytes(sizeClass);
+        }
+
+        @Override
+        public void close() {
+            release(this);
+        }
+    }
+
+    private final ArrayDeque<Lease>[] free;
+    private long capBytes;
+    // Bytes of every buffer the pool holds, leased or free, and of the leased ones
+    private long allocatedBytes;
+    private long leasedBytes;
+    private long leases;
+    private long allocations;
+    private long waits;
+    private long refusals;
+    private long evictions;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public BufferPool(long capBytes) {
+        this.capBytes = Math.max(MIN_CAP_BYTES, capBytes);
+        this.free = new ArrayDeque[CLASS_COUNT];
+        for (int c = 0; c < CLASS_COUNT; c++) free[c] = new ArrayDeque<>();
+    }
+
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * Cap for a process with the given ActivityManager memory class (MB): an eighth of the heap,
+     * a sixteenth on low-RAM devices, within MIN_CAP_BYTES..MAX_CAP_BYTES.
+     */
+    public static long capFor(int memoryClassMb, boolean lowRamDevice) {
+        if (memoryClassMb <= 0) return DEFAULT_CAP_BYTES;
+        long heap = memoryClassMb * 1024L * 1024;
+        long cap = heap / (lowRamDevice ? 16 : 8);
+        return Math.max(MIN_CAP_BYTES, Math.min(MAX_CAP_BYTES, cap));
+    }
+
+    public synchronized void setCapBytes(long capBytes) {
+        this.capBytes = Math.max(MIN_CAP_BYTES, capBytes);
+        while (allocatedBytes > this.capBytes && evictLargest()) {
+        }
+        notifyAll();
+    }
+
+    public synchronized long getCapBytes() {
+        return capBytes;
+    }
+
+    /**
+     * Leases a buffer of at least {@code size} bytes, waiting for other leases to be returned
+     * while the pool is at its cap.
+     */
+    public synchronized Lease acquire(int size) throws InterruptedIOException {
+        int sizeClass = classOf(size);
+        while (true) {
+            Lease lease = take(sizeClass);
+            if (lease != null) return lease;
+            waits++;
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for an I/O buffer");
+            }
+        }
+    }
+
+    /**
+     * Leases {@code count} buffers of at least {@code size} bytes together, waiting until all of
+     * them fit at once, so two threads that each need several cannot each hold one and wait on
+     * the other. The set must fit MIN_CAP_BYTES, or a lowered cap could never serve it.
+     */
+    public synchronized Lease[] acquireAll(int size, int count) throws InterruptedIOException {
+        int sizeClass = classOf(size);
+        if (count <= 0 || count * classBytes(sizeClass) > MIN_CAP_BYTES) {
+            throw new IllegalArgumentException(count + " buffers of " + size + " bytes exceed the minimum cap");
+        }
+        Lease[] leases = new Lease[count];
+        while (true) {
+            int taken = 0;
+            while (taken < count && (leases[taken] = take(sizeClass)) != null) taken++;
+            if (taken == count) return leases;
+            for (int i = 0; i < taken; i++) {
+                release(leases[i]);
+                this.leases--;
+            }
+            waits++;
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for I/O buffers");
+            }
+        }
+    }
+
+    /**
+     * Closes every lease of an acquireAll; null (nothing acquired) is ignored.
+     */
+    public static void closeAll(Lease[] leases) {
+        if (leases == null) return;
+        for (Lease lease : leases) lease.close();
+    }
+
+    /**
+     * Leases a buffer of at least {@code size} bytes, or returns null when the pool is at its cap.
+     */
+    public synchronized Lease tryAcquire(int size) {
+        Lease lease = take(classOf(size));
+        if (lease == null) refusals++;
+        return lease;
+    }
+
+    private synchronized void release(Lease lease) {
+        if (!lease.leased) return;
+        lease.leased = false;
+        long bytes = classBytes(lease.sizeClass);
+        leasedBytes -= bytes;
+        if (allocatedBytes > capBytes) {
+            // The cap was lowered under memory pressure while this was out
+            allocatedBytes -= bytes;
+            evictions++;
+        } else {
+            free[lease.sizeClass].push(lease);
+        }
+        notifyAll();
+    }
+
+    private Lease take(int sizeClass) {
+        Lease lease = free[sizeClass].poll();
+        if (lease == null) {
+            long bytes = classBytes(sizeClass);
+            while (allocatedBytes + bytes > capBytes && evictLargest()) {
+            }
+            // Over the cap only when nothing is out that could be waited for
+            if (allocatedBytes + bytes > capBytes && leasedBytes > 0) return null;
+            ByteBuffer buffer;
+            try {
+                buffer = allocate((int) bytes + SLACK_BYTES);
+            } catch (OutOfMemoryError e) {
+                if (leasedBytes > 0) return null;
+                throw e;
+            }
+            lease = new Lease(sizeClass, buffer);
+            allocatedBytes += bytes;
+            allocations++;
+        }
+        lease.leased = true;
+        leasedBytes += classBytes(sizeClass);
+        leases++;
+        return lease;
+    }
+
+    /**
+     * Drops one free buffer, from the largest class that has one; false if none is free.
+     */
+    private boolean evictLargest() {
+        for (int c = CLASS_COUNT - 1; c >= 0; c--) {
+            if (free[c].poll() != null) {
+                allocatedBytes -= classBytes(c);
+                evictions++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Responds to ComponentCallbacks2.onTrimMemory: moderate pressure drops half the free
+     * buffers, low pressure all of them, and critical pressure (or the process being next in
+     * line to be killed) also lowers the cap to MIN_CAP_BYTES for the rest of the process.
+     */
+    public synchronized void trim(int level) {
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            while (evictLargest()) {
+            }
+            if (level == TRIM_MEMORY_RUNNING_CRITICAL || level >= TRIM_MEMORY_COMPLETE) capBytes = MIN_CAP_BYTES;
+        } else if (level >= TRIM_MEMORY_RUNNING_MODERATE) {
+            int drop = freeCount() / 2;
+            for (int i = 0; i < drop && evictLargest(); i++) {
+            }
+        }
+    }
+
+    private int freeCount() {
+        int count = 0;
+        for (ArrayDeque<Lease> list : free) count += list.size();
+        return count;
+    }
+
+    public synchronized long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public synchronized long getLeasedBytes() {
+        return leasedBytes;
+    }
+
+    public synchronized long getAllocations() {
+        return allocations;
+    }
+
+    public synchronized String describe() {
+        return String.format(Locale.ROOT, "Buffer pool: %.1f of %.1f MB held (%.1f MB leased), %d leases, %d allocations, %d waits, %d refused, %d evicted",
+            allocatedBytes / (1024.0 * 1024), capBytes / (1024.0 * 1024), leasedBytes / (1024.0 * 1024),
+            leases, allocations, waits, refusals, evictions);
+    }
+
+    static int classOf(int size) {
+        if (size <= 0 || size > MAX_CLASS_BYTES) {
+            throw new IllegalArgumentException("Buffer size " + size + " outside 1.." + MAX_CLASS_BYTES);
+        }
+        // Smallest power of two >= size
+        int bytes = Math.max(MIN_CLASS_BYTES, Integer.highestOneBit(size - 1) << 1);
+        return Integer.numberOfTrailingZeros(bytes) - Integer.numberOfTrailingZeros(MIN_CLASS_BYTES);
+    }
+
+    static long classBytes(int sizeClass) {
+        return (long) MIN_CLASS_BYTES << sizeClass;
+    }
+
+    /**
+     * A direct buffer of exactly {@code bytes}, page-aligned where alignedSlice exists (Java 9,
+     * Android 13); older platforms keep the allocator's alignment.
+     */
+    private static ByteBuffer allocate(int bytes) {
+        try {
+            // alignedSlice trims both ends to the alignment, so round the span up to whole pages
+            int span = (bytes + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+            ByteBuffer aligned = ByteBuffer.allocateDirect(span + ALIGNMENT).alignedSlice(ALIGNMENT);
+            aligned.limit(bytes);
+            return aligned.slice();
+        } catch (NoSuchMethodError | UnsupportedOperationException e) {
+            return ByteBuffer.allocateDirect(bytes);
+        }
+    }
+
+    /**
+     * Zeroes the first {@code length} bytes of the buffer, a long at a time.
+     */
+    public static void zero(ByteBuffer buffer, int length) {
+        int i = 0;
+        for (; i + 8 <= length; i += 8) buffer.putLong(i, 0L);
+        for (; i < length; i++) buffer.put(i, (byte) 0);
+    }
+
+    /**
+     * Whether the first {@code length} bytes of the two buffers are equal, compared a long at a
+     * time without moving either buffer's position.
+     */
+    public static boolean sameBytes(ByteBuffer a, ByteBuffer b, int length) {
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            if (a.getLong(i) != b.getLong(i)) return false;
+        }
+        for (; i < length; i++) {
+            if (a.get(i) != b.get(i)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.nwipe_android;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Deterministic pseudo-random wipe data addressed by chunk: the bytes of chunk {@code i} depend
+ * only on the pass seed and {@code i}, so a pass can be regenerated or verified from any
+ * chunk-aligned offset (e.g. when resuming an interrupted wipe from its journal).
+ */
+public class ChunkPattern {
+    private final long seed;
+    private final Random random = new Random();
+
+    public ChunkPattern(long seed) {
+        this.seed = seed;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Fills the whole buffer with the data of the given chunk.
+     */
+    public void fill(byte[] buffer, long chunkIndex) {
+        random.setSeed(mix(seed + chunkIndex * 0x9E3779B97F4A7C15L));
+        random.nextBytes(buffer);
+    }
+
+    /**
+     * Fills the first {@code length} bytes of the buffer (absolute puts, position untouched) with
+     * the data of the given chunk: the same bytes fill(byte[]) produces for an array of that length.
+     */
+    public void fill(ByteBuffer buffer, int length, long chunkIndex) {
+        random.setSeed(mix(seed + chunkIndex * 0x9E3779B97F4A7C15L));
+        nextBytes(random, buffer, length);
+    }
+
+    /**
+     * Random.nextBytes into a ByteBuffer: each nextInt supplies four bytes, low byte first.
+     */
+    static void nextBytes(Random random, ByteBuffer buffer, int length) {
+        int i = 0;
+        for (; i + 4 <= length; i += 4) buffer.putInt(i, Integer.reverseBytes(random.nextInt()));
+        if (i < length) {
+            for (int rnd = random.nextInt(); i < length; i++, rnd >>= 8) buffer.put(i, (byte) rnd);
+        }
+    }
+
+    // SplitMix64 finalizer: neighbouring chunk indexes get unrelated seeds
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.nwipe_android;
+
+/**
+ * Time source of the engine: wall-clock milliseconds for deadlines and file names, and a
+ * monotonic nanosecond counter for rates and latencies.
+ */
+public interface Clock {
+    long currentTimeMillis();
+
+    long nanoTime();
+
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+}
@@ -0,0 +1,138 @@
+package com.example.nwipe_android;
+
+import java.util.Arrays;
+
+/**
+ * Additive-increase/multiplicative-decrease control of the number of active writer streams.
+ *
+ * Once per control interval the controller checks for congestion. It uses I/O pressure from PSI
+ * when the kernel exposes it, otherwise the 90th percentile of the chunk write latencies seen
+ * in that interval. When congested it halves the streams; otherwise it adds one, up to the
+ * ceiling (e.g. the thermal governor's lane budget). This keeps the device queue short enough
+ * for the rest of the system, including the UI, to stay responsive while the wipe runs close to
+ * peak bandwidth.
+ */
+public class ConcurrencyController {
+    public static final long DEFAULT_INTERVAL_MS = 1000;
+    // Share of wall time some task may be stalled on I/O before we back off
+    public static final float DEFAULT_TARGET_PRESSURE_PERCENT = 20f;
+    // Fallback target for a 1 MB chunk write when PSI is unavailable
+    public static final long DEFAULT_TARGET_LATENCY_MS = 250;
+    private static final int LATENCY_WINDOW = 256;
+
+    private final PsiReader psiReader;
+    private final int maxStreams;
+    private final long intervalMs;
+    private final float targetPressurePercent;
+    private final long targetLatencyNanos;
+
+    private int streams = 1;
+    private int ceiling;
+    private long lastUpdateMs = Long.MIN_VALUE;
+    private PsiReader.Sample lastSample;
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private int latencyCount = 0;
+    private String lastReason = "start";
+
+    public ConcurrencyController(PsiReader psiReader, int maxStreams) {
+        this(psiReader, maxStreams, DEFAULT_INTERVAL_MS, DEFAULT_TARGET_PRESSURE_PERCENT, DEFAULT_TARGET_LATENCY_MS);
+    }
+
+    public ConcurrencyController(PsiReader psiReader, int maxStreams, long intervalMs,
+                                 float targetPressurePercent, long targetLatencyMs) {
+        this.psiReader = psiReader;
+        this.maxStreams = Math.max(1, maxStreams);
+        this.ceiling = this.maxStreams;
+        this.intervalMs = intervalMs;
+        this.targetPressurePercent = targetPressurePercent;
+        this.targetLatencyNanos = targetLatencyMs * 1_000_000L;
+    }
+
+    public synchronized int getStreams() {
+        return streams;
+    }
+
+    public int getMaxStreams() {
+        return maxStreams;
+    }
+
+    public synchronized String getLastReason() {
+        return lastReason;
+    }
+
+    /**
+     * Starts from the stream count a previous job on the volume settled on rather than one.
+     */
+    public synchronized void seedStreams(int count) {
+        if (lastUpdateMs != Long.MIN_VALUE) return;
+        streams = Math.max(1, Math.min(ceiling, count));
+    }
+
+    /**
+     * Caps the streams (e.g. by the throttle governor's lane budget); applied immediately.
+     */
+    public synchronized void setCeiling(int lanes) {
+        ceiling = Math.max(1, Math.min(maxStreams, lanes));
+        if (streams > ceiling) streams = ceiling;
+    }
+
+    /**
+     * Records one chunk's write latency (used when PSI is unavailable).
+     */
+    public synchronized void onChunk(long latencyNanos) {
+        if (latencyCount < LATENCY_WINDOW) latencies[latencyCount++] = latencyNanos;
+    }
+
+    /**
+     * Runs a control step if the interval has elapsed; returns the stream count to use.
+     */
+    public int update(long nowMs) {
+        synchronized (this) {
+            if (lastUpdateMs != Long.MIN_VALUE && nowMs - lastUpdateMs < intervalMs) return streams;
+        }
+        return update(nowMs, psiReader != null ? psiReader.read() : null);
+    }
+
+    /**
+     * Control step with an explicit PSI sample (null when unavailable); used for trace replay.
+     */
+    synchronized int update(long nowMs, PsiReader.Sample sample) {
+        if (lastUpdateMs == Long.MIN_VALUE) {
+            // First call only establishes the baseline
+            lastUpdateMs = nowMs;
+            lastSample = sample;
+            latencyCount = 0;
+            return streams;
+        }
+        long elapsedMs = nowMs - lastUpdateMs;
+        boolean congested;
+        if (sample != null) {
+            float pressure = sample.somePercentSince(lastSample, elapsedMs);
+            congested = pressure > targetPressurePercent;
+            lastReason = String.format(java.util.Locale.ROOT, "io pressure %.1f%%", pressure);
+        } else if (latencyCount > 0) {
+            long p90 = percentile(90);
+            congested = p90 > targetLatencyNanos;
+            lastReason = "p90 chunk latency " + (p90 / 1_000_000L) + " ms";
+        } else {
+            congested = false;
+            lastReason = "no samples";
+        }
+        if (congested) {
+            streams = Math.max(1, streams / 2);
+        } else if (streams < ceiling && (sample != null || latencyCount > 0)) {
+            streams++;
+        }
+        lastUpdateMs = nowMs;
+        lastSample = sample;
+        latencyCount = 0;
+        return streams;
+    }
+
+    private long percentile(int p) {
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.nwipe_android;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Time-boxed wipes: given a deadline, picks the strongest policy whose slow-bound estimate still
+ * fits in the time left. The requested job is the ceiling; the policy gives up, in this order,
+ * extra random passes, full verification (down to sampling a share of the chunks), the blanking
+ * pass, the random pattern (a single zero pass is cheaper on most flash) and finally coverage of
+ * the free space. The engine re-evaluates at every pass boundary and before each verification
+ * with the rates measured so far, and cuts a fill short when the deadline arrives.
+ *
+ * The {@link Outcome} records per pass what was actually done, for the certificate.
+ */
+public class DeadlinePolicy {
+    // Shares of the chunks verified, strongest first
+    static final double[] VERIFY_SAMPLE_RATES = {1.0, 0.25, 0.05};
+    // Shares of the free space filled once nothing else is left to give up
+    static final double[] FILL_COVERAGES = {0.75, 0.5, 0.25};
+
+    public static class Choice {
+        // Random passes; the blanking pass comes on top
+        public final int passes;
+        public final boolean blank;
+        public final double verifySampleRate;
+        public final double fillCoverage;
+        // Slow-bound estimate of the time it needs, -1 when no rate is known
+        public final long estimatedMs;
+        public final boolean fits;
+
+        Choice(int passes, boolean blank, double verifySampleRate, double fillCoverage, long estimatedMs, boolean fits) {
+            this.passes = passes;
+            this.blank = blank;
+            this.verifySampleRate = verifySampleRate;
+            this.fillCoverage = fillCoverage;
+            this.estimatedMs = estimatedMs;
+            this.fits = fits;
+        }
+
+        public String describe() {
+            StringBuilder text = new StringBuilder();
+            text.append(passes).append(passes == 1 ? " random pass" : " random passes");
+            if (blank) text.append(" + blanking");
+            if (verifySampleRate >= 1) text.append(", full verify");
+            else if (verifySampleRate > 0) text.append(String.format(Locale.ROOT, ", %.0f%% verify sample", verifySampleRate * 100));
+            else text.append(", no verify");
+            if (fillCoverage < 1) text.append(String.format(Locale.ROOT, ", %.0f%% of free space", fillCoverage * 100));
+            if (estimatedMs >= 0) text.append(" (≤ ").append(ThroughputEstimator.formatDuration(estimatedMs)).append(')');
+            return text.toString();
+        }
+    }
+
+    /**
+     * One completed pass as it was actually run.
+     */
+    public static class PassRecord {
+        public int pass;
+        public boolean zeros;
+        public double fillCoverage;
+        public double verifySampleRate;
+    }
+
+    /**
+     * What a time-boxed job achieved; stored in the WipeReport and stated in the certificate.
+     */
+    public static class Outcome {
+        public long deadlineAtMs;
+        public long finishedAtMs;
+        public boolean met;
+        public int requestedPasses;
+        public boolean requestedBlank;
+        public boolean requestedVerify;
+        public int reevaluations;
+        public String finalPolicy;
+        public List<PassRecord> passes = new ArrayList<>();
+
+        /**
+         * Whether every requested pass ran in full, with full verification when asked for.
+         */
+        public boolean isFullPolicy() {
+            int random = 0;
+            boolean blanked = false;
+            for (PassRecord record : passes) {
+                if (record.zeros) blanked = true;
+                else random++;
+                if (record.fillCoverage < 1) return false;
+                if (requestedVerify && record.verifySampleRate < 1) return false;
+            }
+            return random >= requestedPasses && (blanked || !requestedBlank);
+        }
+
+        public String summary() {
+            int random = 0;
+            boolean blanked = false;
+            double minCoverage = 1, minSample = 1;
+            for (PassRecord record : passes) {
+                if (record.zeros) blanked = true;
+                else random++;
+                minCoverage = Math.min(minCoverage, record.fillCoverage);
+                minSample = Math.min(minSample, record.verifySampleRate);
+            }
+            StringBuilder text = new StringBuilder(met ? "Deadline met: " : "Deadline missed: ");
+            text.append(random).append(" of ").append(requestedPasses).append(" random passes");
+            if (requestedBlank) text.append(blanked ? ", blanked" : ", blanking skipped");
+            if (requestedVerify && !passes.isEmpty()) {
+                text.append(minSample >= 1 ? ", fully verified"
+                    : String.format(Locale.ROOT, ", verified at least %.0f%% of chunks", minSample * 100));
+            }
+            if (!passes.isEmpty() && minCoverage < 1) {
+                text.append(String.format(Locale.ROOT, ", lowest free-space coverage %.0f%%", minCoverage * 100));
+            }
+            return text.toString();
+        }
+    }
+
+    private final long deadlineAtMs;
+    private final int requestedPasses;
+    private final boolean requestedBlank;
+    private final boolean requestedVerify;
+    private final Outcome outcome = new Outcome();
+
+    public DeadlinePolicy(WipeJob job) {
+        this.deadlineAtMs = job.deadlineAtMs;
+        this.requestedPasses = job.number_passes;
+        this.requestedBlank = job.blank;
+        this.requestedVerify = job.verify;
+        outcome.deadlineAtMs = job.deadlineAtMs;
+        outcome.requestedPasses = job.number_passes;
+        outcome.requestedBlank = job.blank;
+        outcome.requestedVerify = job.verify;
+    }
+
+    public long getDeadlineAtMs() {
+        return deadlineAtMs;
+    }
+
+    public long remainingMs(long nowMs) {
+        return deadlineAtMs - nowMs;
+    }
+
+    /**
+     * Chooses the policy for the rest of the job at a pass boundary and applies it to the job.
+     * {@code partial} allows filling only part of the free space (not in folder mode). Past the
+     * deadline the job is ended after the passes already done.
+     */
+    public Choice reevaluate(WipeJob job, long bytesPerPass, boolean partial, ThroughputEstimator rates, long nowMs) {
+        outcome.reevaluations++;
+        Choice choice = choiceFor(job, bytesPerPass, partial, rates, nowMs);
+        apply(choice, job);
+        outcome.finalPolicy = choice.describe();
+        return choice;
+    }
+
+    /**
+     * The policy {@link #reevaluate} would pick, without changing the job.
+     */
+    public Choice choiceFor(WipeJob job, long bytesPerPass, boolean partial, ThroughputEstimator rates, long nowMs) {
+        long budgetMs = remainingMs(nowMs);
+        // Nothing more fits: end the job where it stands
+        if (budgetMs <= 0) return new Choice(job.passes_completed, false, 0, 0, 0, false);
+        return choose(job.passes_completed, bytesPerPass, budgetMs, partial, rates);
+    }
+
+    public static void apply(Choice choice, WipeJob job) {
+        job.number_passes = choice.passes;
+        job.blank = choice.blank;
+        job.verifySampleRate = choice.verifySampleRate;
+        job.verify = choice.verifySampleRate > 0;
+        job.fillCoverage = choice.fillCoverage;
+    }
+
+    /**
+     * Before verifying a pass: the highest sample rate (not above the current one) whose reads
+     * still fit, or 0 to skip verification.
+     */
+    public double verifySampleRate(double current, long bytes, ThroughputEstimator rates, long nowMs) {
+        long budgetMs = remainingMs(nowMs);
+        if (budgetMs <= 0) return 0;
+        ThroughputEstimator.Estimate estimate = rates.estimate(ThroughputEstimator.VERIFY_READ,
+            new long[]{0, 0, Math.max(1, bytes)});
+        if (!estimate.isKnown()) return current;
+        for (double rate : VERIFY_SAMPLE_RATES) {
+            if (rate > current) continue;
+            if (estimate.highMs * rate <= budgetMs) return rate;
+        }
+        return 0;
+    }
+
+    public void passCompleted(int pass, boolean zeros, double fillCoverage, double verifySampleRate) {
+        PassRecord record = new PassRecord();
+        record.pass = pass;
+        record.zeros = zeros;
+        record.fillCoverage = fillCoverage;
+        record.verifySampleRate = verifySampleRate;
+        outcome.passes.add(record);
+    }
+
+    public Outcome finish(long nowMs) {
+        outcome.finishedAtMs = nowMs;
+        outcome.met = nowMs <= deadlineAtMs && !outcome.passes.isEmpty();
+        return outcome;
+    }
+
+    /**
+     * Candidates from strongest to weakest; the first whose slow bound fits the budget wins,
+     * else the weakest. Without any measured rate the requested policy is kept (the fill is
+     * still cut at the deadline).
+     */
+    Choice choose(int done, long bytesPerPass, long budgetMs, boolean partial, ThroughputEstimator rates) {
+        // A pass in progress or done cannot be taken back
+        int minPasses = Math.max(1, Math.min(done, requestedPasses));
+        // Folder files are verified whole, so sampling only applies to the free-space fill
+        double[] sampleRates = !requestedVerify ? new double[]{0} : partial ? VERIFY_SAMPLE_RATES : new double[]{1.0};
+        List<double[]> candidates = new ArrayList<>();
+        for (int passes = requestedPasses; passes >= minPasses; passes--) {
+            for (double rate : sampleRates) candidates.add(new double[]{passes, requestedBlank ? 1 : 0, rate, 1});
+        }
+        if (requestedVerify) candidates.add(new double[]{minPasses, requestedBlank ? 1 : 0, 0, 1});
+        if (requestedBlank) candidates.add(new double[]{minPasses, 0, 0, 1});
+        if (done == 0) candidates.add(new double[]{0, 1, 0, 1});
+        if (partial) {
+            double[] weakest = candidates.get(candidates.size() - 1);
+            for (double coverage : FILL_COVERAGES) candidates.add(new double[]{weakest[0], weakest[1], 0, coverage});
+        }
+
+        Choice last = null;
+        for (double[] candidate : candidates) {
+            long ms = cost(candidate, done, bytesPerPass, partial, rates);
+            if (ms < 0) return toChoice(candidates.get(0), -1, false);
+            last = toChoice(candidate, ms, ms <= budgetMs);
+            if (last.fits) return last;
+        }
+        return last;
+    }
+
+    private static long cost(double[] candidate, int done, long bytesPerPass, boolean partial, ThroughputEstimator rates) {
+        WipeJob job = new WipeJob();
+        job.number_passes = (int) candidate[0];
+        job.blank = candidate[1] > 0;
+        job.verifySampleRate = candidate[2];
+        job.verify = candidate[2] > 0;
+        job.fillCoverage = candidate[3];
+        job.passes_completed = done;
+        WipePlan plan = new WipePlan();
+        plan.mode = partial ? WipePlan.MODE_FREE_SPACE : WipePlan.MODE_FOLDERS;
+        plan.bytesPerPass = bytesPerPass;
+        plan.cost(job, rates);
+        if (plan.getTotalBytes() == 0) return 0;
+        return plan.estimate.isKnown() ? plan.estimate.highMs : -1;
+    }
+
+    private static Choice toChoice(double[] candidate, long ms, boolean fits) {
+        return new Choice((int) candidate[0], candidate[1] > 0, candidate[2], candidate[3], ms, fits);
+    }
+
+    /**
+     * Whether verification at {@code rate} reads the given chunk of a pass; a fixed mix of the
+     * pass seed and chunk index, so a resumed verification samples the same chunks.
+     */
+    public static boolean isSampled(long chunk, long seed, double rate) {
+        if (rate >= 1) return true;
+        if (rate <= 0) return false;
+        long z = seed + (chunk + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (z >>> 11) * 0x1.0p-53 < rate;
+    }
+
+    /**
+     * Bytes of {@code [from, to)} that verification at {@code rate} reads, chunk by chunk.
+     */
+    public static long sampledBytes(long from, long to, int chunkSize, long seed, double rate) {
+        if (rate >= 1) return Math.max(0, to - from);
+        long bytes = 0;
+        for (long offset = from; offset < to; offset += chunkSize) {
+            if (isSampled(offset / chunkSize, seed, rate)) bytes += Math.min(chunkSize, to - offset);
+        }
+        return bytes;
+    }
+}
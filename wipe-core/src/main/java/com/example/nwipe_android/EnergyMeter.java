@@ -0,0 +1,365 @@
+package com.example.nwipe_android;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Battery energy spent by a job, per phase and per gigabyte written or verified. The battery
+ * percentage says little about what a wipe costs; a batch of unplugged devices is planned on
+ * how many gigabytes (and passes) one charge covers.
+ *
+ * A daemon thread samples the battery's instantaneous current and voltage about once a second
+ * and integrates them into the phase in progress: |current| over time gives mAh, current times
+ * voltage gives joules. The fuel gauge's charge counter is read at every phase switch as a
+ * cross-check, and stands in for the current where the device does not report it. Samples
+ * taken while the device is charging are skipped, since the battery is then not what powers
+ * the wipe.
+ */
+public class EnergyMeter {
+    // Value of a Source reading the device does not provide
+    public static final long UNSUPPORTED = Long.MIN_VALUE;
+    public static final long DEFAULT_POLL_MS = 1000;
+    public static final double BYTES_PER_GB = 1024.0 * 1024 * 1024;
+    // Pattern part of a configuration key: the engine's seeded random chunks
+    public static final String PATTERN_RANDOM = "random";
+    // Typical Li-ion voltage, used for joules when the voltage is not reported
+    private static final double NOMINAL_MILLIVOLTS = 3850;
+    // A gap longer than this (the process was frozen) is not integrated
+    private static final long MAX_SAMPLE_GAP_NANOS = 10_000_000_000L;
+
+    /**
+     * Battery readings; each returns UNSUPPORTED when the device does not report it.
+     */
+    public interface Source {
+        long chargeCounterMicroAh();
+
+        // Sign differs between devices; only the magnitude is used
+        long currentNowMicroA();
+
+        long voltageMillivolts();
+
+        boolean isCharging();
+    }
+
+    /**
+     * Source of a host without a battery (or not bound to one): nothing is reported.
+     */
+    public static final Source NO_BATTERY = new Source() {
+        @Override
+        public long chargeCounterMicroAh() { return UNSUPPORTED; }
+
+        @Override
+        public long currentNowMicroA() { return UNSUPPORTED; }
+
+        @Override
+        public long voltageMillivolts() { return UNSUPPORTED; }
+
+        @Override
+        public boolean isCharging() { return false; }
+    };
+
+    /**
+     * Phase the job is in, as a ThroughputEstimator phase or -1 between phases.
+     */
+    public interface PhaseSource {
+        int currentPhase();
+    }
+
+    /**
+     * Energy of one phase (or of the whole job).
+     */
+    public static class PhaseEnergy {
+        public final String phase;
+        public final long bytes;
+        public final double milliAmpHours;
+        public final double joules;
+        public final long seconds;
+        // Drop of the fuel gauge's charge counter over the phase; -1 when not reported
+        public final double counterMilliAmpHours;
+
+        PhaseEnergy(String phase, long bytes, double milliAmpHours, double joules, long seconds,
+                    double counterMilliAmpHours) {
+            this.phase = phase;
+            this.bytes = bytes;
+            this.milliAmpHours = milliAmpHours;
+            this.joules = joules;
+            this.seconds = seconds;
+            this.counterMilliAmpHours = counterMilliAmpHours;
+        }
+
+        public double getMilliAmpHoursPerGB() {
+            return bytes > 0 ? milliAmpHours * BYTES_PER_GB / bytes : 0;
+        }
+
+        public double getJoulesPerGB() {
+            return bytes > 0 ? joules * BYTES_PER_GB / bytes : 0;
+        }
+
+        public String describe() {
+            return String.format(Locale.ROOT, "%s: %.1f GB in %d s, %.1f mAh (%.1f mAh/GB), %.0f J (%.0f J/GB)%s",
+                phase, bytes / BYTES_PER_GB, seconds, milliAmpHours, getMilliAmpHoursPerGB(), joules, getJoulesPerGB(),
+                counterMilliAmpHours >= 0 ? String.format(Locale.ROOT, ", charge counter %.1f mAh", counterMilliAmpHours) : "");
+        }
+    }
+
+    /**
+     * Live reading for progress: energy spent so far and its cost per gigabyte.
+     */
+    public static class Reading {
+        public static final Reading UNKNOWN = new Reading(0, 0, 0);
+
+        public final double milliAmpHours;
+        public final double joules;
+        public final long bytes;
+
+        public Reading(double milliAmpHours, double joules, long bytes) {
+            this.milliAmpHours = milliAmpHours;
+            this.joules = joules;
+            this.bytes = bytes;
+        }
+
+        public boolean isKnown() {
+            return bytes > 0 && milliAmpHours > 0;
+        }
+
+        public double getMilliAmpHoursPerGB() {
+            return bytes > 0 ? milliAmpHours * BYTES_PER_GB / bytes : 0;
+        }
+
+        public double getJoulesPerGB() {
+            return bytes > 0 ? joules * BYTES_PER_GB / bytes : 0;
+        }
+    }
+
+    public static class Summary {
+        // Configuration the energy was spent under (configurationKey)
+        public String configuration;
+        // "current" (integrated current), "charge_counter" (counter only) or "unsupported"
+        public String basis;
+        // Samples skipped because the device was charging
+        public int chargingSamples;
+        public int samples;
+        public PhaseEnergy total;
+        public List<PhaseEnergy> phases = new ArrayList<>();
+
+        public boolean isKnown() {
+            return total != null && total.bytes > 0 && total.milliAmpHours > 0;
+        }
+
+        public String describe() {
+            if (!isKnown()) {
+                return "Energy: not measured (" + basis + (chargingSamples > 0 ? ", charging" : "") + ")";
+            }
+            StringBuilder text = new StringBuilder("Energy (").append(basis).append(", ")
+                .append(samples).append(" samples");
+            if (chargingSamples > 0) text.append(", ").append(chargingSamples).append(" skipped while charging");
+            text.append("): ").append(total.describe());
+            for (PhaseEnergy phase : phases) text.append("\n  ").append(phase.describe());
+            return text.toString();
+        }
+    }
+
+    private final Source source;
+    private final PhaseSource phases;
+    private final long pollMs;
+    private final Clock clock;
+    private final int phaseCount = ThroughputEstimator.PHASE_NAMES.length;
+    // Per phase: bytes moved, µAh and µJ integrated, nanoseconds sampled
+    private final long[] bytes = new long[phaseCount];
+    private final double[] microAh = new double[phaseCount];
+    private final double[] microJ = new double[phaseCount];
+    private final long[] nanos = new long[phaseCount];
+    // Charge counter drop per phase in µAh, and the counter at the start of the phase in progress
+    private final double[] counterMicroAh = new double[phaseCount];
+    private final boolean[] counterSeen = new boolean[phaseCount];
+    private long counterAtPhaseStart = UNSUPPORTED;
+    private int lastPhase = -1;
+    private long lastSampleNanos = -1;
+    private boolean currentSupported = false;
+    private boolean counterSupported = false;
+    private int samples = 0;
+    private int chargingSamples = 0;
+    private Thread sampler;
+    private volatile boolean running = false;
+
+    public EnergyMeter(Source source, PhaseSource phases) {
+        this(source, phases, DEFAULT_POLL_MS);
+    }
+
+    public EnergyMeter(Source source, PhaseSource phases, long pollMs) {
+        this(source, phases, pollMs, Clock.SYSTEM);
+    }
+
+    public EnergyMeter(Source source, PhaseSource phases, long pollMs, Clock clock) {
+        this.source = source;
+        this.phases = phases;
+        this.pollMs = pollMs;
+        this.clock = clock;
+    }
+
+    public synchronized void start() {
+        if (sampler != null) return;
+        running = true;
+        sample(clock.nanoTime());
+        sampler = new Thread(() -> {
+            while (running) {
+                try {
+                    Thread.sleep(pollMs);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                sample(clock.nanoTime());
+            }
+        }, "WipeEnergyMeter");
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    public void stop() {
+        Thread thread;
+        synchronized (this) {
+            running = false;
+            thread = sampler;
+            sampler = null;
+        }
+        if (thread != null) thread.interrupt();
+        sample(clock.nanoTime());
+        synchronized (this) {
+            closePhase();
+            lastPhase = -1;
+        }
+    }
+
+    /**
+     * Attributes bytes written or verified to the phase in progress.
+     */
+    public void countBytes(long length) {
+        int phase = phases.currentPhase();
+        if (phase < 0 || phase >= phaseCount) return;
+        synchronized (this) {
+            bytes[phase] += length;
+        }
+    }
+
+    /**
+     * Integrates the interval since the previous sample into the phase that was in progress,
+     * at the current draw. Package-private for tests, which drive the clock.
+     */
+    synchronized void sample(long nowNanos) {
+        int phase = phases.currentPhase();
+        if (phase != lastPhase) {
+            closePhase();
+            lastPhase = phase;
+            counterAtPhaseStart = readCounter();
+        }
+        long previous = lastSampleNanos;
+        lastSampleNanos = nowNanos;
+        if (previous < 0 || phase < 0 || phase >= phaseCount) return;
+        long elapsed = nowNanos - previous;
+        if (elapsed <= 0 || elapsed > MAX_SAMPLE_GAP_NANOS) return;
+        if (source.isCharging()) {
+            chargingSamples++;
+            // The counter rises while charging; the phase's counter delta is meaningless
+            counterAtPhaseStart = UNSUPPORTED;
+            return;
+        }
+        samples++;
+        nanos[phase] += elapsed;
+        long current = source.currentNowMicroA();
+        if (current == UNSUPPORTED || current == 0) return;
+        currentSupported = true;
+        double hours = elapsed / 3.6e12;
+        double amps = Math.abs(current) / 1e6;
+        microAh[phase] += Math.abs(current) * hours;
+        microJ[phase] += amps * volts() * (elapsed / 1e9) * 1e6;
+    }
+
+    /**
+     * Adds the charge counter's drop over the phase that just ended.
+     */
+    private void closePhase() {
+        if (lastPhase < 0 || lastPhase >= phaseCount || counterAtPhaseStart == UNSUPPORTED) return;
+        long now = readCounter();
+        if (now == UNSUPPORTED) return;
+        counterMicroAh[lastPhase] += Math.max(0, counterAtPhaseStart - now);
+        counterSeen[lastPhase] = true;
+        counterAtPhaseStart = now;
+    }
+
+    private long readCounter() {
+        long counter = source.chargeCounterMicroAh();
+        if (counter != UNSUPPORTED && counter > 0) {
+            counterSupported = true;
+            return counter;
+        }
+        return UNSUPPORTED;
+    }
+
+    private double volts() {
+        long millivolts = source.voltageMillivolts();
+        return (millivolts != UNSUPPORTED && millivolts > 0 ? millivolts : NOMINAL_MILLIVOLTS) / 1000.0;
+    }
+
+    /**
+     * Energy spent so far over every phase, for progress.
+     */
+    public synchronized Reading getReading() {
+        double mah = 0;
+        double joules = 0;
+        long total = 0;
+        for (int phase = 0; phase < phaseCount; phase++) {
+            PhaseEnergy energy = phaseEnergy(phase);
+            mah += energy.milliAmpHours;
+            joules += energy.joules;
+            total += energy.bytes;
+        }
+        return mah > 0 ? new Reading(mah, joules, total) : Reading.UNKNOWN;
+    }
+
+    private PhaseEnergy phaseEnergy(int phase) {
+        double counterMah = counterSeen[phase] ? counterMicroAh[phase] / 1000.0 : -1;
+        double mah = microAh[phase] / 1000.0;
+        double joules = microJ[phase] / 1e6;
+        if (!currentSupported && counterMah > 0) {
+            // Coarser, but all there is: the counter drop at the nominal voltage
+            mah = counterMah;
+            joules = counterMah * 3.6 * volts();
+        }
+        return new PhaseEnergy(ThroughputEstimator.PHASE_NAMES[phase], bytes[phase], mah, joules,
+            nanos[phase] / 1_000_000_000L, counterMah);
+    }
+
+    public synchronized Summary summarize() {
+        Summary summary = new Summary();
+        summary.basis = currentSupported ? "current" : counterSupported ? "charge_counter" : "unsupported";
+        summary.samples = samples;
+        summary.chargingSamples = chargingSamples;
+        long totalBytes = 0;
+        long totalSeconds = 0;
+        double mah = 0;
+        double joules = 0;
+        double counter = -1;
+        for (int phase = 0; phase < phaseCount; phase++) {
+            PhaseEnergy energy = phaseEnergy(phase);
+            if (energy.bytes == 0 && energy.milliAmpHours == 0) continue;
+            summary.phases.add(energy);
+            totalBytes += energy.bytes;
+            totalSeconds += energy.seconds;
+            mah += energy.milliAmpHours;
+            joules += energy.joules;
+            if (energy.counterMilliAmpHours >= 0) counter = Math.max(counter, 0) + energy.counterMilliAmpHours;
+        }
+        summary.total = new PhaseEnergy("total", totalBytes, mah, joules, totalSeconds, counter);
+        return summary;
+    }
+
+    /**
+     * Key of the configuration energy costs are tracked by in the volume profile: the same
+     * device spends very different energy per gigabyte with more streams or a verify pass.
+     */
+    public static String configurationKey(String pattern, int passes, boolean blank, boolean verify, int streams) {
+        return pattern + "|passes=" + passes + (blank ? "+blank" : "") + (verify ? "|verify" : "")
+            + "|streams=" + Math.max(1, streams);
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.nwipe_android;
+
+/**
+ * Log sink of the engine, in the shape of android.util.Log so the app binds it one to one.
+ */
+public interface EngineLog {
+    void d(String tag, String message);
+
+    void i(String tag, String message);
+
+    void w(String tag, String message);
+
+    void e(String tag, String message);
+
+    /**
+     * Writes to standard error, for a plain JVM (tests, host tools).
+     */
+    EngineLog CONSOLE = new EngineLog() {
+        @Override
+        public void d(String tag, String message) { print('D', tag, message); }
+
+        @Override
+        public void i(String tag, String message) { print('I', tag, message); }
+
+        @Override
+        public void w(String tag, String message) { print('W', tag, message); }
+
+        @Override
+        public void e(String tag, String message) { print('E', tag, message); }
+
+        private void print(char level, String tag, String message) {
+            System.err.println(level + "/" + tag + ": " + message);
+        }
+    };
+}
@@ -0,0 +1,396 @@
+package com.example.nwipe_android;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-process flight recorder: a fixed ring of the job's most recent events (type code,
+ * Clock.nanoTime() and two numeric payloads, plus a string the caller already holds, such as
+ * File.getPath()). Recording claims a slot with one atomic increment and writes into arrays
+ * allocated up front, so per-file and per-chunk events cost next to nothing where a Log call per
+ * file used to format a string and cross into logd. Logcat keeps the summaries; the ring is
+ * dumped to a compact binary file when a job fails or on request, and {@link #read} /
+ * {@link #main} turn a dump back into text.
+ */
+public class FlightRecorder {
+    public static final String DIR_NAME = "flight_recorder";
+    public static final String FILE_SUFFIX = ".nwfr";
+    public static final int DEFAULT_CAPACITY = 8192;
+    // Dumps of older jobs are pruned beyond this many
+    private static final int MAX_DUMPS = 20;
+    private static final int MAGIC = 0x4E574652; // "NWFR"
+    private static final int VERSION = 1;
+
+    // Event types; TYPES holds each one's name and the meaning of its two payloads
+    public static final int JOB_START = 1;
+    public static final int JOB_END = 2;
+    public static final int PASS_START = 3;
+    public static final int PASS_END = 4;
+    public static final int DIR_SCAN = 5;
+    public static final int FILE_OVERWRITE = 6;
+    public static final int FILE_VERIFY = 7;
+    public static final int FILE_DELETE = 8;
+    public static final int DELETE_FAILED = 9;
+    public static final int FILE_ERROR = 10;
+    public static final int FAST_WRITE = 11;
+    public static final int FILL_PROGRESS = 12;
+    public static final int STALL = 13;
+    public static final int CLEANUP_DELETE = 14;
+    public static final int DUMP_REQUESTED = 15;
+    static final String[][] TYPES = {
+        {"unknown", "a", "b"},
+        {"job_start", "passes", "resumed_passes"},
+        {"job_end", "passes_completed", "failed"},
+        {"pass_start", "pass", "zeros"},
+        {"pass_end", "pass", "bytes"},
+        {"dir_scan", "entries", "us"},
+        {"file_overwrite", "bytes", "us"},
+        {"file_verify", "bytes", "us"},
+        {"file_delete", "us", "dir"},
+        {"delete_failed", "reason", "dir"},
+        {"file_error", "bytes", "verify"},
+        {"fast_write", "bytes", "bytes_per_s"},
+        {"fill_progress", "offset", "total"},
+        {"stall", "lane", "age_ms"},
+        {"cleanup_delete", "bytes", "ok"},
+        {"dump_requested", "a", "b"},
+    };
+    // DELETE_FAILED reasons
+    public static final int REFUSED = 0;
+    public static final int NO_PERMISSION = 1;
+    public static final int ERROR = 2;
+
+    /**
+     * A decoded event; {@code nanos} is on the recorder's Clock.nanoTime().
+     */
+    public static class Event {
+        public int type;
+        public long nanos;
+        public long a;
+        public long b;
+        public String text;
+
+        public String typeName() {
+            return type > 0 && type < TYPES.length ? TYPES[type][0] : "type_" + type;
+        }
+    }
+
+    /**
+     * A dump read back from a file, oldest event first.
+     */
+    public static class Dump {
+        public long wallClockMs;
+        public long nanoTime;
+        public long recorded;
+        public int capacity;
+        public final List<Event> events = new ArrayList<>();
+
+        public long wallClockOf(Event event) {
+            return wallClockMs - (nanoTime - event.nanos) / 1_000_000;
+        }
+
+        /**
+         * One line per event, e.g. "2026-03-01 12:00:01.234 file_overwrite bytes=1048576 us=2300 /sdcard/x".
+         */
+        public String render() {
+            SimpleDateFormat time = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.ROOT);
+            StringBuilder text = new StringBuilder();
+            text.append(String.format(Locale.ROOT, "%d events (%d recorded, ring of %d), dumped %s\n",
+                events.size(), recorded, capacity, time.format(new Date(wallClockMs))));
+            for (Event event : events) {
+                String[] labels = event.type > 0 && event.type < TYPES.length ? TYPES[event.type] : TYPES[0];
+                text.append(time.format(new Date(wallClockOf(event)))).append(' ').append(event.typeName())
+                    .append(' ').append(labels[1]).append('=').append(event.a)
+                    .append(' ').append(labels[2]).append('=').append(event.b);
+                if (event.text != null) text.append(' ').append(event.text);
+                text.append('\n');
+            }
+            return text.toString();
+        }
+    }
+
+    private final int mask;
+    private final AtomicLong next = new AtomicLong();
+    // Sequence number of the event in each slot once written, -1 while it is being written
+    private final AtomicLongArray published;
+    private final int[] types;
+    private final long[] times;
+    private final long[] payloadA;
+    private final long[] payloadB;
+    private final String[] texts;
+    private final AtomicLongArray counts = new AtomicLongArray(TYPES.length);
+    private final Clock clock;
+
+    public FlightRecorder() {
+        this(DEFAULT_CAPACITY, Clock.SYSTEM);
+    }
+
+    public FlightRecorder(Clock clock) {
+        this(DEFAULT_CAPACITY, clock);
+    }
+
+    /**
+     * {@code capacity} is rounded up to a power of two.
+     */
+    public FlightRecorder(int capacity) {
+        this(capacity, Clock.SYSTEM);
+    }
+
+    public FlightRecorder(int capacity, Clock clock) {
+        this.clock = clock;
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        mask = size - 1;
+        published = new AtomicLongArray(size);
+        for (int slot = 0; slot < size; slot++) published.set(slot, -1);
+        types = new int[size];
+        times = new long[size];
+        payloadA = new long[size];
+        payloadB = new long[size];
+        texts = new String[size];
+    }
+
+    public void record(int type, long a, long b) {
+        record(type, a, b, null);
+    }
+
+    /**
+     * Records an event; {@code text} should be a string the caller holds anyway (File.getPath()
+     * returns the File's own), so the hot path stays free of allocations.
+     */
+    public void record(int type, long a, long b, String text) {
+        long seq = next.getAndIncrement();
+        int slot = (int) (seq & mask);
+        published.set(slot, -1);
+        types[slot] = type;
+        times[slot] = clock.nanoTime();
+        payloadA[slot] = a;
+        payloadB[slot] = b;
+        texts[slot] = text;
+        published.set(slot, seq);
+        if (type > 0 && type < TYPES.length) counts.incrementAndGet(type);
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Events recorded since the start, including those the ring has since overwritten.
+     */
+    public long getRecorded() {
+        return next.get();
+    }
+
+    public long getCount(int type) {
+        return type > 0 && type < TYPES.length ? counts.get(type) : 0;
+    }
+
+    /**
+     * The events still in the ring, oldest first. An event overwritten while it is copied is
+     * left out.
+     */
+    public List<Event> snapshot() {
+        long end = next.get();
+        long start = Math.max(0, end - getCapacity());
+        List<Event> events = new ArrayList<>((int) (end - start));
+        for (long seq = start; seq < end; seq++) {
+            int slot = (int) (seq & mask);
+            if (published.get(slot) != seq) continue;
+            Event event = new Event();
+            event.type = types[slot];
+            event.nanos = times[slot];
+            event.a = payloadA[slot];
+            event.b = payloadB[slot];
+            event.text = texts[slot];
+            if (published.get(slot) == seq) events.add(event);
+        }
+        return events;
+    }
+
+    /**
+     * Event counts by type for logcat, e.g. "1520 events: file_overwrite=300 file_delete=1200".
+     */
+    public String summary() {
+        StringBuilder text = new StringBuilder().append(getRecorded()).append(" events");
+        String separator = ": ";
+        for (int type = 1; type < TYPES.length; type++) {
+            long count = counts.get(type);
+            if (count == 0) continue;
+            text.append(separator).append(TYPES[type][0]).append('=').append(count);
+            separator = " ";
+        }
+        return text.toString();
+    }
+
+    public static File directory(File filesDir) {
+        return new File(filesDir, DIR_NAME);
+    }
+
+    /**
+     * A new dump file for the job; several dumps of one job (on request) do not overwrite each other.
+     */
+    public static File fileFor(File filesDir, String jobId) {
+        return new File(directory(filesDir), jobId + "-" + System.currentTimeMillis() + FILE_SUFFIX);
+    }
+
+    /**
+     * Writes the ring to {@code file} (temp file + rename) and prunes the oldest dumps beside it.
+     */
+    public void dump(File file) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            BufferedOutputStream buffered = new BufferedOutputStream(out);
+            write(buffered);
+            buffered.flush();
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            throw new IOException("Cannot replace " + file);
+        }
+        if (dir != null) prune(dir);
+    }
+
+    /**
+     * Header (magic, version, wall clock and nanoTime at the dump, events recorded, capacity,
+     * event count) then per event: type byte, nanoTime delta to the previous event, both payloads
+     * zigzagged and the text, all as varints. A typical event takes 5 to 10 bytes plus its text.
+     */
+    void write(OutputStream out) throws IOException {
+        List<Event> events = snapshot();
+        writeVarLong(out, MAGIC);
+        writeVarLong(out, VERSION);
+        writeVarLong(out, clock.currentTimeMillis());
+        writeVarLong(out, zigzag(clock.nanoTime()));
+        writeVarLong(out, getRecorded());
+        writeVarLong(out, getCapacity());
+        writeVarLong(out, events.size());
+        long previous = events.isEmpty() ? 0 : events.get(0).nanos;
+        writeVarLong(out, zigzag(previous));
+        for (Event event : events) {
+            out.write(event.type);
+            writeVarLong(out, zigzag(event.nanos - previous));
+            previous = event.nanos;
+            writeVarLong(out, zigzag(event.a));
+            writeVarLong(out, zigzag(event.b));
+            if (event.text == null) {
+                writeVarLong(out, 0);
+            } else {
+                byte[] bytes = event.text.getBytes(StandardCharsets.UTF_8);
+                writeVarLong(out, bytes.length + 1);
+                out.write(bytes);
+            }
+        }
+    }
+
+    public static Dump read(InputStream in) throws IOException {
+        if (readVarLong(in) != MAGIC) throw new IOException("Not a flight recorder dump");
+        long version = readVarLong(in);
+        if (version != VERSION) throw new IOException("Unsupported flight recorder version " + version);
+        Dump dump = new Dump();
+        dump.wallClockMs = readVarLong(in);
+        dump.nanoTime = unzigzag(readVarLong(in));
+        dump.recorded = readVarLong(in);
+        dump.capacity = (int) readVarLong(in);
+        long count = readVarLong(in);
+        long nanos = unzigzag(readVarLong(in));
+        for (long i = 0; i < count; i++) {
+            Event event = new Event();
+            event.type = in.read();
+            if (event.type < 0) throw new EOFException();
+            nanos += unzigzag(readVarLong(in));
+            event.nanos = nanos;
+            event.a = unzigzag(readVarLong(in));
+            event.b = unzigzag(readVarLong(in));
+            int length = (int) readVarLong(in);
+            if (length > 0) {
+                byte[] bytes = new byte[length - 1];
+                readFully(in, bytes);
+                event.text = new String(bytes, StandardCharsets.UTF_8);
+            }
+            dump.events.add(event);
+        }
+        return dump;
+    }
+
+    /**
+     * Decoder for pulled dumps: {@code java com.example.nwipe_android.FlightRecorder <dump>...}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: FlightRecorder <dump" + FILE_SUFFIX + ">...");
+            System.exit(2);
+        }
+        for (String path : args) {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(path))) {
+                System.out.println("== " + path);
+                System.out.print(read(in).render());
+            }
+        }
+    }
+
+    static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new EOFException();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void readFully(InputStream in, byte[] bytes) throws IOException {
+        int read = 0;
+        while (read < bytes.length) {
+            int n = in.read(bytes, read, bytes.length - read);
+            if (n < 0) throw new EOFException();
+            read += n;
+        }
+    }
+
+    private static void prune(File dir) {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(FILE_SUFFIX));
+        if (files == null || files.length <= MAX_DUMPS) return;
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (int i = 0; i < files.length - MAX_DUMPS; i++) {
+            //noinspection ResultOfMethodCallIgnored
+            files[i].delete();
+        }
+    }
+}
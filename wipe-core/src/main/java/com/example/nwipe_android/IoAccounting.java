@@ -0,0 +1,392 @@
+package com.example.nwipe_android;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks how much of what the engine hands to write() reaches storage. Per pass it samples
+ * /proc/self/io (bytes the process sent toward the block layer) and the stat file of the block
+ * device backing the target (sectors the device was asked to write, found through
+ * /proc/self/mountinfo), plus the allocated size (st_blocks) of the files written. The device
+ * to app ratio is the write amplification; well below 1 means compression, dedupe or a cache
+ * absorbed part of the wipe. The device counter includes every writer on the device, so it is an
+ * upper bound and a low ratio is the meaningful signal. Unreadable sources (SELinux often hides
+ * /sys from apps) are skipped and the next one is used.
+ */
+public class IoAccounting {
+    public static final String PROC_IO = "/proc/self/io";
+    public static final String MOUNTINFO = "/proc/self/mountinfo";
+    private static final String DEV_BLOCK = "/sys/dev/block/";
+    // The block layer always counts 512-byte sectors, whatever the device's block size
+    private static final long SECTOR_BYTES = 512;
+    // Index of "sectors written" in a block device stat file
+    private static final int STAT_WRITE_SECTORS = 6;
+    // Below this the storage stack wrote less than the engine did
+    static final double LOW_AMPLIFICATION = 0.9;
+    public static final String BASIS_DEVICE = "device";
+    public static final String BASIS_PROCESS = "process";
+
+    /**
+     * Where the counters come from; a fixture in tests.
+     */
+    public interface Source {
+        String read(String path) throws IOException;
+
+        /**
+         * Bytes allocated to the file (st_blocks * 512), or -1 when unknown.
+         */
+        long allocatedBytes(File file);
+    }
+
+    /**
+     * Reads the real files; st_blocks needs a platform stat, so it is unknown here.
+     */
+    public static class FileSource implements Source {
+        @Override
+        public String read(String path) throws IOException {
+            StringBuilder text = new StringBuilder();
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(path), StandardCharsets.US_ASCII))) {
+                String line;
+                while ((line = reader.readLine()) != null) text.append(line).append('\n');
+            } catch (SecurityException e) {
+                throw new IOException(e.getMessage());
+            }
+            return text.toString();
+        }
+
+        @Override
+        public long allocatedBytes(File file) {
+            return -1;
+        }
+    }
+
+    /**
+     * A line of /proc/self/mountinfo.
+     */
+    public static class Mount {
+        public final String majorMinor;
+        public final String mountPoint;
+        public final String fsType;
+        public final String source;
+
+        public Mount(String majorMinor, String mountPoint, String fsType, String source) {
+            this.majorMinor = majorMinor;
+            this.mountPoint = mountPoint;
+            this.fsType = fsType;
+            this.source = source;
+        }
+
+        public boolean isBlockDevice() {
+            return !majorMinor.startsWith("0:");
+        }
+    }
+
+    public static class PassRecord {
+        public int pass;
+        // Handed to write() by the engine
+        public long appBytes;
+        // write_bytes - cancelled_write_bytes of the process, -1 if unreadable
+        public long processBytes = -1;
+        // Sectors written on the backing device, in bytes, -1 if unreadable
+        public long deviceBytes = -1;
+        public long fileBytes;
+        public long allocatedBytes = -1;
+        public long elapsedMs;
+        public double writeAmplification = -1;
+        // Bytes per second that reached storage over the write phase
+        public double mediaBytesPerSec = -1;
+
+        public String describe() {
+            StringBuilder text = new StringBuilder(String.format(Locale.ROOT, "Pass %d: %.1f MB written", pass + 1, appBytes / (1024.0 * 1024.0)));
+            if (deviceBytes >= 0) text.append(String.format(Locale.ROOT, ", %.1f MB reached the device", deviceBytes / (1024.0 * 1024.0)));
+            else if (processBytes >= 0) text.append(String.format(Locale.ROOT, ", %.1f MB sent to storage", processBytes / (1024.0 * 1024.0)));
+            if (writeAmplification >= 0) text.append(String.format(Locale.ROOT, " (x%.2f)", writeAmplification));
+            if (mediaBytesPerSec >= 0) text.append(String.format(Locale.ROOT, ", %.1f MB/s on media", mediaBytesPerSec / (1024 * 1024)));
+            if (allocatedBytes >= 0) text.append(String.format(Locale.ROOT, ", %.1f of %.1f MB allocated",
+                allocatedBytes / (1024.0 * 1024.0), fileBytes / (1024.0 * 1024.0)));
+            return text.toString();
+        }
+    }
+
+    /**
+     * The job's accounting, stored in the WipeReport and stated in the certificate.
+     */
+    public static class Summary {
+        // e.g. "253:48 /dev/block/dm-48 (f2fs)", null when no block device was found
+        public String device;
+        // What the amplification is measured against: BASIS_DEVICE, BASIS_PROCESS or null
+        public String basis;
+        public long appBytes;
+        public long processBytes = -1;
+        public long deviceBytes = -1;
+        public long fileBytes;
+        public long allocatedBytes = -1;
+        public double writeAmplification = -1;
+        public List<PassRecord> passes = new ArrayList<>();
+
+        public boolean isLow() {
+            return basis != null && writeAmplification < LOW_AMPLIFICATION;
+        }
+
+        public String describe() {
+            if (basis == null) return "Write amplification not measurable on this device";
+            long measured = BASIS_DEVICE.equals(basis) ? deviceBytes : processBytes;
+            return String.format(Locale.ROOT, "Write amplification %.2f (%.1f MB reached %s for %.1f MB written)",
+                writeAmplification, measured / (1024.0 * 1024.0),
+                BASIS_DEVICE.equals(basis) ? device : "the block layer", appBytes / (1024.0 * 1024.0));
+        }
+    }
+
+    private final Source source;
+    private final AtomicLong appBytes = new AtomicLong();
+    private final List<PassRecord> passes = new ArrayList<>();
+    private boolean processReadable = true;
+    private String mountsText;
+    private Mount mount;
+    private String statPath;
+
+    // Pass in progress
+    private PassRecord current;
+    private long startAppBytes;
+    private long[] startProcess;
+    private long startDeviceSectors = -1;
+    private long startNanos;
+    private final Clock clock;
+
+    public IoAccounting(Source source) {
+        this(source, Clock.SYSTEM);
+    }
+
+    public IoAccounting(Source source, Clock clock) {
+        this.source = source;
+        this.clock = clock;
+    }
+
+    /**
+     * Called by writer lanes for every chunk written.
+     */
+    public void countWritten(long bytes) {
+        appBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Bytes written by the engine so far, over every pass.
+     */
+    public long getWrittenBytes() {
+        return appBytes.get();
+    }
+
+    /**
+     * Starts the write phase of a pass into {@code directory}; an unfinished pass is dropped.
+     */
+    public synchronized void beginPass(int pass, File directory) {
+        if (mount == null && directory != null) resolveDevice(directory.getAbsolutePath());
+        current = new PassRecord();
+        current.pass = pass;
+        startAppBytes = appBytes.get();
+        startProcess = readProcess();
+        startDeviceSectors = readDeviceSectors();
+        startNanos = clock.nanoTime();
+    }
+
+    /**
+     * Adds a file the pass wrote, with its allocated size when the source knows it.
+     */
+    public synchronized void countFile(File file, long length) {
+        if (current == null) return;
+        current.fileBytes += length;
+        long allocated = source.allocatedBytes(file);
+        if (allocated >= 0) current.allocatedBytes = Math.max(0, current.allocatedBytes) + allocated;
+    }
+
+    /**
+     * Ends the write phase of the pass (after its fsync), or returns null if none was begun.
+     */
+    public synchronized PassRecord endPass() {
+        PassRecord record = current;
+        if (record == null) return null;
+        current = null;
+        record.elapsedMs = (clock.nanoTime() - startNanos) / 1_000_000;
+        record.appBytes = appBytes.get() - startAppBytes;
+        long[] process = readProcess();
+        if (startProcess != null && process != null) {
+            record.processBytes = Math.max(0, (process[0] - process[1]) - (startProcess[0] - startProcess[1]));
+        }
+        long sectors = readDeviceSectors();
+        if (startDeviceSectors >= 0 && sectors >= startDeviceSectors) {
+            record.deviceBytes = (sectors - startDeviceSectors) * SECTOR_BYTES;
+        }
+        long measured = record.deviceBytes >= 0 ? record.deviceBytes : record.processBytes;
+        if (measured >= 0 && record.appBytes > 0) record.writeAmplification = measured / (double) record.appBytes;
+        if (record.deviceBytes >= 0 && record.elapsedMs > 0) record.mediaBytesPerSec = record.deviceBytes * 1000.0 / record.elapsedMs;
+        passes.add(record);
+        return record;
+    }
+
+    public synchronized Summary summarize() {
+        Summary summary = new Summary();
+        if (mount != null && statPath != null) summary.device = mount.majorMinor + " " + mount.source + " (" + mount.fsType + ")";
+        boolean device = !passes.isEmpty(), process = !passes.isEmpty(), allocated = !passes.isEmpty();
+        long deviceBytes = 0, processBytes = 0, allocatedBytes = 0;
+        for (PassRecord record : passes) {
+            summary.passes.add(record);
+            summary.appBytes += record.appBytes;
+            summary.fileBytes += record.fileBytes;
+            device &= record.deviceBytes >= 0;
+            process &= record.processBytes >= 0;
+            allocated &= record.allocatedBytes >= 0;
+            deviceBytes += Math.max(0, record.deviceBytes);
+            processBytes += Math.max(0, record.processBytes);
+            allocatedBytes += Math.max(0, record.allocatedBytes);
+        }
+        if (device) summary.deviceBytes = deviceBytes;
+        if (process) summary.processBytes = processBytes;
+        if (allocated) summary.allocatedBytes = allocatedBytes;
+        if (summary.appBytes > 0) {
+            if (device) summary.basis = BASIS_DEVICE;
+            else if (process) summary.basis = BASIS_PROCESS;
+            if (summary.basis != null) {
+                summary.writeAmplification = (device ? deviceBytes : processBytes) / (double) summary.appBytes;
+            }
+        }
+        return summary;
+    }
+
+    private void resolveDevice(String path) {
+        if (mountsText == null) {
+            try {
+                mountsText = source.read(MOUNTINFO);
+            } catch (IOException e) {
+                mountsText = "";
+            }
+        }
+        Mount found = findMount(mountsText, path);
+        // Emulated and adopted storage is a FUSE (or sdcardfs) view of a lower filesystem
+        if (found != null && !found.isBlockDevice()) {
+            String lower = lowerPath(path);
+            if (lower != null) {
+                Mount backing = findMount(mountsText, lower);
+                if (backing != null) found = backing;
+            }
+        }
+        if (found == null || !found.isBlockDevice()) return;
+        String stat = DEV_BLOCK + found.majorMinor + "/stat";
+        try {
+            if (parseWriteSectors(source.read(stat)) < 0) return;
+        } catch (IOException e) {
+            return;
+        }
+        mount = found;
+        statPath = stat;
+    }
+
+    private long[] readProcess() {
+        if (!processReadable) return null;
+        try {
+            long[] counters = parseProcIo(source.read(PROC_IO));
+            if (counters == null) processReadable = false;
+            return counters;
+        } catch (IOException e) {
+            processReadable = false;
+            return null;
+        }
+    }
+
+    private long readDeviceSectors() {
+        if (statPath == null) return -1;
+        try {
+            return parseWriteSectors(source.read(statPath));
+        } catch (IOException e) {
+            statPath = null;
+            return -1;
+        }
+    }
+
+    /**
+     * write_bytes and cancelled_write_bytes of /proc/self/io, or null if either is missing.
+     */
+    public static long[] parseProcIo(String text) {
+        long written = -1, cancelled = -1;
+        for (String line : text.split("\n")) {
+            int colon = line.indexOf(':');
+            if (colon <= 0) continue;
+            String key = line.substring(0, colon).trim();
+            try {
+                if (key.equals("write_bytes")) written = Long.parseLong(line.substring(colon + 1).trim());
+                else if (key.equals("cancelled_write_bytes")) cancelled = Long.parseLong(line.substring(colon + 1).trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        if (written < 0 || cancelled < 0) return null;
+        return new long[]{written, cancelled};
+    }
+
+    /**
+     * Sectors written from a /sys/block/.../stat line, or -1 if malformed.
+     */
+    public static long parseWriteSectors(String text) {
+        String[] fields = text.trim().split("\\s+");
+        if (fields.length <= STAT_WRITE_SECTORS) return -1;
+        try {
+            return Long.parseLong(fields[STAT_WRITE_SECTORS]);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * The mount with the longest mount point containing {@code path}, or null.
+     */
+    public static Mount findMount(String mountinfo, String path) {
+        Mount best = null;
+        for (String line : mountinfo.split("\n")) {
+            String[] fields = line.trim().split(" ");
+            int separator = -1;
+            for (int i = 6; i < fields.length; i++) {
+                if (fields[i].equals("-")) {
+                    separator = i;
+                    break;
+                }
+            }
+            if (separator < 0 || separator + 2 >= fields.length) continue;
+            String mountPoint = unescape(fields[4]);
+            if (!isUnder(path, mountPoint)) continue;
+            if (best == null || mountPoint.length() >= best.mountPoint.length()) {
+                best = new Mount(fields[2], mountPoint, fields[separator + 1], unescape(fields[separator + 2]));
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The lower-filesystem path behind a FUSE view, e.g. /storage/emulated/0/x -> /data/media/0/x
+     * and /storage/1A2B-3C4D/x -> /mnt/media_rw/1A2B-3C4D/x; null for other paths.
+     */
+    static String lowerPath(String path) {
+        if (path.startsWith("/storage/emulated/")) return "/data/media/" + path.substring("/storage/emulated/".length());
+        if (path.startsWith("/sdcard/")) return "/data/media/0/" + path.substring("/sdcard/".length());
+        if (path.startsWith("/storage/") && !path.startsWith("/storage/self/")) {
+            return "/mnt/media_rw/" + path.substring("/storage/".length());
+        }
+        return null;
+    }
+
+    private static boolean isUnder(String path, String mountPoint) {
+        if (mountPoint.equals("/")) return path.startsWith("/");
+        return path.equals(mountPoint) || path.startsWith(mountPoint + "/");
+    }
+
+    private static String unescape(String field) {
+        return field.replace("\\040", " ").replace("\\011", "\t").replace("\\134", "\\");
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.nwipe_android;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Dispatches queued wipe jobs: jobs on different volumes run concurrently (each on its own
+ * thread, up to one per progress channel slot) while jobs on the same volume are serialized so
+ * they do not compete for the same device queue.
+ */
+public class IoScheduler {
+    public static final int MAX_CONCURRENT_JOBS = ProgressChannel.SLOT_COUNT;
+
+    public interface Runner {
+        /**
+         * Runs the job synchronously on a scheduler thread. {@code slot} is the progress channel
+         * slot reserved for it until this returns.
+         */
+        void run(WipeQueue.Entry entry, int slot);
+    }
+
+    public interface Listener {
+        void onIdle();
+    }
+
+    private final WipeQueue queue;
+    private final Runner runner;
+    private final Listener listener;
+    private final int maxConcurrent;
+    private final ExecutorService executor;
+    private final Set<String> busyVolumes = new HashSet<>();
+    private final WipeQueue.Entry[] slots;
+    private boolean shutdown = false;
+
+    public IoScheduler(WipeQueue queue, Runner runner, Listener listener) {
+        this(queue, runner, listener, MAX_CONCURRENT_JOBS);
+    }
+
+    public IoScheduler(WipeQueue queue, Runner runner, Listener listener, int maxConcurrent) {
+        this.queue = queue;
+        this.runner = runner;
+        this.listener = listener;
+        this.maxConcurrent = Math.max(1, Math.min(maxConcurrent, ProgressChannel.SLOT_COUNT));
+        this.slots = new WipeQueue.Entry[this.maxConcurrent];
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "WipeWorker");
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts every queued job that can run now. Safe to call at any time.
+     */
+    public synchronized void pump() {
+        if (shutdown) return;
+        while (true) {
+            int slot = freeSlot();
+            if (slot < 0) return;
+            WipeQueue.Entry entry = queue.nextRunnable(busyVolumes);
+            if (entry == null) break;
+            try {
+                queue.markRunning(entry);
+            } catch (Exception e) {
+                // Still run it; the queue file will be rewritten on the next change
+            }
+            busyVolumes.add(entry.volumeKey);
+            slots[slot] = entry;
+            executor.execute(() -> runJob(entry, slot));
+        }
+        if (runningCount() == 0 && listener != null) listener.onIdle();
+    }
+
+    private void runJob(WipeQueue.Entry entry, int slot) {
+        try {
+            runner.run(entry, slot);
+        } finally {
+            synchronized (this) {
+                busyVolumes.remove(entry.volumeKey);
+                slots[slot] = null;
+            }
+            pump();
+        }
+    }
+
+    public synchronized boolean isIdle() {
+        return runningCount() == 0;
+    }
+
+    /**
+     * Entries currently running, indexed by their slot (null for free slots).
+     */
+    public synchronized List<WipeQueue.Entry> running() {
+        List<WipeQueue.Entry> running = new ArrayList<>();
+        for (WipeQueue.Entry entry : slots) running.add(entry);
+        return running;
+    }
+
+    public synchronized void shutdown() {
+        shutdown = true;
+        executor.shutdown();
+    }
+
+    private int freeSlot() {
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] == null) return i;
+        }
+        return -1;
+    }
+
+    private int runningCount() {
+        int count = 0;
+        for (WipeQueue.Entry entry : slots) {
+            if (entry != null) count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.nwipe_android;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear latency histogram in microseconds, in the style of HdrHistogram: every power of two
+ * is split into {@link #SUB_BUCKETS} linear buckets, so a recorded value is off by at most about
+ * 3% whatever its magnitude. The buckets are allocated up front and updated with atomic
+ * increments, so writer lanes record concurrently and the hot path never allocates.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Highest power of two tracked (2^40 µs is about 12 days); longer values land in the top bucket
+    private static final int MAX_MAGNITUDE = 40;
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_MAGNITUDE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    /**
+     * Percentiles and non-empty buckets, as dumped to JSON.
+     */
+    public static class Summary {
+        public long count;
+        public long meanMicros;
+        public long p50Micros;
+        public long p99Micros;
+        public long p999Micros;
+        public long maxMicros;
+        // [highest value of the bucket in µs, count] for every non-empty bucket
+        public List<long[]> buckets;
+    }
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sumMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void record(long nanos) {
+        recordMicros(nanos / 1000);
+    }
+
+    public void recordMicros(long micros) {
+        long value = Math.max(0, micros);
+        counts.incrementAndGet(indexOf(value));
+        total.incrementAndGet();
+        sumMicros.addAndGet(value);
+        long max;
+        while (value > (max = maxMicros.get()) && !maxMicros.compareAndSet(max, value)) {
+            // retry: another lane raised the maximum meanwhile
+        }
+    }
+
+    static int indexOf(long micros) {
+        if (micros < SUB_BUCKETS) return (int) micros;
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+        if (magnitude > MAX_MAGNITUDE) return BUCKETS - 1;
+        int sub = (int) (micros >>> (magnitude - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return SUB_BUCKETS + (magnitude - SUB_BUCKET_BITS) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Highest value that falls into the bucket, as HdrHistogram reports percentiles.
+     */
+    static long highestEquivalent(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        long sub = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((SUB_BUCKETS + sub + 1) << shift) - 1;
+    }
+
+    public long getCount() {
+        return total.get();
+    }
+
+    public long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    public long getMeanMicros() {
+        long count = total.get();
+        return count > 0 ? sumMicros.get() / count : 0;
+    }
+
+    /**
+     * Value at the given percentile (0-100) in µs, 0 when empty; never above the maximum recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = total.get();
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int index = 0; index < BUCKETS; index++) {
+            seen += counts.get(index);
+            if (seen >= rank) return Math.min(highestEquivalent(index), maxMicros.get());
+        }
+        return maxMicros.get();
+    }
+
+    public Summary summarize() {
+        Summary summary = new Summary();
+        summary.count = getCount();
+        summary.meanMicros = getMeanMicros();
+        summary.p50Micros = getValueAtPercentile(50);
+        summary.p99Micros = getValueAtPercentile(99);
+        summary.p999Micros = getValueAtPercentile(99.9);
+        summary.maxMicros = getMaxMicros();
+        summary.buckets = new ArrayList<>();
+        for (int index = 0; index < BUCKETS; index++) {
+            long bucket = counts.get(index);
+            if (bucket > 0) summary.buckets.add(new long[]{highestEquivalent(index), bucket});
+        }
+        return summary;
+    }
+}
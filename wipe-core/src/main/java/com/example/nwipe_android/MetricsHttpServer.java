@@ -0,0 +1,186 @@
+package com.example.nwipe_android;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Minimal HTTP endpoint serving GET /metrics in the Prometheus text exposition format (0.0.4),
+ * for scraping wipe benchmarks on a rack of devices through "adb forward tcp:N tcp:N" instead
+ * of parsing logcat.
+ *
+ * Bound to the loopback address only, one request per connection on a single daemon thread:
+ * a scraper every few seconds is the whole workload. The content comes from a Collector
+ * called per request, so every scrape sees the current state.
+ */
+public class MetricsHttpServer implements Closeable {
+    public static final String PATH = "/metrics";
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    // Opt-in setting in filesDir: the port to serve on, absent when disabled
+    public static final String PORT_FILE_NAME = "metrics_port";
+    // A client that connects and sends nothing must not hold up the next scrape
+    private static final int READ_TIMEOUT_MS = 2000;
+    private static final int MAX_HEADER_LINES = 100;
+
+    public interface Collector {
+        /**
+         * Writes the current metrics; called on the server thread for every scrape.
+         */
+        void collect(Writer out);
+    }
+
+    /**
+     * Builds an exposition-format document: one "# HELP" and "# TYPE" per metric family,
+     * followed by its samples.
+     */
+    public static class Writer {
+        public static final String COUNTER = "counter";
+        public static final String GAUGE = "gauge";
+        public static final String SUMMARY = "summary";
+
+        private final StringBuilder text = new StringBuilder();
+        private final Set<String> families = new HashSet<>();
+
+        /**
+         * Declares a metric family; repeated declarations of the same name are ignored.
+         */
+        public Writer family(String name, String type, String help) {
+            if (!families.add(name)) return this;
+            text.append("# HELP ").append(name).append(' ').append(escapeHelp(help)).append('\n');
+            text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+            return this;
+        }
+
+        /**
+         * A sample with labels given as name/value pairs; null label values are skipped.
+         */
+        public Writer sample(String name, double value, String... labels) {
+            text.append(name);
+            boolean open = false;
+            for (int i = 0; i + 1 < labels.length; i += 2) {
+                if (labels[i + 1] == null) continue;
+                text.append(open ? ',' : '{').append(labels[i]).append("=\"").append(escapeLabel(labels[i + 1])).append('"');
+                open = true;
+            }
+            if (open) text.append('}');
+            text.append(' ').append(formatValue(value)).append('\n');
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+
+        static String formatValue(double value) {
+            if (Double.isNaN(value)) return "NaN";
+            if (Double.isInfinite(value)) return value > 0 ? "+Inf" : "-Inf";
+            if (value == Math.rint(value) && Math.abs(value) < 1e15) return Long.toString((long) value);
+            return Double.toString(value);
+        }
+
+        static String escapeLabel(String value) {
+            return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        }
+
+        private static String escapeHelp(String help) {
+            return help.replace("\\", "\\\\").replace("\n", "\\n");
+        }
+    }
+
+    private final ServerSocket socket;
+    private final Collector collector;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * Binds 127.0.0.1:{@code port} (0 for any free port) and starts serving.
+     */
+    public MetricsHttpServer(int port, Collector collector) throws IOException {
+        this.socket = new ServerSocket(port, 4, InetAddress.getLoopbackAddress());
+        this.collector = collector;
+        this.thread = new Thread(this::serve, "WipeMetricsHttp");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public int getPort() {
+        return socket.getLocalPort();
+    }
+
+    private void serve() {
+        while (running) {
+            try (Socket client = socket.accept()) {
+                client.setSoTimeout(READ_TIMEOUT_MS);
+                handle(client);
+            } catch (IOException | RuntimeException e) {
+                // Closed by close(), or the client went away; the next scrape gets a new connection
+                if (!running) return;
+            }
+        }
+    }
+
+    private void handle(Socket client) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+        String requestLine = reader.readLine();
+        if (requestLine == null) return;
+        // Drain the headers; nothing in them matters here
+        for (int lines = 0; lines < MAX_HEADER_LINES; lines++) {
+            String header = reader.readLine();
+            if (header == null || header.isEmpty()) break;
+        }
+        String[] parts = requestLine.split(" ");
+        OutputStream out = client.getOutputStream();
+        if (parts.length < 2) {
+            respond(out, 400, "Bad Request", "text/plain", "Bad request\n", true);
+            return;
+        }
+        boolean head = "HEAD".equals(parts[0]);
+        if (!"GET".equals(parts[0]) && !head) {
+            respond(out, 405, "Method Not Allowed", "text/plain", "Only GET is supported\n", true);
+            return;
+        }
+        String path = parts[1];
+        int query = path.indexOf('?');
+        if (query >= 0) path = path.substring(0, query);
+        if (!PATH.equals(path)) {
+            respond(out, 404, "Not Found", "text/plain", "Metrics are served at " + PATH + "\n", !head);
+            return;
+        }
+        Writer metrics = new Writer();
+        try {
+            collector.collect(metrics);
+        } catch (RuntimeException e) {
+            respond(out, 500, "Internal Server Error", "text/plain", "Collection failed: " + e + "\n", !head);
+            return;
+        }
+        respond(out, 200, "OK", CONTENT_TYPE, metrics.toString(), !head);
+    }
+
+    private static void respond(OutputStream out, int status, String reason, String contentType,
+                                String body, boolean withBody) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        String headers = "HTTP/1.1 " + status + " " + reason + "\r\n"
+            + "Content-Type: " + contentType + "\r\n"
+            + "Content-Length: " + bytes.length + "\r\n"
+            + "Connection: close\r\n\r\n";
+        out.write(headers.getBytes(StandardCharsets.US_ASCII));
+        if (withBody) out.write(bytes);
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        socket.close();
+        thread.interrupt();
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.nwipe_android;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Component-aware prefix trie of mount roots. Resolves a path to the deepest registered root
+ * that owns it in O(path depth), matching whole path components only, so that
+ * /storage/emulated/01 is not mistaken for a child of /storage/emulated/0.
+ */
+public class MountPointTrie<T> {
+
+    public static class Match<T> {
+        public final T value;
+        public final String root;
+        public final String relativePath;
+
+        Match(T value, String root, String relativePath) {
+            this.value = value;
+            this.root = root;
+            this.relativePath = relativePath;
+        }
+
+        /** True when the resolved path is the mount root itself. */
+        public boolean isRoot() {
+            return relativePath.isEmpty();
+        }
+    }
+
+    private static class Node<T> {
+        final Map<String, Node<T>> children = new HashMap<>();
+        T value;
+        String root;
+    }
+
+    private final Node<T> rootNode = new Node<>();
+    private int size = 0;
+
+    /**
+     * Registers a mount root. Re-registering the same root replaces its value.
+     */
+    public void put(String rootPath, T value) {
+        if (rootPath == null) return;
+        Node<T> node = rootNode;
+        for (String component : split(rootPath)) {
+            Node<T> child = node.children.get(component);
+            if (child == null) {
+                child = new Node<>();
+                node.children.put(component, child);
+            }
+            node = child;
+        }
+        if (node.root == null) size++;
+        node.value = value;
+        node.root = rootPath;
+    }
+
+    /**
+     * Returns the deepest registered root containing the path, or null when none owns it.
+     */
+    public Match<T> resolve(String path) {
+        if (path == null) return null;
+        String[] components = split(path);
+        Node<T> node = rootNode;
+        Node<T> best = rootNode.root != null ? rootNode : null;
+        int bestDepth = 0;
+        for (int i = 0; i < components.length; i++) {
+            node = node.children.get(components[i]);
+            if (node == null) break;
+            if (node.root != null) {
+                best = node;
+                bestDepth = i + 1;
+            }
+        }
+        if (best == null) return null;
+
+        StringBuilder relative = new StringBuilder();
+        for (int i = bestDepth; i < components.length; i++) {
+            if (relative.length() > 0) relative.append('/');
+            relative.append(components[i]);
+        }
+        return new Match<>(best.value, best.root, relative.toString());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static String[] split(String path) {
+        String[] raw = path.split("/");
+        int count = 0;
+        for (String part : raw) {
+            if (!part.isEmpty() && !part.equals(".")) count++;
+        }
+        String[] out = new String[count];
+        int i = 0;
+        for (String part : raw) {
+            if (!part.isEmpty() && !part.equals(".")) out[i++] = part;
+        }
+        return out;
+    }
+}
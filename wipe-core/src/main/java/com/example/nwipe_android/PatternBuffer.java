@@ -0,0 +1,121 @@
+package com.example.nwipe_android;
+
+import java.io.Closeable;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * One direct buffer prefilled with a fixed pass pattern, written from by every file and writer
+ * stream of the pass with no per-chunk generation work, and the pattern's expected longs for
+ * verifying a chunk read back without a second buffer.
+ *
+ * A pattern longer than one byte continues across chunks by file offset, so the buffer holds a
+ * chunk plus the pattern length and each offset gets the view starting at its phase.
+ *
+ * The engine leases the buffer from its BufferPool for as long as the pattern is in use (the
+ * overhang fits the pool's slack), so it counts against the pool's cap; close it afterwards.
+ */
+public class PatternBuffer implements Closeable {
+    private final byte[] pattern;
+    private final int chunkSize;
+    private final BufferPool.Lease lease;
+    private final ByteBuffer filled;
+    // Per phase: the pattern's bytes as longs; the sequence repeats every pattern.length longs
+    private final long[][] expectedLongs;
+
+    /**
+     * Unpooled, for tests.
+     */
+    public PatternBuffer(byte[] pattern, int chunkSize) {
+        this(pattern, chunkSize, null, ByteBuffer.allocateDirect(chunkSize + lengthOf(pattern) - 1));
+    }
+
+    /**
+     * Backed by a buffer leased from {@code pool}, waiting while the pool is at its cap.
+     */
+    public PatternBuffer(byte[] pattern, int chunkSize, BufferPool pool) throws InterruptedIOException {
+        this(pattern, chunkSize, pool.acquire(chunkSize));
+    }
+
+    private PatternBuffer(byte[] pattern, int chunkSize, BufferPool.Lease lease) {
+        this(pattern, chunkSize, lease, lease.buffer());
+    }
+
+    private PatternBuffer(byte[] pattern, int chunkSize, BufferPool.Lease lease, ByteBuffer filled) {
+        if (pattern == null || pattern.length == 0 || chunkSize + pattern.length - 1 > filled.capacity()) {
+            if (lease != null) lease.close();
+            throw new IllegalArgumentException("Pattern must be 1 to " + (filled.capacity() - chunkSize + 1) + " bytes");
+        }
+        int length = chunkSize + pattern.length - 1;
+        this.pattern = pattern.clone();
+        this.chunkSize = chunkSize;
+        this.lease = lease;
+        this.filled = filled;
+        filled.limit(length);
+        for (int i = 0; i < length; i++) filled.put(i, pattern[i % pattern.length]);
+        this.expectedLongs = new long[pattern.length][pattern.length];
+        ByteBuffer scratch = ByteBuffer.allocate(8 * pattern.length + pattern.length);
+        for (int i = 0; i < scratch.capacity(); i++) scratch.put(i, pattern[i % pattern.length]);
+        for (int phase = 0; phase < pattern.length; phase++) {
+            for (int k = 0; k < pattern.length; k++) expectedLongs[phase][k] = scratch.getLong(phase + 8 * k);
+        }
+    }
+
+    private static int lengthOf(byte[] pattern) {
+        if (pattern == null || pattern.length == 0) throw new IllegalArgumentException("Empty pattern");
+        return pattern.length;
+    }
+
+    public byte[] getPattern() {
+        return pattern.clone();
+    }
+
+    /**
+     * Views of the pattern for one thread, indexed by phase; each is a chunk long. The views
+     * have their own position and limit, so threads must not share them.
+     */
+    public ByteBuffer[] views() {
+        ByteBuffer[] views = new ByteBuffer[pattern.length];
+        for (int phase = 0; phase < views.length; phase++) {
+            ByteBuffer view = filled.duplicate();
+            view.position(phase);
+            view.limit(phase + chunkSize);
+            views[phase] = view.slice();
+        }
+        return views;
+    }
+
+    /**
+     * The view holding the pattern as it runs from {@code offset} in the file.
+     */
+    public ByteBuffer viewAt(ByteBuffer[] views, long offset) {
+        return views[(int) (offset % pattern.length)];
+    }
+
+    /**
+     * Whether the first {@code length} bytes of {@code actual} (absolute gets, position untouched)
+     * are the pattern as it runs from {@code offset} in the file; compared a long at a time.
+     */
+    public boolean matches(ByteBuffer actual, int length, long offset) {
+        int phase = (int) (offset % pattern.length);
+        long[] expected = expectedLongs[phase];
+        int i = 0;
+        for (int k = 0; i + 8 <= length; i += 8) {
+            if (actual.getLong(i) != expected[k]) return false;
+            if (++k == expected.length) k = 0;
+        }
+        for (; i < length; i++) {
+            if (actual.get(i) != pattern[(phase + i) % pattern.length]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Hands the leased buffer back to the pool; the views must no longer be used, but matches
+     * keeps working, as it compares against the pattern rather than the buffer.
+     */
+    @Override
+    public void close() {
+        if (lease != null) lease.close();
+    }
+}
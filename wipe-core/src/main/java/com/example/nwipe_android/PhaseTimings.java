@@ -0,0 +1,77 @@
+package com.example.nwipe_android;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Latency histograms of a job's I/O, one per phase: directory scans, chunk writes, fsyncs,
+ * verify reads, the compare of each verified chunk and file deletions. Comparing e.g. write and
+ * fsync latency with compare time tells a slow device from a slow code path, which the average
+ * MB/s cannot.
+ */
+public class PhaseTimings {
+    public static final int SCAN = 0;
+    public static final int WRITE = 1;
+    public static final int FSYNC = 2;
+    public static final int VERIFY_READ = 3;
+    public static final int COMPARE = 4;
+    public static final int DELETE = 5;
+    public static final String[] PHASE_NAMES = {"scan", "write", "fsync", "verify_read", "compare", "delete"};
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[PHASE_NAMES.length];
+    private final Clock clock;
+
+    public PhaseTimings() {
+        this(Clock.SYSTEM);
+    }
+
+    /**
+     * {@code clock} must be the one the callers take their start times from.
+     */
+    public PhaseTimings(Clock clock) {
+        this.clock = clock;
+        for (int phase = 0; phase < histograms.length; phase++) histograms[phase] = new LatencyHistogram();
+    }
+
+    public void record(int phase, long nanos) {
+        histograms[phase].record(nanos);
+    }
+
+    /**
+     * Records the time since {@code startNanos} (from the timings' clock).
+     */
+    public void since(int phase, long startNanos) {
+        histograms[phase].record(clock.nanoTime() - startNanos);
+    }
+
+    public LatencyHistogram get(int phase) {
+        return histograms[phase];
+    }
+
+    /**
+     * Summaries of the phases that recorded anything, keyed by phase name.
+     */
+    public Map<String, LatencyHistogram.Summary> summarize() {
+        Map<String, LatencyHistogram.Summary> summaries = new LinkedHashMap<>();
+        for (int phase = 0; phase < histograms.length; phase++) {
+            if (histograms[phase].getCount() > 0) summaries.put(PHASE_NAMES[phase], histograms[phase].summarize());
+        }
+        return summaries;
+    }
+
+    /**
+     * One line per recorded phase, e.g. "write: n=5120 p50=3.1 ms p99=41.0 ms p99.9=210.0 ms".
+     */
+    public static String describe(Map<String, LatencyHistogram.Summary> summaries) {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, LatencyHistogram.Summary> entry : summaries.entrySet()) {
+            LatencyHistogram.Summary summary = entry.getValue();
+            if (text.length() > 0) text.append('\n');
+            text.append(String.format(Locale.ROOT, "%s: n=%d p50=%.1f ms p99=%.1f ms p99.9=%.1f ms",
+                entry.getKey(), summary.count, summary.p50Micros / 1000.0,
+                summary.p99Micros / 1000.0, summary.p999Micros / 1000.0));
+        }
+        return text.toString();
+    }
+}
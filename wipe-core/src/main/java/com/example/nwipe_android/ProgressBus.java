@@ -0,0 +1,91 @@
+package com.example.nwipe_android;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces progress updates by time and fans them out to sinks (broadcast, notification, log).
+ * Writers call {@link #offer} after every chunk; a snapshot is only built and dispatched when
+ * the minimum interval has elapsed, so the per-chunk cost is a clock read and a compare.
+ * State transitions use {@link #publish} to bypass the rate limit.
+ */
+public class ProgressBus {
+    public static final long DEFAULT_MIN_INTERVAL_MS = 100; // at most 10 Hz
+
+    public interface Sink {
+        void onProgress(ProgressSnapshot snapshot);
+    }
+
+    private final long minIntervalNanos;
+    private final List<Sink> sinks = new CopyOnWriteArrayList<>();
+    private final AtomicLong lastPublishNanos = new AtomicLong();
+    private volatile Clock clock = Clock.SYSTEM;
+    private final Object dispatchLock = new Object();
+    private volatile ProgressSnapshot lastSnapshot;
+
+    public ProgressBus() {
+        this(DEFAULT_MIN_INTERVAL_MS);
+    }
+
+    public ProgressBus(long minIntervalMs) {
+        this.minIntervalNanos = TimeUnit.MILLISECONDS.toNanos(minIntervalMs);
+        this.lastPublishNanos.set(clock.nanoTime() - minIntervalNanos);
+    }
+
+    /**
+     * Rate-limits on the engine's clock; called by the WipeEngine the bus is given to.
+     */
+    void setClock(Clock clock) {
+        this.clock = clock;
+        this.lastPublishNanos.set(clock.nanoTime() - minIntervalNanos);
+    }
+
+    public ProgressBus addSink(Sink sink) {
+        if (sink != null) sinks.add(sink);
+        return this;
+    }
+
+    public void removeSink(Sink sink) {
+        sinks.remove(sink);
+    }
+
+    /**
+     * Rate-limited publish. When several writers race, only the one that wins the CAS dispatches.
+     */
+    public void offer(WipeProgress progress) {
+        long now = clock.nanoTime();
+        long last = lastPublishNanos.get();
+        if (now - last < minIntervalNanos) return;
+        if (!lastPublishNanos.compareAndSet(last, now)) return;
+        dispatch(progress.snapshot());
+    }
+
+    /**
+     * Unconditional publish for state transitions (pass change, verification start, finish).
+     */
+    public void publish(WipeProgress progress) {
+        lastPublishNanos.set(clock.nanoTime());
+        dispatch(progress.snapshot());
+    }
+
+    public void publish(ProgressSnapshot snapshot) {
+        lastPublishNanos.set(clock.nanoTime());
+        dispatch(snapshot);
+    }
+
+    public ProgressSnapshot getLastSnapshot() {
+        return lastSnapshot;
+    }
+
+    private void dispatch(ProgressSnapshot snapshot) {
+        // Serialize fan-out so sinks never observe snapshots out of order
+        synchronized (dispatchLock) {
+            lastSnapshot = snapshot;
+            for (Sink sink : sinks) {
+                sink.onProgress(snapshot);
+            }
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.nwipe_android;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Shared-memory progress snapshot: a small memory-mapped file the wipe service writes and the UI
+ * polls at its own frame rate, replacing a broadcast per progress update.
+ *
+ * Each slot is guarded by a sequence counter (odd while a write is in progress). Because a
+ * MappedByteBuffer gives no ordering guarantees, every record also carries a CRC32 so a reader
+ * that raced with the writer rejects the torn copy and retries instead of relying on fences.
+ */
+public class ProgressChannel implements Closeable {
+    public static final String FILE_NAME = "wipe_progress.chan";
+    public static final int SLOT_COUNT = 4;
+
+    private static final int MAGIC = 0x57495045; // "WIPE"
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 512;
+    private static final int FILE_SIZE = HEADER_SIZE + SLOT_COUNT * SLOT_SIZE;
+
+    // Slot layout (offsets relative to the slot start)
+    private static final int OFF_SEQ = 0;
+    private static final int OFF_STARTED = 8;
+    private static final int OFF_TIMESTAMP = 16;
+    private static final int OFF_TOTAL = 24;
+    private static final int OFF_WIPED = 32;
+    private static final int OFF_PASSES = 40;
+    private static final int OFF_COMPLETED = 44;
+    private static final int OFF_FLAGS = 48;
+    private static final int OFF_CRC = 52;
+    private static final int OFF_RATE = 56;
+    private static final int OFF_ETA = 64;
+    private static final int OFF_ETA_LOW = 72;
+    private static final int OFF_ETA_HIGH = 80;
+    private static final int OFF_ENERGY_MAH = 88;
+    private static final int OFF_ENERGY_J = 96;
+    private static final int OFF_ENERGY_BYTES = 104;
+    private static final int OFF_ERROR_LEN = 112;
+    private static final int OFF_ERROR = 114;
+    private static final int MAX_ERROR_BYTES = SLOT_SIZE - OFF_ERROR;
+
+    private static final int FLAG_VERIFY = 1;
+    private static final int FLAG_BLANK = 1 << 1;
+    private static final int FLAG_VERIFYING = 1 << 2;
+    private static final int FLAG_ACTIVE = 1 << 3;
+    private static final int FLAG_STALLED = 1 << 4;
+
+    private static final int MAX_READ_ATTEMPTS = 8;
+
+    /**
+     * One consistent slot read.
+     */
+    public static class Frame {
+        public final long sequence;
+        public final boolean active;
+        public final long startedAtMs;
+        public final ProgressSnapshot snapshot;
+
+        Frame(long sequence, boolean active, long startedAtMs, ProgressSnapshot snapshot) {
+            this.sequence = sequence;
+            this.active = active;
+            this.startedAtMs = startedAtMs;
+            this.snapshot = snapshot;
+        }
+    }
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final boolean writable;
+
+    private ProgressChannel(RandomAccessFile file, MappedByteBuffer buffer, boolean writable) {
+        this.file = file;
+        this.buffer = buffer;
+        this.writable = writable;
+    }
+
+    public static File defaultFile(File filesDir) {
+        return new File(filesDir, FILE_NAME);
+    }
+
+    /**
+     * Opens (creating if needed) the channel for writing. Only one writer per slot is supported.
+     */
+    public static ProgressChannel openWriter(File path) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(path, "rw");
+        try {
+            if (raf.length() != FILE_SIZE) raf.setLength(FILE_SIZE);
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                for (int i = 0; i < FILE_SIZE; i++) buffer.put(i, (byte) 0);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(8, SLOT_COUNT);
+                buffer.putInt(0, MAGIC);
+            }
+            return new ProgressChannel(raf, buffer, true);
+        } catch (IOException | RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the channel read-only; returns null when no writer has created it yet.
+     */
+    public static ProgressChannel openReader(File path) {
+        if (!path.isFile() || path.length() != FILE_SIZE) return null;
+        try {
+            RandomAccessFile raf = new RandomAccessFile(path, "r");
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, FILE_SIZE);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                raf.close();
+                return null;
+            }
+            return new ProgressChannel(raf, buffer, false);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public void write(ProgressSnapshot snapshot, boolean active, long startedAtMs) {
+        write(0, snapshot, active, startedAtMs);
+    }
+
+    public synchronized void write(int slot, ProgressSnapshot snapshot, boolean active, long startedAtMs) {
+        if (!writable) throw new IllegalStateException("Channel opened read-only");
+        int base = slotBase(slot);
+        long seq = buffer.getLong(base + OFF_SEQ);
+        if ((seq & 1) != 0) seq++; // recover from a writer that died mid-write
+        buffer.putLong(base + OFF_SEQ, seq + 1);
+
+        byte[] error = truncatedUtf8(snapshot.errorMessage);
+        int flags = (snapshot.verify ? FLAG_VERIFY : 0) | (snapshot.blank ? FLAG_BLANK : 0)
+                | (snapshot.verifying ? FLAG_VERIFYING : 0) | (active ? FLAG_ACTIVE : 0) | (snapshot.stalled ? FLAG_STALLED : 0);
+        buffer.putLong(base + OFF_STARTED, startedAtMs);
+        buffer.putLong(base + OFF_TIMESTAMP, snapshot.timestampMs);
+        buffer.putLong(base + OFF_TOTAL, snapshot.totalBytes);
+        buffer.putLong(base + OFF_WIPED, snapshot.wipedBytes);
+        buffer.putInt(base + OFF_PASSES, snapshot.numberPasses);
+        buffer.putInt(base + OFF_COMPLETED, snapshot.passesCompleted);
+        buffer.putInt(base + OFF_FLAGS, flags);
+        buffer.putDouble(base + OFF_RATE, snapshot.estimate.bytesPerSecond);
+        buffer.putLong(base + OFF_ETA, snapshot.estimate.remainingMs);
+        buffer.putLong(base + OFF_ETA_LOW, snapshot.estimate.lowMs);
+        buffer.putLong(base + OFF_ETA_HIGH, snapshot.estimate.highMs);
+        buffer.putDouble(base + OFF_ENERGY_MAH, snapshot.energy.milliAmpHours);
+        buffer.putDouble(base + OFF_ENERGY_J, snapshot.energy.joules);
+        buffer.putLong(base + OFF_ENERGY_BYTES, snapshot.energy.bytes);
+        buffer.putShort(base + OFF_ERROR_LEN, (short) error.length);
+        for (int i = 0; i < error.length; i++) buffer.put(base + OFF_ERROR + i, error[i]);
+        buffer.putInt(base + OFF_CRC, crc(buffer, base, error.length));
+
+        buffer.putLong(base + OFF_SEQ, seq + 2);
+    }
+
+    /**
+     * Cheap change check for pollers: the slot's sequence counter.
+     */
+    public long sequence(int slot) {
+        return buffer.getLong(slotBase(slot) + OFF_SEQ);
+    }
+
+    public Frame read() {
+        return read(0);
+    }
+
+    /**
+     * Returns a consistent copy of the slot, or null if it was never written or every attempt
+     * raced with the writer.
+     */
+    public Frame read(int slot) {
+        int base = slotBase(slot);
+        ByteBuffer copy = ByteBuffer.allocate(SLOT_SIZE);
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            long before = buffer.getLong(base + OFF_SEQ);
+            if (before == 0) return null;
+            if ((before & 1) != 0) {
+                Thread.yield();
+                continue;
+            }
+            ByteBuffer view = buffer.duplicate();
+            view.position(base);
+            view.limit(base + SLOT_SIZE);
+            copy.clear();
+            copy.put(view);
+            long after = buffer.getLong(base + OFF_SEQ);
+            if (before != after) continue;
+
+            int errorLength = copy.getShort(OFF_ERROR_LEN);
+            if (errorLength < 0 || errorLength > MAX_ERROR_BYTES) continue;
+            if (copy.getInt(OFF_CRC) != crc(copy, 0, errorLength)) continue;
+            return decode(before, copy, errorLength);
+        }
+        return null;
+    }
+
+    private static Frame decode(long sequence, ByteBuffer slot, int errorLength) {
+        int flags = slot.getInt(OFF_FLAGS);
+        byte[] error = new byte[errorLength];
+        for (int i = 0; i < errorLength; i++) error[i] = slot.get(OFF_ERROR + i);
+        ProgressSnapshot snapshot = new ProgressSnapshot(slot.getLong(OFF_TIMESTAMP), slot.getInt(OFF_PASSES),
+                (flags & FLAG_VERIFY) != 0, (flags & FLAG_BLANK) != 0, slot.getInt(OFF_COMPLETED),
+                slot.getLong(OFF_TOTAL), slot.getLong(OFF_WIPED), (flags & FLAG_VERIFYING) != 0,
+                new String(error, StandardCharsets.UTF_8), null, null, (flags & FLAG_STALLED) != 0,
+                new ThroughputEstimator.Estimate(slot.getDouble(OFF_RATE), slot.getLong(OFF_ETA),
+                        slot.getLong(OFF_ETA_LOW), slot.getLong(OFF_ETA_HIGH)),
+                new EnergyMeter.Reading(slot.getDouble(OFF_ENERGY_MAH), slot.getDouble(OFF_ENERGY_J),
+                        slot.getLong(OFF_ENERGY_BYTES)));
+        return new Frame(sequence, (flags & FLAG_ACTIVE) != 0, slot.getLong(OFF_STARTED), snapshot);
+    }
+
+    private static int crc(ByteBuffer source, int base, int errorLength) {
+        CRC32 crc = new CRC32();
+        for (int i = OFF_STARTED; i < OFF_CRC; i++) crc.update(source.get(base + i));
+        for (int i = OFF_RATE; i < OFF_ERROR + errorLength; i++) crc.update(source.get(base + i));
+        return (int) crc.getValue();
+    }
+
+    private static byte[] truncatedUtf8(String text) {
+        byte[] bytes = (text != null ? text : "").getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= MAX_ERROR_BYTES) return bytes;
+        byte[] truncated = new byte[MAX_ERROR_BYTES];
+        System.arraycopy(bytes, 0, truncated, 0, MAX_ERROR_BYTES);
+        return truncated;
+    }
+
+    private static int slotBase(int slot) {
+        if (slot < 0 || slot >= SLOT_COUNT) throw new IllegalArgumentException("Invalid slot " + slot);
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
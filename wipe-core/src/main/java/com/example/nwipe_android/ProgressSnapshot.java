@@ -0,0 +1,94 @@
+package com.example.nwipe_android;
+
+/**
+ * Immutable point-in-time view of a running wipe job, safe to hand to other threads.
+ */
+public class ProgressSnapshot {
+    public final long timestampMs;
+    public final int numberPasses;
+    public final boolean verify;
+    public final boolean blank;
+    public final int passesCompleted;
+    public final long totalBytes;
+    public final long wipedBytes;
+    public final boolean verifying;
+    public final String errorMessage;
+    public final String targetPath;
+    public final String targetName;
+    public final boolean stalled;
+    // Engine-side throughput and remaining time for the whole job
+    public final ThroughputEstimator.Estimate estimate;
+    // Battery energy spent by the job so far
+    public final EnergyMeter.Reading energy;
+
+    /**
+     * A null estimate or energy reading stands for UNKNOWN.
+     */
+    public ProgressSnapshot(long timestampMs, int numberPasses, boolean verify, boolean blank, int passesCompleted,
+                            long totalBytes, long wipedBytes, boolean verifying, String errorMessage,
+                            String targetPath, String targetName, boolean stalled,
+                            ThroughputEstimator.Estimate estimate, EnergyMeter.Reading energy) {
+        this.timestampMs = timestampMs;
+        this.numberPasses = numberPasses;
+        this.verify = verify;
+        this.blank = blank;
+        this.passesCompleted = passesCompleted;
+        this.totalBytes = totalBytes;
+        this.wipedBytes = Math.min(wipedBytes, totalBytes);
+        this.verifying = verifying;
+        this.errorMessage = errorMessage != null ? errorMessage : "";
+        this.targetPath = targetPath;
+        this.targetName = targetName;
+        this.stalled = stalled;
+        this.estimate = estimate != null ? estimate : ThroughputEstimator.Estimate.UNKNOWN;
+        this.energy = energy != null ? energy : EnergyMeter.Reading.UNKNOWN;
+    }
+
+    /**
+     * Snapshot of a job's current fields, e.g. for the final state after the engine returned.
+     */
+    public static ProgressSnapshot of(WipeJob job) {
+        return new ProgressSnapshot(System.currentTimeMillis(), job.number_passes, job.verify, job.blank,
+                job.passes_completed, job.totalBytes, job.wipedBytes, job.verifying, job.errorMessage,
+                job.targetPath, job.targetName, job.stalled, ThroughputEstimator.Estimate.UNKNOWN,
+                EnergyMeter.Reading.UNKNOWN);
+    }
+
+    public int getTotalPasses() {
+        return blank ? numberPasses + 1 : numberPasses;
+    }
+
+    public int getCurrentPassPercentageCompletion() {
+        if (totalBytes <= 0) return 0;
+        return (int) (((double) wipedBytes / (double) totalBytes) * 100);
+    }
+
+    public boolean isCompleted() {
+        return passesCompleted >= getTotalPasses();
+    }
+
+    public boolean failed() {
+        return !errorMessage.isEmpty();
+    }
+
+    /**
+     * Rebuilds a WipeJob carrying this snapshot's state, for UI code written against WipeJob.
+     */
+    public WipeJob toWipeJob() {
+        WipeJob job = new WipeJob();
+        job.number_passes = numberPasses;
+        job.verify = verify;
+        job.blank = blank;
+        job.passes_completed = passesCompleted;
+        job.totalBytes = totalBytes;
+        job.wipedBytes = wipedBytes;
+        job.verifying = verifying;
+        job.errorMessage = errorMessage;
+        job.targetPath = targetPath;
+        job.targetName = targetName;
+        job.stalled = stalled;
+        job.estimate = estimate;
+        job.energy = energy;
+        return job;
+    }
+}
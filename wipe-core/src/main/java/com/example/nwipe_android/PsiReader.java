@@ -0,0 +1,117 @@
+package com.example.nwipe_android;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads Linux pressure stall information for I/O (/proc/pressure/io, kernel 4.20+):
+ *
+ * <pre>
+ * some avg10=1.53 avg60=0.87 avg300=0.40 total=4096123
+ * full avg10=0.91 avg60=0.50 avg300=0.21 total=2048000
+ * </pre>
+ *
+ * "some" is the share of time at least one task was stalled on I/O, "full" the share of time all
+ * non-idle tasks were. The cumulative totals (microseconds) give a pressure figure over any
+ * interval, which reacts much faster than the 10 s average. Many devices do not expose PSI to
+ * apps; {@link #read()} then returns null and callers fall back to their own latency signal.
+ */
+public class PsiReader {
+    public static final String DEFAULT_PATH = "/proc/pressure/io";
+
+    public static class Sample {
+        public final float someAvg10;
+        public final float fullAvg10;
+        public final long someTotalUs;
+        public final long fullTotalUs;
+
+        public Sample(float someAvg10, float fullAvg10, long someTotalUs, long fullTotalUs) {
+            this.someAvg10 = someAvg10;
+            this.fullAvg10 = fullAvg10;
+            this.someTotalUs = someTotalUs;
+            this.fullTotalUs = fullTotalUs;
+        }
+
+        /**
+         * Percentage of {@code elapsedMs} that some task spent stalled on I/O since {@code previous}.
+         */
+        public float somePercentSince(Sample previous, long elapsedMs) {
+            if (previous == null || elapsedMs <= 0) return someAvg10;
+            long stalledUs = someTotalUs - previous.someTotalUs;
+            if (stalledUs < 0) return someAvg10;
+            return Math.min(100f, stalledUs / (elapsedMs * 10f));
+        }
+    }
+
+    private final File file;
+    private boolean available = true;
+
+    public PsiReader() {
+        this(new File(DEFAULT_PATH));
+    }
+
+    public PsiReader(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Current pressure, or null when PSI is missing or not readable (remembered after the first
+     * failure so the hot path does not keep retrying).
+     */
+    public Sample read() {
+        if (!available) return null;
+        StringBuilder text = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = reader.readLine()) != null) text.append(line).append('\n');
+        } catch (IOException | SecurityException e) {
+            available = false;
+            return null;
+        }
+        Sample sample = parse(text.toString());
+        if (sample == null) available = false;
+        return sample;
+    }
+
+    /**
+     * Parses the contents of a pressure file; null if the "some" line is missing or malformed.
+     */
+    public static Sample parse(String text) {
+        float someAvg10 = -1, fullAvg10 = 0;
+        long someTotal = -1, fullTotal = 0;
+        for (String line : text.split("\n")) {
+            line = line.trim();
+            boolean some = line.startsWith("some ");
+            if (!some && !line.startsWith("full ")) continue;
+            float avg10 = -1;
+            long total = -1;
+            for (String field : line.substring(5).trim().split("\\s+")) {
+                int eq = field.indexOf('=');
+                if (eq <= 0) continue;
+                String key = field.substring(0, eq);
+                String value = field.substring(eq + 1);
+                try {
+                    if (key.equals("avg10")) avg10 = Float.parseFloat(value);
+                    else if (key.equals("total")) total = Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+            if (avg10 < 0 || total < 0) return null;
+            if (some) {
+                someAvg10 = avg10;
+                someTotal = total;
+            } else {
+                fullAvg10 = avg10;
+                fullTotal = total;
+            }
+        }
+        if (someTotal < 0) return null;
+        return new Sample(someAvg10, fullAvg10, someTotal, fullTotal);
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.nwipe_android;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Detects I/O that stopped making progress. A flaky USB OTG drive or a failing SD card can block
+ * a single write or read indefinitely; the job then sits at a fixed percentage and cancelling
+ * does nothing because the thread never returns to check.
+ *
+ * Every lane marks the start and end of each chunk. A daemon thread compares the age of the
+ * chunks in flight with a deadline derived from recent chunk latencies (smoothed mean plus four
+ * mean deviations, as for TCP retransmission timers, with a floor so GC pauses and writeback
+ * bursts are not reported). Past the soft deadline the stall is reported once so progress can
+ * flag it; past the hard deadline the listener is told to give up on the lane. The hard stall
+ * clears the lane, so a thread that eventually returns from the stuck call cannot end a chunk
+ * it no longer owns.
+ */
+public class StallWatchdog {
+    public static final long DEFAULT_POLL_MS = 500;
+    // Deadline used until enough chunks have completed to trust the latency estimate
+    public static final long INITIAL_SOFT_DEADLINE_MS = 10_000;
+    public static final long MIN_SOFT_DEADLINE_MS = 2_000;
+    public static final long MAX_SOFT_DEADLINE_MS = 30_000;
+    public static final int HARD_DEADLINE_MULTIPLIER = 4;
+    public static final long MIN_HARD_DEADLINE_MS = 30_000;
+    private static final int WARMUP_CHUNKS = 8;
+
+    public interface Listener {
+        /**
+         * Called on the watchdog thread; must not block on the stalled lane.
+         */
+        void onStall(Event event);
+    }
+
+    public static class Event {
+        public final int lane;
+        public final String phase;
+        public final long ageMs;
+        public final long deadlineMs;
+        public final boolean hard;
+        public final long atMs;
+        // The thread stuck in the call; interrupting it is up to the listener
+        public final transient Thread thread;
+
+        Event(int lane, String phase, long ageMs, long deadlineMs, boolean hard, Thread thread, long atMs) {
+            this.lane = lane;
+            this.phase = phase;
+            this.ageMs = ageMs;
+            this.deadlineMs = deadlineMs;
+            this.hard = hard;
+            this.atMs = atMs;
+            this.thread = thread;
+        }
+
+        public String describe() {
+            return String.format(Locale.ROOT, "%s I/O stall on lane %d during %s: no progress for %.1f s (deadline %.1f s)%s",
+                hard ? "Hard" : "Soft", lane, phase, ageMs / 1000.0, deadlineMs / 1000.0,
+                hard ? ", lane abandoned" : "");
+        }
+    }
+
+    private final Listener listener;
+    private final long pollMs;
+    private final Clock clock;
+    private final long[] startNanos;
+    private final String[] phases;
+    private final Thread[] owners;
+    private final boolean[] softReported;
+    private double smoothedNanos = -1;
+    private double deviationNanos = 0;
+    private int samples = 0;
+    private int softStalls = 0;
+    private int hardStalls = 0;
+    private long longestStallMs = 0;
+    private final List<Event> events = new ArrayList<>();
+    private Thread monitor;
+    private volatile boolean running = false;
+
+    public StallWatchdog(int lanes, Listener listener) {
+        this(lanes, listener, DEFAULT_POLL_MS);
+    }
+
+    public StallWatchdog(int lanes, Listener listener, long pollMs) {
+        this(lanes, listener, pollMs, Clock.SYSTEM);
+    }
+
+    public StallWatchdog(int lanes, Listener listener, long pollMs, Clock clock) {
+        this.listener = listener;
+        this.clock = clock;
+        this.pollMs = pollMs;
+        this.startNanos = new long[lanes];
+        this.phases = new String[lanes];
+        this.owners = new Thread[lanes];
+        this.softReported = new boolean[lanes];
+    }
+
+    public synchronized void start() {
+        if (monitor != null) return;
+        running = true;
+        monitor = new Thread(() -> {
+            while (running) {
+                try {
+                    Thread.sleep(pollMs);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (Event event : check(clock.nanoTime())) {
+                    if (listener != null) listener.onStall(event);
+                }
+            }
+        }, "WipeStallWatchdog");
+        monitor.setDaemon(true);
+        monitor.start();
+    }
+
+    public void stop() {
+        Thread thread;
+        synchronized (this) {
+            running = false;
+            thread = monitor;
+            monitor = null;
+        }
+        if (thread != null) thread.interrupt();
+    }
+
+    /**
+     * Marks the start of a chunk on {@code lane}, owned by the calling thread.
+     */
+    public void begin(int lane, String phase) {
+        begin(lane, phase, clock.nanoTime());
+    }
+
+    synchronized void begin(int lane, String phase, long nowNanos) {
+        startNanos[lane] = nowNanos;
+        phases[lane] = phase;
+        owners[lane] = Thread.currentThread();
+        softReported[lane] = false;
+    }
+
+    /**
+     * Marks the end of the lane's chunk and feeds its latency into the deadline estimate; ignored
+     * when the lane was abandoned meanwhile or belongs to another thread.
+     */
+    public void end(int lane) {
+        end(lane, clock.nanoTime());
+    }
+
+    synchronized void end(int lane, long nowNanos) {
+        if (startNanos[lane] == 0 || owners[lane] != Thread.currentThread()) return;
+        long latency = nowNanos - startNanos[lane];
+        startNanos[lane] = 0;
+        owners[lane] = null;
+        if (softReported[lane]) longestStallMs = Math.max(longestStallMs, latency / 1_000_000L);
+        if (samples == 0) {
+            smoothedNanos = latency;
+            deviationNanos = latency / 2.0;
+        } else {
+            deviationNanos = 0.75 * deviationNanos + 0.25 * Math.abs(smoothedNanos - latency);
+            smoothedNanos = 0.875 * smoothedNanos + 0.125 * latency;
+        }
+        samples++;
+    }
+
+    /**
+     * Reports chunks that crossed a deadline since the last check; hard stalls clear their lane.
+     */
+    synchronized List<Event> check(long nowNanos) {
+        List<Event> fired = new ArrayList<>();
+        long softMs = getSoftDeadlineMs();
+        long hardMs = getHardDeadlineMs();
+        for (int lane = 0; lane < startNanos.length; lane++) {
+            if (startNanos[lane] == 0) continue;
+            long ageMs = (nowNanos - startNanos[lane]) / 1_000_000L;
+            if (ageMs >= hardMs) {
+                Event event = new Event(lane, phases[lane], ageMs, hardMs, true, owners[lane], clock.currentTimeMillis());
+                hardStalls++;
+                longestStallMs = Math.max(longestStallMs, ageMs);
+                startNanos[lane] = 0;
+                owners[lane] = null;
+                events.add(event);
+                fired.add(event);
+            } else if (ageMs >= softMs && !softReported[lane]) {
+                Event event = new Event(lane, phases[lane], ageMs, softMs, false, owners[lane], clock.currentTimeMillis());
+                softReported[lane] = true;
+                softStalls++;
+                events.add(event);
+                fired.add(event);
+            }
+        }
+        return fired;
+    }
+
+    /**
+     * Starts from a latency history measured earlier on the same volume, so the adaptive
+     * deadline applies from the first chunk instead of the initial one.
+     */
+    public synchronized void seed(double meanMs, double deviationMs) {
+        if (samples > 0 || meanMs <= 0) return;
+        smoothedNanos = meanMs * 1_000_000L;
+        deviationNanos = Math.max(0, deviationMs) * 1_000_000L;
+        samples = WARMUP_CHUNKS;
+    }
+
+    /**
+     * Smoothed chunk latency, or 0 before any chunk completed.
+     */
+    public synchronized double getLatencyMeanMs() {
+        return samples > 0 ? smoothedNanos / 1_000_000L : 0;
+    }
+
+    public synchronized double getLatencyDeviationMs() {
+        return samples > 0 ? deviationNanos / 1_000_000L : 0;
+    }
+
+    public synchronized long getSoftDeadlineMs() {
+        if (samples < WARMUP_CHUNKS) return INITIAL_SOFT_DEADLINE_MS;
+        long estimateMs = (long) ((smoothedNanos + 4 * deviationNanos) / 1_000_000L);
+        return Math.max(MIN_SOFT_DEADLINE_MS, Math.min(MAX_SOFT_DEADLINE_MS, estimateMs));
+    }
+
+    public synchronized long getHardDeadlineMs() {
+        return Math.max(MIN_HARD_DEADLINE_MS, getSoftDeadlineMs() * HARD_DEADLINE_MULTIPLIER);
+    }
+
+    /**
+     * True while a live chunk is past its soft deadline.
+     */
+    public boolean isStalled() {
+        return isStalled(clock.nanoTime());
+    }
+
+    synchronized boolean isStalled(long nowNanos) {
+        long softNanos = getSoftDeadlineMs() * 1_000_000L;
+        for (long start : startNanos) {
+            if (start != 0 && nowNanos - start >= softNanos) return true;
+        }
+        return false;
+    }
+
+    public synchronized int getSoftStalls() {
+        return softStalls;
+    }
+
+    public synchronized int getHardStalls() {
+        return hardStalls;
+    }
+
+    public synchronized long getLongestStallMs() {
+        return longestStallMs;
+    }
+
+    public synchronized List<Event> getEvents() {
+        return new ArrayList<>(events);
+    }
+}
@@ -12,6 +12,8 @@ public class StorageLocation {
     public String displayName;
     public boolean accessible;
     public StorageType type;
+    // Resolved once by StorageTopology so target matching needs no per-call getCanonicalPath
+    public String canonicalPath;
 
     public StorageLocation(File directory, long availableBytes, String displayName, boolean accessible, StorageType type) {
         this.directory = directory;
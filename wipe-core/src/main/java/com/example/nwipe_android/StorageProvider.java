@@ -0,0 +1,31 @@
+package com.example.nwipe_android;
+
+import java.io.File;
+
+/**
+ * The volumes a WipeEngine works on: what is wipeable and how much space it has, where the
+ * engine's own state lives, and which location a target path belongs to. The app answers from
+ * the platform's storage topology; tests answer from a temporary directory.
+ */
+public interface StorageProvider {
+    /**
+     * The wipeable locations and the primary volume's capacity. With refreshCapacity the free
+     * space is re-read (a pass sizes its fill file from it); otherwise it may be cached.
+     */
+    StorageInfo getStorageInfo(boolean refreshCapacity);
+
+    /**
+     * Directory of the engine's state files (journal, queue, reports), which a wipe must spare.
+     */
+    File getFilesDir();
+
+    /**
+     * The wipeable location whose directory contains the target, or null when none does.
+     */
+    MountPointTrie.Match<StorageLocation> resolveLocation(File target);
+
+    /**
+     * Free bytes on the volume holding the directory.
+     */
+    long getFreeSpace(File directory);
+}
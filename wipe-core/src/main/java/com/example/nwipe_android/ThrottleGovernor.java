@@ -0,0 +1,175 @@
+package com.example.nwipe_android;
+
+/**
+ * Keeps long wipes below the device's thermal throttling point and above a battery floor.
+ *
+ * The governor periodically samples a SignalSource (thermal status/headroom, battery level and
+ * charging state) and turns it into a Decision: how many writer lanes a job may use, what
+ * fraction of wall time it may spend writing (duty cycle) and whether it must pause. Backing
+ * off early keeps the SoC and flash controller off the thermal cliff, which sustains a higher
+ * average throughput over a multi-hour job than running flat out and being throttled by the OS.
+ */
+public class ThrottleGovernor {
+    public static final long DEFAULT_SAMPLE_INTERVAL_MS = 5000;
+    public static final int DEFAULT_BATTERY_FLOOR_PERCENT = 15;
+    // Battery must recover this far above the floor before a battery pause ends
+    public static final int BATTERY_HYSTERESIS_PERCENT = 5;
+    // How often a paused worker re-checks the governor
+    public static final long PAUSED_POLL_MS = 1000;
+
+    // Mirrors android.os.PowerManager.THERMAL_STATUS_*
+    public static final int THERMAL_STATUS_UNKNOWN = -1;
+    public static final int THERMAL_STATUS_NONE = 0;
+    public static final int THERMAL_STATUS_LIGHT = 1;
+    public static final int THERMAL_STATUS_MODERATE = 2;
+    public static final int THERMAL_STATUS_SEVERE = 3;
+    public static final int THERMAL_STATUS_CRITICAL = 4;
+    public static final int THERMAL_STATUS_EMERGENCY = 5;
+
+    /**
+     * Source of device signals; AndroidSignalSource in the app, a stand-in in tests.
+     */
+    public interface SignalSource {
+        Signals read();
+    }
+
+    public static class Signals {
+        public final int thermalStatus;
+        // Forecast headroom where 1.0 means severe throttling; NaN when unavailable
+        public final float thermalHeadroom;
+        // 0-100, or -1 when unknown
+        public final int batteryPercent;
+        public final boolean charging;
+
+        public Signals(int thermalStatus, float thermalHeadroom, int batteryPercent, boolean charging) {
+            this.thermalStatus = thermalStatus;
+            this.thermalHeadroom = thermalHeadroom;
+            this.batteryPercent = batteryPercent;
+            this.charging = charging;
+        }
+    }
+
+    public static class Decision {
+        public final int lanes;
+        public final double dutyCycle;
+        public final boolean paused;
+        public final String reason;
+
+        Decision(int lanes, double dutyCycle, boolean paused, String reason) {
+            this.lanes = lanes;
+            this.dutyCycle = dutyCycle;
+            this.paused = paused;
+            this.reason = reason;
+        }
+
+        /**
+         * Idle time to insert after {@code busyNanos} of I/O so that busy / (busy + idle) stays
+         * at the duty cycle.
+         */
+        public long idleNanosAfter(long busyNanos) {
+            if (dutyCycle >= 1.0 || busyNanos <= 0) return 0;
+            return (long) (busyNanos * (1.0 - dutyCycle) / dutyCycle);
+        }
+
+        boolean sameAs(Decision other) {
+            return other != null && lanes == other.lanes && dutyCycle == other.dutyCycle && paused == other.paused;
+        }
+    }
+
+    private final SignalSource source;
+    private final int maxLanes;
+    private final int batteryFloorPercent;
+    private final long sampleIntervalMs;
+    private Decision decision;
+    // Last signals read, null before the first sample or if every read failed
+    private Signals lastSignals;
+    private long lastSampleMs = Long.MIN_VALUE;
+    private boolean batteryPaused = false;
+
+    public ThrottleGovernor(SignalSource source) {
+        this(source, WipeProgress.MAX_LANES, DEFAULT_BATTERY_FLOOR_PERCENT, DEFAULT_SAMPLE_INTERVAL_MS);
+    }
+
+    public ThrottleGovernor(SignalSource source, int maxLanes, int batteryFloorPercent, long sampleIntervalMs) {
+        this.source = source;
+        this.maxLanes = Math.max(1, maxLanes);
+        this.batteryFloorPercent = batteryFloorPercent;
+        this.sampleIntervalMs = sampleIntervalMs;
+        this.decision = new Decision(this.maxLanes, 1.0, false, "unthrottled");
+    }
+
+    /**
+     * The decision for now, re-sampling the source at most once per sample interval. Shared by
+     * every job in the process; safe to call from several writer threads.
+     */
+    public Decision current() {
+        return current(System.currentTimeMillis());
+    }
+
+    synchronized Decision current(long nowMs) {
+        if (lastSampleMs != Long.MIN_VALUE && nowMs - lastSampleMs < sampleIntervalMs) return decision;
+        lastSampleMs = nowMs;
+        Signals signals;
+        try {
+            signals = source.read();
+        } catch (RuntimeException e) {
+            signals = null;
+        }
+        if (signals != null) {
+            lastSignals = signals;
+            decision = evaluate(signals);
+        }
+        return decision;
+    }
+
+    /**
+     * The signals and decision of the last sample, without sampling again (for monitoring).
+     */
+    public synchronized Signals getLastSignals() {
+        return lastSignals;
+    }
+
+    public synchronized Decision getLastDecision() {
+        return decision;
+    }
+
+    private Decision evaluate(Signals signals) {
+        // Battery floor, with hysteresis so the job does not flap around the threshold
+        if (signals.charging || signals.batteryPercent < 0) {
+            batteryPaused = false;
+        } else if (signals.batteryPercent < batteryFloorPercent) {
+            batteryPaused = true;
+        } else if (signals.batteryPercent >= batteryFloorPercent + BATTERY_HYSTERESIS_PERCENT) {
+            batteryPaused = false;
+        }
+        if (batteryPaused) {
+            return new Decision(1, 1.0, true, "battery " + signals.batteryPercent + "% below floor " + batteryFloorPercent + "%");
+        }
+
+        // Headroom forecasts the cliff before the status changes, so prefer it when available
+        if (!Float.isNaN(signals.thermalHeadroom)) {
+            float h = signals.thermalHeadroom;
+            if (h >= 1.0f) return new Decision(1, 0.25, false, "thermal headroom " + h);
+            if (h >= 0.9f) return new Decision(1, 0.5, false, "thermal headroom " + h);
+            if (h >= 0.75f) return new Decision(half(), 0.75, false, "thermal headroom " + h);
+            return new Decision(maxLanes, 1.0, false, "unthrottled");
+        }
+        switch (signals.thermalStatus) {
+            case THERMAL_STATUS_MODERATE:
+                return new Decision(half(), 0.75, false, "thermal status moderate");
+            case THERMAL_STATUS_SEVERE:
+                return new Decision(1, 0.5, false, "thermal status severe");
+            case THERMAL_STATUS_CRITICAL:
+                return new Decision(1, 0.2, false, "thermal status critical");
+            default:
+                if (signals.thermalStatus >= THERMAL_STATUS_EMERGENCY) {
+                    return new Decision(1, 1.0, true, "thermal status emergency");
+                }
+                return new Decision(maxLanes, 1.0, false, "unthrottled");
+        }
+    }
+
+    private int half() {
+        return Math.max(1, maxLanes / 2);
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.nwipe_android;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Exponentially weighted throughput of one volume, tracked separately per phase: random writes,
+ * zero writes (the blanking pass, often faster on flash that compresses or deduplicates) and
+ * verify reads. Combined with the bytes each phase still has to move it gives a remaining-time
+ * estimate with bounds, computed in the engine so that every observer shows the same figure.
+ *
+ * The weight of a sample decays with time rather than sample count, so the estimate reacts
+ * within about {@link #TIME_CONSTANT_MS} regardless of how often progress is published.
+ */
+public class ThroughputEstimator {
+    public static final int RANDOM_WRITE = 0;
+    // Any fixed-pattern pass (zeros, or a scheme's pattern): written without generating data
+    public static final int ZERO_WRITE = 1;
+    public static final int VERIFY_READ = 2;
+    static final String[] PHASE_NAMES = {"random_write", "zero_write", "verify_read"};
+
+    public static final long TIME_CONSTANT_MS = 20_000;
+    // Bounds are the rate plus or minus this many standard deviations
+    private static final double BOUND_DEVIATIONS = 2.0;
+    // The slow bound never assumes less than this share of the smoothed rate
+    private static final double MIN_RATE_SHARE = 0.1;
+
+    private static final Map<String, ThroughputEstimator> VOLUMES = new ConcurrentHashMap<>();
+
+    /**
+     * Remaining time for a job; all times are -1 while no phase has a rate yet.
+     */
+    public static class Estimate {
+        public static final Estimate UNKNOWN = new Estimate(0, -1, -1, -1);
+
+        // Smoothed rate of the phase in progress
+        public final double bytesPerSecond;
+        public final long remainingMs;
+        public final long lowMs;
+        public final long highMs;
+
+        public Estimate(double bytesPerSecond, long remainingMs, long lowMs, long highMs) {
+            this.bytesPerSecond = bytesPerSecond;
+            this.remainingMs = remainingMs;
+            this.lowMs = lowMs;
+            this.highMs = highMs;
+        }
+
+        public boolean isKnown() {
+            return remainingMs >= 0;
+        }
+    }
+
+    private final double[] rate = new double[PHASE_NAMES.length];
+    private final double[] variance = new double[PHASE_NAMES.length];
+    private final boolean[] known = new boolean[PHASE_NAMES.length];
+    // Highest smoothed rate reached, i.e. the best sustained throughput rather than a spike
+    private final double[] peak = new double[PHASE_NAMES.length];
+
+    /**
+     * The process-wide estimator of a volume, so a job inherits the rates its predecessors on
+     * the same volume measured.
+     */
+    public static ThroughputEstimator forVolume(String volumeKey) {
+        String key = volumeKey != null ? volumeKey : WipeQueue.ALL_VOLUMES;
+        ThroughputEstimator estimator = VOLUMES.get(key);
+        if (estimator == null) {
+            VOLUMES.putIfAbsent(key, new ThroughputEstimator());
+            estimator = VOLUMES.get(key);
+        }
+        return estimator;
+    }
+
+    /**
+     * Adds an observation of {@code bytes} moved in {@code nanos} during {@code phase}.
+     */
+    public synchronized void record(int phase, long bytes, long nanos) {
+        if (bytes <= 0 || nanos <= 0) return;
+        double sample = bytes * 1e9 / nanos;
+        if (!known[phase]) {
+            rate[phase] = sample;
+            variance[phase] = 0;
+            known[phase] = true;
+            return;
+        }
+        double alpha = 1 - Math.exp(-(nanos / 1e6) / TIME_CONSTANT_MS);
+        double delta = sample - rate[phase];
+        rate[phase] += alpha * delta;
+        variance[phase] = (1 - alpha) * (variance[phase] + alpha * delta * delta);
+        peak[phase] = Math.max(peak[phase], rate[phase]);
+    }
+
+    /**
+     * Seeds a phase that has not been measured yet, e.g. from a stored volume profile.
+     */
+    public synchronized void seed(int phase, double bytesPerSecond) {
+        if (known[phase] || bytesPerSecond <= 0) return;
+        rate[phase] = bytesPerSecond;
+        variance[phase] = 0;
+        known[phase] = true;
+    }
+
+    /**
+     * Smoothed rate of a phase in bytes per second, 0 when unmeasured.
+     */
+    public synchronized double getRate(int phase) {
+        return known[phase] ? rate[phase] : 0;
+    }
+
+    public synchronized double getPeakRate(int phase) {
+        return peak[phase];
+    }
+
+    /**
+     * Rates of all phases (0 when unmeasured), e.g. to store in a volume profile.
+     */
+    public synchronized double[] getRates() {
+        double[] rates = new double[PHASE_NAMES.length];
+        for (int phase = 0; phase < rates.length; phase++) rates[phase] = getRate(phase);
+        return rates;
+    }
+
+    public synchronized double[] getPeakRates() {
+        return peak.clone();
+    }
+
+    /**
+     * Remaining time for the given bytes per phase. A phase without a rate borrows the other
+     * write phase's (or, for verification, any write rate) so an estimate exists from the
+     * first pass on.
+     */
+    public synchronized Estimate estimate(int currentPhase, long[] remainingBytes) {
+        double expected = 0, fast = 0, slow = 0;
+        for (int phase = 0; phase < remainingBytes.length; phase++) {
+            long bytes = remainingBytes[phase];
+            if (bytes <= 0) continue;
+            int source = sourceFor(phase);
+            if (source < 0) return new Estimate(getRate(currentPhase), -1, -1, -1);
+            double r = rate[source];
+            double spread = BOUND_DEVIATIONS * Math.sqrt(variance[source]);
+            expected += bytes / r;
+            fast += bytes / (r + spread);
+            slow += bytes / Math.max(r - spread, r * MIN_RATE_SHARE);
+        }
+        return new Estimate(getRate(currentPhase), (long) (expected * 1000), (long) (fast * 1000), (long) (slow * 1000));
+    }
+
+    private int sourceFor(int phase) {
+        if (known[phase]) return phase;
+        if (phase == RANDOM_WRITE && known[ZERO_WRITE]) return ZERO_WRITE;
+        if (known[RANDOM_WRITE]) return RANDOM_WRITE;
+        if (known[ZERO_WRITE]) return ZERO_WRITE;
+        return -1;
+    }
+
+    /**
+     * Compact duration for notifications, e.g. "1h 05m", "12m", "40s".
+     */
+    public static String formatDuration(long ms) {
+        long seconds = Math.max(0, ms) / 1000;
+        if (seconds >= 3600) return String.format(Locale.ROOT, "%dh %02dm", seconds / 3600, (seconds % 3600) / 60);
+        if (seconds >= 60) return (seconds / 60) + "m";
+        return seconds + "s";
+    }
+}
@@ -0,0 +1,373 @@
+package com.example.nwipe_android;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Throughput by offset for every pass of a job: each point covers a span of the pass and holds
+ * the bytes written, the wall time they took and the mean chunk latency. A pass keeps at most
+ * {@link #MAX_POINTS} points; when full, neighbours are merged and the span doubles, so a pass of
+ * any size ends up with between half and all of them. A sustained drop in throughput (a
+ * {@link Cliff}) typically marks the SLC write cache running out, and a collapse to a small
+ * share of the earlier rate points at failing flash.
+ *
+ * Stored next to the job's report as varint deltas, copied next to the certificate and drawn by
+ * TimelineChartView.
+ */
+public class ThroughputTimeline {
+    public static final String FILE_SUFFIX = ".timeline";
+    public static final int MAX_POINTS = 2048;
+    // Span of a point before any downsampling: one engine chunk
+    static final long INITIAL_SPAN_BYTES = 1024 * 1024;
+    // A drop below this share of the median before it, held for CLIFF_POINTS points, is a cliff
+    static final double CLIFF_RATIO = 0.5;
+    static final int CLIFF_POINTS = 4;
+    // Points before a candidate cliff its median is taken over
+    private static final int BASELINE_POINTS = 16;
+    // A cliff to below this share of the earlier rate means the flash itself is suspect
+    static final double DEGRADED_RATIO = 0.1;
+    private static final int MAGIC = 0x4E575454; // "NWTT"
+    private static final int VERSION = 1;
+
+    public static class Point {
+        // Pass-relative offset the point starts at
+        public long offset;
+        public long bytes;
+        public long nanos;
+        public long latencyMicros;
+        public int chunks;
+
+        public double getBytesPerSec() {
+            return nanos > 0 ? bytes * 1e9 / nanos : 0;
+        }
+
+        void merge(Point next) {
+            long totalChunks = (long) chunks + next.chunks;
+            if (totalChunks > 0) latencyMicros = (latencyMicros * chunks + next.latencyMicros * next.chunks) / totalChunks;
+            chunks = (int) Math.min(Integer.MAX_VALUE, totalChunks);
+            offset = Math.min(offset, next.offset);
+            bytes += next.bytes;
+            nanos += next.nanos;
+        }
+    }
+
+    /**
+     * Where throughput fell and stayed down.
+     */
+    public static class Cliff {
+        public final long offset;
+        public final double beforeBytesPerSec;
+        public final double afterBytesPerSec;
+
+        Cliff(long offset, double beforeBytesPerSec, double afterBytesPerSec) {
+            this.offset = offset;
+            this.beforeBytesPerSec = beforeBytesPerSec;
+            this.afterBytesPerSec = afterBytesPerSec;
+        }
+
+        public boolean isDegraded() {
+            return afterBytesPerSec < beforeBytesPerSec * DEGRADED_RATIO;
+        }
+    }
+
+    public static class Series {
+        // Directory the pass wrote to
+        public final String volume;
+        public final int pass;
+        public final boolean zeros;
+        public final List<Point> points = new ArrayList<>();
+        public long spanBytes = INITIAL_SPAN_BYTES;
+        // Point being filled and when it started: where the previous one ended, so the points
+        // cover the pass's wall time without gaps
+        private Point open;
+        private long openedNanos;
+        private long closedNanos;
+        // Offset of sequential writes (folder files) that have no offset of their own
+        private long appendOffset;
+
+        Series(String volume, int pass, boolean zeros) {
+            this.volume = volume;
+            this.pass = pass;
+            this.zeros = zeros;
+        }
+
+        void record(long offset, long length, long latencyNanos, long nowNanos) {
+            if (open == null) {
+                open = new Point();
+                open.offset = offset;
+                openedNanos = closedNanos > 0 ? closedNanos : nowNanos - latencyNanos;
+            }
+            open.offset = Math.min(open.offset, offset);
+            open.bytes += length;
+            open.latencyMicros = (open.latencyMicros * open.chunks + latencyNanos / 1000) / (open.chunks + 1);
+            open.chunks++;
+            if (open.bytes >= spanBytes) close(nowNanos);
+        }
+
+        void close(long nowNanos) {
+            if (open == null) return;
+            open.nanos = Math.max(1000, nowNanos - openedNanos);
+            closedNanos = nowNanos;
+            points.add(open);
+            open = null;
+            if (points.size() >= MAX_POINTS) downsample();
+        }
+
+        /**
+         * Merges neighbouring points and doubles the span.
+         */
+        void downsample() {
+            int merged = 0;
+            for (int i = 0; i < points.size(); i += 2) {
+                Point point = points.get(i);
+                if (i + 1 < points.size()) point.merge(points.get(i + 1));
+                points.set(merged++, point);
+            }
+            points.subList(merged, points.size()).clear();
+            spanBytes *= 2;
+        }
+
+        public long getEndOffset() {
+            if (points.isEmpty()) return 0;
+            Point last = points.get(points.size() - 1);
+            return last.offset + last.bytes;
+        }
+
+        public double getMedianBytesPerSec() {
+            return median(0, points.size());
+        }
+
+        /**
+         * Points where throughput dropped below CLIFF_RATIO of the median before it and stayed
+         * there for CLIFF_POINTS points.
+         */
+        public List<Cliff> findCliffs() {
+            List<Cliff> cliffs = new ArrayList<>();
+            int i = CLIFF_POINTS;
+            while (i + CLIFF_POINTS <= points.size()) {
+                double before = median(Math.max(0, i - BASELINE_POINTS), i);
+                boolean held = before > 0;
+                for (int p = i; p < i + CLIFF_POINTS && held; p++) {
+                    held = points.get(p).getBytesPerSec() < before * CLIFF_RATIO;
+                }
+                if (held) {
+                    cliffs.add(new Cliff(points.get(i).offset, before, median(i, i + CLIFF_POINTS)));
+                    // The baseline after a cliff is the new, lower rate
+                    i += BASELINE_POINTS;
+                } else {
+                    i++;
+                }
+            }
+            return cliffs;
+        }
+
+        private double median(int from, int to) {
+            if (to <= from) return 0;
+            double[] rates = new double[to - from];
+            for (int i = from; i < to; i++) rates[i - from] = points.get(i).getBytesPerSec();
+            Arrays.sort(rates);
+            return rates[rates.length / 2];
+        }
+
+        public String describe() {
+            StringBuilder text = new StringBuilder(String.format(Locale.ROOT, "Pass %d%s: median %.1f MB/s over %.1f GB",
+                pass + 1, zeros ? " (blanking)" : "", getMedianBytesPerSec() / (1024 * 1024),
+                getEndOffset() / (1024.0 * 1024 * 1024)));
+            for (Cliff cliff : findCliffs()) {
+                text.append(String.format(Locale.ROOT, ", %s at %.1f GB (%.0f -> %.0f MB/s)",
+                    cliff.isDegraded() ? "collapse" : "cliff", cliff.offset / (1024.0 * 1024 * 1024),
+                    cliff.beforeBytesPerSec / (1024 * 1024), cliff.afterBytesPerSec / (1024 * 1024)));
+            }
+            return text.toString();
+        }
+    }
+
+    private final List<Series> series = new ArrayList<>();
+    private Series current;
+    private final Clock clock;
+
+    public ThroughputTimeline() {
+        this(Clock.SYSTEM);
+    }
+
+    public ThroughputTimeline(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Starts the series of a pass; the previous one is closed.
+     */
+    public synchronized void beginPass(String volume, int pass, boolean zeros) {
+        endPass();
+        current = new Series(volume, pass, zeros);
+        series.add(current);
+    }
+
+    /**
+     * A chunk written at a pass-relative offset, e.g. by a fill lane.
+     */
+    public synchronized void record(long offset, long length, long latencyNanos) {
+        if (current != null) current.record(offset, length, latencyNanos, clock.nanoTime());
+    }
+
+    /**
+     * A chunk written right after the previous one, e.g. by the folder overwrite.
+     */
+    public synchronized void append(long length, long latencyNanos) {
+        if (current == null) return;
+        current.record(current.appendOffset, length, latencyNanos, clock.nanoTime());
+        current.appendOffset += length;
+    }
+
+    public synchronized void endPass() {
+        if (current != null) current.close(clock.nanoTime());
+        current = null;
+    }
+
+    public synchronized List<Series> getSeries() {
+        return new ArrayList<>(series);
+    }
+
+    public synchronized boolean isEmpty() {
+        for (Series s : series) if (!s.points.isEmpty()) return false;
+        return true;
+    }
+
+    public synchronized int countCliffs() {
+        int cliffs = 0;
+        for (Series s : series) cliffs += s.findCliffs().size();
+        return cliffs;
+    }
+
+    public synchronized boolean isDegraded() {
+        for (Series s : series) {
+            for (Cliff cliff : s.findCliffs()) if (cliff.isDegraded()) return true;
+        }
+        return false;
+    }
+
+    public synchronized String describe() {
+        StringBuilder text = new StringBuilder();
+        for (Series s : series) {
+            if (s.points.isEmpty()) continue;
+            if (text.length() > 0) text.append('\n');
+            text.append(s.describe());
+        }
+        return text.toString();
+    }
+
+    /**
+     * Next to the job's report in filesDir.
+     */
+    public static File fileFor(File filesDir, String jobId) {
+        return new File(WipeReport.directory(filesDir), jobId + FILE_SUFFIX);
+    }
+
+    /**
+     * Writes the timeline atomically (temp file + rename).
+     */
+    public void save(File file) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            BufferedOutputStream buffered = new BufferedOutputStream(out);
+            write(buffered);
+            buffered.flush();
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            throw new IOException("Cannot replace " + file);
+        }
+    }
+
+    /**
+     * The timeline in a file, or null if there is none or it is unreadable.
+     */
+    public static ThroughputTimeline load(File file) {
+        if (!file.isFile()) return null;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return read(in);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Per series: volume, pass, blanking flag, span and point count, then per point the offset
+     * delta from the end of the previous point, bytes, µs taken, mean latency in µs and chunk
+     * count, all as varints. A point takes about ten bytes.
+     */
+    synchronized void write(OutputStream out) throws IOException {
+        FlightRecorder.writeVarLong(out, MAGIC);
+        FlightRecorder.writeVarLong(out, VERSION);
+        FlightRecorder.writeVarLong(out, series.size());
+        for (Series s : series) {
+            byte[] volume = (s.volume != null ? s.volume : "").getBytes(StandardCharsets.UTF_8);
+            FlightRecorder.writeVarLong(out, volume.length);
+            out.write(volume);
+            FlightRecorder.writeVarLong(out, s.pass);
+            out.write(s.zeros ? 1 : 0);
+            FlightRecorder.writeVarLong(out, s.spanBytes);
+            FlightRecorder.writeVarLong(out, s.points.size());
+            long end = 0;
+            for (Point point : s.points) {
+                FlightRecorder.writeVarLong(out, FlightRecorder.zigzag(point.offset - end));
+                FlightRecorder.writeVarLong(out, point.bytes);
+                FlightRecorder.writeVarLong(out, point.nanos / 1000);
+                FlightRecorder.writeVarLong(out, point.latencyMicros);
+                FlightRecorder.writeVarLong(out, point.chunks);
+                end = point.offset + point.bytes;
+            }
+        }
+    }
+
+    static ThroughputTimeline read(InputStream in) throws IOException {
+        if (FlightRecorder.readVarLong(in) != MAGIC) throw new IOException("Not a throughput timeline");
+        long version = FlightRecorder.readVarLong(in);
+        if (version != VERSION) throw new IOException("Unsupported timeline version " + version);
+        ThroughputTimeline timeline = new ThroughputTimeline();
+        long count = FlightRecorder.readVarLong(in);
+        for (long i = 0; i < count; i++) {
+            byte[] volume = new byte[(int) FlightRecorder.readVarLong(in)];
+            for (int read = 0; read < volume.length; ) {
+                int n = in.read(volume, read, volume.length - read);
+                if (n < 0) throw new EOFException();
+                read += n;
+            }
+            int pass = (int) FlightRecorder.readVarLong(in);
+            int zeros = in.read();
+            if (zeros < 0) throw new EOFException();
+            Series s = new Series(new String(volume, StandardCharsets.UTF_8), pass, zeros == 1);
+            s.spanBytes = FlightRecorder.readVarLong(in);
+            long points = FlightRecorder.readVarLong(in);
+            long end = 0;
+            for (long p = 0; p < points; p++) {
+                Point point = new Point();
+                point.offset = end + FlightRecorder.unzigzag(FlightRecorder.readVarLong(in));
+                point.bytes = FlightRecorder.readVarLong(in);
+                point.nanos = FlightRecorder.readVarLong(in) * 1000;
+                point.latencyMicros = FlightRecorder.readVarLong(in);
+                point.chunks = (int) FlightRecorder.readVarLong(in);
+                end = point.offset + point.bytes;
+                s.points.add(point);
+            }
+            timeline.series.add(s);
+        }
+        return timeline;
+    }
+}
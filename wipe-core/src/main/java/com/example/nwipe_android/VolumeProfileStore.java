@@ -0,0 +1,232 @@
+package com.example.nwipe_android;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Performance history of each volume, keyed by volume UUID (or mount root) and filesystem type:
+ * per-phase throughput, the highest sustained rate seen, chunk latency and the writer stream
+ * count the controller settled on, and the battery energy per gigabyte of each configuration
+ * (pattern, passes, verify, streams) jobs ran with. The next job on the volume is seeded from it (ETA, stall
+ * deadlines, stream count), and the "completed too quickly" plausibility check compares
+ * against what the volume actually achieved before instead of fixed constants.
+ *
+ * Stored as one small JSON file in filesDir, rewritten atomically after each job.
+ */
+public class VolumeProfileStore {
+    public static final String FILE_NAME = "volume_profiles.json";
+    public static final String MOUNTS_PATH = "/proc/mounts";
+    public static final String UNKNOWN_FILESYSTEM = "unknown";
+    // Weight of the latest job when merging its rates into the profile
+    private static final double JOB_WEIGHT = 0.5;
+    // Peaks decay by this factor per job so a degrading card recalibrates
+    private static final double PEAK_DECAY = 0.9;
+
+    private static final Gson GSON = new Gson();
+
+    public static class Profile {
+        public String key;
+        public int jobs;
+        public long updatedAtMs;
+        // Indexed by ThroughputEstimator phase; 0 when never measured
+        public double[] rateBytesPerSec = new double[ThroughputEstimator.PHASE_NAMES.length];
+        public double[] peakBytesPerSec = new double[ThroughputEstimator.PHASE_NAMES.length];
+        public double chunkLatencyMeanMs;
+        public double chunkLatencyDevMs;
+        public int streams;
+        // Keyed by EnergyMeter.configurationKey; absent in profiles written before energy was metered
+        public Map<String, EnergyCost> energy = new LinkedHashMap<>();
+    }
+
+    /**
+     * Smoothed battery cost of one configuration on the volume.
+     */
+    public static class EnergyCost {
+        public int jobs;
+        public double milliAmpHoursPerGB;
+        public double joulesPerGB;
+        public long updatedAtMs;
+    }
+
+    /**
+     * What one job measured on the volume.
+     */
+    public static class Observation {
+        public final double[] rateBytesPerSec;
+        public final double[] peakBytesPerSec;
+        public final double chunkLatencyMeanMs;
+        public final double chunkLatencyDevMs;
+        public final int streams;
+        // Energy the job spent, or null when the battery was not metered
+        public final EnergyMeter.Summary energy;
+
+        public Observation(double[] rateBytesPerSec, double[] peakBytesPerSec, double chunkLatencyMeanMs,
+                           double chunkLatencyDevMs, int streams) {
+            this(rateBytesPerSec, peakBytesPerSec, chunkLatencyMeanMs, chunkLatencyDevMs, streams, null);
+        }
+
+        public Observation(double[] rateBytesPerSec, double[] peakBytesPerSec, double chunkLatencyMeanMs,
+                           double chunkLatencyDevMs, int streams, EnergyMeter.Summary energy) {
+            this.energy = energy;
+            this.rateBytesPerSec = rateBytesPerSec;
+            this.peakBytesPerSec = peakBytesPerSec;
+            this.chunkLatencyMeanMs = chunkLatencyMeanMs;
+            this.chunkLatencyDevMs = chunkLatencyDevMs;
+            this.streams = streams;
+        }
+    }
+
+    private final File file;
+    private final Map<String, Profile> profiles = new LinkedHashMap<>();
+
+    public VolumeProfileStore(File file) {
+        this.file = file;
+        load();
+    }
+
+    public static File defaultFile(File filesDir) {
+        return new File(filesDir, FILE_NAME);
+    }
+
+    public static String keyFor(String volumeKey, String filesystem) {
+        return (volumeKey != null ? volumeKey : WipeQueue.ALL_VOLUMES) + "|"
+                + (filesystem != null ? filesystem : UNKNOWN_FILESYSTEM);
+    }
+
+    public synchronized Profile get(String key) {
+        return profiles.get(key);
+    }
+
+    /**
+     * Merges a job's measurements into the volume's profile and saves the store.
+     */
+    public synchronized Profile record(String key, Observation observation) throws IOException {
+        Profile profile = profiles.get(key);
+        if (profile == null) {
+            profile = new Profile();
+            profile.key = key;
+            profiles.put(key, profile);
+        }
+        for (int phase = 0; phase < profile.rateBytesPerSec.length; phase++) {
+            double rate = observation.rateBytesPerSec[phase];
+            if (rate > 0) {
+                double old = profile.rateBytesPerSec[phase];
+                profile.rateBytesPerSec[phase] = old > 0 ? old + JOB_WEIGHT * (rate - old) : rate;
+            }
+            profile.peakBytesPerSec[phase] = Math.max(profile.peakBytesPerSec[phase] * PEAK_DECAY,
+                    observation.peakBytesPerSec[phase]);
+        }
+        if (observation.chunkLatencyMeanMs > 0) {
+            profile.chunkLatencyMeanMs = observation.chunkLatencyMeanMs;
+            profile.chunkLatencyDevMs = observation.chunkLatencyDevMs;
+        }
+        if (observation.streams > 0) profile.streams = observation.streams;
+        if (observation.energy != null && observation.energy.isKnown() && observation.energy.configuration != null) {
+            if (profile.energy == null) profile.energy = new LinkedHashMap<>();
+            EnergyCost cost = profile.energy.get(observation.energy.configuration);
+            if (cost == null) {
+                cost = new EnergyCost();
+                profile.energy.put(observation.energy.configuration, cost);
+            }
+            double mah = observation.energy.total.getMilliAmpHoursPerGB();
+            double joules = observation.energy.total.getJoulesPerGB();
+            cost.milliAmpHoursPerGB = cost.jobs > 0 ? cost.milliAmpHoursPerGB + JOB_WEIGHT * (mah - cost.milliAmpHoursPerGB) : mah;
+            cost.joulesPerGB = cost.jobs > 0 ? cost.joulesPerGB + JOB_WEIGHT * (joules - cost.joulesPerGB) : joules;
+            cost.jobs++;
+            cost.updatedAtMs = System.currentTimeMillis();
+        }
+        profile.jobs++;
+        profile.updatedAtMs = System.currentTimeMillis();
+        save();
+        return profile;
+    }
+
+    /**
+     * Highest write rate that is still plausible for real writes to the volume: a margin above
+     * the best it ever sustained, or {@code fallbackBytesPerSec} without history.
+     */
+    public static double plausibleWriteBytesPerSec(Profile profile, double fallbackBytesPerSec) {
+        if (profile == null) return fallbackBytesPerSec;
+        double peak = Math.max(profile.peakBytesPerSec[ThroughputEstimator.RANDOM_WRITE],
+                profile.peakBytesPerSec[ThroughputEstimator.ZERO_WRITE]);
+        return peak > 0 ? peak * 2 : fallbackBytesPerSec;
+    }
+
+    /**
+     * Filesystem type of the mount owning {@code path}, from /proc/mounts.
+     */
+    public static String filesystemOf(String path) {
+        if (path == null) return UNKNOWN_FILESYSTEM;
+        StringBuilder text = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(MOUNTS_PATH), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) text.append(line).append('\n');
+        } catch (IOException | SecurityException e) {
+            return UNKNOWN_FILESYSTEM;
+        }
+        return filesystemOf(path, text.toString());
+    }
+
+    /**
+     * Parses mount table lines ("device mountpoint type options dump pass", spaces in paths
+     * escaped as \040) and returns the type of the deepest mount containing the path.
+     */
+    static String filesystemOf(String path, String mounts) {
+        MountPointTrie<String> trie = new MountPointTrie<>();
+        for (String line : mounts.split("\n")) {
+            String[] fields = line.trim().split("\\s+");
+            if (fields.length < 3) continue;
+            // Later mounts over the same point win, as in the kernel
+            trie.put(unescape(fields[1]), fields[2]);
+        }
+        MountPointTrie.Match<String> match = trie.resolve(path);
+        return match != null ? match.value : UNKNOWN_FILESYSTEM;
+    }
+
+    private static String unescape(String field) {
+        return field.replace("\\040", " ").replace("\\011", "\t").replace("\\134", "\\");
+    }
+
+    private void load() {
+        if (!file.isFile()) return;
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            Map<String, Profile> loaded = GSON.fromJson(reader, new TypeToken<LinkedHashMap<String, Profile>>() {}.getType());
+            if (loaded == null) return;
+            for (Map.Entry<String, Profile> entry : loaded.entrySet()) {
+                Profile profile = entry.getValue();
+                if (profile == null || profile.rateBytesPerSec == null || profile.peakBytesPerSec == null
+                        || profile.rateBytesPerSec.length != ThroughputEstimator.PHASE_NAMES.length
+                        || profile.peakBytesPerSec.length != ThroughputEstimator.PHASE_NAMES.length) continue;
+                profiles.put(entry.getKey(), profile);
+            }
+        } catch (IOException | JsonParseException e) {
+            profiles.clear();
+        }
+    }
+
+    private void save() throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(GSON.toJson(profiles).getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            throw new IOException("Cannot replace " + file);
+        }
+    }
+}
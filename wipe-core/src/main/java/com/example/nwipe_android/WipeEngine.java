@@ -0,0 +1,2021 @@
+package com.example.nwipe_android;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Core wiping backend that performs multi-pass overwrites on available storage locations.
+ * Runs synchronously; supply a CancelToken and Callback (or a ProgressBus with several sinks)
+ * to observe progress and stop safely. Byte counters live in a WipeProgress and are published
+ * through the bus at a bounded rate, not per chunk.
+ *
+ * The engine has no Android dependencies: volumes, logging and time come from a
+ * StorageProvider, an EngineLog and a Clock, so it runs in a plain JVM against temporary
+ * directories. The app binds them to the platform through AndroidWipeEngine.
+ */
+public class WipeEngine {
+
+    public interface Callback extends ProgressBus.Sink {
+        void onMessage(String message);
+    }
+
+    /**
+     * Cancel and pause signal shared with the service. Workers poll it at chunk boundaries and
+     * park there while paused, keeping their files and offsets. A cancelled worker still blocked
+     * in I/O after CANCEL_GRACE_MS is interrupted, which closes its (interruptible) FileChannel.
+     */
+    public static class CancelToken {
+        public static final long CANCEL_GRACE_MS = 1000;
+
+        private volatile boolean cancelled = false;
+        private volatile boolean paused = false;
+        private volatile long cancelRequestedAtNanos;
+        private volatile long cancelLatencyMs = -1;
+        private final java.util.Set<Thread> workers = new java.util.HashSet<>();
+        private volatile EngineLog log = EngineLog.CONSOLE;
+        private volatile Clock clock = Clock.SYSTEM;
+
+        public void cancel() {
+            synchronized (this) {
+                if (cancelled) return;
+                cancelRequestedAtNanos = clock.nanoTime();
+                cancelled = true;
+                notifyAll();
+            }
+            Thread deadline = new Thread(() -> {
+                try {
+                    Thread.sleep(CANCEL_GRACE_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                interruptWorkers();
+            }, "WipeCancelDeadline");
+            deadline.setDaemon(true);
+            deadline.start();
+        }
+
+        public boolean isCancelled() { return cancelled; }
+
+        public synchronized void pause() {
+            if (!cancelled) paused = true;
+        }
+
+        public synchronized void resume() {
+            paused = false;
+            notifyAll();
+        }
+
+        public boolean isPaused() { return paused; }
+
+        /**
+         * Parks the calling worker while paused. Returns false if the job is (or gets) cancelled.
+         */
+        public boolean awaitIfPaused() {
+            if (paused) {
+                synchronized (this) {
+                    while (paused && !cancelled) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            break;
+                        }
+                    }
+                }
+            }
+            return !cancelled;
+        }
+
+        /**
+         * Milliseconds between cancel() and the engine returning, or -1 if not cancelled.
+         */
+        public long getCancelLatencyMs() { return cancelLatencyMs; }
+
+        void setLog(EngineLog log) {
+            this.log = log;
+        }
+
+        void setClock(Clock clock) {
+            this.clock = clock;
+        }
+
+        synchronized void register(Thread worker) {
+            workers.add(worker);
+        }
+
+        synchronized void unregister(Thread worker) {
+            workers.remove(worker);
+        }
+
+        private synchronized void interruptWorkers() {
+            for (Thread worker : workers) {
+                log.w(TAG, "Cancel not observed within " + CANCEL_GRACE_MS + " ms; interrupting " + worker.getName());
+                worker.interrupt();
+            }
+        }
+
+        void onStopped() {
+            if (cancelled && cancelLatencyMs < 0) {
+                cancelLatencyMs = (clock.nanoTime() - cancelRequestedAtNanos) / 1_000_000L;
+            }
+        }
+    }
+
+    private static final int WIPE_BUFFER_SIZE = 1024 * 1024; // 1MB for efficient wiping
+    private static final String TAG = "SecureWipe";
+    private static final String WIPE_FILES_PREFIX = "nwipe-android-";
+    // fsync the fill file and journal the offset this often while writing
+    private static final long CHECKPOINT_BYTES = 64L * 1024 * 1024;
+    // Upper bound of parallel writer streams per wipe file; the ConcurrencyController picks how many run
+    private static final int MAX_WRITE_STREAMS = 4;
+    // How often a stream parked by the controller checks whether it may run again
+    private static final long IDLE_STREAM_POLL_MS = 100;
+    // Write rate considered implausible for a volume without a profile
+    private static final double DEFAULT_PLAUSIBLE_WRITE_BYTES_PER_SEC = 500.0 * 1024 * 1024;
+    // Fill files currently being written by any engine in this process; concurrent jobs on
+    // other volumes must not clean them up or delete them as "existing data"
+    private static final java.util.Set<String> ACTIVE_WIPE_FILES =
+            java.util.Collections.newSetFromMap(new java.util.concurrent.ConcurrentHashMap<String, Boolean>());
+
+    private final StorageProvider storage;
+    private EngineLog log = EngineLog.CONSOLE;
+    private final Clock clock;
+    private final ProgressBus progressBus;
+    private final CancelToken cancelToken;
+    // Canonical root of the targeted storage location, resolved once per job
+    private String targetRoot;
+    private WipeProgress progress;
+    private WipeJournal journal;
+    // State of an interrupted run being resumed; consumed by the pass it belongs to
+    private WipeJournal.Recovery recovery;
+    private ThrottleGovernor governor;
+    private ThroughputEstimator estimator;
+    // History of the target volume from earlier jobs, if any
+    private VolumeProfileStore.Profile profile;
+    // Stream count the last fill's controller ended with
+    private volatile int settledStreams = 0;
+    private volatile boolean implausiblyFast = false;
+    private volatile ThrottleGovernor.Decision lastDecision;
+    // Controller of the free-space fill in progress, if any
+    private volatile ConcurrencyController concurrency;
+    // Watches the chunk in flight on every lane for I/O that stopped making progress
+    private volatile StallWatchdog watchdog;
+    // Fill in progress, whose lanes a hard stall abandons
+    private volatile FillState activeFill;
+    // A hard stall in a single-stream phase (verify, folder files): the job stops and fails
+    private volatile boolean stalledOut = false;
+    private final WipeReport report = new WipeReport();
+    // Policy of a time-boxed job (WipeJob.deadlineAtMs), else null
+    private volatile DeadlinePolicy deadline;
+    // Latency of every scan, chunk write, fsync, verify read, compare and delete of the job
+    private final PhaseTimings timings;
+    // Per-file and per-chunk events, in place of a log line each; dumped when the job fails
+    private final FlightRecorder recorder;
+    // Bytes written by the engine against what reached the process's block I/O and the device
+    private IoAccounting io;
+    // Throughput by offset of every pass's writes
+    private final ThroughputTimeline timeline;
+    // Battery energy of each phase, per gigabyte written and verified
+    private EnergyMeter energy;
+    // Bytes read back and compared by the verify phases
+    private final java.util.concurrent.atomic.AtomicLong verifiedBytes = new java.util.concurrent.atomic.AtomicLong();
+    // Chunk buffers, leased per file and per writer stream
+    private BufferPool buffers = BufferPool.shared();
+    // I/O pressure for each fill's ConcurrencyController; null leaves it on chunk latency alone
+    private PsiReader psiReader = new PsiReader();
+    // Prefilled pattern of the last fixed-pattern pass, reused while the pattern repeats
+    private PatternBuffer lastPattern;
+
+    /**
+     * Shared state of the writer streams filling one wipe file.
+     */
+    private static class FillState {
+        volatile long total;
+        // Chunk each stream is writing, -1 when idle
+        final long[] inFlight;
+        // Streams given up on after a hard stall; their chunks go back to the others
+        final boolean[] abandoned;
+        final java.util.ArrayDeque<Long> retry = new java.util.ArrayDeque<>();
+        final Object checkpointLock = new Object();
+        long nextChunk;
+        long lastCheckpoint;
+        volatile boolean stop = false;
+        private IOException failure;
+
+        FillState(long total, int streams, long written) {
+            this.total = total;
+            this.inFlight = new long[streams];
+            this.abandoned = new boolean[streams];
+            Arrays.fill(this.inFlight, -1);
+            this.nextChunk = written / WIPE_BUFFER_SIZE;
+            this.lastCheckpoint = written;
+        }
+
+        synchronized long claim(int lane) {
+            if (abandoned[lane]) return -1;
+            Long again = retry.poll();
+            long chunk = again != null ? again : nextChunk;
+            if (again == null) {
+                if (chunk * WIPE_BUFFER_SIZE >= total) return -1;
+                nextChunk++;
+            }
+            inFlight[lane] = chunk;
+            return chunk;
+        }
+
+        /**
+         * Marks the lane's chunk written; false if the lane was abandoned meanwhile, in which
+         * case another stream owns the chunk and the caller must not count it.
+         */
+        synchronized boolean release(int lane) {
+            if (abandoned[lane]) return false;
+            inFlight[lane] = -1;
+            return true;
+        }
+
+        /**
+         * Gives up on a stalled stream: its chunk is handed to the next stream that claims one.
+         * Fails the fill once no stream is left. False if the lane was already abandoned.
+         */
+        synchronized boolean abandon(int lane, String reason) {
+            if (abandoned[lane]) return false;
+            abandoned[lane] = true;
+            if (inFlight[lane] >= 0) retry.add(inFlight[lane]);
+            inFlight[lane] = -1;
+            if (liveStreams() == 0) fail(new IOException("I/O stalled on every writer stream: " + reason));
+            return true;
+        }
+
+        synchronized boolean isAbandoned(int lane) {
+            return abandoned[lane];
+        }
+
+        /**
+         * True once every chunk has been claimed; a parked stream then has nothing left to wait for.
+         */
+        synchronized boolean isExhausted() {
+            return retry.isEmpty() && nextChunk * WIPE_BUFFER_SIZE >= total;
+        }
+
+        /**
+         * Position of the lane among the streams still alive; the controller's count applies to these.
+         */
+        synchronized int activeRank(int lane) {
+            int rank = 0;
+            for (int i = 0; i < lane; i++) {
+                if (!abandoned[i]) rank++;
+            }
+            return rank;
+        }
+
+        synchronized int liveStreams() {
+            int live = 0;
+            for (boolean gone : abandoned) {
+                if (!gone) live++;
+            }
+            return live;
+        }
+
+        /**
+         * Length of the file prefix every stream has finished writing (later chunks may be done too).
+         */
+        synchronized long contiguousBytes() {
+            long low = nextChunk;
+            for (long chunk : inFlight) {
+                if (chunk >= 0 && chunk < low) low = chunk;
+            }
+            for (long chunk : retry) {
+                if (chunk < low) low = chunk;
+            }
+            return Math.min(total, low * WIPE_BUFFER_SIZE);
+        }
+
+        synchronized void fail(IOException e) {
+            if (failure == null) failure = e;
+            stop = true;
+        }
+
+        /**
+         * Ends the fill after the chunks already claimed (a deadline arrived); false if nothing
+         * was left to cut.
+         */
+        synchronized boolean truncate() {
+            long end = Math.min(total, nextChunk * WIPE_BUFFER_SIZE);
+            if (end >= total) return false;
+            total = end;
+            return true;
+        }
+
+        synchronized IOException getFailure() {
+            return failure;
+        }
+    }
+
+    public WipeEngine(StorageProvider storage, Callback callback, CancelToken cancelToken) {
+        this(storage, new ProgressBus().addSink(callback), cancelToken);
+    }
+
+    public WipeEngine(StorageProvider storage, ProgressBus progressBus, CancelToken cancelToken) {
+        this(storage, progressBus, cancelToken, Clock.SYSTEM);
+    }
+
+    /**
+     * Every timestamp of the job, including those of the bus, journal and cancel token it is
+     * given, comes from {@code clock}.
+     */
+    public WipeEngine(StorageProvider storage, ProgressBus progressBus, CancelToken cancelToken, Clock clock) {
+        this.storage = storage;
+        this.progressBus = progressBus;
+        this.cancelToken = cancelToken;
+        this.clock = clock;
+        this.report.createdAtMs = clock.currentTimeMillis();
+        this.timings = new PhaseTimings(clock);
+        this.recorder = new FlightRecorder(clock);
+        this.timeline = new ThroughputTimeline(clock);
+        this.io = new IoAccounting(new IoAccounting.FileSource(), clock);
+        this.energy = new EnergyMeter(EnergyMeter.NO_BATTERY, this::getCurrentPhase, EnergyMeter.DEFAULT_POLL_MS, clock);
+        progressBus.setClock(clock);
+        cancelToken.setLog(log);
+        cancelToken.setClock(clock);
+    }
+
+    public WipeEngine setLog(EngineLog log) {
+        this.log = log;
+        cancelToken.setLog(log);
+        return this;
+    }
+
+    /**
+     * Records progress to the given journal; if it was reopened after an interruption, the job
+     * resumes from its last checkpoint.
+     */
+    public WipeEngine setJournal(WipeJournal journal) {
+        this.journal = journal;
+        if (journal != null) journal.setClock(clock);
+        return this;
+    }
+
+    /**
+     * Paces writes by the governor's duty cycle and pauses (e.g. thermal or battery floor).
+     * Without one the engine runs flat out.
+     */
+    public WipeEngine setGovernor(ThrottleGovernor governor) {
+        this.governor = governor;
+        return this;
+    }
+
+    /**
+     * Rates to estimate the remaining time from, e.g. shared by the jobs on one volume. Without
+     * one the job starts with no history.
+     */
+    public WipeEngine setEstimator(ThroughputEstimator estimator) {
+        this.estimator = estimator;
+        return this;
+    }
+
+    /**
+     * History of the target volume: seeds the stall deadline and writer stream count, and
+     * calibrates the "completed too quickly" check.
+     */
+    public WipeEngine setProfile(VolumeProfileStore.Profile profile) {
+        this.profile = profile;
+        return this;
+    }
+
+    /**
+     * What this job measured, for the volume's profile; null when nothing was measured or the
+     * run looked implausibly fast (it must not raise the bar for the next check).
+     */
+    public VolumeProfileStore.Observation getObservation() {
+        if (progress == null || implausiblyFast) return null;
+        ThroughputEstimator rates = progress.getEstimator();
+        double[] measured = rates.getPeakRates();
+        boolean any = false;
+        for (double rate : measured) any |= rate > 0;
+        if (!any) return null;
+        return new VolumeProfileStore.Observation(rates.getRates(), measured,
+                watchdog.getLatencyMeanMs(), watchdog.getLatencyDeviationMs(), settledStreams, report.energy);
+    }
+
+    /**
+     * Warnings and metrics gathered while the job ran (I/O stalls); complete once execute returns.
+     */
+    public WipeReport getReport() {
+        return report;
+    }
+
+    /**
+     * Per-phase latency histograms of the job, live while it runs.
+     */
+    public PhaseTimings getTimings() {
+        return timings;
+    }
+
+    /**
+     * Bytes the job has written so far, over every pass.
+     */
+    public long getWrittenBytes() {
+        return io.getWrittenBytes();
+    }
+
+    /**
+     * Bytes the job has read back and verified so far.
+     */
+    public long getVerifiedBytes() {
+        return verifiedBytes.get();
+    }
+
+    /**
+     * Soft and hard I/O stalls of the job so far.
+     */
+    public int[] getStallCounts() {
+        StallWatchdog current = watchdog;
+        return current != null ? new int[]{current.getSoftStalls(), current.getHardStalls()} : new int[2];
+    }
+
+    public WipeEngine setIoSource(IoAccounting.Source source) {
+        this.io = new IoAccounting(source, clock);
+        return this;
+    }
+
+    public WipeEngine setEnergySource(EnergyMeter.Source source) {
+        this.energy = new EnergyMeter(source, this::getCurrentPhase, EnergyMeter.DEFAULT_POLL_MS, clock);
+        return this;
+    }
+
+    public WipeEngine setBufferPool(BufferPool buffers) {
+        this.buffers = buffers;
+        return this;
+    }
+
+    public WipeEngine setPsiReader(PsiReader psiReader) {
+        this.psiReader = psiReader;
+        return this;
+    }
+
+    /**
+     * Throughput by offset of the job's passes; complete once execute returns.
+     */
+    public ThroughputTimeline getTimeline() {
+        return timeline;
+    }
+
+    /**
+     * The job's most recent events; the service dumps them when the job fails or on request.
+     */
+    public FlightRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Dry run: resolves the job's targets, walks the folder manifest or the free-space budget
+     * (including what the deletion phase would free) and prices the passes with the measured
+     * rates of the volume. Writes, deletes and journals nothing, so it is safe before Start.
+     */
+    public WipePlan plan(WipeJob job) {
+        WipePlan plan = new WipePlan();
+        if (job.hasSelectedFolders()) {
+            plan.mode = WipePlan.MODE_FOLDERS;
+            java.util.Set<String> fillDirs = new java.util.HashSet<>();
+            for (String path : job.targetFolders) {
+                if (path == null) continue;
+                File root = new File(path);
+                if (!root.exists() || !root.canWrite()) {
+                    plan.warnings.add("Skipping inaccessible folder: " + path);
+                    continue;
+                }
+                long[] manifest = new long[2];
+                countFiles(root, root, false, manifest);
+                plan.targets.add(new WipePlan.Target(root.getAbsolutePath(), root.getName(), manifest[0], manifest[1]));
+                plan.files += manifest[0];
+                plan.bytesPerPass += manifest[1];
+                // Mirrors createJunkFilesInDirectory; a parent shared by several roots fills once
+                File parent = root.getParentFile() != null ? root.getParentFile() : root;
+                long free = parent.getFreeSpace();
+                if (parent.canWrite() && free > 0 && fillDirs.add(parent.getAbsolutePath())) {
+                    plan.fillBytes += Math.max(0, Math.min(free - (1024 * 1024), free * 95 / 100));
+                }
+            }
+            if (plan.targets.isEmpty()) plan.warnings.add("No accessible selected folders");
+            else if (plan.bytesPerPass == 0) plan.warnings.add("No data found to wipe in selected folders");
+            // Files are overwritten one at a time and synced after each
+            plan.lanes = 1;
+            plan.maxLanes = 1;
+        } else {
+            targetRoot = resolveTargetRoot(job);
+            StorageInfo storageInfo = storage.getStorageInfo(true);
+            if (!storageInfo.isValid()) {
+                plan.warnings.add("Cannot access storage: " + storageInfo.errorMessage);
+            } else if (!storageInfo.hasPermissions) {
+                plan.warnings.add("Storage permissions not granted");
+            }
+            boolean deleting = job.deleteExistingFirst && !job.deletionCompleted;
+            if (storageInfo.locations != null) {
+                for (StorageLocation location : storageInfo.locations) {
+                    if (!location.isUsable() || !isTargetLocation(job, location)) continue;
+                    File dir = location.directory;
+                    long[] manifest = new long[2];
+                    if (deleting && dir != null && dir.exists() && dir.canWrite()) countFiles(dir, dir, true, manifest);
+                    plan.deleteFiles += manifest[0];
+                    plan.deleteBytes += manifest[1];
+                    // Deletion covers every matching location, the passes only the first
+                    if (plan.targets.isEmpty()) {
+                        plan.targets.add(new WipePlan.Target(location.canonicalPath, location.displayName,
+                            manifest[0], location.availableBytes + manifest[1]));
+                    }
+                }
+            }
+            if (plan.targets.isEmpty()) plan.warnings.add("No usable storage location matches the target");
+            plan.bytesPerPass = storageInfo.availableBytes + plan.deleteBytes;
+            plan.lanes = profile != null && profile.streams > 0 ? Math.min(profile.streams, MAX_WRITE_STREAMS) : 1;
+            plan.maxLanes = lastDecision != null ? Math.min(lastDecision.lanes, MAX_WRITE_STREAMS) : MAX_WRITE_STREAMS;
+            plan.syncIntervalBytes = CHECKPOINT_BYTES;
+        }
+
+        ThroughputEstimator rates = estimator;
+        if (rates == null) {
+            rates = new ThroughputEstimator();
+            if (profile != null) {
+                for (int phase = 0; phase < profile.rateBytesPerSec.length; phase++) {
+                    rates.seed(phase, profile.rateBytesPerSec[phase]);
+                }
+            }
+        }
+        WipeJob priced = job;
+        if (job.deadlineAtMs > 0) {
+            priced = WipeJournal.Spec.of(job).toJob();
+            priced.passes_completed = job.passes_completed;
+            plan.deadlineChoice = new DeadlinePolicy(job).choiceFor(job, plan.bytesPerPass,
+                !job.hasSelectedFolders(), rates, clock.currentTimeMillis());
+            DeadlinePolicy.apply(plan.deadlineChoice, priced);
+        }
+        plan.cost(priced, rates);
+        log.i(TAG, "Plan: " + plan.summary());
+        return plan;
+    }
+
+    /**
+     * Adds the files under {@code file} and their bytes to {@code manifest}; with
+     * {@code asDeletion} it skips what deleteRecursively would keep.
+     */
+    private void countFiles(File root, File file, boolean asDeletion, long[] manifest) {
+        if (cancelToken.isCancelled()) return;
+        if (asDeletion && (isEngineStateFile(file) || isActiveWipeFile(file))) return;
+        try {
+            if (file.isDirectory()) {
+                File[] children = file.listFiles();
+                if (children == null) return;
+                for (File child : children) countFiles(root, child, asDeletion, manifest);
+            } else if (!file.equals(root) || !asDeletion) {
+                manifest[0]++;
+                manifest[1] += file.length();
+            }
+        } catch (SecurityException ignored) {
+        }
+    }
+
+    public WipeJob execute(WipeJob job) {
+        Thread worker = Thread.currentThread();
+        cancelToken.register(worker);
+        watchdog = new StallWatchdog(MAX_WRITE_STREAMS, event -> onStall(job, event), StallWatchdog.DEFAULT_POLL_MS, clock);
+        if (profile != null) watchdog.seed(profile.chunkLatencyMeanMs, profile.chunkLatencyDevMs);
+        watchdog.start();
+        energy.start();
+        try {
+            return run(job);
+        } finally {
+            releasePattern();
+            watchdog.stop();
+            energy.stop();
+            recordStalls(job);
+            recordDeadline();
+            recordIoAccounting();
+            recordTimeline();
+            recordEnergy(job);
+            recordScheme(job);
+            report.latency = timings.summarize();
+            log.i(TAG, "Latency by phase:\n" + PhaseTimings.describe(report.latency));
+            recorder.record(FlightRecorder.JOB_END, job.passes_completed, job.failed() ? 1 : 0);
+            log.i(TAG, "Flight recorder: " + recorder.summary());
+            cancelToken.unregister(worker);
+            // A deadline interrupt that raced with the end of the job must not leak to the caller
+            Thread.interrupted();
+            cancelToken.onStopped();
+            if (cancelToken.getCancelLatencyMs() >= 0) {
+                log.i(TAG, "Cancel took effect after " + cancelToken.getCancelLatencyMs() + " ms");
+            }
+        }
+    }
+
+    private WipeJob run(WipeJob job) {
+        long wipeStartTime = clock.currentTimeMillis();
+        progress = new WipeProgress(job, estimator != null ? estimator : new ThroughputEstimator(), clock);
+        progress.setEnergyMeter(energy);
+        log.i(TAG, "=== STARTING SECURE WIPE OPERATION ===");
+        
+        if (job.targetPath != null || job.hasSelectedFolders()) {
+            log.i(TAG, "Targeted wipe mode: " + (job.targetName != null ? job.targetName : job.targetPath));
+        }
+        recovery = journal != null ? journal.getRecovery() : null;
+        if (recovery != null) {
+            job.passes_completed = recovery.passesCompleted;
+            job.deletionCompleted = job.deletionCompleted || recovery.deletionCompleted;
+            log.i(TAG, "Resuming interrupted wipe: " + recovery.passesCompleted + " passes done"
+                + (recovery.pass >= 0 ? ", pass " + (recovery.pass + 1) + " at " + recovery.phase + " offset " + recovery.offset : ""));
+        }
+        // Passes resumed from the journal were not written by this run
+        int passesAtStart = job.passes_completed;
+        recorder.record(FlightRecorder.JOB_START, job.number_passes, passesAtStart);
+        // Created before anything lowers the job's passes: the request is the policy's ceiling
+        deadline = job.deadlineAtMs > 0 ? new DeadlinePolicy(job) : null;
+        targetRoot = resolveTargetRoot(job);
+        cleanupWipeFiles(job);
+
+    // Optional pre-wipe deletion of existing content (skip when wiping specific folders)
+    if (!job.hasSelectedFolders() && job.deleteExistingFirst && !job.deletionCompleted && !cancelToken.isCancelled()) {
+            try {
+        log.i(TAG, "Pre-wipe deletion phase started" + (job.targetPath != null ? (" for target '" + (job.targetName != null ? job.targetName : job.targetPath) + "'") : ""));
+        deleteExistingData(job);
+                job.deletionCompleted = true;
+                if (journal != null) journal.deletionCompleted();
+                log.i(TAG, "Pre-wipe deletion phase completed");
+            } catch (Exception e) {
+                log.w(TAG, "Deletion phase encountered an error: " + e.getMessage());
+            }
+        }
+
+        // Folder-targeted mode: overwrite only selected folders
+        if (job.hasSelectedFolders()) {
+            try {
+                executeFolderWipe(job);
+            } catch (Exception e) {
+                job.errorMessage = "Error in folder wipe: " + e.getMessage();
+                log.e(TAG, job.errorMessage);
+            }
+            progress.syncToJob();
+            return job;
+        }
+
+        while (!job.isCompleted()) {
+            if (deadline != null) {
+                applyDeadline(job, storage.getStorageInfo(true).availableBytes, true);
+                if (job.isCompleted()) break;
+            }
+            int pass = job.passes_completed;
+            boolean zeros = job.isBlankingPass();
+            try {
+                log.i(TAG, "Executing pass " + (job.passes_completed + 1) + (job.isBlankingPass() ? " (blanking)" : "")
+                    + ": " + WipeScheme.passFor(job, pass).describe());
+                recorder.record(FlightRecorder.PASS_START, pass, WipeScheme.isFixed(job, pass) ? 1 : 0);
+                executeWipePass(job);
+                if (job.passes_completed > pass) recorder.record(FlightRecorder.PASS_END, pass, job.totalBytes);
+                if (deadline != null && job.passes_completed > pass) {
+                    deadline.passCompleted(pass, zeros, job.fillCoverage, job.verify ? job.verifySampleRate : 0);
+                }
+            } catch (Exception e) {
+                cleanupWipeFiles(job);
+                job.errorMessage = "Unknown error while wiping: " + e;
+                publish();
+                break;
+            }
+            cleanupWipeFiles(job);
+            publish();
+
+            if (job.failed() || cancelToken.isCancelled()) {
+                if (cancelToken.isCancelled()) {
+                log.i(TAG, "Wipe cancelled by user");
+            }
+                break;
+            }
+        }
+        
+        progress.syncToJob();
+
+        // Security validation: Check total operation time
+        long totalElapsedMs = clock.currentTimeMillis() - wipeStartTime;
+        double totalMB = job.totalBytes / (1024.0 * 1024.0);
+        double avgMBPerSec = totalElapsedMs > 0 ? (totalMB * 1000.0 / totalElapsedMs) : 0;
+        
+        log.i(TAG, String.format("=== WIPE OPERATION COMPLETE ==="));
+        log.i(TAG, String.format("Total: %.1f MB wiped in %.1f seconds (%.1f MB/s average)", 
+            totalMB, totalElapsedMs / 1000.0, avgMBPerSec));
+            
+        // Security warning for suspiciously fast completion. With history for the volume, the
+        // passes written in this run must not beat its best sustained rate by a wide margin;
+        // without, fall back to "> 100MB in < 5 seconds"
+        int passesRun = Math.max(0, job.passes_completed - passesAtStart);
+        double jobBytesPerSec = totalElapsedMs > 0 ? job.totalBytes * (double) passesRun * 1000.0 / totalElapsedMs : 0;
+        boolean tooFast;
+        if (profile != null && profile.jobs > 0) {
+            double plausible = VolumeProfileStore.plausibleWriteBytesPerSec(profile, DEFAULT_PLAUSIBLE_WRITE_BYTES_PER_SEC);
+            tooFast = totalMB > 100 && jobBytesPerSec > plausible;
+            log.i(TAG, String.format("Job rate %.1f MB/s, plausible for this volume up to %.1f MB/s (%d earlier jobs)",
+                jobBytesPerSec / (1024 * 1024), plausible / (1024 * 1024), profile.jobs));
+        } else {
+            tooFast = totalMB > 100 && totalElapsedMs < 5000;
+        }
+        if (tooFast) {
+            implausiblyFast = true;
+            log.w(TAG, "⚠️ SECURITY WARNING: Wipe completed suspiciously quickly!");
+            log.w(TAG, "⚠️ This may indicate insufficient data was actually overwritten!");
+            job.errorMessage = "WARNING: Wipe may not be secure - completed too quickly";
+        }
+        
+        return job;
+    }
+
+    private void executeFolderWipe(WipeJob job) throws Exception {
+        java.util.List<File> roots = new java.util.ArrayList<>();
+        for (String path : job.targetFolders) {
+            if (path == null) continue;
+            File f = new File(path);
+            if (f.exists() && f.canWrite()) roots.add(f);
+            else log.w(TAG, "Skipping inaccessible folder: " + path);
+        }
+        if (roots.isEmpty()) {
+            job.errorMessage = "No accessible selected folders";
+            return;
+        }
+
+        // Compute total bytes across all files in selected folders
+        long total = 0;
+        log.i(TAG, "Scanning selected folders for files to wipe:");
+        for (File root : roots) {
+            long folderSize = folderBytes(root);
+            total += folderSize;
+            log.i(TAG, String.format("  📁 %s: %.1f MB (%d bytes)", 
+                root.getAbsolutePath(), folderSize / (1024.0 * 1024.0), folderSize));
+        }
+        
+        progress.beginPhase(total);
+        
+        log.i(TAG, String.format("Total data to wipe: %.1f MB across %d folders", 
+            total / (1024.0 * 1024.0), roots.size()));
+            
+        int passesTotal = job.blank ? job.number_passes + 1 : job.number_passes;
+        if (total == 0 && job.passes_completed < passesTotal) {
+            log.w(TAG, "⚠️ No files found to wipe in selected folders!");
+            job.errorMessage = "No data found to wipe in selected folders";
+            return;
+        }
+        
+        publish();
+
+        SecureRandom secureRandom = new SecureRandom();
+        log.i(TAG, "Starting folder wipe: " + passesTotal + " passes over " + roots.size() + " folders");
+        
+        while (job.passes_completed < passesTotal) {
+            if (stopping()) break;
+            if (deadline != null) {
+                applyDeadline(job, total, false);
+                passesTotal = job.blank ? job.number_passes + 1 : job.number_passes;
+                if (job.passes_completed >= passesTotal) break;
+            }
+            int passIndex = job.passes_completed;
+            boolean isBlanking = (job.blank && passIndex == job.number_passes);
+            PatternBuffer fixed = fixedPatternFor(job, passIndex);
+            log.i(TAG, "=== FOLDER WIPE PASS " + (passIndex + 1) + "/" + passesTotal + (isBlanking ? " (BLANKING)" : "")
+                + " (" + WipeScheme.passFor(job, passIndex).describe() + ") ===");
+            recorder.record(FlightRecorder.PASS_START, passIndex, fixed != null ? 1 : 0);
+            long overwrittenBefore = recorder.getCount(FlightRecorder.FILE_OVERWRITE);
+            long errorsBefore = recorder.getCount(FlightRecorder.FILE_ERROR);
+            long fastBefore = recorder.getCount(FlightRecorder.FAST_WRITE);
+
+            // Resume with the interrupted pass's seed, skipping files it already finished
+            WipeJournal.Recovery resumed = takeRecovery(passIndex);
+            long seed = resumed != null ? resumed.seed : secureRandom.nextLong();
+            java.util.Set<String> written = resumed != null ? resumed.writtenFiles : new java.util.HashSet<>();
+            java.util.Set<String> verified = resumed != null ? resumed.verifiedFiles : new java.util.HashSet<>();
+            if (resumed == null && journal != null) journal.passStarted(passIndex, seed, null);
+
+            progress.resetWiped();
+            publish();
+            io.beginPass(passIndex, roots.get(0));
+            timeline.beginPass(roots.get(0).getPath(), passIndex, fixed != null);
+            for (File root : roots) {
+                if (stopping()) break;
+                log.i(TAG, "Overwriting files in: " + root.getAbsolutePath());
+                overwriteFolder(job, root, seed, fixed, written);
+            }
+            timeline.endPass();
+            logIoPass(io.endPass());
+
+            // A time-boxed job verifies folders in full or not at all
+            if (job.verify && deadline != null && deadline.verifySampleRate(1.0, total,
+                    progress.getEstimator(), clock.currentTimeMillis()) < 1.0) {
+                job.verify = false;
+                log.i(TAG, "Skipping verification of pass " + (passIndex + 1) + " to meet the deadline");
+            }
+            if (job.verify && !stopping()) {
+                releasePattern();
+                progress.resetWiped();
+                progress.setVerifying(true);
+                publish();
+                for (File root : roots) {
+                    if (stopping()) break;
+                    verifyFolder(job, root, seed, fixed, verified);
+                }
+                progress.setVerifying(false);
+            }
+            if (stopping()) break;
+
+            progress.completePass();
+            recorder.record(FlightRecorder.PASS_END, passIndex, total);
+            logFolderPass(passIndex, recorder.getCount(FlightRecorder.FILE_OVERWRITE) - overwrittenBefore,
+                recorder.getCount(FlightRecorder.FILE_ERROR) - errorsBefore,
+                recorder.getCount(FlightRecorder.FAST_WRITE) - fastBefore);
+            if (journal != null) journal.passCompleted(passIndex);
+            if (deadline != null) deadline.passCompleted(passIndex, isBlanking, 1.0, job.verify ? 1.0 : 0);
+            publish();
+        }
+
+        // After all passes, create junk files to fill remaining space in each selected folder's parent
+        releasePattern();
+        if (deadline != null && deadline.remainingMs(clock.currentTimeMillis()) <= 0) {
+            log.i(TAG, "Deadline reached; skipping the junk fill of the folders' free space");
+        } else if (!stopping()) {
+            log.i(TAG, "Creating junk files to fill remaining space in selected folders...");
+            for (File root : roots) {
+                if (stopping()) break;
+                try {
+                    createJunkFilesInDirectory(job, root.getParentFile() != null ? root.getParentFile() : root);
+                } catch (Exception e) {
+                    log.w(TAG, "Failed to create junk files in " + root.getAbsolutePath() + ": " + e.getMessage());
+                }
+            }
+        }
+
+        // After all passes, delete selected files and junk files (best effort)
+        for (File root : roots) {
+            if (stopping()) break;
+            deleteRecursively(root, root);
+        }
+        
+        // Clean up any junk files we created
+        cleanupWipeFiles(job);
+    }
+
+    private long folderBytes(File root) {
+        long sum = 0;
+        try {
+            if (root.isFile()) return root.length();
+            long scanStart = clock.nanoTime();
+            File[] list = root.listFiles();
+            timings.since(PhaseTimings.SCAN, scanStart);
+            if (list == null) return 0;
+            for (File f : list) {
+                if (stopping()) break;
+                sum += folderBytes(f);
+            }
+        } catch (Exception ignored) {}
+        return sum;
+    }
+
+    private void overwriteFolder(WipeJob job, File root, long seed, PatternBuffer fixed, java.util.Set<String> done) {
+        if (stopping()) return;
+        try {
+            if (root.isFile()) {
+                overwriteFileOnce(job, root, seed, fixed, done);
+                return;
+            }
+            long scanStart = clock.nanoTime();
+            File[] list = root.listFiles();
+            timings.since(PhaseTimings.SCAN, scanStart);
+            if (list == null) return;
+            recorder.record(FlightRecorder.DIR_SCAN, list.length, (clock.nanoTime() - scanStart) / 1000, root.getPath());
+            for (File f : list) {
+                if (stopping()) break;
+                if (f.isDirectory()) {
+                    overwriteFolder(job, f, seed, fixed, done);
+                } else {
+                    overwriteFileOnce(job, f, seed, fixed, done);
+                }
+            }
+        } catch (Exception e) {
+            log.w(TAG, "Overwrite folder error on " + root.getAbsolutePath() + ": " + e.getMessage());
+        }
+    }
+
+    private void verifyFolder(WipeJob job, File root, long seed, PatternBuffer fixed, java.util.Set<String> done) {
+        if (stopping()) return;
+        try {
+            if (root.isFile()) {
+                verifyFileOnce(job, root, seed, fixed, done);
+                return;
+            }
+            long scanStart = clock.nanoTime();
+            File[] list = root.listFiles();
+            timings.since(PhaseTimings.SCAN, scanStart);
+            if (list == null) return;
+            recorder.record(FlightRecorder.DIR_SCAN, list.length, (clock.nanoTime() - scanStart) / 1000, root.getPath());
+            for (File f : list) {
+                if (stopping()) break;
+                if (f.isDirectory()) {
+                    verifyFolder(job, f, seed, fixed, done);
+                } else {
+                    verifyFileOnce(job, f, seed, fixed, done);
+                }
+            }
+        } catch (Exception e) {
+            log.w(TAG, "Verify folder error on " + root.getAbsolutePath() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Overwrites a file unless the journal shows this pass already finished it, then records it.
+     */
+    private void overwriteFileOnce(WipeJob job, File file, long seed, PatternBuffer fixed, java.util.Set<String> done) throws IOException {
+        String path = file.getAbsolutePath();
+        if (done.contains(path)) {
+            progress.add(0, file.length());
+            return;
+        }
+        if (overwriteFile(job, file, seed, fixed) && journal != null) {
+            journal.fileDone(job.passes_completed, WipeJournal.PHASE_WRITE, path);
+        }
+    }
+
+    private void verifyFileOnce(WipeJob job, File file, long seed, PatternBuffer fixed, java.util.Set<String> done) throws IOException {
+        String path = file.getAbsolutePath();
+        if (done.contains(path)) {
+            progress.add(0, file.length());
+            return;
+        }
+        if (verifyFile(job, file, seed, fixed) && journal != null) {
+            journal.fileDone(job.passes_completed, WipeJournal.PHASE_VERIFY, path);
+        }
+    }
+
+    /**
+     * Returns true when the whole file was overwritten and synced.
+     */
+    private boolean overwriteFile(WipeJob job, File file, long seed, PatternBuffer fixed) {
+        if (!file.canWrite()) return false;
+        
+        long fileSize = file.length();
+        if (fileSize == 0) return true; // Skip empty files
+        
+        long startTime = clock.currentTimeMillis();
+        long startNanos = clock.nanoTime();
+        
+        ChunkPattern pattern = new ChunkPattern(seed);
+        long remaining = fileSize;
+        long bytesWritten = 0;
+        
+        // FileChannel I/O is interruptible, so a cancel deadline can unblock a stuck write
+        // A fixed-pattern pass writes from the prefilled pattern and needs no buffer of its own
+        try (BufferPool.Lease lease = fixed == null ? buffers.acquire(WIPE_BUFFER_SIZE) : null;
+             FileChannel channel = new java.io.FileOutputStream(file, false).getChannel()) {
+            ByteBuffer[] views = fixed != null ? fixed.views() : null;
+            long busyNanos = 0;
+            while (remaining > 0) {
+                if (!cancelToken.awaitIfPaused() || !pace(busyNanos)) return false;
+                long chunkStart = clock.nanoTime();
+                
+                int toWrite = (int) Math.min(WIPE_BUFFER_SIZE, remaining);
+                ByteBuffer buffer;
+                if (fixed != null) {
+                    buffer = fixed.viewAt(views, bytesWritten);
+                } else {
+                    buffer = lease.buffer();
+                    pattern.fill(buffer, toWrite, bytesWritten / WIPE_BUFFER_SIZE);
+                }
+                
+                watchedWrite(channel, buffer, toWrite);
+                
+                remaining -= toWrite;
+                bytesWritten += toWrite;
+                progress.add(0, toWrite);
+                progressBus.offer(progress);
+                busyNanos = clock.nanoTime() - chunkStart;
+            }
+            
+            // Force sync to disk (CRITICAL for secure wiping)
+            try {
+                timedForce(channel, true);
+            } catch (java.nio.channels.ClosedByInterruptException e) {
+                throw e;
+            } catch (IOException e) {
+                log.w(TAG, "Failed to sync file to disk: " + e.getMessage());
+            }
+            io.countFile(file, bytesWritten);
+            
+            long elapsedMs = clock.currentTimeMillis() - startTime;
+            double mbWritten = bytesWritten / (1024.0 * 1024.0);
+            double mbPerSec = elapsedMs > 0 ? (mbWritten * 1000.0 / elapsedMs) : 0;
+            recorder.record(FlightRecorder.FILE_OVERWRITE, bytesWritten, (clock.nanoTime() - startNanos) / 1000, file.getPath());
+                
+            // Security validation: Ensure reasonable write speed (not too fast = fake), against
+            // the volume's best sustained rate when it has a profile; counted in the pass summary
+            double plausibleMBps = VolumeProfileStore.plausibleWriteBytesPerSec(profile, DEFAULT_PLAUSIBLE_WRITE_BYTES_PER_SEC) / (1024.0 * 1024.0);
+            if (mbWritten > 1.0 && mbPerSec > plausibleMBps) {
+                recorder.record(FlightRecorder.FAST_WRITE, bytesWritten, (long) (mbPerSec * 1024 * 1024), file.getPath());
+            }
+            return true;
+        } catch (IOException e) {
+            if (stopping()) return clearStallInterrupt(false);
+            recorder.record(FlightRecorder.FILE_ERROR, bytesWritten, 0, file.getPath() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Returns true when the whole file matched the pass pattern.
+     */
+    private boolean verifyFile(WipeJob job, File file, long seed, PatternBuffer fixed) {
+        if (!file.canRead()) return false;
+        ChunkPattern pattern = new ChunkPattern(seed);
+        long remaining = file.length();
+        long chunkIndex = 0;
+        long startNanos = clock.nanoTime();
+        BufferPool.Lease[] leases = null;
+        try (FileChannel channel = new java.io.FileInputStream(file).getChannel()) {
+            // Both buffers at once, so a concurrent job cannot hold the other one
+            leases = buffers.acquireAll(WIPE_BUFFER_SIZE, fixed == null ? 2 : 1);
+            ByteBuffer actual = leases[0].buffer();
+            ByteBuffer expected = fixed == null ? leases[1].buffer() : null;
+            long busyNanos = 0;
+            while (remaining > 0) {
+                if (!cancelToken.awaitIfPaused() || !pace(busyNanos)) return false;
+                long chunkStart = clock.nanoTime();
+                int toRead = (int) Math.min(WIPE_BUFFER_SIZE, remaining);
+                long offset = chunkIndex++ * WIPE_BUFFER_SIZE;
+                if (fixed == null) pattern.fill(expected, toRead, offset / WIPE_BUFFER_SIZE);
+                if (!watchedRead(channel, actual, toRead)) return false; // short read
+                if (!chunkMatches(fixed, expected, actual, toRead, offset)) {
+                    job.errorMessage = "Verification mismatch for file: " + file.getAbsolutePath();
+                    recorder.record(FlightRecorder.FILE_ERROR, file.length() - remaining, 1, file.getPath());
+                    log.e(TAG, job.errorMessage);
+                    return false;
+                }
+                remaining -= toRead;
+                progress.add(0, toRead);
+                progressBus.offer(progress);
+                busyNanos = clock.nanoTime() - chunkStart;
+            }
+            recorder.record(FlightRecorder.FILE_VERIFY, file.length(), (clock.nanoTime() - startNanos) / 1000, file.getPath());
+            return true;
+        } catch (IOException e) {
+            if (stopping()) return clearStallInterrupt(false);
+            recorder.record(FlightRecorder.FILE_ERROR, file.length() - remaining, 1, file.getPath() + ": " + e.getMessage());
+            return false;
+        } finally {
+            BufferPool.closeAll(leases);
+        }
+    }
+
+    private void createJunkFilesInDirectory(WipeJob job, File directory) throws Exception {
+        if (!directory.canWrite()) return;
+        
+        // Get available space in this directory
+        long freeSpace = storage.getFreeSpace(directory);
+        if (freeSpace <= 0) return;
+        
+        log.i(TAG, "Creating junk files to fill " + (freeSpace / (1024 * 1024)) + " MB in " + directory.getAbsolutePath());
+        
+        SecureRandom secureRandom = new SecureRandom();
+        String wipeFileName = String.format("%s%d_folder_junk", WIPE_FILES_PREFIX, clock.currentTimeMillis());
+        File junkFile = new File(directory, wipeFileName);
+        
+        try (BufferPool.Lease lease = buffers.acquire(WIPE_BUFFER_SIZE);
+             FileChannel channel = new java.io.FileOutputStream(junkFile).getChannel()) {
+            Random rnd = new Random();
+            rnd.setSeed(secureRandom.nextInt());
+            ByteBuffer buffer = lease.buffer();
+            if (job.isBlankingPass()) BufferPool.zero(buffer, WIPE_BUFFER_SIZE);
+            
+            long written = 0;
+            long targetSize = Math.min(freeSpace - (1024 * 1024), freeSpace * 95 / 100); // Leave some space
+            
+            while (written < targetSize && cancelToken.awaitIfPaused()) {
+                int toWrite = (int) Math.min(WIPE_BUFFER_SIZE, targetSize - written);
+                
+                if (!job.isBlankingPass()) ChunkPattern.nextBytes(rnd, buffer, toWrite);
+                
+                writeFully(channel, buffer, toWrite);
+                written += toWrite;
+                
+                // Junk bytes are extra work beyond the counted file overwrites; just keep observers fresh
+                progressBus.offer(progress);
+            }
+            
+            log.i(TAG, "Created junk file: " + junkFile.getAbsolutePath() + " (" + (written / (1024 * 1024)) + " MB)");
+        } catch (IOException e) {
+            log.w(TAG, "Failed to create junk file in " + directory.getAbsolutePath() + ": " + e.getMessage());
+            // Try to clean up partial file
+            try {
+                if (junkFile.exists()) junkFile.delete();
+            } catch (Exception ignored) {}
+        }
+    }
+
+    private void deleteExistingData(WipeJob job) {
+        try {
+            StorageInfo storageInfo = storage.getStorageInfo(false);
+            if (storageInfo.locations == null) return;
+
+            for (StorageLocation location : storageInfo.locations) {
+                if (cancelToken.isCancelled()) return;
+                if (!location.isUsable()) continue;
+                File dir = location.directory;
+                if (dir == null || !dir.exists() || !dir.canWrite()) continue;
+
+                // If a specific target is set, skip other locations
+                if (!isTargetLocation(job, location)) continue;
+
+                log.i(TAG, "Deleting existing content on: " + location.displayName + " (" + dir.getAbsolutePath() + ")");
+                long deletedBefore = recorder.getCount(FlightRecorder.FILE_DELETE);
+                long failedBefore = recorder.getCount(FlightRecorder.DELETE_FAILED);
+                // Skip protected roots when on external shared storage (Android/)
+                deleteRecursively(dir, dir);
+                log.i(TAG, "Deleted " + (recorder.getCount(FlightRecorder.FILE_DELETE) - deletedBefore) + " files and folders on "
+                    + location.displayName + ", " + (recorder.getCount(FlightRecorder.DELETE_FAILED) - failedBefore) + " could not be deleted");
+            }
+        } catch (Exception e) {
+            log.w(TAG, "Error during deletion: " + e.getMessage());
+        }
+    }
+
+    private void deleteRecursively(File root, File file) {
+        if (cancelToken.isCancelled()) return;
+        if (isEngineStateFile(file) || isActiveWipeFile(file)) return;
+        try {
+            // Include Android directory as requested; deletion may still be limited by platform
+
+            boolean directory = file.isDirectory();
+            if (directory) {
+                long scanStart = clock.nanoTime();
+                File[] children = file.listFiles();
+                timings.since(PhaseTimings.SCAN, scanStart);
+                recorder.record(FlightRecorder.DIR_SCAN, children != null ? children.length : -1,
+                    (clock.nanoTime() - scanStart) / 1000, file.getPath());
+                if (children != null) {
+                    for (File child : children) {
+                        deleteRecursively(root, child);
+                        if (cancelToken.isCancelled()) return;
+                    }
+                }
+            }
+
+            // Don’t delete the root directory itself, only its contents
+            if (!file.equals(root)) {
+                long deleteStart = clock.nanoTime();
+                boolean ok = file.delete();
+                timings.since(PhaseTimings.DELETE, deleteStart);
+                if (ok) {
+                    recorder.record(FlightRecorder.FILE_DELETE, (clock.nanoTime() - deleteStart) / 1000, directory ? 1 : 0, file.getPath());
+                } else if (file.exists()) {
+                    recorder.record(FlightRecorder.DELETE_FAILED, FlightRecorder.REFUSED, directory ? 1 : 0, file.getPath());
+                }
+            }
+        } catch (SecurityException se) {
+            recorder.record(FlightRecorder.DELETE_FAILED, FlightRecorder.NO_PERMISSION, 0, file.getPath());
+        } catch (Exception e) {
+            recorder.record(FlightRecorder.DELETE_FAILED, FlightRecorder.ERROR, 0, file.getPath() + ": " + e.getMessage());
+        }
+    }
+
+    private void executeWipePass(WipeJob job) throws Exception {
+        // Volumes come from the cached topology; only the free space is re-read for this pass
+        StorageInfo storageInfo = storage.getStorageInfo(true);
+        if (!storageInfo.isValid()) {
+            job.errorMessage = "Cannot access storage: " + storageInfo.errorMessage;
+        log.e(TAG, job.errorMessage);
+            return;
+        }
+        if (!storageInfo.hasPermissions) {
+            job.errorMessage = "Storage permissions not granted. Cannot proceed with wiping.";
+        log.e(TAG, job.errorMessage);
+            return;
+        }
+
+        long budget = storageInfo.availableBytes;
+        if (job.fillCoverage < 1.0) {
+            budget = (long) (budget * job.fillCoverage);
+            budget -= budget % WIPE_BUFFER_SIZE;
+            log.i(TAG, String.format("Filling %.0f%% of the free space to meet the deadline", job.fillCoverage * 100));
+        }
+        progress.beginPhase(budget);
+        publish();
+
+        boolean wipedAny = false;
+        String lastError = "";
+
+        if (job.targetPath != null) {
+            log.i(TAG, "Restricting wipe to target path: " + job.targetPath);
+        }
+
+        for (StorageLocation location : storageInfo.locations) {
+            if (cancelToken.isCancelled()) break;
+            if (location.isUsable()) {
+                // Restrict to target when provided
+                if (!isTargetLocation(job, location)) {
+                    log.d(TAG, "Skipping non-target: " + location.displayName + " (" + location.directory.getAbsolutePath() + ")");
+                    continue;
+                }
+                try {
+            log.i(TAG, "Wiping location: " + location.displayName + " (" + location.directory.getAbsolutePath() + ")");
+                    wipeLocation(job, location);
+                    wipedAny = true;
+                    break; // one location is sufficient per pass
+                } catch (Exception e) {
+                    lastError = e.getMessage();
+            log.w(TAG, "Failed to wipe location " + location.displayName + ": " + e.getMessage());
+                }
+            }
+        }
+
+        if (!wipedAny) {
+            job.errorMessage = "Failed to wipe any storage location. Last error: " + lastError;
+        log.e(TAG, job.errorMessage);
+        }
+    }
+
+    private void wipeLocation(WipeJob job, StorageLocation location) throws Exception {
+        int pass = job.passes_completed;
+        File wipeFile;
+        long randomSeed;
+        long written = 0;
+        long verifyFrom = -1; // >= 0 when resuming straight into verification
+
+        WipeJournal.Recovery resumed = takeRecovery(pass);
+        if (resumed != null && resumed.wipeFilePath != null && new File(resumed.wipeFilePath).isFile()) {
+            wipeFile = new File(resumed.wipeFilePath);
+            randomSeed = resumed.seed;
+            // Only chunk-aligned data up to the last checkpoint is known to be durable
+            long durable = Math.min(resumed.offset, wipeFile.length());
+            durable -= durable % WIPE_BUFFER_SIZE;
+            if (WipeJournal.PHASE_VERIFY.equals(resumed.phase)) {
+                verifyFrom = durable;
+            } else {
+                written = durable;
+                try (java.io.RandomAccessFile raf = new java.io.RandomAccessFile(wipeFile, "rw")) {
+                    raf.setLength(written);
+                }
+            }
+            log.i(TAG, "Resuming wipe file " + wipeFile.getAbsolutePath() + " (" + resumed.phase + " at "
+                + ((verifyFrom >= 0 ? verifyFrom : written) / (1024 * 1024)) + " MB)");
+        } else {
+            String wipeFileName = String.format("%s%d_%s", WIPE_FILES_PREFIX, clock.currentTimeMillis(),
+                    location.type.name().toLowerCase());
+            wipeFile = new File(location.directory, wipeFileName);
+            randomSeed = new SecureRandom().nextLong();
+            if (journal != null) journal.passStarted(pass, randomSeed, wipeFile.getAbsolutePath());
+    log.i(TAG, "Creating wipe file: " + wipeFile.getAbsolutePath());
+        }
+        ChunkPattern pattern = new ChunkPattern(randomSeed);
+        String activePath = wipeFile.getAbsolutePath();
+        ACTIVE_WIPE_FILES.add(activePath);
+        try {
+            fillAndVerify(job, pass, wipeFile, pattern, written, verifyFrom);
+        } finally {
+            ACTIVE_WIPE_FILES.remove(activePath);
+        }
+    }
+
+    private void fillAndVerify(WipeJob job, int pass, File wipeFile, ChunkPattern pattern,
+                               long written, long verifyFrom) throws Exception {
+        PatternBuffer fixed = fixedPatternFor(job, pass);
+        if (verifyFrom < 0) {
+            if (written > 0) {
+                // Free space was measured with the resumed file already on disk
+                progress.setTotalBytes(written + progress.getTotalBytes());
+                progress.add(0, written);
+            }
+            io.beginPass(pass, wipeFile.getParentFile());
+            timeline.beginPass(wipeFile.getParent(), pass, fixed != null);
+            long filled = fillWipeFile(job, pass, wipeFile, pattern.getSeed(), fixed, written);
+            timeline.endPass();
+            if (filled < 0) return;
+            // The fill ends with an fsync, so the device has seen the pass's writes
+            io.countFile(wipeFile, wipeFile.length());
+            logIoPass(io.endPass());
+            verifyFrom = 0;
+        } else {
+            progress.setTotalBytes(wipeFile.length());
+        }
+
+        progress.resetWiped();
+
+        long fileBytes = progress.getTotalBytes();
+        if (deadline != null && job.verify) {
+            job.verifySampleRate = deadline.verifySampleRate(job.verifySampleRate, fileBytes,
+                progress.getEstimator(), clock.currentTimeMillis());
+            job.verify = job.verifySampleRate > 0;
+            if (!job.verify) log.i(TAG, "Skipping verification of pass " + (pass + 1) + " to meet the deadline");
+        }
+        if (!job.verify) {
+            progress.completePass();
+            if (journal != null) journal.passCompleted(pass);
+            safeDelete(wipeFile);
+            return;
+        }
+
+    // A sampled verification reads only the selected chunks; progress counts those
+    double sampleRate = job.verifySampleRate;
+    if (sampleRate < 1.0) {
+        progress.setTotalBytes(DeadlinePolicy.sampledBytes(0, fileBytes, WIPE_BUFFER_SIZE, pattern.getSeed(), sampleRate));
+    }
+    progress.setVerifying(true);
+    progress.add(0, DeadlinePolicy.sampledBytes(0, verifyFrom, WIPE_BUFFER_SIZE, pattern.getSeed(), sampleRate));
+    if (journal != null) journal.checkpoint(pass, WipeJournal.PHASE_VERIFY, verifyFrom);
+    publish();
+    log.i(TAG, sampleRate < 1.0 ? String.format("Verifying %.0f%% of the pass data", sampleRate * 100) : "Verifying pass data");
+        releasePattern();
+        BufferPool.Lease[] leases = null;
+        try (FileChannel channel = new java.io.FileInputStream(wipeFile).getChannel()) {
+            // Both buffers at once, so a concurrent job cannot hold the other one
+            leases = buffers.acquireAll(WIPE_BUFFER_SIZE, fixed == null ? 2 : 1);
+            ByteBuffer actual = leases[0].buffer();
+            ByteBuffer expected = fixed == null ? leases[1].buffer() : null;
+            long total = fileBytes;
+            long verified = verifyFrom;
+            long lastCheckpoint = verified;
+            long busyNanos = 0;
+            channel.position(verified);
+
+            while (verified < total) {
+                if (cancelToken.isPaused() && journal != null && verified > lastCheckpoint) {
+                    journal.checkpoint(pass, WipeJournal.PHASE_VERIFY, verified);
+                    lastCheckpoint = verified;
+                }
+                if (!DeadlinePolicy.isSampled(verified / WIPE_BUFFER_SIZE, pattern.getSeed(), sampleRate)) {
+                    verified = Math.min(total, verified + WIPE_BUFFER_SIZE);
+                    channel.position(verified);
+                    continue;
+                }
+                if (!cancelToken.awaitIfPaused() || !pace(busyNanos)) return;
+                long chunkStart = clock.nanoTime();
+
+                int toRead = (int)Math.min(WIPE_BUFFER_SIZE, total - verified);
+                if (fixed == null) pattern.fill(expected, toRead, verified / WIPE_BUFFER_SIZE);
+
+                if (!watchedRead(channel, actual, toRead)) {
+                    job.errorMessage = "Error while verifying wipe file: short read";
+                    return;
+                }
+
+                if (!chunkMatches(fixed, expected, actual, toRead, verified)) {
+                    job.errorMessage = "Error while verifying wipe file: streams are not the same!";
+                    log.e(TAG, job.errorMessage);
+                    return;
+                }
+
+                verified += toRead;
+                progress.add(0, toRead);
+                progressBus.offer(progress);
+                if (journal != null && verified - lastCheckpoint >= CHECKPOINT_BYTES) {
+                    journal.checkpoint(pass, WipeJournal.PHASE_VERIFY, verified);
+                    lastCheckpoint = verified;
+                }
+                busyNanos = clock.nanoTime() - chunkStart;
+            }
+        } catch (IOException e) {
+            if (stopping()) {
+                clearStallInterrupt(false);
+                return;
+            }
+            job.errorMessage = "Error while verifying wipe file: " + e;
+            log.e(TAG, job.errorMessage);
+            return;
+        } finally {
+            BufferPool.closeAll(leases);
+            progress.setVerifying(false);
+        }
+
+        progress.completePass();
+        if (journal != null) journal.passCompleted(pass);
+        safeDelete(wipeFile);
+        log.i(TAG, "Pass completed. Total passes completed: " + job.passes_completed);
+    }
+
+    /**
+     * Fills the wipe file from {@code written} up to the pass total using up to MAX_WRITE_STREAMS
+     * writer streams. Chunks are claimed in order and written at their own offsets, so the file
+     * content is the same as a sequential fill; a ConcurrencyController (PSI or chunk latency,
+     * AIMD) decides how many streams are active. Each stream has its own channel, so when the
+     * stall watchdog interrupts one stuck in a write only that stream is lost and its chunk is
+     * written by another. Returns the bytes filled, or -1 if the pass must stop (cancelled or
+     * failed).
+     */
+    private long fillWipeFile(WipeJob job, int pass, File wipeFile, long seed, PatternBuffer fixed, long written) {
+        ConcurrencyController controller = new ConcurrencyController(psiReader, MAX_WRITE_STREAMS);
+        if (lastDecision != null) controller.setCeiling(lastDecision.lanes);
+        if (profile != null && profile.streams > 0) controller.seedStreams(profile.streams);
+        FillState state = new FillState(progress.getTotalBytes(), MAX_WRITE_STREAMS, written);
+        concurrency = controller;
+        activeFill = state;
+        // FileChannel I/O is interruptible, so a cancel deadline can unblock a stuck write or sync
+        try (java.io.RandomAccessFile raf = new java.io.RandomAccessFile(wipeFile, "rw");
+             FileChannel channel = raf.getChannel()) {
+            java.util.List<Thread> streams = new java.util.ArrayList<>();
+            for (int lane = 0; lane < MAX_WRITE_STREAMS; lane++) {
+                final int streamLane = lane;
+                Thread stream = new Thread(() -> {
+                    Thread self = Thread.currentThread();
+                    cancelToken.register(self);
+                    if (streamLane > 0) {
+                        try {
+                            // Keep foreground work (the UI) ahead of the extra streams
+                            // Java priority 4 is nice 10 on Android, THREAD_PRIORITY_BACKGROUND
+                            self.setPriority(Thread.NORM_PRIORITY - 1);
+                        } catch (RuntimeException ignored) {}
+                    }
+                    try {
+                        fillLane(streamLane, state, wipeFile, job, pass, seed, fixed, controller);
+                    } finally {
+                        cancelToken.unregister(self);
+                    }
+                }, "WipeWriter-" + lane);
+                streams.add(stream);
+                stream.start();
+            }
+            superviseFill(state, streams, channel, pass, controller);
+            if (state.getFailure() == null && !cancelToken.isCancelled()) timedForce(channel, false);
+        } catch (IOException e) {
+            state.fail(e);
+        } finally {
+            settledStreams = controller.getStreams();
+            concurrency = null;
+            activeFill = null;
+        }
+
+        // An interrupt after a cancel surfaces as ClosedByInterruptException in some stream
+        if (cancelToken.isCancelled()) return -1;
+        IOException failure = state.getFailure();
+        if (failure == null && state.total < progress.getTotalBytes()) {
+            // Cut at the deadline: the pass covers what was written
+            job.fillCoverage *= (double) state.total / progress.getTotalBytes();
+            progress.setTotalBytes(state.total);
+            log.i(TAG, String.format("Deadline reached; pass %d filled %.0f%% of the free space", pass + 1, job.fillCoverage * 100));
+        }
+        if (failure == null) return state.total;
+
+        // Treat no space left as success if we reached MIN_PERCENTAGE_COMPLETION
+        long filled = state.contiguousBytes();
+        String msg = failure.toString();
+        if ((msg.contains("ENOSP") || msg.contains("No space") || msg.contains("ENOSPC"))
+                && state.total > 0 && filled * 100 / state.total >= WipeJob.MIN_PERCENTAGE_COMPLETION) {
+            // Streams may have written past the first failed chunk; keep only the contiguous prefix
+            try (java.io.RandomAccessFile raf = new java.io.RandomAccessFile(wipeFile, "rw")) {
+                raf.setLength(filled);
+                raf.getFD().sync();
+            } catch (IOException e) {
+                log.w(TAG, "Could not trim wipe file after running out of space: " + e.getMessage());
+            }
+            progress.setTotalBytes(filled);
+            log.i(TAG, "No space left near end; counting pass as complete at " + (filled * 100 / state.total) + "%");
+            return filled;
+        }
+        job.errorMessage = "Error while wiping: " + failure;
+        log.e(TAG, job.errorMessage);
+        return -1;
+    }
+
+    private void fillLane(int lane, FillState state, File wipeFile, WipeJob job, int pass,
+                          long seed, PatternBuffer fixed, ConcurrencyController controller) {
+        ChunkPattern pattern = new ChunkPattern(seed);
+        long busyNanos = 0;
+        // The first stream waits for a buffer; an extra stream sits the pass out when the pool is
+        // at its cap, stepping aside so the controller's count applies to the streams that run.
+        // Fixed-pattern passes write from the shared prefilled pattern instead.
+        BufferPool.Lease lease = null;
+        if (fixed == null) {
+            try {
+                lease = lane == 0 ? buffers.acquire(WIPE_BUFFER_SIZE) : buffers.tryAcquire(WIPE_BUFFER_SIZE);
+            } catch (java.io.InterruptedIOException e) {
+                state.stop = true;
+                return;
+            }
+            if (lease == null) {
+                log.w(TAG, "Stream " + lane + " has no buffer; " + buffers.describe());
+                state.abandon(lane, "no buffer");
+                return;
+            }
+        }
+        try (BufferPool.Lease held = lease;
+             java.io.RandomAccessFile raf = new java.io.RandomAccessFile(wipeFile, "rw");
+             FileChannel channel = raf.getChannel()) {
+            ByteBuffer[] views = fixed != null ? fixed.views() : null;
+            while (!state.stop) {
+                if (!cancelToken.awaitIfPaused() || !pace(busyNanos)) {
+                    state.stop = true;
+                    return;
+                }
+                if (state.activeRank(lane) >= controller.getStreams()) {
+                    if (state.isAbandoned(lane) || state.isExhausted()) return;
+                    busyNanos = 0;
+                    Thread.sleep(IDLE_STREAM_POLL_MS);
+                    continue;
+                }
+                long chunk = state.claim(lane);
+                if (chunk < 0) return;
+                long chunkStart = clock.nanoTime();
+                long offset = chunk * WIPE_BUFFER_SIZE;
+                int length = (int) Math.min(WIPE_BUFFER_SIZE, state.total - offset);
+
+                ByteBuffer buffer;
+                if (fixed != null) {
+                    buffer = fixed.viewAt(views, offset);
+                } else {
+                    buffer = held.buffer();
+                    pattern.fill(buffer, length, chunk);
+                }
+                watchdog.begin(lane, WipeJournal.PHASE_WRITE);
+                long writeStart = clock.nanoTime();
+                try {
+                    writeFully(channel, buffer, length, offset);
+                } finally {
+                    endChunk(lane);
+                }
+                long writeNanos = clock.nanoTime() - writeStart;
+                timings.record(PhaseTimings.WRITE, writeNanos);
+                timeline.record(offset, length, writeNanos);
+                io.countWritten(length);
+                energy.countBytes(length);
+                // Abandoned while stuck in the write: the chunk was handed to another stream
+                if (!state.release(lane)) return;
+
+                progress.add(lane, length);
+                progressBus.offer(progress);
+                controller.onChunk(clock.nanoTime() - chunkStart);
+                checkpointFill(state, channel, pass, false);
+                // Every ~100MB into the ring; the service logs the percentage
+                if (offset % (100L * 1024L * 1024L) < WIPE_BUFFER_SIZE) {
+                    recorder.record(FlightRecorder.FILL_PROGRESS, offset, state.total);
+                }
+                busyNanos = clock.nanoTime() - chunkStart;
+            }
+        } catch (IOException e) {
+            if (!state.isAbandoned(lane)) state.fail(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (!state.isAbandoned(lane)) state.stop = true;
+        }
+    }
+
+    /**
+     * Syncs the file and journals the contiguous prefix once it has grown by CHECKPOINT_BYTES
+     * (or by anything when {@code always}). One stream syncs while the others keep writing.
+     */
+    private void checkpointFill(FillState state, FileChannel channel, int pass, boolean always) throws IOException {
+        if (journal == null) return;
+        synchronized (state.checkpointLock) {
+            long durable = state.contiguousBytes();
+            if (durable <= state.lastCheckpoint) return;
+            if (!always && durable - state.lastCheckpoint < CHECKPOINT_BYTES) return;
+            timedForce(channel, false);
+            journal.checkpoint(pass, WipeJournal.PHASE_WRITE, durable);
+            state.lastCheckpoint = durable;
+        }
+    }
+
+    /**
+     * Runs on the job thread while the streams fill: steps the concurrency controller and makes
+     * the paused position durable in case the process dies while parked. Returns once every
+     * stream has exited or been abandoned; a stream stuck in the kernel is not waited for.
+     */
+    private void superviseFill(FillState state, java.util.List<Thread> streams, FileChannel channel,
+                               int pass, ConcurrencyController controller) throws IOException {
+        boolean interrupted = false;
+        while (true) {
+            boolean running = false;
+            for (int lane = 0; lane < streams.size(); lane++) {
+                if (streams.get(lane).isAlive() && !state.isAbandoned(lane)) running = true;
+            }
+            if (!running) break;
+            controller.update(clock.currentTimeMillis());
+            if (deadline != null && deadline.remainingMs(clock.currentTimeMillis()) <= 0 && state.truncate()) {
+                log.i(TAG, "Deadline reached; ending the fill after the chunks in flight");
+            }
+            if (cancelToken.isPaused() && !interrupted) checkpointFill(state, channel, pass, true);
+            try {
+                Thread.sleep(IDLE_STREAM_POLL_MS);
+            } catch (InterruptedException e) {
+                // A cancel deadline: pass it on to the streams and keep waiting for them
+                interrupted = true;
+                for (Thread stream : streams) stream.interrupt();
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    private void cleanupWipeFiles(WipeJob job) {
+    try {
+            StorageInfo storageInfo = storage.getStorageInfo(false);
+            if (storageInfo.locations != null) {
+                for (StorageLocation location : storageInfo.locations) {
+                    if (location.directory != null && location.directory.exists()) {
+                        // Limit to target path when applicable
+                        if (job != null && !isTargetLocation(job, location)) continue;
+                        File[] files = location.directory.listFiles();
+                        if (files == null) continue;
+                        for (File f : files) {
+                            if (f.getName().startsWith(WIPE_FILES_PREFIX) && !isResumedWipeFile(f) && !isActiveWipeFile(f)) {
+                                // best-effort delete
+                                long length = f.length();
+                                recorder.record(FlightRecorder.CLEANUP_DELETE, length, f.delete() ? 1 : 0, f.getPath());
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+        log.w(TAG, "Error cleaning wipe files: " + e.getMessage());
+        }
+
+        try {
+            File filesDir = storage.getFilesDir();
+            String[] names = filesDir.list();
+            if (names != null) {
+                for (String name : names) {
+                    if (name.startsWith(WIPE_FILES_PREFIX) && !isActiveWipeFile(new File(filesDir, name))) {
+                        //noinspection ResultOfMethodCallIgnored
+                        new File(filesDir, name).delete();
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.w(TAG, "Error cleaning internal wipe files: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The journal, queue, reports, volume profiles, progress channel and metrics setting live in filesDir, which is itself a wipeable location.
+     */
+    private boolean isEngineStateFile(File file) {
+        File parent = file.getParentFile();
+        if (parent == null || !parent.equals(storage.getFilesDir())) return false;
+        String name = file.getName();
+        return name.equals(WipeJournal.DIR_NAME) || name.equals(ProgressChannel.FILE_NAME)
+            || name.startsWith(WipeQueue.FILE_NAME) || name.equals(WipeReport.DIR_NAME)
+            || name.startsWith(VolumeProfileStore.FILE_NAME) || name.equals(FlightRecorder.DIR_NAME)
+            || name.equals(MetricsHttpServer.PORT_FILE_NAME);
+    }
+
+    private static boolean isActiveWipeFile(File file) {
+        return ACTIVE_WIPE_FILES.contains(file.getAbsolutePath());
+    }
+
+    private boolean isResumedWipeFile(File file) {
+        return recovery != null && recovery.wipeFilePath != null
+            && recovery.wipeFilePath.equals(file.getAbsolutePath());
+    }
+
+    /**
+     * Hands out the interrupted pass's recovered state once, to the pass it belongs to.
+     */
+    private WipeJournal.Recovery takeRecovery(int pass) {
+        WipeJournal.Recovery resumed = recovery;
+        if (resumed == null || resumed.pass != pass) return null;
+        recovery = null;
+        return resumed;
+    }
+
+    private void safeDelete(File file) {
+        try {
+            if (file != null && file.exists()) {
+                String path = file.getAbsolutePath();
+                long deleteStart = clock.nanoTime();
+                boolean ok = file.delete();
+                timings.since(PhaseTimings.DELETE, deleteStart);
+                if (ok) {
+                    log.i(TAG, "Deleted temp wipe file: " + path);
+                } else if (file.exists()) {
+                    log.w(TAG, "Could not delete temp wipe file: " + path);
+                }
+            }
+        } catch (Exception e) {
+            log.w(TAG, "Failed to delete wipe file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Applies the governor before the next chunk: parks while it asks for a pause and idles long
+     * enough after {@code busyNanos} of I/O to honour its duty cycle. False once cancelled.
+     */
+    private boolean pace(long busyNanos) {
+        if (governor == null) return !stopping();
+        ThrottleGovernor.Decision decision = governor.current(clock.currentTimeMillis());
+        ConcurrencyController controller = concurrency;
+        if (controller != null) controller.setCeiling(decision.lanes);
+        if (!decision.sameAs(lastDecision)) {
+            log.i(TAG, "Governor: " + decision.reason + " (lanes=" + decision.lanes + ", duty="
+                + Math.round(decision.dutyCycle * 100) + "%" + (decision.paused ? ", paused" : "") + ")");
+            lastDecision = decision;
+        }
+        try {
+            while (decision.paused && !cancelToken.isCancelled()) {
+                Thread.sleep(ThrottleGovernor.PAUSED_POLL_MS);
+                decision = governor.current(clock.currentTimeMillis());
+            }
+            long idleNanos = decision.idleNanosAfter(busyNanos);
+            if (idleNanos > 0) Thread.sleep(idleNanos / 1_000_000L, (int) (idleNanos % 1_000_000L));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !stopping();
+    }
+
+    private boolean stopping() {
+        return cancelToken.isCancelled() || stalledOut;
+    }
+
+    /**
+     * After a hard stall unblocked this thread, drops the interrupt so the wind-down (journal,
+     * cleanup) can still use interruptible channels. Returns {@code result} for convenience.
+     */
+    private boolean clearStallInterrupt(boolean result) {
+        if (stalledOut) Thread.interrupted();
+        return result;
+    }
+
+    /**
+     * Single-stream chunk I/O on lane 0 under the stall watchdog.
+     */
+    private void watchedWrite(FileChannel channel, ByteBuffer buffer, int length) throws IOException {
+        watchdog.begin(0, WipeJournal.PHASE_WRITE);
+        long start = clock.nanoTime();
+        try {
+            writeFully(channel, buffer, length);
+        } finally {
+            endChunk(0);
+        }
+        long elapsed = clock.nanoTime() - start;
+        timings.record(PhaseTimings.WRITE, elapsed);
+        timeline.append(length, elapsed);
+        io.countWritten(length);
+        energy.countBytes(length);
+    }
+
+    private boolean watchedRead(FileChannel channel, ByteBuffer buffer, int length) throws IOException {
+        watchdog.begin(0, WipeJournal.PHASE_VERIFY);
+        long start = clock.nanoTime();
+        boolean read;
+        try {
+            read = readFully(channel, buffer, length);
+        } finally {
+            endChunk(0);
+            timings.since(PhaseTimings.VERIFY_READ, start);
+        }
+        if (read) {
+            energy.countBytes(length);
+            verifiedBytes.addAndGet(length);
+        }
+        return read;
+    }
+
+    private void timedForce(FileChannel channel, boolean metaData) throws IOException {
+        long start = clock.nanoTime();
+        channel.force(metaData);
+        timings.since(PhaseTimings.FSYNC, start);
+    }
+
+    /**
+     * Compares the first {@code length} bytes of a verified chunk, read from {@code offset}, with
+     * what was written: the fixed pattern when the pass has one, else {@code expected}. Neither
+     * buffer is copied.
+     */
+    private boolean chunkMatches(PatternBuffer fixed, ByteBuffer expected, ByteBuffer actual, int length, long offset) {
+        long start = clock.nanoTime();
+        boolean same = fixed != null ? fixed.matches(actual, length, offset) : BufferPool.sameBytes(expected, actual, length);
+        timings.since(PhaseTimings.COMPARE, start);
+        return same;
+    }
+
+    /**
+     * Ends a lane's chunk for the watchdog and clears the stalled flag once no lane is stalled.
+     */
+    private void endChunk(int lane) {
+        watchdog.end(lane);
+        if (progress.isStalled() && !watchdog.isStalled()) {
+            progress.setStalled(false);
+            progressBus.publish(progress);
+        }
+    }
+
+    /**
+     * Watchdog callback. A soft stall is flagged in progress; a hard stall abandons the lane: a
+     * fill stream is given up and its chunk rewritten by the others, while a single-stream phase
+     * fails the job. The stuck thread is interrupted from a helper thread because closing an
+     * interruptible channel can block until the stuck call returns.
+     */
+    private void onStall(WipeJob job, StallWatchdog.Event event) {
+        log.w(TAG, event.describe());
+        recorder.record(FlightRecorder.STALL, event.lane, event.ageMs, event.hard ? "hard" : "soft");
+        if (!event.hard) {
+            progress.setStalled(true);
+            progressBus.publish(progress);
+            return;
+        }
+        report.addWarning(event.describe());
+        FillState fill = activeFill;
+        if (fill != null) {
+            fill.abandon(event.lane, event.describe());
+        } else {
+            job.errorMessage = "Storage stopped responding: " + event.describe();
+            stalledOut = true;
+        }
+        if (event.thread != null) {
+            Thread interrupter = new Thread(event.thread::interrupt, "WipeStallInterrupt");
+            interrupter.setDaemon(true);
+            interrupter.start();
+        }
+    }
+
+    private void logIoPass(IoAccounting.PassRecord record) {
+        if (record != null) log.i(TAG, record.describe());
+    }
+
+    /**
+     * Write amplification into the report; a device that took in clearly less than the engine
+     * wrote gets a certificate warning.
+     */
+    private void recordIoAccounting() {
+        report.io = io.summarize();
+        log.i(TAG, report.io.describe());
+        if (report.io.isLow()) {
+            report.addWarning(String.format(java.util.Locale.ROOT,
+                "Storage received only %.0f%% of the bytes written (%s); compression, deduplication or a cache may have absorbed part of the wipe",
+                report.io.writeAmplification * 100, report.io.basis));
+        }
+    }
+
+    /**
+     * Cliff count into the report's metrics; a collapse of the write rate gets a certificate
+     * warning, since flash that slow is no longer trustworthy.
+     */
+    private void recordTimeline() {
+        if (timeline.isEmpty()) return;
+        report.putMetric("throughput_cliffs", timeline.countCliffs());
+        log.i(TAG, "Throughput timeline:\n" + timeline.describe());
+        if (timeline.isDegraded()) {
+            report.addWarning("Write throughput collapsed to under "
+                + (int) (ThroughputTimeline.DEGRADED_RATIO * 100) + "% of its earlier rate during a pass; the flash may be failing");
+        }
+    }
+
+    /**
+     * Estimator phase of the running job (see ThroughputEstimator), or -1 before it starts.
+     */
+    public int getCurrentPhase() {
+        WipeProgress current = progress;
+        return current != null ? current.currentPhase() : -1;
+    }
+
+    /**
+     * The prefilled pattern of a fixed-pattern pass, or null for a random pass. Consecutive
+     * passes with the same pattern share one buffer; a random pass hands it back, since it
+     * leases buffers of its own.
+     */
+    private PatternBuffer fixedPatternFor(WipeJob job, int pass) throws InterruptedIOException {
+        WipeScheme.Pass spec = WipeScheme.passFor(job, pass);
+        if (spec.isRandom()) {
+            releasePattern();
+            return null;
+        }
+        PatternBuffer current = lastPattern;
+        if (current == null || !Arrays.equals(current.getPattern(), spec.pattern)) {
+            releasePattern();
+            current = new PatternBuffer(spec.pattern, WIPE_BUFFER_SIZE, buffers);
+            lastPattern = current;
+        }
+        return current;
+    }
+
+    /**
+     * Returns the cached pattern's buffer to the pool: between patterns, before a verify (which
+     * matches against the pattern, not the buffer), and at the end of a job. No lease is held
+     * while waiting for another, so the job fits BufferPool.MIN_CAP_BYTES.
+     */
+    private void releasePattern() {
+        if (lastPattern != null) lastPattern.close();
+        lastPattern = null;
+    }
+
+    /**
+     * The schedule as run into the report, for the certificate's wipe method and standards.
+     */
+    private void recordScheme(WipeJob job) {
+        report.wipeMethod = WipeScheme.describe(job);
+        java.util.List<String> patterns = new java.util.ArrayList<>();
+        for (int pass = 0; pass < job.passes_completed; pass++) patterns.add(WipeScheme.passFor(job, pass).describe());
+        report.passPatterns = patterns;
+        report.complianceStandards = WipeScheme.complianceStandards(job);
+    }
+
+    /**
+     * Energy per phase into the report, tagged with the configuration it was spent under.
+     */
+    private void recordEnergy(WipeJob job) {
+        EnergyMeter.Summary summary = energy.summarize();
+        summary.configuration = EnergyMeter.configurationKey(WipeScheme.of(job).id, job.number_passes,
+            job.blank, job.verify, settledStreams);
+        report.energy = summary;
+        log.i(TAG, summary.describe());
+    }
+
+    /**
+     * One line per folder pass in place of a line per file; the files are in the flight recorder.
+     */
+    private void logFolderPass(int pass, long overwritten, long failed, long fast) {
+        log.i(TAG, "Pass " + (pass + 1) + ": " + overwritten + " files overwritten, " + failed + " failed");
+        if (fast > 0) {
+            log.w(TAG, "⚠️ WARNING: " + fast + " file(s) written faster than the volume plausibly allows - may indicate insufficient wiping!");
+        }
+    }
+
+    /**
+     * Stall counts go into the report's metrics, and soft stalls into one summary warning.
+     */
+    private void recordStalls(WipeJob job) {
+        int soft = watchdog.getSoftStalls();
+        int hard = watchdog.getHardStalls();
+        report.putMetric("stalls_soft", soft);
+        report.putMetric("stalls_hard", hard);
+        report.putMetric("stall_longest_ms", watchdog.getLongestStallMs());
+        if (soft > 0) {
+            report.addWarning(soft + " slow I/O operation(s) exceeded their deadline (longest "
+                + (watchdog.getLongestStallMs() / 1000) + " s); the storage may be failing");
+        }
+        job.stalled = false;
+    }
+
+    /**
+     * Re-picks the policy of a time-boxed job at a pass boundary from the rates measured so far.
+     * Past the deadline the job ends after the passes already done, failing if there are none.
+     */
+    private void applyDeadline(WipeJob job, long bytesPerPass, boolean partial) {
+        long now = clock.currentTimeMillis();
+        DeadlinePolicy.Choice choice = deadline.reevaluate(job, bytesPerPass, partial, progress.getEstimator(), now);
+        log.i(TAG, "Deadline in " + ThroughputEstimator.formatDuration(deadline.remainingMs(now)) + ": "
+            + choice.describe() + (choice.fits ? "" : " (does not fit)"));
+        if (job.passes_completed == 0 && job.isCompleted()) {
+            job.errorMessage = "Deadline reached before any pass completed";
+        }
+    }
+
+    /**
+     * States in the report what a time-boxed job achieved; a warning when it did less than asked.
+     */
+    private void recordDeadline() {
+        if (deadline == null) return;
+        DeadlinePolicy.Outcome outcome = deadline.finish(clock.currentTimeMillis());
+        report.deadline = outcome;
+        if (!outcome.met || !outcome.isFullPolicy()) report.addWarning(outcome.summary());
+        log.i(TAG, outcome.summary());
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, int length) throws IOException {
+        buffer.clear();
+        buffer.limit(length);
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, int length, long position) throws IOException {
+        buffer.clear();
+        buffer.limit(length);
+        while (buffer.hasRemaining()) channel.write(buffer, position + buffer.position());
+    }
+
+    /**
+     * Reads exactly {@code length} bytes into the start of the buffer; false on early EOF.
+     */
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, int length) throws IOException {
+        buffer.clear();
+        buffer.limit(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Forces a progress publication; used on state transitions so observers never miss them.
+     */
+    private void publish() {
+        progress.syncToJob();
+        progressBus.publish(progress);
+    }
+
+    /**
+     * Canonicalizes the job target once and resolves it through the provider's mount trie;
+     * returns the matching location root, or null when the target is not a wipeable root.
+     */
+    private String resolveTargetRoot(WipeJob job) {
+        if (job.targetPath == null) return null;
+        MountPointTrie.Match<StorageLocation> match = storage.resolveLocation(new File(job.targetPath));
+        return match != null && match.isRoot() ? match.root : null;
+    }
+
+    private boolean isTargetLocation(WipeJob job, StorageLocation location) {
+        if (job.targetPath == null) return true;
+        return targetRoot != null && targetRoot.equals(location.canonicalPath);
+    }
+}
\ No newline at end of file
@@ -16,6 +16,13 @@ public class WipeJob {
     public int number_passes;
     public boolean verify;
     public boolean blank;
+    /**
+     * Pass schedule (WipeScheme id or custom spec); null for random passes. Set through
+     * WipeScheme.applyTo, which also sets the pass count.
+     */
+    public String scheme = null;
+    // The parsed scheme (WipeScheme.of), not persisted with the job
+    transient volatile WipeScheme resolvedScheme;
 
     /**
      * Optional pre-wipe deletion phase.
@@ -38,22 +45,43 @@ public class WipeJob {
      */
     public java.util.List<String> targetFolders = new java.util.ArrayList<>();
 
+    /**
+     * Optional: wall-clock time (ms) the job must be done by; 0 for none. The engine then picks
+     * the strongest policy that fits (see DeadlinePolicy) and may lower the fields below.
+     */
+    public long deadlineAtMs = 0;
+    // Share of the chunks each verification reads, and of the free space each pass fills
+    public volatile double verifySampleRate = 1.0;
+    public volatile double fillCoverage = 1.0;
+
     public boolean hasSelectedFolders() {
         return targetFolders != null && !targetFolders.isEmpty();
     }
 
     /**
-     * Completion status.
+     * Completion status. Written by the engine thread and read by observers, hence volatile;
+     * live byte counters are kept in WipeProgress while the job runs.
      */
-    public int passes_completed = 0;
-    public String errorMessage = "";
+    public volatile int passes_completed = 0;
+    public volatile String errorMessage = "";
 
     /**
      * Information on the current pass.
      */
-    public long totalBytes;
-    public long wipedBytes = 0;
-    public boolean verifying = false;
+    public volatile long totalBytes;
+    public volatile long wipedBytes = 0;
+    public volatile boolean verifying = false;
+    // Some I/O has been blocked past its deadline (see StallWatchdog)
+    public volatile boolean stalled = false;
+    // Throughput and remaining time as last published by the engine (UI copy only)
+    public volatile ThroughputEstimator.Estimate estimate = ThroughputEstimator.Estimate.UNKNOWN;
+    // Battery energy spent so far as last published by the engine (UI copy only)
+    public volatile EnergyMeter.Reading energy = EnergyMeter.Reading.UNKNOWN;
+
+    /**
+     * Queue entry id while the job runs in WipeService; names the job's WipeReport.
+     */
+    public String id = null;
 
     public String toString() {
         String completionText = String.format(" (%d%%)", this.getCurrentPassPercentageCompletion());
@@ -0,0 +1,373 @@
+package com.example.nwipe_android;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, crash-safe journal of one wipe job: the job spec, pass starts (with their seed
+ * and wipe file), byte-offset checkpoints for free-space passes, completed files for folder
+ * passes and pass completions. A restarted service replays it to resume from the last
+ * checkpoint instead of starting over.
+ *
+ * Each line is {@code <crc32 hex> <json>}; replay stops at the first line whose checksum does not
+ * match (a torn write at the tail). Appends are fsync'd in batches; pass transitions are synced
+ * immediately.
+ */
+public class WipeJournal implements Closeable {
+    public static final String DIR_NAME = "journal";
+    public static final String PHASE_WRITE = "write";
+    public static final String PHASE_VERIFY = "verify";
+
+    private static final String SUFFIX = ".wj";
+    private static final long SYNC_INTERVAL_MS = 2000;
+
+    private static final String TYPE_SPEC = "spec";
+    private static final String TYPE_DELETED = "deleted";
+    private static final String TYPE_PASS_BEGIN = "pass_begin";
+    private static final String TYPE_CHECKPOINT = "checkpoint";
+    private static final String TYPE_FILE_DONE = "file_done";
+    private static final String TYPE_PASS_DONE = "pass_done";
+
+    private static final Gson GSON = new Gson();
+
+    /**
+     * The parameters needed to re-create the job (also persisted by WipeQueue).
+     */
+    public static class Spec {
+        public int numberPasses;
+        public boolean verify;
+        public boolean blank;
+        public String scheme;
+        public boolean deleteExistingFirst;
+        public String targetPath;
+        public String targetName;
+        public List<String> targetFolders;
+        public long deadlineAtMs;
+
+        public static Spec of(WipeJob job) {
+            Spec spec = new Spec();
+            spec.numberPasses = job.number_passes;
+            spec.verify = job.verify;
+            spec.blank = job.blank;
+            spec.scheme = job.scheme;
+            spec.deleteExistingFirst = job.deleteExistingFirst;
+            spec.targetPath = job.targetPath;
+            spec.targetName = job.targetName;
+            spec.targetFolders = job.targetFolders != null ? new ArrayList<>(job.targetFolders) : null;
+            spec.deadlineAtMs = job.deadlineAtMs;
+            return spec;
+        }
+
+        public WipeJob toJob() {
+            WipeJob job = new WipeJob();
+            job.number_passes = numberPasses;
+            job.verify = verify;
+            job.blank = blank;
+            job.scheme = scheme;
+            job.deleteExistingFirst = deleteExistingFirst;
+            job.targetPath = targetPath;
+            job.targetName = targetName;
+            if (targetFolders != null) job.targetFolders = new ArrayList<>(targetFolders);
+            job.deadlineAtMs = deadlineAtMs;
+            return job;
+        }
+    }
+
+    static class Entry {
+        String t;
+        Spec spec;
+        Integer pass;
+        Long seed;
+        String phase;
+        Long offset;
+        String path;
+    }
+
+    /**
+     * State reconstructed from a journal left behind by an interrupted job.
+     */
+    public static class Recovery {
+        public WipeJob job;
+        public boolean deletionCompleted;
+        public int passesCompleted;
+        // Pass in progress, or -1 when the journal ends at a pass boundary
+        public int pass = -1;
+        public long seed;
+        public String wipeFilePath;
+        public String phase = PHASE_WRITE;
+        public long offset;
+        public final Set<String> writtenFiles = new HashSet<>();
+        public final Set<String> verifiedFiles = new HashSet<>();
+        // Length of the intact, newline-terminated prefix of the journal
+        long validBytes;
+    }
+
+    private final File file;
+    private final FileOutputStream out;
+    private final Recovery recovery;
+    private Clock clock = Clock.SYSTEM;
+    private long lastSyncMs = clock.currentTimeMillis();
+    private boolean dirty = false;
+
+    private WipeJournal(File file, Recovery recovery) throws IOException {
+        this.file = file;
+        this.recovery = recovery;
+        this.out = new FileOutputStream(file, true);
+    }
+
+    /**
+     * Paces fsyncs on the engine's clock; called by the WipeEngine the journal is given to.
+     */
+    synchronized void setClock(Clock clock) {
+        this.clock = clock;
+        this.lastSyncMs = clock.currentTimeMillis();
+    }
+
+    public static File directory(File filesDir) {
+        return new File(filesDir, DIR_NAME);
+    }
+
+    /**
+     * Starts a journal for a new job and durably records its spec.
+     */
+    public static WipeJournal create(File dir, WipeJob job) throws IOException {
+        return create(dir, String.valueOf(System.currentTimeMillis()), job);
+    }
+
+    public static WipeJournal create(File dir, String jobId, WipeJob job) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        WipeJournal journal = new WipeJournal(fileFor(dir, jobId), null);
+        Entry entry = new Entry();
+        entry.t = TYPE_SPEC;
+        entry.spec = Spec.of(job);
+        journal.append(entry, true);
+        return journal;
+    }
+
+    public static File fileFor(File dir, String jobId) {
+        return new File(dir, jobId + SUFFIX);
+    }
+
+    /**
+     * Job id of a journal file (its name without the suffix).
+     */
+    public static String jobIdOf(File file) {
+        String name = file.getName();
+        return name.endsWith(SUFFIX) ? name.substring(0, name.length() - SUFFIX.length()) : name;
+    }
+
+    /**
+     * Journals left behind by jobs that never finished, oldest first.
+     */
+    public static List<File> findUnfinished(File dir) {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(SUFFIX));
+        if (files == null) return new ArrayList<>();
+        Arrays.sort(files);
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
+    /**
+     * Replays an existing journal and reopens it for appending. Returns null if the journal has
+     * no readable spec (it is then deleted).
+     */
+    public static WipeJournal open(File file) throws IOException {
+        Recovery recovery = replay(file);
+        if (recovery == null) {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            return null;
+        }
+        // Drop a torn tail so new appends are not hidden behind it on the next replay
+        if (recovery.validBytes < file.length()) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(recovery.validBytes);
+            }
+        }
+        return new WipeJournal(file, recovery);
+    }
+
+    static Recovery replay(File file) throws IOException {
+        Recovery recovery = null;
+        long length = file.length();
+        long position = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                long end = position + line.getBytes(StandardCharsets.UTF_8).length + 1;
+                Entry entry = end <= length ? decode(line) : null;
+                if (entry == null) break; // torn tail
+                if (TYPE_SPEC.equals(entry.t) && entry.spec != null) {
+                    recovery = new Recovery();
+                    recovery.job = entry.spec.toJob();
+                } else if (recovery == null) {
+                    break;
+                } else {
+                    apply(recovery, entry);
+                }
+                position = end;
+                recovery.validBytes = position;
+            }
+        }
+        return recovery;
+    }
+
+    private static void apply(Recovery recovery, Entry entry) {
+        int pass = entry.pass != null ? entry.pass : -1;
+        switch (entry.t) {
+            case TYPE_DELETED:
+                recovery.deletionCompleted = true;
+                break;
+            case TYPE_PASS_BEGIN:
+                recovery.pass = pass;
+                recovery.seed = entry.seed != null ? entry.seed : 0;
+                recovery.wipeFilePath = entry.path;
+                recovery.phase = PHASE_WRITE;
+                recovery.offset = 0;
+                recovery.writtenFiles.clear();
+                recovery.verifiedFiles.clear();
+                break;
+            case TYPE_CHECKPOINT:
+                if (pass != recovery.pass) break;
+                recovery.phase = entry.phase;
+                recovery.offset = entry.offset != null ? entry.offset : 0;
+                break;
+            case TYPE_FILE_DONE:
+                if (pass != recovery.pass || entry.path == null) break;
+                if (PHASE_VERIFY.equals(entry.phase)) recovery.verifiedFiles.add(entry.path);
+                else recovery.writtenFiles.add(entry.path);
+                break;
+            case TYPE_PASS_DONE:
+                recovery.passesCompleted = Math.max(recovery.passesCompleted, pass + 1);
+                recovery.pass = -1;
+                recovery.wipeFilePath = null;
+                recovery.writtenFiles.clear();
+                recovery.verifiedFiles.clear();
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Recovered state when this journal was reopened after an interruption, otherwise null.
+     */
+    public Recovery getRecovery() {
+        return recovery;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public void deletionCompleted() throws IOException {
+        Entry entry = new Entry();
+        entry.t = TYPE_DELETED;
+        append(entry, true);
+    }
+
+    /**
+     * Records the start of a pass; {@code wipeFilePath} is the fill file in free-space mode.
+     */
+    public void passStarted(int pass, long seed, String wipeFilePath) throws IOException {
+        Entry entry = new Entry();
+        entry.t = TYPE_PASS_BEGIN;
+        entry.pass = pass;
+        entry.seed = seed;
+        entry.path = wipeFilePath;
+        append(entry, true);
+    }
+
+    /**
+     * Records that {@code offset} bytes of the current pass's phase are durable. Batched.
+     */
+    public void checkpoint(int pass, String phase, long offset) throws IOException {
+        Entry entry = new Entry();
+        entry.t = TYPE_CHECKPOINT;
+        entry.pass = pass;
+        entry.phase = phase;
+        entry.offset = offset;
+        append(entry, false);
+    }
+
+    public void fileDone(int pass, String phase, String path) throws IOException {
+        Entry entry = new Entry();
+        entry.t = TYPE_FILE_DONE;
+        entry.pass = pass;
+        entry.phase = phase;
+        entry.path = path;
+        append(entry, false);
+    }
+
+    public void passCompleted(int pass) throws IOException {
+        Entry entry = new Entry();
+        entry.t = TYPE_PASS_DONE;
+        entry.pass = pass;
+        append(entry, true);
+    }
+
+    /**
+     * The job ended (successfully, with an error or by cancellation); nothing is left to resume.
+     */
+    public void finish() {
+        try {
+            out.close();
+        } catch (IOException ignored) {}
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    private synchronized void append(Entry entry, boolean durable) throws IOException {
+        String json = GSON.toJson(entry);
+        byte[] payload = json.getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        String line = String.format(Locale.ROOT, "%08x %s\n", crc.getValue(), json);
+        out.write(line.getBytes(StandardCharsets.UTF_8));
+        dirty = true;
+        long now = clock.currentTimeMillis();
+        if (durable || now - lastSyncMs >= SYNC_INTERVAL_MS) {
+            out.getFD().sync();
+            dirty = false;
+            lastSyncMs = now;
+        }
+    }
+
+    private static Entry decode(String line) {
+        int space = line.indexOf(' ');
+        if (space != 8) return null;
+        String json = line.substring(space + 1);
+        CRC32 crc = new CRC32();
+        crc.update(json.getBytes(StandardCharsets.UTF_8));
+        try {
+            if (Long.parseLong(line.substring(0, space), 16) != crc.getValue()) return null;
+            Entry entry = GSON.fromJson(json, Entry.class);
+            return entry != null && entry.t != null ? entry : null;
+        } catch (NumberFormatException | JsonSyntaxException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (dirty) out.getFD().sync();
+        out.close();
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.nwipe_android;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Costed execution plan of a job, built by {@link WipeEngine#plan(WipeJob)} without writing
+ * anything: the resolved targets with their file manifest (folder mode) or free-space budget,
+ * the bytes each phase will move once passes, verification and the junk fill are applied, the
+ * writer lanes and sync policy, and a time estimate from the throughput measured on the volume.
+ */
+public class WipePlan {
+    public static final String MODE_FREE_SPACE = "free_space";
+    public static final String MODE_FOLDERS = "folders";
+
+    public static class Target {
+        public final String path;
+        public final String name;
+        public final long files;
+        public final long bytes;
+
+        public Target(String path, String name, long files, long bytes) {
+            this.path = path;
+            this.name = name;
+            this.files = files;
+            this.bytes = bytes;
+        }
+    }
+
+    public String mode = MODE_FREE_SPACE;
+    public final List<Target> targets = new ArrayList<>();
+    // Reasons the job would fail or do less than asked, e.g. an inaccessible folder
+    public final List<String> warnings = new ArrayList<>();
+
+    // Pre-wipe deletion manifest (free-space mode); the freed space joins the budget
+    public long deleteFiles;
+    public long deleteBytes;
+    public long bytesPerPass;
+    public long files;
+    // Junk written once after the folder passes to fill the parent's free space
+    public long fillBytes;
+
+    public int passesTotal;
+    public int passesRemaining;
+    public boolean verify;
+    public boolean blank;
+    // WipeScheme of the job, null for random passes
+    public String scheme;
+
+    public int lanes;
+    public int maxLanes;
+    public long syncIntervalBytes;
+    public long syncs;
+
+    // Bytes still to move, indexed by ThroughputEstimator phase
+    public final long[] phaseBytes = new long[ThroughputEstimator.PHASE_NAMES.length];
+    public ThroughputEstimator.Estimate estimate = ThroughputEstimator.Estimate.UNKNOWN;
+    // Policy picked for a time-boxed job (the costs above are for it), else null
+    public DeadlinePolicy.Choice deadlineChoice;
+
+    /**
+     * Applies the job's passes, verification sampling and (free-space mode) fill coverage to the
+     * budget and prices it with {@code rates}. Passes already completed (a resumed job) cost
+     * nothing.
+     */
+    void cost(WipeJob job, ThroughputEstimator rates) {
+        verify = job.verify;
+        blank = job.blank;
+        scheme = job.scheme;
+        passesTotal = job.blank ? job.number_passes + 1 : job.number_passes;
+        passesRemaining = Math.max(0, passesTotal - job.passes_completed);
+        long written = MODE_FREE_SPACE.equals(mode) ? (long) (bytesPerPass * job.fillCoverage) : bytesPerPass;
+        for (int pass = job.passes_completed; pass < passesTotal; pass++) {
+            boolean fixed = WipeScheme.isFixed(job, pass);
+            phaseBytes[fixed ? ThroughputEstimator.ZERO_WRITE : ThroughputEstimator.RANDOM_WRITE] += written;
+            if (job.verify) phaseBytes[ThroughputEstimator.VERIFY_READ] += (long) (written * job.verifySampleRate);
+        }
+        // The junk fill runs once the job counts as completed, so without a blanking pass the
+        // engine sees the "blanking" pass index and writes zeros
+        if (fillBytes > 0) {
+            phaseBytes[job.blank ? ThroughputEstimator.RANDOM_WRITE : ThroughputEstimator.ZERO_WRITE] += fillBytes;
+        }
+        if (syncIntervalBytes > 0) {
+            long perPass = Math.max(1, (written + syncIntervalBytes - 1) / syncIntervalBytes);
+            syncs = perPass * passesRemaining;
+        } else {
+            syncs = files * passesRemaining;
+        }
+        estimate = rates != null
+                ? rates.estimate(ThroughputEstimator.RANDOM_WRITE, phaseBytes)
+                : ThroughputEstimator.Estimate.UNKNOWN;
+    }
+
+    public long getTotalBytes() {
+        long total = 0;
+        for (long bytes : phaseBytes) total += bytes;
+        return total;
+    }
+
+    /**
+     * One line for the confirmation dialog, e.g. "3 passes + blanking + verify on 180.0 GB:
+     * about 9h 00m".
+     */
+    public String summary() {
+        StringBuilder text = new StringBuilder();
+        int writePasses = blank ? passesTotal - 1 : passesTotal;
+        if (scheme != null) {
+            text.append(WipeScheme.forId(scheme).name);
+        } else {
+            text.append(writePasses).append(writePasses == 1 ? " pass" : " passes");
+        }
+        if (blank) text.append(" + blanking");
+        if (verify) text.append(" + verify");
+        text.append(" on ").append(formatBytes(bytesPerPass));
+        if (estimate.isKnown()) {
+            text.append(": about ").append(ThroughputEstimator.formatDuration(estimate.remainingMs));
+        } else {
+            text.append(": no throughput measured on this volume yet");
+        }
+        return text.toString();
+    }
+
+    /**
+     * Multi-line breakdown: targets, bytes per phase, lanes, sync policy and estimate bounds.
+     */
+    public String describe() {
+        StringBuilder text = new StringBuilder(summary()).append("\n\n");
+        if (MODE_FOLDERS.equals(mode)) {
+            text.append(String.format(Locale.ROOT, "%d files in %d folders\n", files, targets.size()));
+        } else if (deleteFiles > 0) {
+            text.append(String.format(Locale.ROOT, "Delete %d files (%s) first\n", deleteFiles, formatBytes(deleteBytes)));
+        }
+        for (Target target : targets) {
+            text.append("• ").append(target.name != null ? target.name : target.path)
+                .append(": ").append(formatBytes(target.bytes)).append('\n');
+        }
+        if (passesRemaining < passesTotal) {
+            text.append(String.format(Locale.ROOT, "Resuming: %d of %d passes left\n", passesRemaining, passesTotal));
+        }
+        for (int phase = 0; phase < phaseBytes.length; phase++) {
+            if (phaseBytes[phase] <= 0) continue;
+            text.append(ThroughputEstimator.PHASE_NAMES[phase].replace('_', ' '))
+                .append(": ").append(formatBytes(phaseBytes[phase])).append('\n');
+        }
+        if (fillBytes > 0) text.append("Junk fill afterwards: ").append(formatBytes(fillBytes)).append('\n');
+        text.append(lanes == maxLanes
+            ? String.format(Locale.ROOT, "%d writer stream%s", lanes, lanes == 1 ? "" : "s")
+            : String.format(Locale.ROOT, "%d to %d writer streams", lanes, maxLanes));
+        text.append(syncIntervalBytes > 0
+            ? String.format(Locale.ROOT, ", fsync every %s (%d syncs)\n", formatBytes(syncIntervalBytes), syncs)
+            : String.format(Locale.ROOT, ", fsync after each file (%d syncs)\n", syncs));
+        if (deadlineChoice != null) {
+            text.append(deadlineChoice.fits ? "Fits the deadline with " : "⚠️ Does not fit the deadline even with ")
+                .append(deadlineChoice.describe()).append('\n');
+        }
+        if (estimate.isKnown() && estimate.highMs > estimate.lowMs) {
+            text.append("Estimate range: ").append(ThroughputEstimator.formatDuration(estimate.lowMs))
+                .append(" to ").append(ThroughputEstimator.formatDuration(estimate.highMs)).append('\n');
+        }
+        for (String warning : warnings) text.append("⚠️ ").append(warning).append('\n');
+        return text.toString().trim();
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024 * 1024) return String.format(Locale.ROOT, "%.1f KB", bytes / 1024.0);
+        if (bytes < 1024L * 1024 * 1024) return String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024.0));
+        return String.format(Locale.ROOT, "%.1f GB", bytes / (1024.0 * 1024.0 * 1024.0));
+    }
+}
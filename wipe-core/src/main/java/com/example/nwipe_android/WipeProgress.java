@@ -0,0 +1,189 @@
+package com.example.nwipe_android;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free progress counters for a running job. Byte counts are striped per writer lane (each
+ * stripe on its own cache line) so parallel writers never contend; readers sum the stripes.
+ * Pass and verification state is written by the coordinating thread only and lives in the
+ * job's volatile fields.
+ */
+public class WipeProgress {
+    public static final int MAX_LANES = 16;
+    // 8 longs = 64 bytes between stripes to avoid false sharing
+    private static final int STRIDE = 8;
+    private static final long MIN_SAMPLE_NANOS = 1_000_000_000L;
+
+    private final WipeJob job;
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicLongArray wipedStripes = new AtomicLongArray(MAX_LANES * STRIDE);
+    // Remaining-time estimate; fed from snapshot(), which runs at the progress bus rate
+    private final ThroughputEstimator estimator;
+    private final Clock clock;
+    // Battery energy of the job, if metered
+    private volatile EnergyMeter energy;
+    private final Object sampleLock = new Object();
+    private int samplePhase = -1;
+    private long sampleBytes;
+    private long sampleNanos;
+
+    public WipeProgress(WipeJob job) {
+        this(job, new ThroughputEstimator());
+    }
+
+    public WipeProgress(WipeJob job, ThroughputEstimator estimator) {
+        this(job, estimator, Clock.SYSTEM);
+    }
+
+    public WipeProgress(WipeJob job, ThroughputEstimator estimator, Clock clock) {
+        this.job = job;
+        this.clock = clock;
+        this.totalBytes.set(job.totalBytes);
+        this.estimator = estimator;
+    }
+
+    public ThroughputEstimator getEstimator() {
+        return estimator;
+    }
+
+    public void setEnergyMeter(EnergyMeter energy) {
+        this.energy = energy;
+    }
+
+    public WipeJob getJob() {
+        return job;
+    }
+
+    /**
+     * Starts a new write or verify phase of the given size with the byte counters reset.
+     */
+    public void beginPhase(long total) {
+        totalBytes.set(total);
+        job.totalBytes = total;
+        resetWiped();
+    }
+
+    public void resetWiped() {
+        for (int lane = 0; lane < MAX_LANES; lane++) {
+            wipedStripes.set(lane * STRIDE, 0);
+        }
+        job.wipedBytes = 0;
+    }
+
+    public void setTotalBytes(long total) {
+        totalBytes.set(total);
+        job.totalBytes = total;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    /**
+     * Hot path: records bytes written or verified by a lane. No allocation, no shared CAS.
+     */
+    public void add(int lane, long bytes) {
+        wipedStripes.getAndAdd((lane % MAX_LANES) * STRIDE, bytes);
+    }
+
+    public long getWipedBytes() {
+        long sum = 0;
+        for (int lane = 0; lane < MAX_LANES; lane++) {
+            sum += wipedStripes.get(lane * STRIDE);
+        }
+        return sum;
+    }
+
+    public int getCurrentPassPercentageCompletion() {
+        long total = totalBytes.get();
+        if (total <= 0) return 0;
+        return (int) (((double) Math.min(getWipedBytes(), total) / (double) total) * 100);
+    }
+
+    public void setVerifying(boolean verifying) {
+        job.verifying = verifying;
+    }
+
+    /**
+     * Set by the stall watchdog while some lane's chunk is past its soft deadline.
+     */
+    public void setStalled(boolean stalled) {
+        job.stalled = stalled;
+    }
+
+    public boolean isStalled() {
+        return job.stalled;
+    }
+
+    public void completePass() {
+        job.passes_completed++;
+    }
+
+    /**
+     * Copies the striped counters into the job's fields, e.g. when the job is handed back.
+     */
+    public void syncToJob() {
+        long total = totalBytes.get();
+        job.totalBytes = total;
+        job.wipedBytes = Math.min(getWipedBytes(), total);
+    }
+
+    public ProgressSnapshot snapshot() {
+        long total = totalBytes.get();
+        long wiped = getWipedBytes();
+        int phase = currentPhase();
+        sample(phase, wiped, clock.nanoTime());
+        ThroughputEstimator.Estimate estimate = estimator.estimate(phase, remainingBytes(phase, total, wiped));
+        return new ProgressSnapshot(clock.currentTimeMillis(), job.number_passes, job.verify, job.blank,
+                job.passes_completed, total, wiped, job.verifying, job.errorMessage,
+                job.targetPath, job.targetName, job.stalled, estimate,
+                energy != null ? energy.getReading() : EnergyMeter.Reading.UNKNOWN);
+    }
+
+    int currentPhase() {
+        if (job.verifying) return ThroughputEstimator.VERIFY_READ;
+        return WipeScheme.isFixed(job, job.passes_completed)
+                ? ThroughputEstimator.ZERO_WRITE : ThroughputEstimator.RANDOM_WRITE;
+    }
+
+    /**
+     * Feeds the estimator with the bytes moved since the last sample of the same phase, at most
+     * once per second. A phase change or reset restarts the baseline; intervals without progress
+     * (paused, parked by the governor) are skipped rather than counted as zero throughput.
+     */
+    private void sample(int phase, long wiped, long nowNanos) {
+        synchronized (sampleLock) {
+            if (phase != samplePhase || wiped < sampleBytes) {
+                samplePhase = phase;
+                sampleBytes = wiped;
+                sampleNanos = nowNanos;
+                return;
+            }
+            long elapsed = nowNanos - sampleNanos;
+            if (elapsed < MIN_SAMPLE_NANOS) return;
+            if (wiped > sampleBytes) estimator.record(phase, wiped - sampleBytes, elapsed);
+            sampleBytes = wiped;
+            sampleNanos = nowNanos;
+        }
+    }
+
+    /**
+     * Bytes left per estimator phase: the rest of this phase, this pass's verification, and the
+     * write and verify phases of the passes still to run (assumed the size of the current one).
+     */
+    long[] remainingBytes(int phase, long total, long wiped) {
+        long[] remaining = new long[ThroughputEstimator.PHASE_NAMES.length];
+        remaining[phase] += Math.max(0, total - wiped);
+        // Verification may read only a sample of each pass (time-boxed jobs)
+        long verifyBytes = (long) (total * job.verifySampleRate);
+        if (phase != ThroughputEstimator.VERIFY_READ && job.verify) remaining[ThroughputEstimator.VERIFY_READ] += verifyBytes;
+        int totalPasses = job.blank ? job.number_passes + 1 : job.number_passes;
+        for (int pass = job.passes_completed + 1; pass < totalPasses; pass++) {
+            boolean fixed = WipeScheme.isFixed(job, pass);
+            remaining[fixed ? ThroughputEstimator.ZERO_WRITE : ThroughputEstimator.RANDOM_WRITE] += total;
+            if (job.verify) remaining[ThroughputEstimator.VERIFY_READ] += verifyBytes;
+        }
+        return remaining;
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.nwipe_android;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Persistent queue of wipe jobs. Jobs are ordered by priority (higher first) and then by
+ * enqueue order; a job is runnable only while no other job is running on the same volume.
+ *
+ * The queue is rewritten atomically (temp file + rename) on every change so it survives the
+ * service being killed. Jobs that were running when the process died come back as queued and
+ * resume from their WipeJournal.
+ */
+public class WipeQueue {
+    public static final String FILE_NAME = "wipe_queue.json";
+    public static final String STATE_QUEUED = "queued";
+    public static final String STATE_RUNNING = "running";
+    // Volume key of jobs that may touch every volume (e.g. an untargeted wipe); runs alone
+    public static final String ALL_VOLUMES = "*";
+
+    private static final Gson GSON = new Gson();
+
+    public static class Entry {
+        public String id;
+        public int priority;
+        public long enqueuedAtMs;
+        public long sequence;
+        // Jobs sharing a volume key are never run concurrently
+        public String volumeKey;
+        public String state = STATE_QUEUED;
+        public WipeJournal.Spec spec;
+    }
+
+    private static class Persisted {
+        long nextSequence;
+        List<Entry> entries;
+    }
+
+    private final File file;
+    private final List<Entry> entries = new ArrayList<>();
+    private long nextSequence = 1;
+
+    public WipeQueue(File file) {
+        this.file = file;
+        load();
+    }
+
+    public static File defaultFile(File filesDir) {
+        return new File(filesDir, FILE_NAME);
+    }
+
+    public synchronized Entry enqueue(WipeJob job, int priority, String volumeKey) throws IOException {
+        Entry entry = new Entry();
+        entry.sequence = nextSequence++;
+        entry.enqueuedAtMs = System.currentTimeMillis();
+        entry.id = entry.enqueuedAtMs + "-" + entry.sequence;
+        entry.priority = priority;
+        entry.volumeKey = volumeKey != null ? volumeKey : ALL_VOLUMES;
+        entry.spec = WipeJournal.Spec.of(job);
+        entries.add(entry);
+        save();
+        return entry;
+    }
+
+    /**
+     * Adds a job under an existing id (e.g. an orphaned journal); no-op if the id is queued.
+     */
+    public synchronized Entry adopt(String id, WipeJob job, int priority, String volumeKey) throws IOException {
+        Entry existing = get(id);
+        if (existing != null) return existing;
+        Entry entry = new Entry();
+        entry.id = id;
+        entry.sequence = nextSequence++;
+        entry.enqueuedAtMs = System.currentTimeMillis();
+        entry.priority = priority;
+        entry.volumeKey = volumeKey != null ? volumeKey : ALL_VOLUMES;
+        entry.spec = WipeJournal.Spec.of(job);
+        entries.add(entry);
+        save();
+        return entry;
+    }
+
+    /**
+     * The highest-priority queued job whose volume is not in {@code busyVolumes}, or null.
+     */
+    public synchronized Entry nextRunnable(Collection<String> busyVolumes) {
+        Entry best = null;
+        for (Entry entry : entries) {
+            if (!STATE_QUEUED.equals(entry.state)) continue;
+            if (!canRunBeside(entry.volumeKey, busyVolumes)) continue;
+            if (best == null || entry.priority > best.priority
+                    || (entry.priority == best.priority && entry.sequence < best.sequence)) {
+                best = entry;
+            }
+        }
+        return best;
+    }
+
+    private static boolean canRunBeside(String volumeKey, Collection<String> busyVolumes) {
+        if (busyVolumes.isEmpty()) return true;
+        if (busyVolumes.contains(ALL_VOLUMES) || ALL_VOLUMES.equals(volumeKey)) return false;
+        return !busyVolumes.contains(volumeKey);
+    }
+
+    public synchronized void markRunning(Entry entry) throws IOException {
+        entry.state = STATE_RUNNING;
+        save();
+    }
+
+    public synchronized boolean remove(String id) throws IOException {
+        Entry entry = get(id);
+        if (entry == null) return false;
+        entries.remove(entry);
+        save();
+        return true;
+    }
+
+    public synchronized Entry get(String id) {
+        for (Entry entry : entries) {
+            if (entry.id.equals(id)) return entry;
+        }
+        return null;
+    }
+
+    public synchronized List<Entry> list() {
+        return new ArrayList<>(entries);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void load() {
+        if (!file.isFile()) return;
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            Persisted persisted = GSON.fromJson(reader, Persisted.class);
+            if (persisted == null || persisted.entries == null) return;
+            for (Entry entry : persisted.entries) {
+                if (entry == null || entry.id == null || entry.spec == null) continue;
+                // Whatever was running died with the previous process
+                entry.state = STATE_QUEUED;
+                entries.add(entry);
+                nextSequence = Math.max(nextSequence, entry.sequence + 1);
+            }
+            nextSequence = Math.max(nextSequence, persisted.nextSequence);
+        } catch (IOException | JsonParseException e) {
+            entries.clear();
+        }
+    }
+
+    private void save() throws IOException {
+        Persisted persisted = new Persisted();
+        persisted.nextSequence = nextSequence;
+        persisted.entries = entries;
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(GSON.toJson(persisted).getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            throw new IOException("Cannot replace " + file);
+        }
+    }
+}
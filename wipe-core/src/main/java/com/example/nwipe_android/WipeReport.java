@@ -0,0 +1,111 @@
+package com.example.nwipe_android;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What the engine observed while running a job, beyond its pass counts: warnings that belong in
+ * the certificate (e.g. I/O stalls) and numeric metrics. The service writes one JSON file per
+ * job id into filesDir so the UI process can read it when it certifies the job.
+ */
+public class WipeReport {
+    public static final String DIR_NAME = "wipe_reports";
+    // Reports of older jobs are pruned beyond this many
+    private static final int MAX_REPORTS = 50;
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    public String jobId;
+    public long createdAtMs = System.currentTimeMillis();
+    public List<String> warnings = new ArrayList<>();
+    public Map<String, Long> metrics = new LinkedHashMap<>();
+    // What a time-boxed job achieved against its deadline, else null
+    public DeadlinePolicy.Outcome deadline;
+    // Latency histograms by phase (see PhaseTimings)
+    public Map<String, LatencyHistogram.Summary> latency;
+    // Bytes written by the engine against what reached storage (see IoAccounting)
+    public IoAccounting.Summary io;
+    // Battery energy spent per phase and per gigabyte (see EnergyMeter)
+    public EnergyMeter.Summary energy;
+    // The pass schedule as run (see WipeScheme.describe) and the data of each completed pass
+    public String wipeMethod;
+    public List<String> passPatterns;
+    // Standards the run satisfies (see WipeScheme.complianceStandards)
+    public List<String> complianceStandards;
+
+    public synchronized void addWarning(String warning) {
+        warnings.add(warning);
+    }
+
+    public synchronized void putMetric(String name, long value) {
+        metrics.put(name, value);
+    }
+
+    public static File directory(File filesDir) {
+        return new File(filesDir, DIR_NAME);
+    }
+
+    public static File fileFor(File filesDir, String jobId) {
+        return new File(directory(filesDir), jobId + ".json");
+    }
+
+    /**
+     * Writes the report atomically (temp file + rename) and prunes the oldest reports.
+     */
+    public synchronized void save(File filesDir) throws IOException {
+        File dir = directory(filesDir);
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        File file = fileFor(filesDir, jobId);
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(GSON.toJson(this).getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            throw new IOException("Cannot replace " + file);
+        }
+        prune(dir);
+    }
+
+    /**
+     * The report of a job, or null if there is none or it is unreadable.
+     */
+    public static WipeReport load(File filesDir, String jobId) {
+        if (jobId == null) return null;
+        File file = fileFor(filesDir, jobId);
+        if (!file.isFile()) return null;
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            return GSON.fromJson(reader, WipeReport.class);
+        } catch (IOException | JsonParseException e) {
+            return null;
+        }
+    }
+
+    private static void prune(File dir) {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".json"));
+        if (files == null || files.length <= MAX_REPORTS) return;
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (int i = 0; i < files.length - MAX_REPORTS; i++) {
+            //noinspection ResultOfMethodCallIgnored
+            files[i].delete();
+            String name = files[i].getName();
+            //noinspection ResultOfMethodCallIgnored
+            new File(dir, name.substring(0, name.length() - ".json".length()) + ThroughputTimeline.FILE_SUFFIX).delete();
+        }
+    }
+}
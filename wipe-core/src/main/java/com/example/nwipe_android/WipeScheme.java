@@ -0,0 +1,229 @@
+package com.example.nwipe_android;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A named pass schedule: which data each pass of a job writes, either pseudo-random
+ * (ChunkPattern) or a fixed byte pattern repeated over the whole pass (PatternBuffer).
+ *
+ * A job without a scheme runs the original schedule: {@code number_passes} random passes and an
+ * optional zero blanking pass. Applying a scheme sets the pass count to the scheme's length and
+ * turns the separate blanking pass off; a time-boxed job may still stop after a prefix of it
+ * (see DeadlinePolicy), which describe() then reports.
+ */
+public class WipeScheme {
+    public static final String RANDOM = "random";
+    public static final String DOD_3PASS = "dod_3pass";
+    public static final String DOD_ECE_7PASS = "dod_ece_7pass";
+    public static final String NIST_CLEAR = "nist_800_88_clear";
+    public static final String GUTMANN = "gutmann";
+    // "custom:" followed by comma-separated passes, each "random" or 1 to 8 hex bytes ("00", "924924")
+    public static final String CUSTOM_PREFIX = "custom:";
+    public static final int MAX_PATTERN_BYTES = 8;
+    public static final int MAX_CUSTOM_PASSES = 35;
+
+    // Standards a certificate may claim; DoD only for a DoD schedule run in full
+    public static final String STANDARD_NIST = "NIST SP 800-88";
+    public static final String STANDARD_DOD = "DoD 5220.22-M";
+    public static final String STANDARD_HIPAA = "HIPAA";
+    public static final String STANDARD_GDPR = "GDPR";
+
+    /**
+     * Schemes offered in the UI, in menu order.
+     */
+    public static final String[] BUILT_IN = {RANDOM, DOD_3PASS, DOD_ECE_7PASS, NIST_CLEAR, GUTMANN};
+
+    /**
+     * What one pass writes: a fixed pattern, or random data when {@code pattern} is null.
+     */
+    public static class Pass {
+        public static final Pass RANDOM_DATA = new Pass(null);
+        public static final Pass ZEROS = new Pass(new byte[]{0});
+
+        public final byte[] pattern;
+
+        Pass(byte[] pattern) {
+            this.pattern = pattern;
+        }
+
+        public boolean isRandom() {
+            return pattern == null;
+        }
+
+        public String describe() {
+            if (pattern == null) return "random";
+            StringBuilder text = new StringBuilder("0x");
+            for (byte b : pattern) text.append(String.format(Locale.ROOT, "%02X", b & 0xFF));
+            return text.toString();
+        }
+    }
+
+    public final String id;
+    public final String name;
+    // Null for the original random schedule, whose length is the job's pass count
+    public final List<Pass> passes;
+
+    private WipeScheme(String id, String name, List<Pass> passes) {
+        this.id = id;
+        this.name = name;
+        this.passes = passes != null ? Collections.unmodifiableList(passes) : null;
+    }
+
+    public boolean isRandomSchedule() {
+        return passes == null;
+    }
+
+    /**
+     * The scheme for an id from BUILT_IN or a "custom:" spec; null or empty means RANDOM.
+     *
+     * @throws IllegalArgumentException for an unknown id or a malformed custom spec
+     */
+    public static WipeScheme forId(String id) {
+        return parse(id == null || id.isEmpty() ? RANDOM : id);
+    }
+
+    private static WipeScheme parse(String id) {
+        switch (id) {
+            case RANDOM:
+                return new WipeScheme(RANDOM, "Random data", null);
+            case DOD_3PASS:
+                return new WipeScheme(id, "DoD 5220.22-M (3 passes)", passes("00", "FF", RANDOM));
+            case DOD_ECE_7PASS:
+                // 5220.22-M (E), then (C), then (E) again
+                return new WipeScheme(id, "DoD 5220.22-M ECE (7 passes)",
+                    passes("00", "FF", RANDOM, RANDOM, "00", "FF", RANDOM));
+            case NIST_CLEAR:
+                return new WipeScheme(id, "NIST SP 800-88 Clear (1 pass)", passes("00"));
+            case GUTMANN:
+                return new WipeScheme(id, "Gutmann (35 passes)", passes(
+                    RANDOM, RANDOM, RANDOM, RANDOM,
+                    "55", "AA", "924924", "492492", "249249",
+                    "00", "11", "22", "33", "44", "55", "66", "77",
+                    "88", "99", "AA", "BB", "CC", "DD", "EE", "FF",
+                    "924924", "492492", "249249", "6DB6DB", "B6DB6D", "DB6DB6",
+                    RANDOM, RANDOM, RANDOM, RANDOM));
+            default:
+                break;
+        }
+        if (!id.startsWith(CUSTOM_PREFIX)) throw new IllegalArgumentException("Unknown wipe scheme: " + id);
+        String[] tokens = id.substring(CUSTOM_PREFIX.length()).split(",");
+        if (tokens.length > MAX_CUSTOM_PASSES) {
+            throw new IllegalArgumentException("Custom scheme has " + tokens.length + " passes, at most " + MAX_CUSTOM_PASSES);
+        }
+        List<Pass> custom = passes(tokens);
+        StringBuilder name = new StringBuilder("Custom (");
+        for (int i = 0; i < custom.size(); i++) name.append(i > 0 ? ", " : "").append(custom.get(i).describe());
+        return new WipeScheme(id, name.append(')').toString(), custom);
+    }
+
+    private static List<Pass> passes(String... tokens) {
+        List<Pass> list = new ArrayList<>();
+        for (String token : tokens) list.add(parsePass(token.trim()));
+        return list;
+    }
+
+    static Pass parsePass(String token) {
+        if (RANDOM.equalsIgnoreCase(token)) return Pass.RANDOM_DATA;
+        String hex = token.startsWith("0x") || token.startsWith("0X") ? token.substring(2) : token;
+        if (hex.isEmpty() || hex.length() % 2 != 0 || hex.length() / 2 > MAX_PATTERN_BYTES) {
+            throw new IllegalArgumentException("Pass pattern must be 1 to " + MAX_PATTERN_BYTES + " hex bytes: '" + token + "'");
+        }
+        byte[] pattern = new byte[hex.length() / 2];
+        for (int i = 0; i < pattern.length; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) throw new IllegalArgumentException("Not a hex pattern: '" + token + "'");
+            pattern[i] = (byte) (high << 4 | low);
+        }
+        return new Pass(pattern);
+    }
+
+    /**
+     * Sets the job up to run this scheme; the random schedule keeps the job's own pass count
+     * and blanking choice.
+     */
+    public void applyTo(WipeJob job) {
+        job.scheme = isRandomSchedule() ? null : id;
+        job.resolvedScheme = this;
+        if (isRandomSchedule()) return;
+        job.number_passes = passes.size();
+        job.blank = false;
+    }
+
+    /**
+     * The job's scheme, parsed once per job (passFor runs on every progress sample) and again
+     * only if job.scheme is changed afterwards.
+     */
+    public static WipeScheme of(WipeJob job) {
+        WipeScheme scheme = job.resolvedScheme;
+        String id = job.scheme == null || job.scheme.isEmpty() ? RANDOM : job.scheme;
+        if (scheme == null || !scheme.id.equals(id)) {
+            scheme = forId(id);
+            job.resolvedScheme = scheme;
+        }
+        return scheme;
+    }
+
+    /**
+     * What pass {@code pass} (0-based) of the job writes: the blanking pass writes zeros, a
+     * scheme's pass its pattern, and the random schedule random data.
+     */
+    public static Pass passFor(WipeJob job, int pass) {
+        if (job.blank && pass == job.number_passes) return Pass.ZEROS;
+        List<Pass> list = of(job).passes;
+        return list != null && pass < list.size() ? list.get(pass) : Pass.RANDOM_DATA;
+    }
+
+    /**
+     * Whether the pass writes a fixed pattern; such passes are timed as the ZERO_WRITE phase.
+     */
+    public static boolean isFixed(WipeJob job, int pass) {
+        return !passFor(job, pass).isRandom();
+    }
+
+    /**
+     * The wipe method as run, for the certificate: the scheme's name, noting passes a deadline
+     * cut, or the random schedule's pass counts.
+     */
+    public static String describe(WipeJob job) {
+        WipeScheme scheme = of(job);
+        if (scheme.isRandomSchedule()) {
+            return job.number_passes + " random pass" + (job.number_passes == 1 ? "" : "es")
+                + (job.blank ? " + zero blanking pass" : "") + (job.verify ? ", verified" : "");
+        }
+        String text = scheme.name;
+        if (job.number_passes < scheme.passes.size()) {
+            text += ", first " + job.number_passes + " of " + scheme.passes.size() + " passes";
+        }
+        if (job.blank) text += " + zero blanking pass";
+        return text + (job.verify ? ", verified" : "");
+    }
+
+    /**
+     * Whether every pass of the job's scheme was written: a prefix a deadline cut, or the
+     * random schedule, does not count as having run a named scheme.
+     */
+    public static boolean ranInFull(WipeJob job) {
+        WipeScheme scheme = of(job);
+        if (scheme.isRandomSchedule()) return false;
+        int length = scheme.passes.size();
+        return job.number_passes >= length && job.passes_completed >= length;
+    }
+
+    /**
+     * The standards a certificate of the job may claim. DoD 5220.22-M needs one of the DoD
+     * schedules completed in full; a pass count alone (random passes, Gutmann, custom) is not it.
+     */
+    public static List<String> complianceStandards(WipeJob job) {
+        List<String> standards = new ArrayList<>();
+        standards.add(STANDARD_NIST);
+        String id = of(job).id;
+        if ((DOD_3PASS.equals(id) || DOD_ECE_7PASS.equals(id)) && ranInFull(job)) standards.add(STANDARD_DOD);
+        standards.add(STANDARD_HIPAA);
+        standards.add(STANDARD_GDPR);
+        return standards;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.nwipe_android;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+
+@RunWith(JUnit4.class)
+public class BufferPoolTest {
+    private static final int MB = 1024 * 1024;
+
+    @Test
+    public void testReusesReleasedBuffers() throws InterruptedIOException {
+        BufferPool pool = new BufferPool(BufferPool.DEFAULT_CAP_BYTES);
+        ByteBuffer first;
+        try (BufferPool.Lease lease = pool.acquire(MB)) {
+            first = lease.buffer();
+            Assert.assertTrue(first.isDirect());
+            Assert.assertEquals(MB, lease.capacity());
+        }
+        for (int i = 0; i < 10; i++) {
+            try (BufferPool.Lease lease = pool.acquire(MB)) {
+                Assert.assertSame(first, lease.buffer());
+            }
+        }
+        Assert.assertEquals(1, pool.getAllocations());
+        Assert.assertEquals(0, pool.getLeasedBytes());
+
+        // Sizes round up to a power of two, at least 4 KB
+        try (BufferPool.Lease lease = pool.acquire(5000)) {
+            Assert.assertEquals(8192, lease.capacity());
+        }
+        try (BufferPool.Lease lease = pool.acquire(1)) {
+            Assert.assertEquals(BufferPool.MIN_CLASS_BYTES, lease.capacity());
+        }
+    }
+
+    @Test
+    public void testMinimumCapFitsTheVerifyAndNoMore() throws InterruptedIOException {
+        BufferPool pool = new BufferPool(BufferPool.MIN_CAP_BYTES);
+        BufferPool.Lease[] verify = pool.acquireAll(MB, 2);
+        Assert.assertEquals(BufferPool.MIN_CAP_BYTES, pool.getLeasedBytes());
+        // A third lease of any size is refused rather than going over the cap
+        Assert.assertNull(pool.tryAcquire(MB));
+        Assert.assertNull(pool.tryAcquire(1));
+        BufferPool.closeAll(verify);
+
+        // The fixed pattern plus the verify's one buffer also fill it exactly
+        PatternBuffer fixed = new PatternBuffer(new byte[]{0x55}, MB, pool);
+        BufferPool.Lease actual = pool.acquire(MB);
+        Assert.assertNull(pool.tryAcquire(MB));
+        actual.close();
+        fixed.close();
+
+        try {
+            pool.acquireAll(MB, 3);
+            Assert.fail("A set over the minimum cap could wait forever");
+        } catch (IllegalArgumentException expected) {
+        }
+        Assert.assertEquals(0, pool.getLeasedBytes());
+    }
+
+    @Test
+    public void testCapRefusesAndTrimReleases() throws InterruptedIOException {
+        BufferPool pool = new BufferPool(BufferPool.MIN_CAP_BYTES);
+        BufferPool.Lease a = pool.acquire(MB);
+        BufferPool.Lease b = pool.acquire(MB);
+        Assert.assertNull(pool.tryAcquire(MB));
+        a.close();
+        a.close(); // a second close is ignored
+        BufferPool.Lease c = pool.tryAcquire(MB);
+        Assert.assertNotNull(c);
+        c.close();
+        b.close();
+        Assert.assertEquals(2L * MB, pool.getAllocatedBytes());
+
+        // A free 1 MB buffer is evicted to make room for other sizes
+        try (BufferPool.Lease small = pool.acquire(64 * 1024); BufferPool.Lease big = pool.acquire(MB)) {
+            Assert.assertEquals(64 * 1024, small.capacity());
+            Assert.assertEquals(MB, big.capacity());
+            Assert.assertEquals(MB + 64 * 1024, pool.getLeasedBytes());
+        }
+
+        pool.trim(BufferPool.TRIM_MEMORY_RUNNING_LOW);
+        Assert.assertEquals(0, pool.getAllocatedBytes());
+        pool.setCapBytes(32L * MB);
+        pool.trim(BufferPool.TRIM_MEMORY_RUNNING_CRITICAL);
+        Assert.assertEquals(BufferPool.MIN_CAP_BYTES, pool.getCapBytes());
+
+        Assert.assertEquals(16L * MB, BufferPool.capFor(128, false));
+        Assert.assertEquals(BufferPool.MIN_CAP_BYTES, BufferPool.capFor(16, true));
+        Assert.assertEquals(BufferPool.MAX_CAP_BYTES, BufferPool.capFor(1024, false));
+    }
+
+    @Test
+    public void testChunkPatternFillsBuffersLikeArrays() {
+        ChunkPattern pattern = new ChunkPattern(42);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4096);
+        for (int length : new int[]{4096, 1001, 3}) {
+            byte[] expected = new byte[length];
+            pattern.fill(expected, 7);
+            pattern.fill(buffer, length, 7);
+            for (int i = 0; i < length; i++) Assert.assertEquals(expected[i], buffer.get(i));
+            Assert.assertTrue(BufferPool.sameBytes(ByteBuffer.wrap(expected), buffer, length));
+        }
+        buffer.put(1000, (byte) (buffer.get(1000) + 1));
+        ByteBuffer other = ByteBuffer.allocateDirect(4096);
+        pattern.fill(other, 1001, 7);
+        Assert.assertFalse(BufferPool.sameBytes(other, buffer, 1001));
+        Assert.assertTrue(BufferPool.sameBytes(other, buffer, 1000));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.nwipe_android;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class ConcurrencyControllerTest {
+
+    /**
+     * Replays a recorded /proc/pressure/io trace: "t=<ms>" lines each followed by the file contents.
+     */
+    private int[] replay(String resource, ConcurrencyController controller) throws IOException {
+        List<Integer> streams = new ArrayList<>();
+        InputStream in = getClass().getClassLoader().getResourceAsStream(resource);
+        Assert.assertNotNull("missing fixture " + resource, in);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII))) {
+            long time = -1;
+            StringBuilder block = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("#")) continue;
+                if (line.startsWith("t=")) {
+                    if (time >= 0) streams.add(controller.update(time, PsiReader.parse(block.toString())));
+                    time = Long.parseLong(line.substring(2));
+                    block.setLength(0);
+                } else {
+                    block.append(line).append('\n');
+                }
+            }
+            if (time >= 0) streams.add(controller.update(time, PsiReader.parse(block.toString())));
+        }
+        int[] result = new int[streams.size()];
+        for (int i = 0; i < result.length; i++) result[i] = streams.get(i);
+        return result;
+    }
+
+    @Test
+    public void testParsesPressureFile() {
+        PsiReader.Sample sample = PsiReader.parse(
+            "some avg10=1.53 avg60=0.87 avg300=0.40 total=4096123\n"
+            + "full avg10=0.91 avg60=0.50 avg300=0.21 total=2048000\n");
+        Assert.assertNotNull(sample);
+        Assert.assertEquals(1.53f, sample.someAvg10, 0.001f);
+        Assert.assertEquals(4096123L, sample.someTotalUs);
+        Assert.assertEquals(2048000L, sample.fullTotalUs);
+        Assert.assertNull(PsiReader.parse("cpu avg10=1.0"));
+    }
+
+    @Test
+    public void testSaturatedTraceHalvesThenRecovers() throws IOException {
+        ConcurrencyController controller = new ConcurrencyController(null, 4, 1000, 20f, 250);
+        int[] streams = replay("psi/io_saturated.txt", controller);
+        Assert.assertArrayEquals(new int[] {1, 2, 3, 4, 2, 1, 1, 2, 3, 4}, streams);
+    }
+
+    @Test
+    public void testIdleTraceGrowsToCeiling() throws IOException {
+        ConcurrencyController controller = new ConcurrencyController(null, 4, 1000, 20f, 250);
+        controller.setCeiling(3);
+        int[] streams = replay("psi/io_idle.txt", controller);
+        Assert.assertEquals(3, streams[streams.length - 1]);
+    }
+
+    @Test
+    public void testFallsBackToChunkLatency() {
+        ConcurrencyController controller = new ConcurrencyController(null, 4, 1000, 20f, 250);
+        controller.update(0, null);
+        for (int i = 0; i < 10; i++) controller.onChunk(50_000_000L);
+        Assert.assertEquals(2, controller.update(1000, null));
+        for (int i = 0; i < 10; i++) controller.onChunk(i < 8 ? 50_000_000L : 900_000_000L);
+        Assert.assertEquals(1, controller.update(2000, null));
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.nwipe_android;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class DeadlinePolicyTest {
+    private static final long MB = 1024 * 1024;
+    private static final long MINUTE = 60_000;
+
+    private static WipeJob job(long deadlineAtMs) {
+        WipeJob job = new WipeJob();
+        job.number_passes = 3;
+        job.blank = true;
+        job.verify = true;
+        job.deadlineAtMs = deadlineAtMs;
+        return job;
+    }
+
+    @Test
+    public void testGivesUpPassesThenVerificationThenCoverage() {
+        ThroughputEstimator rates = new ThroughputEstimator();
+        rates.seed(ThroughputEstimator.RANDOM_WRITE, 10 * MB);
+        rates.seed(ThroughputEstimator.ZERO_WRITE, 10 * MB);
+        rates.seed(ThroughputEstimator.VERIFY_READ, 10 * MB);
+        // 6 GB per pass is 10 minutes of writing or reading
+        long bytesPerPass = 6000 * MB;
+        long now = 1_000_000;
+
+        WipeJob roomy = job(now + 90 * MINUTE);
+        DeadlinePolicy.Choice choice = new DeadlinePolicy(roomy).reevaluate(roomy, bytesPerPass, true, rates, now);
+        Assert.assertTrue(choice.fits);
+        Assert.assertEquals(3, roomy.number_passes);
+        Assert.assertEquals(1.0, roomy.verifySampleRate, 0);
+
+        // 2 random passes + blanking, each with a 25% verify sample: 37.5 minutes
+        WipeJob tight = job(now + 40 * MINUTE);
+        new DeadlinePolicy(tight).reevaluate(tight, bytesPerPass, true, rates, now);
+        Assert.assertEquals(2, tight.number_passes);
+        Assert.assertTrue(tight.blank);
+        Assert.assertEquals(0.25, tight.verifySampleRate, 0);
+
+        // Not even one zero pass fits: a single zero pass over half the free space
+        WipeJob rushed = job(now + 6 * MINUTE);
+        choice = new DeadlinePolicy(rushed).reevaluate(rushed, bytesPerPass, true, rates, now);
+        Assert.assertEquals(0, rushed.number_passes);
+        Assert.assertTrue(rushed.blank);
+        Assert.assertFalse(rushed.verify);
+        Assert.assertEquals(0.5, rushed.fillCoverage, 0);
+        Assert.assertTrue(choice.fits);
+
+        // Folder mode never samples or cuts coverage
+        WipeJob folders = job(now + 6 * MINUTE);
+        choice = new DeadlinePolicy(folders).reevaluate(folders, bytesPerPass, false, rates, now);
+        Assert.assertFalse(choice.fits);
+        Assert.assertEquals(1.0, folders.fillCoverage, 0);
+    }
+
+    @Test
+    public void testPastDeadlineEndsAfterCompletedPasses() {
+        WipeJob job = job(1000);
+        DeadlinePolicy policy = new DeadlinePolicy(job);
+        job.passes_completed = 1;
+        policy.passCompleted(0, false, 1.0, 0.25);
+        policy.reevaluate(job, MB, true, new ThroughputEstimator(), 2000);
+        Assert.assertTrue(job.isCompleted());
+
+        DeadlinePolicy.Outcome outcome = policy.finish(2000);
+        Assert.assertFalse(outcome.met);
+        Assert.assertFalse(outcome.isFullPolicy());
+        Assert.assertEquals("Deadline missed: 1 of 3 random passes, blanking skipped, verified at least 25% of chunks",
+            outcome.summary());
+    }
+
+    @Test
+    public void testSampledChunksAreStableAndProportional() {
+        long seed = 42;
+        int hits = 0;
+        for (long chunk = 0; chunk < 10_000; chunk++) {
+            if (DeadlinePolicy.isSampled(chunk, seed, 0.25)) hits++;
+            Assert.assertEquals(DeadlinePolicy.isSampled(chunk, seed, 0.25), DeadlinePolicy.isSampled(chunk, seed, 0.25));
+        }
+        Assert.assertEquals(2500, hits, 150);
+        Assert.assertEquals(hits * MB, DeadlinePolicy.sampledBytes(0, 10_000 * MB, (int) MB, seed, 0.25));
+        Assert.assertEquals(5 * MB, DeadlinePolicy.sampledBytes(0, 5 * MB, (int) MB, seed, 1.0));
+    }
+}
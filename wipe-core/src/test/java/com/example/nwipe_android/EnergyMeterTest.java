@@ -0,0 +1,110 @@
+package com.example.nwipe_android;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class EnergyMeterTest {
+    private static final long SECOND = 1_000_000_000L;
+    private static final long GB = 1024L * 1024 * 1024;
+
+    private static class FakeSource implements EnergyMeter.Source {
+        long counter = EnergyMeter.UNSUPPORTED;
+        long current = EnergyMeter.UNSUPPORTED;
+        long voltage = EnergyMeter.UNSUPPORTED;
+        boolean charging;
+
+        @Override
+        public long chargeCounterMicroAh() { return counter; }
+
+        @Override
+        public long currentNowMicroA() { return current; }
+
+        @Override
+        public long voltageMillivolts() { return voltage; }
+
+        @Override
+        public boolean isCharging() { return charging; }
+    }
+
+    private static class FakePhase implements EnergyMeter.PhaseSource {
+        int phase = -1;
+
+        @Override
+        public int currentPhase() { return phase; }
+    }
+
+    @Test
+    public void testIntegratesCurrentPerPhase() {
+        FakeSource source = new FakeSource();
+        FakePhase phase = new FakePhase();
+        source.current = -720_000; // discharging, reported negative
+        source.voltage = 4000;
+        source.counter = 3_000_000;
+        EnergyMeter meter = new EnergyMeter(source, phase);
+
+        long now = 0;
+        phase.phase = ThroughputEstimator.RANDOM_WRITE;
+        meter.sample(now);
+        // 10 s of writes at 720 mA: 2 mAh, 28.8 J, for 1 GB
+        for (int i = 0; i < 10; i++) meter.sample(now += SECOND);
+        meter.countBytes(GB);
+        source.counter -= 2_000;
+
+        phase.phase = ThroughputEstimator.VERIFY_READ;
+        meter.sample(now += SECOND);
+        // Plugged in halfway through the verify: those samples are not counted
+        source.charging = true;
+        for (int i = 0; i < 5; i++) meter.sample(now += SECOND);
+        meter.countBytes(2 * GB);
+
+        EnergyMeter.Summary summary = meter.summarize();
+        Assert.assertEquals("current", summary.basis);
+        Assert.assertEquals(5, summary.chargingSamples);
+        Assert.assertEquals(2, summary.phases.size());
+        EnergyMeter.PhaseEnergy write = summary.phases.get(0);
+        Assert.assertEquals(2.0, write.getMilliAmpHoursPerGB(), 1e-9);
+        Assert.assertEquals(28.8, write.getJoulesPerGB(), 1e-9);
+        Assert.assertEquals(2.0, write.counterMilliAmpHours, 1e-9);
+        EnergyMeter.PhaseEnergy verify = summary.phases.get(1);
+        Assert.assertEquals(0.2, verify.milliAmpHours, 1e-9);
+        Assert.assertEquals(0.1, verify.getMilliAmpHoursPerGB(), 1e-9);
+        Assert.assertEquals(3 * GB, summary.total.bytes);
+        Assert.assertEquals(2.2 / 3, summary.total.getMilliAmpHoursPerGB(), 1e-9);
+        Assert.assertEquals(2.2, meter.getReading().milliAmpHours, 1e-9);
+    }
+
+    @Test
+    public void testFallsBackToChargeCounter() {
+        FakeSource source = new FakeSource();
+        FakePhase phase = new FakePhase();
+        source.counter = 3_000_000;
+        EnergyMeter meter = new EnergyMeter(source, phase);
+
+        phase.phase = ThroughputEstimator.ZERO_WRITE;
+        meter.sample(0);
+        meter.sample(60 * SECOND);
+        meter.countBytes(4 * GB);
+        source.counter -= 20_000;
+        phase.phase = -1;
+        meter.sample(61 * SECOND);
+
+        EnergyMeter.Summary summary = meter.summarize();
+        Assert.assertEquals("charge_counter", summary.basis);
+        Assert.assertTrue(summary.isKnown());
+        Assert.assertEquals(5.0, summary.total.getMilliAmpHoursPerGB(), 1e-9);
+        // 20 mAh at the nominal 3.85 V
+        Assert.assertEquals(20 * 3.6 * 3.85, summary.total.joules, 1e-9);
+        Assert.assertEquals(ThroughputEstimator.PHASE_NAMES[ThroughputEstimator.ZERO_WRITE], summary.phases.get(0).phase);
+    }
+
+    @Test
+    public void testConfigurationKey() {
+        Assert.assertEquals("random|passes=3+blank|verify|streams=2",
+            EnergyMeter.configurationKey(EnergyMeter.PATTERN_RANDOM, 3, true, true, 2));
+        Assert.assertEquals("random|passes=1|streams=1",
+            EnergyMeter.configurationKey(EnergyMeter.PATTERN_RANDOM, 1, false, false, 0));
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.nwipe_android;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class FlightRecorderTest {
+
+    @Test
+    public void testRingKeepsMostRecentEvents() {
+        FlightRecorder recorder = new FlightRecorder(5);
+        Assert.assertEquals(8, recorder.getCapacity());
+        for (int i = 0; i < 20; i++) recorder.record(FlightRecorder.FILE_DELETE, i, 0);
+        recorder.record(FlightRecorder.DELETE_FAILED, FlightRecorder.REFUSED, 1, "/data/x");
+
+        List<FlightRecorder.Event> events = recorder.snapshot();
+        Assert.assertEquals(8, events.size());
+        Assert.assertEquals(13, events.get(0).a);
+        Assert.assertEquals(19, events.get(6).a);
+        Assert.assertEquals("/data/x", events.get(7).text);
+        // Counts cover everything recorded, not only what the ring still holds
+        Assert.assertEquals(21, recorder.getRecorded());
+        Assert.assertEquals(20, recorder.getCount(FlightRecorder.FILE_DELETE));
+        Assert.assertEquals("21 events: file_delete=20 delete_failed=1", recorder.summary());
+    }
+
+    @Test
+    public void testDumpRoundTrip() throws IOException {
+        FlightRecorder recorder = new FlightRecorder(16);
+        recorder.record(FlightRecorder.JOB_START, 3, 0);
+        recorder.record(FlightRecorder.FILE_OVERWRITE, 1L << 40, 2300, "/storage/emulated/0/DCIM/é.jpg");
+        recorder.record(FlightRecorder.FILE_ERROR, -1, Long.MIN_VALUE, "boom");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        recorder.write(out);
+        FlightRecorder.Dump dump = FlightRecorder.read(new ByteArrayInputStream(out.toByteArray()));
+
+        Assert.assertEquals(3, dump.recorded);
+        Assert.assertEquals(16, dump.capacity);
+        List<FlightRecorder.Event> original = recorder.snapshot();
+        Assert.assertEquals(original.size(), dump.events.size());
+        for (int i = 0; i < original.size(); i++) {
+            Assert.assertEquals(original.get(i).type, dump.events.get(i).type);
+            Assert.assertEquals(original.get(i).nanos, dump.events.get(i).nanos);
+            Assert.assertEquals(original.get(i).a, dump.events.get(i).a);
+            Assert.assertEquals(original.get(i).b, dump.events.get(i).b);
+            Assert.assertEquals(original.get(i).text, dump.events.get(i).text);
+        }
+        String text = dump.render();
+        Assert.assertTrue(text.contains("file_overwrite bytes=1099511627776 us=2300 /storage/emulated/0/DCIM/é.jpg"));
+        Assert.assertTrue(text.contains("job_start passes=3 resumed_passes=0\n"));
+    }
+}
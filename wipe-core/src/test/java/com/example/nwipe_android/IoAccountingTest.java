@@ -0,0 +1,123 @@
+package com.example.nwipe_android;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+@RunWith(JUnit4.class)
+public class IoAccountingTest {
+    private static final String DM48_STAT = "/sys/dev/block/253:48/stat";
+
+    /**
+     * Serves fixture resources in place of the proc and sysfs files.
+     */
+    private static class FixtureSource implements IoAccounting.Source {
+        final Map<String, String> files = new HashMap<>();
+        long allocated = -1;
+
+        @Override
+        public String read(String path) throws IOException {
+            String resource = files.get(path);
+            if (resource == null) throw new FileNotFoundException(path);
+            return fixture(resource);
+        }
+
+        @Override
+        public long allocatedBytes(File file) {
+            return allocated;
+        }
+    }
+
+    private static String fixture(String resource) throws IOException {
+        try (InputStream in = IoAccountingTest.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) throw new FileNotFoundException(resource);
+            StringBuilder text = new StringBuilder();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) > 0) text.append(new String(buffer, 0, n, StandardCharsets.US_ASCII));
+            return text.toString();
+        }
+    }
+
+    @Test
+    public void testParsers() throws IOException {
+        long[] io = IoAccounting.parseProcIo(fixture("io/proc_self_io_start.txt"));
+        Assert.assertNotNull(io);
+        Assert.assertEquals(1073754112L, io[0]);
+        Assert.assertEquals(4096L, io[1]);
+        Assert.assertNull(IoAccounting.parseProcIo("rchar: 1\nwchar: 2\n"));
+        Assert.assertEquals(80212040L, IoAccounting.parseWriteSectors(fixture("io/dm48_stat_start.txt")));
+        Assert.assertEquals(-1, IoAccounting.parseWriteSectors("1 2 3"));
+
+        String mounts = fixture("io/mountinfo.txt");
+        IoAccounting.Mount data = IoAccounting.findMount(mounts, "/data/media/0/Download");
+        Assert.assertEquals("253:48", data.majorMinor);
+        Assert.assertEquals("f2fs", data.fsType);
+        Assert.assertEquals("/dev/block/dm-48", data.source);
+        IoAccounting.Mount emulated = IoAccounting.findMount(mounts, "/storage/emulated/0/Download");
+        Assert.assertEquals("fuse", emulated.fsType);
+        Assert.assertFalse(emulated.isBlockDevice());
+        Assert.assertEquals("/data/media/0/Download", IoAccounting.lowerPath("/storage/emulated/0/Download"));
+        Assert.assertEquals("/mnt/media_rw/1A2B-3C4D/DCIM", IoAccounting.lowerPath("/storage/1A2B-3C4D/DCIM"));
+        Assert.assertEquals("exfat", IoAccounting.findMount(mounts, "/mnt/media_rw/My Drive/x").fsType);
+        Assert.assertEquals("ext4", IoAccounting.findMount(mounts, "/system/bin").fsType);
+    }
+
+    @Test
+    public void testPassThroughFuseToCompressedDevice() {
+        FixtureSource source = new FixtureSource();
+        source.files.put(IoAccounting.MOUNTINFO, "io/mountinfo.txt");
+        source.files.put(IoAccounting.PROC_IO, "io/proc_self_io_start.txt");
+        source.files.put(DM48_STAT, "io/dm48_stat_start.txt");
+        IoAccounting accounting = new IoAccounting(source);
+
+        accounting.beginPass(0, new File("/storage/emulated/0"));
+        accounting.countWritten(1L << 30);
+        source.allocated = 512L << 20;
+        accounting.countFile(new File("/storage/emulated/0/nwipe_1"), 1L << 30);
+        source.files.put(IoAccounting.PROC_IO, "io/proc_self_io_end.txt");
+        source.files.put(DM48_STAT, "io/dm48_stat_end.txt");
+        IoAccounting.PassRecord pass = accounting.endPass();
+
+        Assert.assertEquals(1L << 30, pass.appBytes);
+        Assert.assertEquals(1L << 30, pass.processBytes);
+        Assert.assertEquals(1045600L * 512, pass.deviceBytes);
+        Assert.assertEquals(0.4986, pass.writeAmplification, 0.0001);
+        Assert.assertEquals(512L << 20, pass.allocatedBytes);
+
+        IoAccounting.Summary summary = accounting.summarize();
+        Assert.assertEquals(IoAccounting.BASIS_DEVICE, summary.basis);
+        Assert.assertEquals("253:48 /dev/block/dm-48 (f2fs)", summary.device);
+        Assert.assertTrue(summary.isLow());
+    }
+
+    @Test
+    public void testFallsBackToProcessCounters() {
+        FixtureSource source = new FixtureSource();
+        source.files.put(IoAccounting.MOUNTINFO, "io/mountinfo.txt");
+        source.files.put(IoAccounting.PROC_IO, "io/proc_self_io_start.txt");
+        // The device stat is not readable (SELinux)
+        IoAccounting accounting = new IoAccounting(source);
+
+        accounting.beginPass(0, new File("/data/media/0"));
+        accounting.countWritten(1L << 30);
+        source.files.put(IoAccounting.PROC_IO, "io/proc_self_io_end.txt");
+        IoAccounting.PassRecord pass = accounting.endPass();
+
+        Assert.assertEquals(-1, pass.deviceBytes);
+        Assert.assertEquals(1.0, pass.writeAmplification, 0.0001);
+        IoAccounting.Summary summary = accounting.summarize();
+        Assert.assertEquals(IoAccounting.BASIS_PROCESS, summary.basis);
+        Assert.assertNull(summary.device);
+        Assert.assertFalse(summary.isLow());
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.nwipe_android;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketsCoverValuesWithinPrecision() {
+        int last = -1;
+        for (long micros = 0; micros < 5_000_000; micros += 1 + micros / 50) {
+            int index = LatencyHistogram.indexOf(micros);
+            Assert.assertTrue(index >= last);
+            last = index;
+            long highest = LatencyHistogram.highestEquivalent(index);
+            Assert.assertTrue(highest >= micros);
+            Assert.assertTrue("" + micros, highest - micros <= Math.max(0, micros / LatencyHistogram.SUB_BUCKETS));
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0, histogram.getValueAtPercentile(99));
+        // 1..10000 ms, one sample each
+        for (long ms = 1; ms <= 10_000; ms++) histogram.record(ms * 1_000_000L);
+
+        Assert.assertEquals(10_000, histogram.getCount());
+        Assert.assertEquals(5_000_000, histogram.getValueAtPercentile(50), 5_000_000 * 0.04);
+        Assert.assertEquals(9_900_000, histogram.getValueAtPercentile(99), 9_900_000 * 0.04);
+        Assert.assertEquals(9_990_000, histogram.getValueAtPercentile(99.9), 9_990_000 * 0.04);
+        Assert.assertEquals(10_000_000, histogram.getMaxMicros());
+        Assert.assertEquals(5_000_500, histogram.getMeanMicros());
+
+        LatencyHistogram.Summary summary = histogram.summarize();
+        long counted = 0;
+        for (long[] bucket : summary.buckets) counted += bucket[1];
+        Assert.assertEquals(10_000, counted);
+        Assert.assertTrue(summary.p999Micros <= summary.maxMicros);
+    }
+
+    @Test
+    public void testPhaseTimingsSummarizeRecordedPhasesOnly() {
+        PhaseTimings timings = new PhaseTimings();
+        timings.record(PhaseTimings.WRITE, 3_000_000);
+        timings.record(PhaseTimings.FSYNC, 40_000_000);
+        Assert.assertEquals("[write, fsync]", timings.summarize().keySet().toString());
+        Assert.assertTrue(PhaseTimings.describe(timings.summarize()).startsWith("write: n=1 p50=3.0 ms"));
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.nwipe_android;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+@RunWith(JUnit4.class)
+public class MetricsHttpServerTest {
+
+    private static String read(InputStream in) throws IOException {
+        StringBuilder text = new StringBuilder();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) > 0) text.append(new String(buffer, 0, n, StandardCharsets.UTF_8));
+        return text.toString();
+    }
+
+    private static HttpURLConnection open(MetricsHttpServer server, String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + path).openConnection();
+        connection.setConnectTimeout(2000);
+        connection.setReadTimeout(2000);
+        return connection;
+    }
+
+    @Test
+    public void testWriterFormat() {
+        MetricsHttpServer.Writer out = new MetricsHttpServer.Writer();
+        out.family("nwipe_written_bytes_total", MetricsHttpServer.Writer.COUNTER, "Bytes written.");
+        out.sample("nwipe_written_bytes_total", 1L << 32, "volume", "/storage/\"SD\"", "job", null);
+        out.family("nwipe_written_bytes_total", MetricsHttpServer.Writer.COUNTER, "Bytes written.");
+        out.family("nwipe_thermal_headroom", MetricsHttpServer.Writer.GAUGE, "Headroom.");
+        out.sample("nwipe_thermal_headroom", Double.NaN);
+        out.sample("nwipe_thermal_headroom", 0.25, "zone", "a\\b");
+        Assert.assertEquals("# HELP nwipe_written_bytes_total Bytes written.\n"
+            + "# TYPE nwipe_written_bytes_total counter\n"
+            + "nwipe_written_bytes_total{volume=\"/storage/\\\"SD\\\"\"} 4294967296\n"
+            + "# HELP nwipe_thermal_headroom Headroom.\n"
+            + "# TYPE nwipe_thermal_headroom gauge\n"
+            + "nwipe_thermal_headroom NaN\n"
+            + "nwipe_thermal_headroom{zone=\"a\\\\b\"} 0.25\n", out.toString());
+    }
+
+    @Test
+    public void testServesMetricsOverHttp() throws IOException {
+        AtomicLong scrapes = new AtomicLong();
+        MetricsHttpServer.Collector collector = out -> {
+            out.family("nwipe_scrapes", MetricsHttpServer.Writer.COUNTER, "Scrapes served.");
+            out.sample("nwipe_scrapes", scrapes.incrementAndGet());
+        };
+        try (MetricsHttpServer server = new MetricsHttpServer(0, collector)) {
+            Assert.assertTrue(server.getPort() > 0);
+            for (int scrape = 1; scrape <= 2; scrape++) {
+                HttpURLConnection connection = open(server, MetricsHttpServer.PATH);
+                Assert.assertEquals(200, connection.getResponseCode());
+                Assert.assertEquals(MetricsHttpServer.CONTENT_TYPE, connection.getContentType());
+                String body = read(connection.getInputStream());
+                Assert.assertTrue(body, body.contains("# TYPE nwipe_scrapes counter\n"));
+                Assert.assertTrue(body, body.endsWith("nwipe_scrapes " + scrape + "\n"));
+                connection.disconnect();
+            }
+
+            HttpURLConnection missing = open(server, "/");
+            Assert.assertEquals(404, missing.getResponseCode());
+            missing.disconnect();
+
+            HttpURLConnection post = open(server, MetricsHttpServer.PATH);
+            post.setRequestMethod("POST");
+            post.setDoOutput(true);
+            post.getOutputStream().write(1);
+            Assert.assertEquals(405, post.getResponseCode());
+            post.disconnect();
+        }
+    }
+}
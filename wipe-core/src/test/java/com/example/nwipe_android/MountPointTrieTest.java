@@ -0,0 +1,50 @@
+package com.example.nwipe_android;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class MountPointTrieTest {
+    private MountPointTrie<String> trie;
+
+    @Before
+    public void setUp() {
+        this.trie = new MountPointTrie<>();
+        this.trie.put("/storage/emulated/0", "Internal Storage");
+        this.trie.put("/storage/1A2B-3C4D", "SD Card");
+    }
+
+    @Test
+    public void testResolvesRoot() {
+        MountPointTrie.Match<String> match = trie.resolve("/storage/emulated/0");
+        Assert.assertNotNull(match);
+        Assert.assertEquals(match.value, "Internal Storage");
+        Assert.assertTrue(match.isRoot());
+    }
+
+    @Test
+    public void testResolvesRelativePath() {
+        MountPointTrie.Match<String> match = trie.resolve("/storage/1A2B-3C4D/DCIM/Camera/");
+        Assert.assertNotNull(match);
+        Assert.assertEquals(match.value, "SD Card");
+        Assert.assertEquals(match.root, "/storage/1A2B-3C4D");
+        Assert.assertEquals(match.relativePath, "DCIM/Camera");
+    }
+
+    @Test
+    public void testDoesNotMatchPartialComponent() {
+        Assert.assertNull(trie.resolve("/storage/emulated/01"));
+        Assert.assertNull(trie.resolve("/storage/emulated"));
+    }
+
+    @Test
+    public void testDeepestRootWins() {
+        trie.put("/storage/emulated/0/Android/data/app", "App Files");
+        Assert.assertEquals(trie.resolve("/storage/emulated/0/Android/data/app/cache").value, "App Files");
+        Assert.assertEquals(trie.resolve("/storage/emulated/0/Android/data").value, "Internal Storage");
+        Assert.assertEquals(trie.size(), 3);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.nwipe_android;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.IOException;
+
+@RunWith(JUnit4.class)
+public class ProgressChannelTest {
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        this.file = File.createTempFile("progress", ".chan");
+        this.file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        this.file.delete();
+    }
+
+    private static ProgressSnapshot snapshot(int passesCompleted, long wiped, String error) {
+        return new ProgressSnapshot(1234L, 3, true, true, passesCompleted, 1000, wiped, false, error, null, null,
+                false, ThroughputEstimator.Estimate.UNKNOWN, EnergyMeter.Reading.UNKNOWN);
+    }
+
+    @Test
+    public void testReaderIsNullBeforeWriterExists() {
+        Assert.assertNull(ProgressChannel.openReader(this.file));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        try (ProgressChannel writer = ProgressChannel.openWriter(this.file);
+             ProgressChannel reader = ProgressChannel.openReader(this.file)) {
+            Assert.assertNotNull(reader);
+            Assert.assertNull(reader.read());
+
+            writer.write(snapshot(2, 500, "Verification mismatch"), true, 42L);
+            ProgressChannel.Frame frame = reader.read();
+            Assert.assertNotNull(frame);
+            Assert.assertTrue(frame.active);
+            Assert.assertEquals(42L, frame.startedAtMs);
+            Assert.assertEquals(2, frame.snapshot.passesCompleted);
+            Assert.assertEquals(500, frame.snapshot.wipedBytes);
+            Assert.assertTrue(frame.snapshot.verify);
+            Assert.assertEquals("Verification mismatch", frame.snapshot.errorMessage);
+            Assert.assertEquals(frame.sequence, reader.sequence(0));
+        }
+    }
+
+    @Test
+    public void testSequenceAdvancesAndSlotsAreIndependent() throws IOException {
+        try (ProgressChannel writer = ProgressChannel.openWriter(this.file);
+             ProgressChannel reader = ProgressChannel.openReader(this.file)) {
+            writer.write(snapshot(0, 10, ""), true, 1L);
+            long first = reader.sequence(0);
+            writer.write(snapshot(1, 20, ""), false, 1L);
+            Assert.assertTrue(reader.sequence(0) > first);
+            Assert.assertEquals(0, first % 2);
+            Assert.assertFalse(reader.read().active);
+            Assert.assertNull(reader.read(1));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.nwipe_android;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class StallWatchdogTest {
+    private static final long MS = 1_000_000L;
+    private static final long T0 = 1_000 * MS;
+
+    @Test
+    public void testSoftThenHardStall() {
+        StallWatchdog watchdog = new StallWatchdog(2, null);
+        watchdog.begin(1, "write", T0);
+
+        Assert.assertTrue(watchdog.check(T0 + 5_000 * MS).isEmpty());
+        List<StallWatchdog.Event> soft = watchdog.check(T0 + StallWatchdog.INITIAL_SOFT_DEADLINE_MS * MS);
+        Assert.assertEquals(1, soft.size());
+        Assert.assertFalse(soft.get(0).hard);
+        Assert.assertEquals(1, soft.get(0).lane);
+        Assert.assertTrue(watchdog.isStalled(T0 + 15_000 * MS));
+        // Reported once per chunk
+        Assert.assertTrue(watchdog.check(T0 + 20_000 * MS).isEmpty());
+
+        List<StallWatchdog.Event> hard = watchdog.check(T0 + watchdog.getHardDeadlineMs() * MS);
+        Assert.assertEquals(1, hard.size());
+        Assert.assertTrue(hard.get(0).hard);
+        Assert.assertSame(Thread.currentThread(), hard.get(0).thread);
+        // The abandoned lane no longer counts as stalled, and its late end is ignored
+        Assert.assertFalse(watchdog.isStalled(T0 + 60_000 * MS));
+        watchdog.end(1, T0 + 90_000 * MS);
+        Assert.assertEquals(1, watchdog.getSoftStalls());
+        Assert.assertEquals(1, watchdog.getHardStalls());
+        Assert.assertEquals(StallWatchdog.INITIAL_SOFT_DEADLINE_MS, watchdog.getSoftDeadlineMs());
+    }
+
+    @Test
+    public void testDeadlineAdaptsToLatency() {
+        StallWatchdog watchdog = new StallWatchdog(1, null);
+        long now = T0;
+        for (int i = 0; i < 32; i++) {
+            watchdog.begin(0, "write", now);
+            now += 20 * MS;
+            watchdog.end(0, now);
+        }
+        // Fast chunks: the floor applies
+        Assert.assertEquals(StallWatchdog.MIN_SOFT_DEADLINE_MS, watchdog.getSoftDeadlineMs());
+        Assert.assertEquals(StallWatchdog.MIN_HARD_DEADLINE_MS, watchdog.getHardDeadlineMs());
+
+        for (int i = 0; i < 64; i++) {
+            watchdog.begin(0, "write", now);
+            now += 10_000 * MS;
+            watchdog.end(0, now);
+        }
+        // A slow card: the soft deadline follows, with margin, and the hard one scales with it
+        long soft = watchdog.getSoftDeadlineMs();
+        Assert.assertTrue(soft > 10_000 && soft < 20_000);
+        Assert.assertEquals(soft * StallWatchdog.HARD_DEADLINE_MULTIPLIER, watchdog.getHardDeadlineMs());
+        Assert.assertEquals(0, watchdog.getSoftStalls());
+    }
+}
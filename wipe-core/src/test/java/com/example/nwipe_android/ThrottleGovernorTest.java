@@ -0,0 +1,81 @@
+package com.example.nwipe_android;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ThrottleGovernorTest {
+
+    /**
+     * Stand-in for the platform signals; tests set the fields before each sample.
+     */
+    private static class FakeSource implements ThrottleGovernor.SignalSource {
+        int thermalStatus = ThrottleGovernor.THERMAL_STATUS_NONE;
+        float headroom = Float.NaN;
+        int battery = 80;
+        boolean charging = false;
+        int reads = 0;
+
+        @Override
+        public ThrottleGovernor.Signals read() {
+            reads++;
+            return new ThrottleGovernor.Signals(thermalStatus, headroom, battery, charging);
+        }
+    }
+
+    @Test
+    public void testBacksOffWithThermalStatusAndHeadroom() {
+        FakeSource source = new FakeSource();
+        ThrottleGovernor governor = new ThrottleGovernor(source, 8, 15, 1000);
+
+        ThrottleGovernor.Decision cool = governor.current(0);
+        Assert.assertEquals(8, cool.lanes);
+        Assert.assertEquals(0, cool.idleNanosAfter(1_000_000));
+
+        source.thermalStatus = ThrottleGovernor.THERMAL_STATUS_SEVERE;
+        ThrottleGovernor.Decision severe = governor.current(1000);
+        Assert.assertEquals(1, severe.lanes);
+        Assert.assertEquals(1_000_000, severe.idleNanosAfter(1_000_000)); // 50% duty
+
+        // Headroom takes precedence over the coarse status
+        source.headroom = 0.8f;
+        ThrottleGovernor.Decision warm = governor.current(2000);
+        Assert.assertEquals(4, warm.lanes);
+        Assert.assertFalse(warm.paused);
+
+        source.thermalStatus = ThrottleGovernor.THERMAL_STATUS_EMERGENCY;
+        source.headroom = Float.NaN;
+        Assert.assertTrue(governor.current(3000).paused);
+    }
+
+    @Test
+    public void testBatteryFloorPausesWithHysteresis() {
+        FakeSource source = new FakeSource();
+        ThrottleGovernor governor = new ThrottleGovernor(source, 4, 15, 1000);
+
+        source.battery = 14;
+        Assert.assertTrue(governor.current(0).paused);
+        source.battery = 17; // above the floor but inside the hysteresis band
+        Assert.assertTrue(governor.current(1000).paused);
+        source.charging = true;
+        Assert.assertFalse(governor.current(2000).paused);
+        source.charging = false;
+        Assert.assertFalse(governor.current(3000).paused);
+        source.battery = 20;
+        Assert.assertFalse(governor.current(4000).paused);
+    }
+
+    @Test
+    public void testSamplesAtMostOncePerInterval() {
+        FakeSource source = new FakeSource();
+        ThrottleGovernor governor = new ThrottleGovernor(source, 4, 15, 1000);
+        governor.current(0);
+        governor.current(500);
+        governor.current(999);
+        Assert.assertEquals(1, source.reads);
+        governor.current(1000);
+        Assert.assertEquals(2, source.reads);
+    }
+}
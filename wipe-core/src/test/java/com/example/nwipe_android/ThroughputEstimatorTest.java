@@ -0,0 +1,65 @@
+package com.example.nwipe_android;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ThroughputEstimatorTest {
+    private static final long MB = 1024 * 1024;
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    public void testPhasesKeepTheirOwnRates() {
+        ThroughputEstimator estimator = new ThroughputEstimator();
+        for (int i = 0; i < 30; i++) {
+            estimator.record(ThroughputEstimator.RANDOM_WRITE, 20 * MB, SECOND);
+            estimator.record(ThroughputEstimator.ZERO_WRITE, 80 * MB, SECOND);
+        }
+        Assert.assertEquals(20.0 * MB, estimator.getRate(ThroughputEstimator.RANDOM_WRITE), 1);
+        Assert.assertEquals(80.0 * MB, estimator.getRate(ThroughputEstimator.ZERO_WRITE), 1);
+
+        // 2 GB random + 2 GB zeros: 102.4 s + 25.6 s; verification borrows the random write rate
+        ThroughputEstimator.Estimate estimate = estimator.estimate(ThroughputEstimator.RANDOM_WRITE,
+                new long[]{2048 * MB, 2048 * MB, 0});
+        Assert.assertEquals(128_000, estimate.remainingMs);
+        // Steady rates leave no spread
+        Assert.assertEquals(estimate.remainingMs, estimate.lowMs);
+        Assert.assertEquals(estimate.remainingMs, estimate.highMs);
+        Assert.assertEquals(20.0 * MB, estimate.bytesPerSecond, 1);
+    }
+
+    @Test
+    public void testBoundsWidenWithNoisyRates() {
+        ThroughputEstimator estimator = new ThroughputEstimator();
+        Assert.assertFalse(estimator.estimate(ThroughputEstimator.RANDOM_WRITE, new long[]{MB, 0, 0}).isKnown());
+        for (int i = 0; i < 40; i++) {
+            estimator.record(ThroughputEstimator.RANDOM_WRITE, (i % 2 == 0 ? 10 : 30) * MB, SECOND);
+        }
+        ThroughputEstimator.Estimate estimate = estimator.estimate(ThroughputEstimator.RANDOM_WRITE,
+                new long[]{1000 * MB, 0, 1000 * MB});
+        Assert.assertTrue(estimate.isKnown());
+        Assert.assertTrue(estimate.lowMs < estimate.remainingMs);
+        Assert.assertTrue(estimate.highMs > estimate.remainingMs);
+    }
+
+    @Test
+    public void testRemainingBytesPerPhase() {
+        WipeJob job = new WipeJob();
+        job.number_passes = 2;
+        job.blank = true;
+        job.verify = true;
+        job.passes_completed = 1;
+        WipeProgress progress = new WipeProgress(job);
+
+        // Pass 2 (random) at 40 of 100 bytes, then its verify, then blanking and its verify
+        long[] remaining = progress.remainingBytes(progress.currentPhase(), 100, 40);
+        Assert.assertArrayEquals(new long[]{60, 100, 200}, remaining);
+
+        job.passes_completed = 2;
+        job.verifying = true;
+        Assert.assertEquals(ThroughputEstimator.VERIFY_READ, progress.currentPhase());
+        Assert.assertArrayEquals(new long[]{0, 0, 90}, progress.remainingBytes(progress.currentPhase(), 100, 10));
+    }
+}
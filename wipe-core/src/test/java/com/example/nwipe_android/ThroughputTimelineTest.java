@@ -0,0 +1,90 @@
+package com.example.nwipe_android;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class ThroughputTimelineTest {
+    private static final long MB = 1024 * 1024;
+
+    /**
+     * Writes {@code chunks} 1 MB chunks at {@code fastMBps}, then the rest at {@code slowMBps}.
+     */
+    private static ThroughputTimeline.Series write(int chunks, int fastChunks, double fastMBps, double slowMBps) {
+        ThroughputTimeline.Series series = new ThroughputTimeline.Series("/storage/emulated/0", 0, false);
+        long now = 1_000_000_000L;
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            long nanos = (long) (1e9 / (chunk < fastChunks ? fastMBps : slowMBps));
+            now += nanos;
+            series.record(chunk * MB, MB, nanos, now);
+        }
+        series.close(now);
+        return series;
+    }
+
+    @Test
+    public void testDownsamplingBoundsPoints() {
+        ThroughputTimeline.Series series = write(10_000, 10_000, 100, 100);
+        Assert.assertTrue(series.points.size() <= ThroughputTimeline.MAX_POINTS);
+        Assert.assertTrue(series.points.size() >= ThroughputTimeline.MAX_POINTS / 2);
+        Assert.assertEquals(8 * MB, series.spanBytes);
+        Assert.assertEquals(10_000 * MB, series.getEndOffset());
+        Assert.assertEquals(100 * MB, series.getMedianBytesPerSec(), MB);
+        Assert.assertTrue(series.findCliffs().isEmpty());
+    }
+
+    @Test
+    public void testFindsCacheCliffAndCollapse() {
+        List<ThroughputTimeline.Cliff> cliffs = write(400, 200, 400, 80).findCliffs();
+        Assert.assertEquals(1, cliffs.size());
+        Assert.assertEquals(200 * MB, cliffs.get(0).offset);
+        Assert.assertEquals(400 * MB, cliffs.get(0).beforeBytesPerSec, MB);
+        Assert.assertFalse(cliffs.get(0).isDegraded());
+
+        cliffs = write(400, 200, 400, 10).findCliffs();
+        Assert.assertEquals(1, cliffs.size());
+        Assert.assertTrue(cliffs.get(0).isDegraded());
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        ThroughputTimeline timeline = new ThroughputTimeline();
+        timeline.beginPass("/data/media/0", 0, false);
+        for (int chunk = 0; chunk < 50; chunk++) timeline.record(chunk * MB, MB, 2_000_000);
+        timeline.beginPass("/data/media/0", 1, true);
+        for (int chunk = 0; chunk < 20; chunk++) timeline.append(MB, 1_000_000);
+        timeline.endPass();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        timeline.write(out);
+        // About ten bytes a point
+        Assert.assertTrue(out.size() < 70 * 12 + 64);
+        ThroughputTimeline read = ThroughputTimeline.read(new ByteArrayInputStream(out.toByteArray()));
+
+        List<ThroughputTimeline.Series> original = timeline.getSeries();
+        List<ThroughputTimeline.Series> decoded = read.getSeries();
+        Assert.assertEquals(2, decoded.size());
+        Assert.assertTrue(decoded.get(1).zeros);
+        Assert.assertEquals("/data/media/0", decoded.get(0).volume);
+        for (int s = 0; s < 2; s++) {
+            Assert.assertEquals(original.get(s).points.size(), decoded.get(s).points.size());
+            for (int p = 0; p < original.get(s).points.size(); p++) {
+                ThroughputTimeline.Point a = original.get(s).points.get(p);
+                ThroughputTimeline.Point b = decoded.get(s).points.get(p);
+                Assert.assertEquals(a.offset, b.offset);
+                Assert.assertEquals(a.bytes, b.bytes);
+                Assert.assertEquals(a.nanos / 1000, b.nanos / 1000);
+                Assert.assertEquals(a.latencyMicros, b.latencyMicros);
+                Assert.assertEquals(a.chunks, b.chunks);
+            }
+        }
+        Assert.assertEquals(20 * MB, decoded.get(1).getEndOffset());
+    }
+}
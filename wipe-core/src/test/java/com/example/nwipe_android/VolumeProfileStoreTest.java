@@ -0,0 +1,71 @@
+package com.example.nwipe_android;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.IOException;
+
+@RunWith(JUnit4.class)
+public class VolumeProfileStoreTest {
+    private static final double MB = 1024 * 1024;
+    private static final String MOUNTS =
+            "/dev/block/dm-5 / ext4 ro,seclabel,relatime 0 0\n"
+            + "/dev/block/dm-48 /data f2fs rw,lazytime,seclabel,nosuid,nodev 0 0\n"
+            + "/dev/fuse /storage/emulated fuse rw,lazytime,nosuid,nodev 0 0\n"
+            + "/dev/block/vold/public:179,129 /mnt/media_rw/1A2B-3C4D vfat rw,dirsync,nosuid 0 0\n"
+            + "/dev/fuse /storage/1A2B-3C4D fuse rw,lazytime,nosuid,nodev 0 0\n"
+            + "/dev/block/sda1 /mnt/media_rw/My\\040Drive exfat rw,nosuid 0 0\n";
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        this.file = File.createTempFile("profiles", ".json");
+        this.file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        this.file.delete();
+    }
+
+    @Test
+    public void testFilesystemOfDeepestMount() {
+        Assert.assertEquals("f2fs", VolumeProfileStore.filesystemOf("/data/user/0/app/files", MOUNTS));
+        Assert.assertEquals("fuse", VolumeProfileStore.filesystemOf("/storage/emulated/0/Download", MOUNTS));
+        Assert.assertEquals("vfat", VolumeProfileStore.filesystemOf("/mnt/media_rw/1A2B-3C4D/DCIM", MOUNTS));
+        Assert.assertEquals("exfat", VolumeProfileStore.filesystemOf("/mnt/media_rw/My Drive/x", MOUNTS));
+        Assert.assertEquals("ext4", VolumeProfileStore.filesystemOf("/system/bin", MOUNTS));
+    }
+
+    @Test
+    public void testRecordMergesAndPersists() throws IOException {
+        String key = VolumeProfileStore.keyFor("1A2B-3C4D", "vfat");
+        VolumeProfileStore store = new VolumeProfileStore(this.file);
+        Assert.assertNull(store.get(key));
+        Assert.assertEquals(500 * MB, VolumeProfileStore.plausibleWriteBytesPerSec(null, 500 * MB), 0);
+
+        store.record(key, new VolumeProfileStore.Observation(new double[]{20 * MB, 0, 40 * MB},
+                new double[]{25 * MB, 0, 45 * MB}, 50, 10, 2));
+        store.record(key, new VolumeProfileStore.Observation(new double[]{10 * MB, 60 * MB, 0},
+                new double[]{12 * MB, 70 * MB, 0}, 80, 20, 3));
+
+        VolumeProfileStore.Profile profile = new VolumeProfileStore(this.file).get(key);
+        Assert.assertNotNull(profile);
+        Assert.assertEquals(2, profile.jobs);
+        Assert.assertEquals(15 * MB, profile.rateBytesPerSec[ThroughputEstimator.RANDOM_WRITE], 1);
+        Assert.assertEquals(60 * MB, profile.rateBytesPerSec[ThroughputEstimator.ZERO_WRITE], 1);
+        // An unmeasured phase keeps its rate; peaks decay but never below what was just measured
+        Assert.assertEquals(40 * MB, profile.rateBytesPerSec[ThroughputEstimator.VERIFY_READ], 1);
+        Assert.assertEquals(22.5 * MB, profile.peakBytesPerSec[ThroughputEstimator.RANDOM_WRITE], 1);
+        Assert.assertEquals(80, profile.chunkLatencyMeanMs, 0);
+        Assert.assertEquals(3, profile.streams);
+        // Calibrated against the best sustained write rate (zero writes here)
+        Assert.assertEquals(140 * MB, VolumeProfileStore.plausibleWriteBytesPerSec(profile, 500 * MB), 1);
+    }
+}
@@ -0,0 +1,306 @@
+package com.example.nwipe_android;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+@RunWith(JUnit4.class)
+public class WipeEngineTest {
+    private static final long MB = 1024L * 1024;
+
+    private File dir;
+
+    /**
+     * One wipeable location in a temporary directory, reporting a fixed small amount of free
+     * space so a pass writes a few megabytes instead of filling the disk.
+     */
+    private static class TempStorage implements StorageProvider {
+        final File volume;
+        final File filesDir;
+        final long freeBytes;
+        final MountPointTrie<StorageLocation> trie = new MountPointTrie<>();
+
+        TempStorage(File root, long freeBytes) throws IOException {
+            this(root, freeBytes, false);
+        }
+
+        /**
+         * With {@code filesOnVolume} the engine state lives on the wiped volume, as the app's
+         * filesDir does on internal storage.
+         */
+        TempStorage(File root, long freeBytes, boolean filesOnVolume) throws IOException {
+            this.volume = new File(root, "volume");
+            this.filesDir = new File(filesOnVolume ? volume : root, "files");
+            this.freeBytes = freeBytes;
+            volume.mkdirs();
+            filesDir.mkdirs();
+            trie.put(volume.getCanonicalPath(), location());
+        }
+
+        StorageLocation location() throws IOException {
+            StorageLocation location = new StorageLocation(volume, freeBytes, "Temp volume", true, StorageLocation.StorageType.INTERNAL);
+            location.canonicalPath = volume.getCanonicalPath();
+            return location;
+        }
+
+        @Override
+        public StorageInfo getStorageInfo(boolean refreshCapacity) {
+            StorageInfo info = new StorageInfo(4 * freeBytes, freeBytes, true);
+            try {
+                info.locations = Collections.singletonList(location());
+            } catch (IOException e) {
+                info.errorMessage = e.getMessage();
+            }
+            return info;
+        }
+
+        @Override
+        public File getFilesDir() {
+            return filesDir;
+        }
+
+        @Override
+        public MountPointTrie.Match<StorageLocation> resolveLocation(File target) {
+            try {
+                return trie.resolve(target.getCanonicalPath());
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public long getFreeSpace(File directory) {
+            return freeBytes;
+        }
+    }
+
+    /**
+     * Keeps the error lines, so a test can show them when the job failed.
+     */
+    private static class ErrorLog implements EngineLog {
+        final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        public void d(String tag, String message) {}
+
+        @Override
+        public void i(String tag, String message) {}
+
+        @Override
+        public void w(String tag, String message) {}
+
+        @Override
+        public void e(String tag, String message) {
+            errors.add(message);
+        }
+    }
+
+    /**
+     * Far behind System.nanoTime(), advancing a millisecond per read, so a timestamp taken from
+     * the system clock anywhere in the job shows up as an absurd latency.
+     */
+    private static class StepClock implements Clock {
+        static final long START_NANOS = -(1L << 60);
+        static final long START_MS = 1_000_000_000_000L;
+        final AtomicLong nanos = new AtomicLong(START_NANOS);
+
+        @Override
+        public long currentTimeMillis() {
+            return START_MS + (nanos.get() - START_NANOS) / 1_000_000;
+        }
+
+        @Override
+        public long nanoTime() {
+            return nanos.addAndGet(1_000_000);
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        this.dir = File.createTempFile("engine", "");
+        this.dir.delete();
+        this.dir.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        delete(this.dir);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) for (File child : children) delete(child);
+        file.delete();
+    }
+
+    private static void write(File file, int length) throws IOException {
+        byte[] data = new byte[length];
+        Arrays.fill(data, (byte) 0x5A);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+    }
+
+    private static WipeEngine newEngine(StorageProvider storage, ErrorLog log) {
+        return newEngine(storage, log, Clock.SYSTEM);
+    }
+
+    /**
+     * Writer streams follow chunk latency only, whatever the host's /proc/pressure/io says.
+     */
+    private static WipeEngine newEngine(StorageProvider storage, ErrorLog log, Clock clock) {
+        return new WipeEngine(storage, new ProgressBus(), new WipeEngine.CancelToken(), clock)
+            .setLog(log)
+            .setPsiReader(null)
+            .setBufferPool(new BufferPool(BufferPool.MIN_CAP_BYTES * 4));
+    }
+
+    @Test
+    public void testFreeSpacePassesAreWrittenVerifiedAndRemoved() throws IOException {
+        TempStorage storage = new TempStorage(this.dir, 3 * MB + 4096);
+        File state = new File(storage.filesDir, WipeQueue.FILE_NAME);
+        write(state, 100);
+        ErrorLog log = new ErrorLog();
+        WipeEngine engine = newEngine(storage, log);
+        WipeJob job = new WipeJob();
+        job.number_passes = 1;
+        job.verify = true;
+        job.blank = true;
+        job.deleteExistingFirst = false;
+
+        engine.execute(job);
+
+        Assert.assertEquals(log.errors.toString(), "", job.errorMessage);
+        Assert.assertEquals(2, job.passes_completed);
+        Assert.assertTrue(job.isCompleted());
+        Assert.assertEquals(2 * storage.freeBytes, engine.getWrittenBytes());
+        Assert.assertEquals(2 * storage.freeBytes, engine.getVerifiedBytes());
+        // Both fill files are gone; the engine's own state is left alone
+        Assert.assertEquals(0, storage.volume.list().length);
+        Assert.assertEquals(100, state.length());
+        Assert.assertEquals(Arrays.asList("random", "0x00"), engine.getReport().passPatterns);
+    }
+
+    @Test
+    public void testFolderWipeWithFixedPatternScheme() throws IOException {
+        TempStorage storage = new TempStorage(this.dir, 2 * MB);
+        File folder = new File(storage.volume, "DCIM");
+        File nested = new File(folder, "Camera");
+        nested.mkdirs();
+        write(new File(folder, "a.jpg"), 1500 * 1024);
+        write(new File(nested, "b.jpg"), 3 * 4096 + 7);
+        write(new File(nested, "empty.jpg"), 0);
+        long total = 1500 * 1024 + 3 * 4096 + 7;
+        ErrorLog log = new ErrorLog();
+        WipeEngine engine = newEngine(storage, log);
+        WipeJob job = new WipeJob();
+        job.verify = true;
+        WipeScheme.forId(WipeScheme.DOD_3PASS).applyTo(job);
+        job.targetFolders = Collections.singletonList(folder.getAbsolutePath());
+
+        engine.execute(job);
+
+        Assert.assertEquals(log.errors.toString(), "", job.errorMessage);
+        Assert.assertEquals(3, job.passes_completed);
+        // Every pass read back what it wrote: zeros, ones, then the seeded random stream
+        Assert.assertEquals(3 * total, engine.getVerifiedBytes());
+        Assert.assertEquals(Arrays.asList("0x00", "0xFF", "random"), engine.getReport().passPatterns);
+        Assert.assertEquals("DoD 5220.22-M (3 passes), verified", engine.getReport().wipeMethod);
+        // The folder is emptied and no junk file is left next to it
+        Assert.assertEquals(0, folder.list().length);
+        Assert.assertEquals(Collections.singletonList("DCIM"), Arrays.asList(storage.volume.list()));
+    }
+
+    @Test(timeout = 60_000)
+    public void testVerifiedDodJobsFitTheMinimumBufferCap() throws IOException {
+        TempStorage storage = new TempStorage(this.dir, 2 * MB);
+        File folder = new File(storage.volume, "DCIM");
+        folder.mkdirs();
+        write(new File(folder, "a.jpg"), 1500 * 1024);
+        for (boolean folderMode : new boolean[]{true, false}) {
+            BufferPool pool = new BufferPool(BufferPool.MIN_CAP_BYTES);
+            ErrorLog log = new ErrorLog();
+            WipeEngine engine = newEngine(storage, log).setBufferPool(pool);
+            WipeJob job = new WipeJob();
+            job.verify = true;
+            WipeScheme.forId(WipeScheme.DOD_3PASS).applyTo(job);
+            job.deleteExistingFirst = false;
+            if (folderMode) job.targetFolders = Collections.singletonList(folder.getAbsolutePath());
+
+            engine.execute(job);
+
+            Assert.assertEquals(log.errors.toString(), "", job.errorMessage);
+            Assert.assertEquals(3, job.passes_completed);
+            Assert.assertEquals(0, pool.getLeasedBytes());
+            Assert.assertTrue(pool.describe(), pool.getAllocatedBytes() <= BufferPool.MIN_CAP_BYTES);
+        }
+    }
+
+    @Test
+    public void testAllTimingComesFromTheInjectedClock() throws IOException {
+        TempStorage storage = new TempStorage(this.dir, 2 * MB);
+        StepClock clock = new StepClock();
+        ErrorLog log = new ErrorLog();
+        WipeEngine engine = newEngine(storage, log, clock);
+        WipeJob job = new WipeJob();
+        job.number_passes = 1;
+        job.verify = true;
+        job.blank = false;
+        job.deleteExistingFirst = false;
+
+        engine.execute(job);
+
+        Assert.assertEquals(log.errors.toString(), "", job.errorMessage);
+        Assert.assertEquals(1, job.passes_completed);
+        long elapsedMicros = (clock.nanos.get() - StepClock.START_NANOS) / 1000;
+        PhaseTimings timings = engine.getTimings();
+        Assert.assertTrue(timings.get(PhaseTimings.WRITE).getCount() > 0);
+        for (int phase = 0; phase < PhaseTimings.PHASE_NAMES.length; phase++) {
+            long max = timings.get(phase).getMaxMicros();
+            Assert.assertTrue(PhaseTimings.PHASE_NAMES[phase] + " " + max, max >= 0 && max <= elapsedMicros);
+        }
+        WipeReport report = engine.getReport();
+        Assert.assertEquals(StepClock.START_MS, report.createdAtMs);
+        Assert.assertEquals(1, report.io.passes.size());
+        long passMs = report.io.passes.get(0).elapsedMs;
+        Assert.assertTrue(String.valueOf(passMs), passMs >= 0 && passMs <= elapsedMicros / 1000);
+    }
+
+    @Test
+    public void testDeletionSparesEngineState() throws IOException {
+        TempStorage storage = new TempStorage(this.dir, MB, true);
+        File user = new File(storage.volume, "notes.txt");
+        File ownFile = new File(storage.filesDir, "cache.bin");
+        File[] state = {
+            new File(storage.filesDir, WipeQueue.FILE_NAME),
+            new File(storage.filesDir, MetricsHttpServer.PORT_FILE_NAME),
+        };
+        write(user, 10);
+        write(ownFile, 10);
+        for (File file : state) write(file, 4);
+        WipeEngine engine = newEngine(storage, new ErrorLog());
+        WipeJob job = new WipeJob();
+        job.number_passes = 1;
+        job.verify = false;
+        job.blank = false;
+
+        engine.execute(job);
+
+        Assert.assertEquals("", job.errorMessage);
+        Assert.assertFalse(user.exists());
+        Assert.assertFalse(ownFile.exists());
+        for (File file : state) Assert.assertTrue(file.getName(), file.isFile());
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.nwipe_android;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+@RunWith(JUnit4.class)
+public class WipeJournalTest {
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        this.dir = File.createTempFile("journal", "");
+        this.dir.delete();
+        this.dir.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = this.dir.listFiles();
+        if (files != null) for (File f : files) f.delete();
+        this.dir.delete();
+    }
+
+    private static WipeJob newJob() {
+        WipeJob job = new WipeJob();
+        job.number_passes = 3;
+        job.verify = true;
+        job.blank = true;
+        job.targetFolders = Arrays.asList("/storage/emulated/0/DCIM");
+        return job;
+    }
+
+    @Test
+    public void testRecoversCheckpointOfInterruptedPass() throws IOException {
+        WipeJournal journal = WipeJournal.create(this.dir, newJob());
+        journal.passStarted(0, 11L, "/data/wipe0");
+        journal.passCompleted(0);
+        journal.passStarted(1, 42L, "/data/wipe1");
+        journal.checkpoint(1, WipeJournal.PHASE_WRITE, 64L << 20);
+        journal.checkpoint(1, WipeJournal.PHASE_VERIFY, 128L << 20);
+        journal.close();
+
+        WipeJournal reopened = WipeJournal.open(WipeJournal.findUnfinished(this.dir).get(0));
+        WipeJournal.Recovery recovery = reopened.getRecovery();
+        Assert.assertEquals(1, recovery.passesCompleted);
+        Assert.assertEquals(1, recovery.pass);
+        Assert.assertEquals(42L, recovery.seed);
+        Assert.assertEquals("/data/wipe1", recovery.wipeFilePath);
+        Assert.assertEquals(WipeJournal.PHASE_VERIFY, recovery.phase);
+        Assert.assertEquals(128L << 20, recovery.offset);
+        Assert.assertEquals(3, recovery.job.number_passes);
+        Assert.assertEquals("/storage/emulated/0/DCIM", recovery.job.targetFolders.get(0));
+        reopened.close();
+    }
+
+    @Test
+    public void testTornTailIsDroppedAndAppendsSurvive() throws IOException {
+        WipeJournal journal = WipeJournal.create(this.dir, newJob());
+        journal.passStarted(0, 7L, null);
+        journal.fileDone(0, WipeJournal.PHASE_WRITE, "/a");
+        journal.close();
+        File file = journal.getFile();
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write("0badc0de {\"t\":\"file_do".getBytes(StandardCharsets.UTF_8));
+        }
+
+        WipeJournal reopened = WipeJournal.open(file);
+        Assert.assertTrue(reopened.getRecovery().writtenFiles.contains("/a"));
+        reopened.fileDone(0, WipeJournal.PHASE_WRITE, "/b");
+        reopened.close();
+
+        WipeJournal.Recovery recovery = WipeJournal.open(file).getRecovery();
+        Assert.assertTrue(recovery.writtenFiles.contains("/a"));
+        Assert.assertTrue(recovery.writtenFiles.contains("/b"));
+    }
+
+    @Test
+    public void testFinishRemovesJournal() throws IOException {
+        WipeJournal journal = WipeJournal.create(this.dir, newJob());
+        journal.finish();
+        Assert.assertTrue(WipeJournal.findUnfinished(this.dir).isEmpty());
+    }
+
+    @Test
+    public void testChunkPatternIsAddressable() {
+        byte[] sequential = new byte[16];
+        byte[] direct = new byte[16];
+        ChunkPattern first = new ChunkPattern(99L);
+        first.fill(sequential, 0);
+        first.fill(sequential, 5);
+        new ChunkPattern(99L).fill(direct, 5);
+        Assert.assertArrayEquals(sequential, direct);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.nwipe_android;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class WipePlanTest {
+    private static final long MB = 1024 * 1024;
+    private static final long SECOND = 1_000_000_000L;
+
+    private static WipeJob job(int passes, boolean blank, boolean verify) {
+        WipeJob job = new WipeJob();
+        job.number_passes = passes;
+        job.blank = blank;
+        job.verify = verify;
+        return job;
+    }
+
+    @Test
+    public void testCostsPassesVerifyAndSyncs() {
+        ThroughputEstimator rates = new ThroughputEstimator();
+        rates.seed(ThroughputEstimator.RANDOM_WRITE, 20 * MB);
+        rates.seed(ThroughputEstimator.ZERO_WRITE, 80 * MB);
+        WipePlan plan = new WipePlan();
+        plan.bytesPerPass = 1024 * MB;
+        plan.syncIntervalBytes = 64 * MB;
+        plan.cost(job(3, true, true), rates);
+
+        Assert.assertEquals(4, plan.passesTotal);
+        Assert.assertArrayEquals(new long[]{3 * 1024 * MB, 1024 * MB, 4 * 1024 * MB}, plan.phaseBytes);
+        Assert.assertEquals(64, plan.syncs);
+        // 3 GB at 20 MB/s, 1 GB at 80 MB/s, 4 GB of verify reads borrowing the random write rate
+        Assert.assertEquals(153_600 + 12_800 + 204_800, plan.estimate.remainingMs);
+        Assert.assertTrue(plan.summary(), plan.summary().startsWith("3 passes + blanking + verify on 1.0 GB: about 6m"));
+    }
+
+    @Test
+    public void testResumedFolderJobCostsRemainingPassesOnly() {
+        WipeJob job = job(2, false, false);
+        job.passes_completed = 1;
+        WipePlan plan = new WipePlan();
+        plan.mode = WipePlan.MODE_FOLDERS;
+        plan.bytesPerPass = 10 * MB;
+        plan.files = 5;
+        plan.fillBytes = 100 * MB;
+        plan.cost(job, new ThroughputEstimator());
+
+        Assert.assertEquals(1, plan.passesRemaining);
+        // Without a blanking pass the junk fill writes zeros
+        Assert.assertArrayEquals(new long[]{10 * MB, 100 * MB, 0}, plan.phaseBytes);
+        Assert.assertEquals(5, plan.syncs);
+        Assert.assertFalse(plan.estimate.isKnown());
+        Assert.assertTrue(plan.describe().contains("Resuming: 1 of 2 passes left"));
+    }
+}
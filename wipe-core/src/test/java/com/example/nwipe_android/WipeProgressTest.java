@@ -0,0 +1,73 @@
+package com.example.nwipe_android;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class WipeProgressTest {
+
+    private static WipeJob newJob() {
+        WipeJob job = new WipeJob();
+        job.number_passes = 1;
+        job.blank = false;
+        return job;
+    }
+
+    @Test
+    public void testStripedCountersSumAcrossLanes() throws InterruptedException {
+        WipeProgress progress = new WipeProgress(newJob());
+        progress.beginPhase(4L * 1000 * 512);
+
+        Thread[] writers = new Thread[4];
+        for (int lane = 0; lane < writers.length; lane++) {
+            final int l = lane;
+            writers[lane] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) progress.add(l, 512);
+            });
+            writers[lane].start();
+        }
+        for (Thread writer : writers) writer.join();
+
+        Assert.assertEquals(4L * 1000 * 512, progress.getWipedBytes());
+        Assert.assertEquals(100, progress.snapshot().getCurrentPassPercentageCompletion());
+    }
+
+    @Test
+    public void testSnapshotClampsAndSyncs() {
+        WipeJob job = newJob();
+        WipeProgress progress = new WipeProgress(job);
+        progress.beginPhase(100);
+        progress.add(0, 150);
+
+        Assert.assertEquals(100, progress.snapshot().wipedBytes);
+        progress.syncToJob();
+        Assert.assertEquals(100, job.wipedBytes);
+
+        progress.completePass();
+        Assert.assertTrue(progress.snapshot().isCompleted());
+    }
+
+    @Test
+    public void testBusCoalescesOffersButNotPublishes() {
+        WipeProgress progress = new WipeProgress(newJob());
+        progress.beginPhase(1000);
+        List<ProgressSnapshot> received = new ArrayList<>();
+        ProgressBus bus = new ProgressBus(60_000).addSink(received::add);
+
+        bus.offer(progress); // first offer passes: the bus starts with an elapsed interval
+        for (int i = 0; i < 100; i++) {
+            progress.add(0, 1);
+            bus.offer(progress);
+        }
+        Assert.assertEquals(1, received.size());
+
+        bus.publish(progress);
+        Assert.assertEquals(2, received.size());
+        Assert.assertEquals(100, received.get(1).wipedBytes);
+    }
+}
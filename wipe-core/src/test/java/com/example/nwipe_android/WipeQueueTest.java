@@ -0,0 +1,78 @@
+package com.example.nwipe_android;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+@RunWith(JUnit4.class)
+public class WipeQueueTest {
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        this.file = File.createTempFile("queue", ".json");
+        this.file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        this.file.delete();
+    }
+
+    private static WipeJob newJob(String folder) {
+        WipeJob job = new WipeJob();
+        job.targetFolders = Arrays.asList(folder);
+        return job;
+    }
+
+    @Test
+    public void testPriorityThenFifo() throws IOException {
+        WipeQueue queue = new WipeQueue(this.file);
+        WipeQueue.Entry low = queue.enqueue(newJob("/a"), 0, "sd");
+        WipeQueue.Entry high = queue.enqueue(newJob("/b"), 5, "primary");
+        WipeQueue.Entry lowLater = queue.enqueue(newJob("/c"), 0, "usb");
+
+        Assert.assertSame(high, queue.nextRunnable(Collections.<String>emptySet()));
+        queue.remove(high.id);
+        Assert.assertSame(low, queue.nextRunnable(Collections.<String>emptySet()));
+        queue.markRunning(low);
+        Assert.assertSame(lowLater, queue.nextRunnable(Collections.singleton("sd")));
+    }
+
+    @Test
+    public void testSameVolumeIsSerialized() throws IOException {
+        WipeQueue queue = new WipeQueue(this.file);
+        queue.enqueue(newJob("/a"), 0, "primary");
+        queue.enqueue(newJob("/b"), 0, "primary");
+        WipeQueue.Entry untargeted = queue.enqueue(new WipeJob(), 0, null);
+
+        Assert.assertEquals(WipeQueue.ALL_VOLUMES, untargeted.volumeKey);
+        Assert.assertNull(queue.nextRunnable(Collections.singleton("primary")));
+        Assert.assertNull(queue.nextRunnable(new HashSet<>(Arrays.asList(WipeQueue.ALL_VOLUMES))));
+    }
+
+    @Test
+    public void testRunningJobsAreRequeuedAfterReload() throws IOException {
+        WipeQueue queue = new WipeQueue(this.file);
+        WipeQueue.Entry first = queue.enqueue(newJob("/a"), 1, "primary");
+        queue.markRunning(first);
+        queue.enqueue(newJob("/b"), 0, "sd");
+
+        WipeQueue reloaded = new WipeQueue(this.file);
+        Assert.assertEquals(2, reloaded.size());
+        WipeQueue.Entry next = reloaded.nextRunnable(Collections.<String>emptySet());
+        Assert.assertEquals(first.id, next.id);
+        Assert.assertEquals(WipeQueue.STATE_QUEUED, next.state);
+        Assert.assertEquals("/a", next.spec.toJob().targetFolders.get(0));
+        Assert.assertFalse(first.id.equals(reloaded.enqueue(newJob("/c"), 0, "usb").id));
+    }
+}
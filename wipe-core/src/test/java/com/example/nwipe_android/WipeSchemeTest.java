@@ -0,0 +1,126 @@
+package com.example.nwipe_android;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.ByteBuffer;
+
+@RunWith(JUnit4.class)
+public class WipeSchemeTest {
+
+    @Test
+    public void testBuiltInSchemes() {
+        Assert.assertEquals(3, WipeScheme.forId(WipeScheme.DOD_3PASS).passes.size());
+        Assert.assertEquals(7, WipeScheme.forId(WipeScheme.DOD_ECE_7PASS).passes.size());
+        Assert.assertEquals(1, WipeScheme.forId(WipeScheme.NIST_CLEAR).passes.size());
+        WipeScheme gutmann = WipeScheme.forId(WipeScheme.GUTMANN);
+        Assert.assertEquals(35, gutmann.passes.size());
+        Assert.assertTrue(gutmann.passes.get(0).isRandom());
+        Assert.assertEquals("0x924924", gutmann.passes.get(6).describe());
+        Assert.assertTrue(WipeScheme.forId(null).isRandomSchedule());
+
+        WipeJob job = new WipeJob();
+        job.number_passes = 5;
+        job.blank = true;
+        WipeScheme.forId(WipeScheme.DOD_3PASS).applyTo(job);
+        Assert.assertEquals(3, job.number_passes);
+        Assert.assertFalse(job.blank);
+        Assert.assertEquals("0x00", WipeScheme.passFor(job, 0).describe());
+        Assert.assertEquals("0xFF", WipeScheme.passFor(job, 1).describe());
+        Assert.assertTrue(WipeScheme.passFor(job, 2).isRandom());
+        Assert.assertEquals("DoD 5220.22-M (3 passes)", WipeScheme.describe(job));
+        // A deadline that cut the schedule short is reported
+        job.number_passes = 2;
+        Assert.assertEquals("DoD 5220.22-M (3 passes), first 2 of 3 passes", WipeScheme.describe(job));
+
+        WipeJob legacy = new WipeJob();
+        legacy.number_passes = 2;
+        legacy.blank = true;
+        legacy.verify = true;
+        Assert.assertTrue(WipeScheme.passFor(legacy, 1).isRandom());
+        Assert.assertTrue(WipeScheme.isFixed(legacy, 2));
+        Assert.assertEquals("2 random passes + zero blanking pass, verified", WipeScheme.describe(legacy));
+    }
+
+    @Test
+    public void testDodComplianceNeedsFullDodSchedule() {
+        WipeJob dod = new WipeJob();
+        WipeScheme.forId(WipeScheme.DOD_3PASS).applyTo(dod);
+        dod.passes_completed = 3;
+        Assert.assertTrue(WipeScheme.complianceStandards(dod).contains(WipeScheme.STANDARD_DOD));
+        // Cut to a prefix by a deadline
+        dod.number_passes = 2;
+        dod.passes_completed = 2;
+        Assert.assertFalse(WipeScheme.complianceStandards(dod).contains(WipeScheme.STANDARD_DOD));
+
+        WipeJob random = new WipeJob();
+        random.number_passes = 3;
+        random.passes_completed = 4;
+        random.blank = true;
+        Assert.assertFalse(WipeScheme.complianceStandards(random).contains(WipeScheme.STANDARD_DOD));
+        for (String id : new String[]{WipeScheme.GUTMANN, "custom:11,22,33"}) {
+            WipeJob job = new WipeJob();
+            WipeScheme.forId(id).applyTo(job);
+            job.passes_completed = job.number_passes;
+            Assert.assertTrue(WipeScheme.ranInFull(job));
+            Assert.assertFalse(id, WipeScheme.complianceStandards(job).contains(WipeScheme.STANDARD_DOD));
+        }
+    }
+
+    @Test
+    public void testCustomSchemes() {
+        WipeScheme custom = WipeScheme.forId("custom:00,0xFF,random,A5A55A5A");
+        Assert.assertEquals(4, custom.passes.size());
+        Assert.assertEquals("Custom (0x00, 0xFF, random, 0xA5A55A5A)", custom.name);
+        for (String bad : new String[]{"custom:0", "custom:zz", "custom:", "custom:001122334455667788", "dod"}) {
+            try {
+                WipeScheme.forId(bad);
+                Assert.fail(bad);
+            } catch (IllegalArgumentException expected) {
+                // rejected
+            }
+        }
+    }
+
+    @Test
+    public void testPatternBufferContinuesAcrossChunks() {
+        byte[] pattern = {(byte) 0x92, 0x49, 0x24};
+        int chunk = 1000;
+        PatternBuffer buffer = new PatternBuffer(pattern, chunk);
+        ByteBuffer[] views = buffer.views();
+        ByteBuffer actual = ByteBuffer.allocateDirect(chunk);
+        for (long offset = 0; offset < 5L * chunk; offset += chunk) {
+            ByteBuffer view = buffer.viewAt(views, offset);
+            Assert.assertEquals(chunk, view.remaining());
+            for (int i = 0; i < chunk; i++) {
+                Assert.assertEquals(pattern[(int) ((offset + i) % 3)], view.get(i));
+                actual.put(i, view.get(i));
+            }
+            Assert.assertTrue(buffer.matches(actual, chunk, offset));
+            Assert.assertTrue(buffer.matches(actual, 13, offset));
+            Assert.assertFalse(buffer.matches(actual, chunk, offset + 1));
+        }
+        actual.put(chunk - 1, (byte) 0);
+        Assert.assertFalse(buffer.matches(actual, chunk, 4L * chunk));
+        Assert.assertTrue(buffer.matches(actual, chunk - 1, 4L * chunk));
+    }
+
+    @Test
+    public void testPooledPatternBufferCountsAgainstTheCap() throws Exception {
+        BufferPool pool = new BufferPool(BufferPool.MIN_CAP_BYTES);
+        byte[] pattern = new byte[WipeScheme.MAX_PATTERN_BYTES];
+        for (int i = 0; i < pattern.length; i++) pattern[i] = (byte) (i + 1);
+        int chunk = BufferPool.MAX_CLASS_BYTES;
+        PatternBuffer buffer = new PatternBuffer(pattern, chunk, pool);
+        Assert.assertEquals(chunk, pool.getLeasedBytes());
+        // The last phase's view runs into the pool's slack past the class size
+        ByteBuffer last = buffer.viewAt(buffer.views(), pattern.length - 1);
+        Assert.assertEquals(chunk, last.remaining());
+        Assert.assertEquals(pattern[(chunk - 1 + pattern.length - 1) % pattern.length], last.get(chunk - 1));
+        buffer.close();
+        Assert.assertEquals(0, pool.getLeasedBytes());
+        Assert.assertEquals(chunk, pool.getAllocatedBytes());
+    }
+}